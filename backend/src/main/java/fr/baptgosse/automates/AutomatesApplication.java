@@ -2,11 +2,13 @@ package fr.baptgosse.automates;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Point d'entrée de l'application Spring Boot.
  */
 @SpringBootApplication
+@EnableScheduling
 public class AutomatesApplication {
 
     public static void main(String[] args) {
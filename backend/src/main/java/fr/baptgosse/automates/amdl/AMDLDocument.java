@@ -0,0 +1,16 @@
+package fr.baptgosse.automates.amdl;
+
+import fr.baptgosse.automates.model.Automaton;
+
+import java.util.List;
+
+/**
+ * Résultat de l'analyse d'un fichier AMDL : les automates lus (y compris ceux contenant
+ * des erreurs, construits à partir des instructions valides) et toutes les erreurs rencontrées.
+ */
+public record AMDLDocument(List<Automaton> automata, List<AMDLException> errors) {
+
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+}
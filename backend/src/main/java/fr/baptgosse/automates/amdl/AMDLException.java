@@ -6,17 +6,27 @@ package fr.baptgosse.automates.amdl;
 public class AMDLException extends Exception {
     private final int line;
     private final int column;
+    private final String detail;
     
     public AMDLException(String message) {
         super(message);
         this.line = -1;
         this.column = -1;
+        this.detail = message;
     }
     
     public AMDLException(String message, int line, int column) {
         super(String.format("Line %d, Column %d: %s", line, column, message));
         this.line = line;
         this.column = column;
+        this.detail = message;
+    }
+
+    /**
+     * La même erreur, déplacée de {@code lines} lignes (texte modifié avant elle).
+     */
+    AMDLException moved(int lines) {
+        return lines == 0 || line < 0 ? this : new AMDLException(detail, line + lines, column);
     }
     
     public int getLine() {
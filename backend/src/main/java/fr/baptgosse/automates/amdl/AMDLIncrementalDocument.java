@@ -0,0 +1,717 @@
+package fr.baptgosse.automates.amdl;
+
+import fr.baptgosse.automates.model.Automaton;
+import fr.baptgosse.automates.model.Mutation;
+import fr.baptgosse.automates.model.PersistentAutomaton;
+import fr.baptgosse.automates.model.State;
+import fr.baptgosse.automates.model.Transition;
+import fr.baptgosse.automates.util.IdSequence;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Texte AMDL d'une session, tenu à jour ligne à ligne pour l'édition incrémentale.
+ *
+ * Le document conserve les lignes du texte et, pour chaque instruction du corps de l'automate,
+ * sa ligne de début et sa déclaration. Une modification (remplacement d'une plage de lignes) ne
+ * ré-analyse que les instructions qu'elle touche, plus l'instruction précédente (qui peut absorber
+ * le début du texte inséré) et la suivante : l'extrait est étendu tant que cette dernière n'est pas
+ * relue à l'identique, au même endroit. Les déclarations ajoutées et retirées sont ensuite
+ * comparées à la session pour produire les seules {@link Mutation} nécessaires.
+ *
+ * Une modification de l'en-tête ou de l'accolade fermante, ou un commentaire de bloc, peut changer
+ * la lecture de tout le texte : le document est alors ré-analysé en entier, la différence restant
+ * minimale. Le nom de l'automate n'est pas repris. Non thread-safe : utilisé sous le verrou
+ * d'écriture de la session.
+ */
+public final class AMDLIncrementalDocument {
+
+    // Estimation mémoire d'une instruction (déclaration, index, identifiants)
+    private static final long STATEMENT_BYTES = 200;
+
+    private final List<String> lines = new ArrayList<>();
+    private long chars;
+    private long version = -1;
+
+    // Structure relevée par la dernière analyse complète
+    private boolean incremental; // un seul automate, corps délimité par ses accolades
+    private int headerLine;
+    private int footerLine;
+    private List<AMDLException> structuralErrors = List.of();
+    private int structuralFooter;
+
+    // Instructions du corps, par ligne croissante
+    private final List<Statement> statements = new ArrayList<>();
+
+    // Déclarations d'état par nom (ordre du texte : la première fait foi), transitions déclarées
+    private final Map<String, List<Statement>> stateDecls = new HashMap<>();
+    private final Map<TransitionKey, Integer> declared = new HashMap<>();
+
+    // Correspondance avec les identifiants de la session
+    private final Map<String, String> stateIds = new HashMap<>();
+    private final Map<TransitionKey, ArrayDeque<String>> transitionIds = new HashMap<>();
+    private final Map<String, Set<TransitionKey>> keysByState = new HashMap<>();
+    // États déclarés initiaux : le modèle n'en garde qu'un, à rétablir si celui-ci perd ce statut
+    private final Set<String> initialNames = new LinkedHashSet<>();
+
+    private static final class Statement {
+        int line;
+        final int parsedLine; // ligne lors de l'analyse, pour décaler les erreurs
+        final int column;
+        // Premier jeton de sa ligne : l'analyse peut reprendre au début de cette ligne
+        final boolean startsLine;
+        final List<AMDLException> errors;
+        final StateDecl state;
+        final TransitionDecl transition;
+
+        Statement(int line, int column, boolean startsLine, List<AMDLException> errors, StateDecl state,
+                  TransitionDecl transition) {
+            this.line = line;
+            this.parsedLine = line;
+            this.column = column;
+            this.startsLine = startsLine;
+            this.errors = errors;
+            this.state = state;
+            this.transition = transition;
+        }
+    }
+
+    /**
+     * Déclaration d'état ; sa position dans le texte est relative à la ligne de l'instruction.
+     */
+    private record StateDecl(String name, String label, double x, double y, boolean initial, boolean accepting,
+                             int lineOffset, int column) {
+    }
+
+    private record TransitionDecl(String from, String to, String[] symbols, int lineOffset, int column) {
+    }
+
+    /**
+     * Transitions interchangeables : même source, même cible, même symbole.
+     */
+    private record TransitionKey(String from, String to, String symbol) {
+    }
+
+    /**
+     * Relevé des instructions transmises par le parseur.
+     */
+    private static final class Collector implements AMDLParser.Handler {
+        final List<Statement> statements = new ArrayList<>();
+        final boolean region;
+        int automata;
+        int headerLine = -1;
+        int footerLine = -1;
+        private StateDecl state;
+        private TransitionDecl transition;
+        private int declarationLine;
+
+        Collector(boolean region) {
+            this.region = region;
+        }
+
+        @Override
+        public void beginAutomaton(String name, int line, int column) {
+            automata++;
+        }
+
+        @Override
+        public void beginBody(int line) {
+            if (automata == 1) {
+                headerLine = line;
+            }
+        }
+
+        @Override
+        public void state(String name, String label, double x, double y, boolean initial, boolean accepting,
+                          int line, int column) {
+            state = new StateDecl(name, label, x, y, initial, accepting, 0, column);
+            declarationLine = line;
+        }
+
+        @Override
+        public void transition(String from, String to, List<String> symbols, int line, int column) {
+            transition = new TransitionDecl(from, to, symbols.toArray(new String[0]), 0, column);
+            declarationLine = line;
+        }
+
+        @Override
+        public void statement(int line, int column, boolean startsLine, List<AMDLException> errors) {
+            // Seul le premier automate d'un fichier est suivi
+            if (region || automata == 1) {
+                // Le nom déclaré peut suivre le mot-clé sur une ligne ultérieure
+                int offset = declarationLine - line;
+                if (state != null && offset != 0) {
+                    state = new StateDecl(state.name(), state.label(), state.x(), state.y(), state.initial(),
+                            state.accepting(), offset, state.column());
+                }
+                if (transition != null && offset != 0) {
+                    transition = new TransitionDecl(transition.from(), transition.to(), transition.symbols(),
+                            offset, transition.column());
+                }
+                statements.add(new Statement(line, column, startsLine, errors, state, transition));
+            }
+            state = null;
+            transition = null;
+        }
+
+        @Override
+        public void endAutomaton(int line) {
+            if (automata == 1) {
+                footerLine = line;
+            }
+        }
+    }
+
+    private AMDLIncrementalDocument() {
+    }
+
+    /**
+     * Document d'un automate, dans le texte produit par {@link AMDLWriter}.
+     */
+    public static AMDLIncrementalDocument of(Automaton automaton) {
+        StringWriter out = new StringWriter();
+        Map<State, String> names;
+        try {
+            names = AMDLWriter.write(automaton, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        AMDLIncrementalDocument document = new AMDLIncrementalDocument();
+        document.setLines(0, 0, splitLines(List.of(out.toString())));
+        for (Statement statement : document.reparse()) {
+            document.index(statement, new HashSet<>(), new HashSet<>());
+            if (statement.state != null && statement.state.initial()) {
+                document.initialNames.add(statement.state.name());
+            }
+        }
+        names.forEach((state, name) -> document.stateIds.put(name, state.getId()));
+        for (Transition t : automaton.getTransitions()) {
+            TransitionKey key = new TransitionKey(names.get(t.getFrom()), names.get(t.getTo()),
+                    normalizeKey(t.getSymbol()));
+            document.transitionIds.computeIfAbsent(key, k -> new ArrayDeque<>(1)).add(t.getId());
+            document.registerKey(key);
+        }
+        return document;
+    }
+
+    /**
+     * Version de la session à laquelle correspond le document.
+     */
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
+
+    public int getLineCount() { return lines.size(); }
+
+    public String getText() {
+        return String.join("\n", lines);
+    }
+
+    /**
+     * Estimation de la mémoire occupée (texte, instructions, index).
+     */
+    public long getEstimatedBytes() {
+        return chars * 2 + lines.size() * 48L + statements.size() * STATEMENT_BYTES;
+    }
+
+    /**
+     * Vérifie qu'une modification porte sur des lignes existantes.
+     * @param lineCount nombre de lignes du texte au moment de la modification
+     * @throws IllegalArgumentException sinon
+     */
+    public static void checkRange(int startLine, int endLine, int lineCount) {
+        if (startLine < 1 || startLine > lineCount + 1 || endLine < startLine - 1 || endLine > lineCount) {
+            throw new IllegalArgumentException("Plage de lignes invalide: " + startLine + "-" + endLine
+                    + " (" + lineCount + " lignes)");
+        }
+    }
+
+    /**
+     * Nombre de lignes d'un texte de remplacement (les éléments peuvent contenir des retours à la ligne).
+     */
+    public static int countLines(List<String> replacement) {
+        int count = 0;
+        for (String line : replacement) {
+            count++;
+            for (int i = line.indexOf('\n'); i >= 0; i = line.indexOf('\n', i + 1)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Remplace les lignes {@code startLine..endLine} (incluses, à partir de 1 ; {@code endLine =
+     * startLine - 1} pour une insertion) et calcule les mutations qui mettent la session en accord
+     * avec le texte.
+     * @param model version courante de la session, dont proviennent les positions et labels actuels
+     * @param idSequence identifiants des états et transitions ajoutés
+     * @return les mutations, à appliquer dans l'ordre
+     */
+    public List<Mutation> edit(int startLine, int endLine, List<String> replacement, PersistentAutomaton model,
+                               IdSequence idSequence) {
+        checkRange(startLine, endLine, lines.size());
+        List<String> added = splitLines(replacement);
+        int delta = added.size() - (endLine - startLine + 1);
+        boolean full = !incremental || startLine <= headerLine || endLine >= footerLine
+                || hasBlockComment(lines, startLine, endLine) || hasBlockComment(added, 1, added.size());
+
+        // Instructions remplacées : [first, sync) de l'ancien texte ; sync est relue pour vérifier
+        // que la suite du texte se lit comme avant
+        int first = 0;
+        int sync = 0;
+        int regionStart = 0;
+        if (!full) {
+            first = statementAt(startLine - 1);
+            // Une instruction qui ne commence pas sa ligne dépend de la précédente
+            while (first > 0 && !statements.get(first).startsLine) {
+                first--;
+            }
+            regionStart = first >= 0 ? statements.get(first).line : headerLine + 1;
+            first = Math.max(first, 0);
+            sync = statementAt(endLine) + 1;
+        }
+        setLines(startLine - 1, endLine - startLine + 1, added);
+
+        List<Statement> parsed = null;
+        int step = 1;
+        while (!full) {
+            boolean last = sync >= statements.size();
+            int regionEnd = (sync + 1 < statements.size() ? statements.get(sync + 1).line - 1 : footerLine - 1) + delta;
+            if (hasBlockComment(lines, regionStart, regionEnd)) {
+                full = true;
+                break;
+            }
+            Collector collector = new Collector(true);
+            char[] text = join(regionStart, regionEnd);
+            if (!AMDLParser.parseStatements(text, 0, text.length, regionStart, collector)) {
+                full = true;
+                break;
+            }
+            List<Statement> result = collector.statements;
+            if (last) {
+                // Fin du corps : une instruction inachevée pourrait absorber l'accolade fermante
+                if (result.isEmpty() || result.get(result.size() - 1).errors.isEmpty()) {
+                    parsed = result;
+                } else {
+                    full = true;
+                }
+                break;
+            }
+            Statement next = statements.get(sync);
+            int index = indexOf(result, next.line + delta, next.column);
+            if (index >= 0 && sameStatement(result.get(index), next)) {
+                parsed = result.subList(0, index);
+                break;
+            }
+            // Frontière instable (instruction ouverte, reprise après erreur) : extrait élargi
+            sync = Math.min(sync + step, statements.size());
+            step *= 2;
+        }
+
+        List<Statement> removed;
+        List<Statement> inserted;
+        if (full) {
+            removed = new ArrayList<>(statements);
+            inserted = reparse();
+        } else {
+            List<Statement> window = statements.subList(first, sync);
+            removed = new ArrayList<>(window);
+            window.clear();
+            for (int i = first; i < statements.size(); i++) {
+                statements.get(i).line += delta;
+            }
+            inserted = new ArrayList<>(parsed);
+            statements.addAll(first, inserted);
+            footerLine += delta;
+        }
+        return diff(removed, inserted, model, idSequence);
+    }
+
+    /**
+     * Erreurs du texte : syntaxe, états déclarés plusieurs fois, transitions vers des états inconnus.
+     */
+    public List<AMDLException> getErrors() {
+        List<AMDLException> errors = new ArrayList<>();
+        for (AMDLException e : structuralErrors) {
+            errors.add(structuralFooter > 0 && e.getLine() >= structuralFooter
+                    ? e.moved(footerLine - structuralFooter) : e);
+        }
+        for (Statement statement : statements) {
+            for (AMDLException e : statement.errors) {
+                errors.add(e.moved(statement.line - statement.parsedLine));
+            }
+            StateDecl state = statement.state;
+            if (state != null && stateDecls.get(state.name()).get(0) != statement) {
+                errors.add(new AMDLException("État déjà déclaré: " + state.name(),
+                        statement.line + state.lineOffset(), state.column()));
+            }
+            TransitionDecl transition = statement.transition;
+            if (transition != null) {
+                String missing = !stateDecls.containsKey(transition.from()) ? transition.from()
+                        : !stateDecls.containsKey(transition.to()) ? transition.to() : null;
+                if (missing != null) {
+                    errors.add(new AMDLException("État non trouvé: " + missing,
+                            statement.line + transition.lineOffset(), transition.column()));
+                }
+            }
+        }
+        errors.sort(Comparator.comparingInt(AMDLException::getLine).thenComparingInt(AMDLException::getColumn));
+        return errors;
+    }
+
+    /**
+     * Ré-analyse complète : remplace les instructions et relève la structure du texte.
+     * @return les nouvelles instructions
+     */
+    private List<Statement> reparse() {
+        Collector collector = new Collector(false);
+        char[] text = join(1, lines.size());
+        List<AMDLException> errors = AMDLParser.parse(text, 0, text.length, collector);
+        List<Statement> parsed = collector.statements;
+        statements.clear();
+        statements.addAll(parsed);
+        headerLine = collector.headerLine;
+        footerLine = collector.footerLine;
+        incremental = collector.automata == 1 && headerLine > 0 && footerLine > 0
+                && (parsed.isEmpty() || parsed.get(0).line > headerLine
+                && parsed.get(parsed.size() - 1).line < footerLine);
+
+        // Erreurs hors instructions : en-tête, accolade manquante, texte après l'automate
+        Set<AMDLException> inStatements = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Statement statement : parsed) {
+            inStatements.addAll(statement.errors);
+        }
+        List<AMDLException> structural = new ArrayList<>();
+        for (AMDLException e : errors) {
+            if (!inStatements.contains(e)) {
+                structural.add(e);
+            }
+        }
+        structuralErrors = structural;
+        structuralFooter = footerLine;
+        return parsed;
+    }
+
+    /**
+     * Met à jour les index et calcule les mutations : suppressions de transitions, d'états,
+     * ajouts d'états, modifications, puis ajouts de transitions.
+     */
+    private List<Mutation> diff(List<Statement> removed, List<Statement> inserted, PersistentAutomaton model,
+                                IdSequence idSequence) {
+        Set<String> names = new LinkedHashSet<>();
+        Set<TransitionKey> keys = new LinkedHashSet<>();
+        for (Statement statement : removed) {
+            unindex(statement, names, keys);
+        }
+        for (Statement statement : inserted) {
+            index(statement, names, keys);
+        }
+
+        List<Mutation> removedTransitions = new ArrayList<>();
+        List<Mutation> removedStates = new ArrayList<>();
+        List<Mutation> addedStates = new ArrayList<>();
+        List<Mutation> updatedStates = new ArrayList<>();
+        List<Mutation> newInitial = new ArrayList<>();
+        List<Mutation> addedTransitions = new ArrayList<>();
+        boolean initialLost = false;
+
+        for (String name : names) {
+            List<Statement> decls = stateDecls.get(name);
+            StateDecl decl = decls == null ? null : decls.get(0).state;
+            String id = stateIds.get(name);
+            if (decl != null && decl.initial()) {
+                initialNames.add(name);
+            } else {
+                initialNames.remove(name);
+            }
+            if (decl == null) {
+                if (id != null) {
+                    initialLost |= model.findState(id).initial();
+                    removedStates.add(new Mutation.RemoveState(id));
+                    stateIds.remove(name);
+                    // Transitions supprimées avec l'état
+                    for (TransitionKey key : keysByState.getOrDefault(name, Set.of())) {
+                        transitionIds.remove(key);
+                        keys.add(key);
+                    }
+                }
+                continue;
+            }
+            String label = decl.label() != null ? decl.label() : name;
+            if (id == null) {
+                id = idSequence.next();
+                double x = Double.isNaN(decl.x()) ? AMDLParser.defaultX(stateIds.size()) : decl.x();
+                double y = Double.isNaN(decl.y()) ? AMDLParser.DEFAULT_Y : decl.y();
+                stateIds.put(name, id);
+                addedStates.add(new Mutation.AddState(id, label, x, y));
+                if (decl.initial() || decl.accepting()) {
+                    (decl.initial() ? newInitial : updatedStates).add(new Mutation.UpdateState(id, x, y,
+                            decl.initial() ? Boolean.TRUE : null, decl.accepting() ? Boolean.TRUE : null));
+                }
+                // Transitions déclarées en attente de cet état
+                keys.addAll(keysByState.getOrDefault(name, Set.of()));
+                continue;
+            }
+            PersistentAutomaton.StateData current = model.findState(id);
+            if (current == null) {
+                throw new IllegalStateException("Document AMDL désynchronisé: état " + id);
+            }
+            if (!label.equals(current.label())) {
+                updatedStates.add(new Mutation.RenameState(id, label));
+            }
+            // Sans position explicite, l'état reste où il est
+            double x = Double.isNaN(decl.x()) ? current.x() : decl.x();
+            double y = Double.isNaN(decl.y()) ? current.y() : decl.y();
+            Boolean initial = decl.initial() != current.initial() ? decl.initial() : null;
+            Boolean accepting = decl.accepting() != current.accepting() ? decl.accepting() : null;
+            initialLost |= Boolean.FALSE.equals(initial);
+            if (x != current.x() || y != current.y() || initial != null || accepting != null) {
+                // Rendre un état initial retire ce statut aux autres : à appliquer en dernier
+                (Boolean.TRUE.equals(initial) ? newInitial : updatedStates)
+                        .add(new Mutation.UpdateState(id, x, y, initial, accepting));
+            }
+        }
+
+        for (TransitionKey key : keys) {
+            String fromId = stateIds.get(key.from());
+            String toId = stateIds.get(key.to());
+            int target = fromId != null && toId != null ? declared.getOrDefault(key, 0) : 0;
+            ArrayDeque<String> ids = transitionIds.get(key);
+            int count = ids == null ? 0 : ids.size();
+            for (; count > target; count--) {
+                removedTransitions.add(new Mutation.RemoveTransition(ids.pollLast()));
+            }
+            if (count < target) {
+                ids = transitionIds.computeIfAbsent(key, k -> new ArrayDeque<>(1));
+                for (; count < target; count++) {
+                    String id = idSequence.next();
+                    ids.add(id);
+                    addedTransitions.add(new Mutation.AddTransition(id, fromId, toId, key.symbol()));
+                }
+            }
+            if (ids != null && ids.isEmpty()) {
+                transitionIds.remove(key);
+            }
+            if (!declared.containsKey(key) && !transitionIds.containsKey(key)) {
+                unregisterKey(key);
+            }
+        }
+
+        List<Mutation> mutations = new ArrayList<>(removedTransitions.size() + removedStates.size()
+                + addedStates.size() + updatedStates.size() + newInitial.size() + addedTransitions.size());
+        mutations.addAll(removedTransitions);
+        mutations.addAll(removedStates);
+        mutations.addAll(addedStates);
+        mutations.addAll(updatedStates);
+        mutations.addAll(newInitial);
+        mutations.addAll(addedTransitions);
+        if (initialLost && newInitial.isEmpty() && !initialNames.isEmpty()) {
+            restoreInitial(mutations, model);
+        }
+        return mutations;
+    }
+
+    /**
+     * L'automate perd son état initial alors que le texte en déclare d'autres (le modèle n'en
+     * garde qu'un) : l'un d'eux le redevient.
+     */
+    private void restoreInitial(List<Mutation> mutations, PersistentAutomaton model) {
+        PersistentAutomaton result = model;
+        for (Mutation mutation : mutations) {
+            result = result.apply(mutation);
+        }
+        if (result.initialCount() > 0) {
+            return;
+        }
+        String id = stateIds.get(initialNames.iterator().next());
+        PersistentAutomaton.StateData state = result.findState(id);
+        mutations.add(new Mutation.UpdateState(id, state.x(), state.y(), Boolean.TRUE, null));
+    }
+
+    private void index(Statement statement, Set<String> names, Set<TransitionKey> keys) {
+        if (statement.state != null) {
+            List<Statement> decls = stateDecls.computeIfAbsent(statement.state.name(), k -> new ArrayList<>(1));
+            int i = decls.size();
+            while (i > 0 && decls.get(i - 1).line > statement.line) {
+                i--;
+            }
+            decls.add(i, statement);
+            names.add(statement.state.name());
+        }
+        if (statement.transition != null) {
+            TransitionDecl transition = statement.transition;
+            for (String symbol : transition.symbols()) {
+                TransitionKey key = new TransitionKey(transition.from(), transition.to(), normalizeKey(symbol));
+                declared.merge(key, 1, Integer::sum);
+                registerKey(key);
+                keys.add(key);
+            }
+        }
+    }
+
+    private void unindex(Statement statement, Set<String> names, Set<TransitionKey> keys) {
+        if (statement.state != null) {
+            String name = statement.state.name();
+            List<Statement> decls = stateDecls.get(name);
+            decls.remove(statement);
+            if (decls.isEmpty()) {
+                stateDecls.remove(name);
+            }
+            names.add(name);
+        }
+        if (statement.transition != null) {
+            TransitionDecl transition = statement.transition;
+            for (String symbol : transition.symbols()) {
+                TransitionKey key = new TransitionKey(transition.from(), transition.to(), normalizeKey(symbol));
+                declared.computeIfPresent(key, (k, count) -> count > 1 ? count - 1 : null);
+                keys.add(key);
+            }
+        }
+    }
+
+    private void registerKey(TransitionKey key) {
+        keysByState.computeIfAbsent(key.from(), k -> new HashSet<>(4)).add(key);
+        keysByState.computeIfAbsent(key.to(), k -> new HashSet<>(4)).add(key);
+    }
+
+    private void unregisterKey(TransitionKey key) {
+        for (String name : new String[]{key.from(), key.to()}) {
+            Set<TransitionKey> keys = keysByState.get(name);
+            if (keys != null && keys.remove(key) && keys.isEmpty()) {
+                keysByState.remove(name);
+            }
+        }
+    }
+
+    /**
+     * Indice de la dernière instruction commençant au plus tard à la ligne donnée, ou -1.
+     */
+    private int statementAt(int line) {
+        int low = 0;
+        int high = statements.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (statements.get(mid).line <= line) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low - 1;
+    }
+
+    /**
+     * Indice de l'instruction commençant à la position donnée, ou -1.
+     */
+    private static int indexOf(List<Statement> statements, int line, int column) {
+        for (int i = statements.size() - 1; i >= 0; i--) {
+            int statementLine = statements.get(i).line;
+            if (statementLine == line && statements.get(i).column == column) {
+                return i;
+            }
+            if (statementLine < line) {
+                break;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Même lecture d'une instruction, au décalage de lignes près.
+     */
+    private static boolean sameStatement(Statement a, Statement b) {
+        if (a.startsLine != b.startsLine || a.errors.size() != b.errors.size()) {
+            return false;
+        }
+        if (a.state != null || b.state != null) {
+            return a.state != null && a.state.equals(b.state);
+        }
+        if (a.transition != null || b.transition != null) {
+            return a.transition != null && b.transition != null
+                    && a.transition.from().equals(b.transition.from())
+                    && a.transition.to().equals(b.transition.to())
+                    && a.transition.lineOffset() == b.transition.lineOffset()
+                    && a.transition.column() == b.transition.column()
+                    && Arrays.equals(a.transition.symbols(), b.transition.symbols());
+        }
+        return true;
+    }
+
+    /**
+     * Remplace {@code count} lignes à partir de l'indice {@code from} (0) par les lignes données.
+     */
+    private void setLines(int from, int count, List<String> replacement) {
+        List<String> window = lines.subList(from, from + count);
+        for (String line : window) {
+            chars -= line.length() + 1;
+        }
+        window.clear();
+        lines.addAll(from, replacement);
+        for (String line : replacement) {
+            chars += line.length() + 1;
+        }
+    }
+
+    /**
+     * Texte des lignes {@code from..to} (incluses, à partir de 1).
+     */
+    private char[] join(int from, int to) {
+        int length = 0;
+        for (int i = from; i <= to; i++) {
+            length += lines.get(i - 1).length() + 1;
+        }
+        char[] text = new char[length];
+        int pos = 0;
+        for (int i = from; i <= to; i++) {
+            String line = lines.get(i - 1);
+            line.getChars(0, line.length(), text, pos);
+            pos += line.length();
+            text[pos++] = '\n';
+        }
+        return text;
+    }
+
+    private static boolean hasBlockComment(List<String> lines, int from, int to) {
+        for (int i = from; i <= to; i++) {
+            String line = lines.get(i - 1);
+            if (line.contains("/*") || line.contains("*/")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<String> splitLines(List<String> replacement) {
+        List<String> split = new ArrayList<>(replacement.size());
+        for (String line : replacement) {
+            int start = 0;
+            for (int i = line.indexOf('\n'); i >= 0; i = line.indexOf('\n', start)) {
+                split.add(line.substring(start, i));
+                start = i + 1;
+            }
+            split.add(start == 0 ? line : line.substring(start));
+        }
+        return split;
+    }
+
+    /**
+     * Symbole tel que le modèle le compare : les écritures d'epsilon sont confondues.
+     */
+    private static String normalizeKey(String symbol) {
+        return symbol.isEmpty() || symbol.equals("epsilon") ? "ε" : symbol;
+    }
+}
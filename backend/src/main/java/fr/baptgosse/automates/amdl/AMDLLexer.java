@@ -0,0 +1,346 @@
+package fr.baptgosse.automates.amdl;
+
+/**
+ * Analyseur lexical AMDL, en une seule passe et à la demande : le parseur appelle {@link #next()}
+ * et lit le jeton courant dans les champs du lexer, sans liste de jetons intermédiaire.
+ *
+ * Les identifiants et chaînes sans échappement sont internés dans une table propre au lexer :
+ * un nom d'état répété des milliers de fois n'est alloué qu'une fois. Les caractères non
+ * reconnus ne sont pas une erreur lexicale (jeton {@link #CHAR}) : ils servent de symboles
+ * (ex. {@code [@]}) et c'est le parseur qui décide de leur validité.
+ */
+final class AMDLLexer {
+
+    static final int EOF = 0;
+    static final int IDENT = 1;
+    static final int STRING = 2;
+    static final int NUMBER = 3;
+    static final int LBRACE = 4;
+    static final int RBRACE = 5;
+    static final int LBRACKET = 6;
+    static final int RBRACKET = 7;
+    static final int LPAREN = 8;
+    static final int RPAREN = 9;
+    static final int COLON = 10;
+    static final int COMMA = 11;
+    static final int ARROW = 12;
+    static final int DASH = 13;
+    static final int CHAR = 14;
+    static final int ERROR = 15;
+
+    private final char[] input;
+    private final int end;
+    private int pos;
+    private int line = 1;
+    private int lineStart;
+
+    // Jeton courant
+    int kind;
+    int tokenStart;
+    int tokenEnd;
+    int tokenLine;
+    int tokenColumn;
+    private String text;
+    private String errorMessage;
+
+    // Table d'internement (adressage ouvert, taille puissance de 2)
+    private String[] names = new String[256];
+    private int nameCount;
+
+    AMDLLexer(char[] input, int start, int end) {
+        this(input, start, end, 1);
+    }
+
+    /**
+     * @param firstLine numéro de la ligne commençant en {@code start} (analyse d'un extrait)
+     */
+    AMDLLexer(char[] input, int start, int end, int firstLine) {
+        this.input = input;
+        this.pos = start;
+        this.lineStart = start;
+        this.end = end;
+        this.line = firstLine;
+    }
+
+    /**
+     * Avance au jeton suivant.
+     * @return son type
+     */
+    int next() {
+        skipTrivia();
+        text = null;
+        tokenStart = pos;
+        tokenLine = line;
+        tokenColumn = pos - lineStart + 1;
+        if (pos >= end) {
+            tokenEnd = pos;
+            return kind = EOF;
+        }
+        char c = input[pos];
+        switch (c) {
+            case '{' -> { return single(LBRACE); }
+            case '}' -> { return single(RBRACE); }
+            case '[' -> { return single(LBRACKET); }
+            case ']' -> { return single(RBRACKET); }
+            case '(' -> { return single(LPAREN); }
+            case ')' -> { return single(RPAREN); }
+            case ':' -> { return single(COLON); }
+            case ',' -> { return single(COMMA); }
+            case '-' -> {
+                if (pos + 1 < end && input[pos + 1] == '>') {
+                    pos += 2;
+                    tokenEnd = pos;
+                    return kind = ARROW;
+                }
+                return single(DASH);
+            }
+            case '"' -> { return readString(); }
+            default -> {
+                if (c >= '0' && c <= '9') {
+                    return readNumber();
+                }
+                if (isIdentifierStart(c)) {
+                    return readIdentifier();
+                }
+                // Caractère isolé (paire de substitution comprise)
+                pos += Character.isHighSurrogate(c) && pos + 1 < end ? 2 : 1;
+                tokenEnd = pos;
+                return kind = CHAR;
+            }
+        }
+    }
+
+    /**
+     * Texte du jeton courant : nom interné, contenu d'une chaîne (échappements résolus),
+     * texte d'un nombre ou caractère isolé.
+     */
+    String text() {
+        if (text == null) {
+            text = intern(tokenStart, tokenEnd);
+        }
+        return text;
+    }
+
+    /**
+     * Valeur du jeton {@link #NUMBER} courant.
+     */
+    double number() {
+        long integer = 0;
+        int i = tokenStart;
+        while (i < tokenEnd && input[i] != '.') {
+            if (i - tokenStart >= 18) {
+                return Double.parseDouble(new String(input, tokenStart, tokenEnd - tokenStart));
+            }
+            integer = integer * 10 + (input[i++] - '0');
+        }
+        if (i == tokenEnd) {
+            return integer;
+        }
+        // Partie décimale : conversion exacte déléguée à la bibliothèque standard
+        return Double.parseDouble(new String(input, tokenStart, tokenEnd - tokenStart));
+    }
+
+    /**
+     * Message du jeton {@link #ERROR} courant.
+     */
+    String errorMessage() {
+        return errorMessage;
+    }
+
+    /**
+     * Indique si le jeton courant est l'identifiant donné.
+     */
+    boolean isIdent(String keyword) {
+        if (kind != IDENT || tokenEnd - tokenStart != keyword.length()) {
+            return false;
+        }
+        for (int i = 0; i < keyword.length(); i++) {
+            if (input[tokenStart + i] != keyword.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Description courte du jeton courant, pour les messages d'erreur.
+     */
+    String describe() {
+        return switch (kind) {
+            case EOF -> "fin du fichier";
+            case STRING -> "chaîne \"" + text() + "\"";
+            default -> "'" + new String(input, tokenStart, Math.min(tokenEnd - tokenStart, 40)) + "'";
+        };
+    }
+
+    private int single(int type) {
+        tokenEnd = ++pos;
+        return kind = type;
+    }
+
+    private int readIdentifier() {
+        int p = pos + 1;
+        while (p < end && isIdentifierPart(input[p])) {
+            p++;
+        }
+        pos = p;
+        tokenEnd = p;
+        return kind = IDENT;
+    }
+
+    private int readNumber() {
+        int p = pos + 1;
+        while (p < end && input[p] >= '0' && input[p] <= '9') {
+            p++;
+        }
+        if (p + 1 < end && input[p] == '.' && input[p + 1] >= '0' && input[p + 1] <= '9') {
+            p += 2;
+            while (p < end && input[p] >= '0' && input[p] <= '9') {
+                p++;
+            }
+        }
+        pos = p;
+        tokenEnd = p;
+        return kind = NUMBER;
+    }
+
+    private int readString() {
+        int p = pos + 1;
+        StringBuilder unescaped = null;
+        int segment = p;
+        while (p < end) {
+            char c = input[p];
+            if (c == '"') {
+                if (unescaped == null) {
+                    text = intern(segment, p);
+                } else {
+                    text = unescaped.append(input, segment, p - segment).toString();
+                }
+                pos = p + 1;
+                tokenEnd = pos;
+                return kind = STRING;
+            }
+            if (c == '\n') {
+                break;
+            }
+            if (c == '\\' && p + 1 < end) {
+                if (unescaped == null) {
+                    unescaped = new StringBuilder();
+                }
+                unescaped.append(input, segment, p - segment);
+                char escaped = input[p + 1];
+                unescaped.append(switch (escaped) {
+                    case 'n' -> '\n';
+                    case 't' -> '\t';
+                    default -> escaped;
+                });
+                p += 2;
+                segment = p;
+                continue;
+            }
+            p++;
+        }
+        // Chaîne non terminée : elle s'arrête en fin de ligne pour ne pas absorber la suite
+        pos = p;
+        tokenEnd = p;
+        errorMessage = "Chaîne non terminée";
+        return kind = ERROR;
+    }
+
+    /**
+     * Saute espaces, fins de ligne et commentaires en maintenant ligne et colonne.
+     */
+    private void skipTrivia() {
+        int p = pos;
+        while (p < end) {
+            char c = input[p];
+            if (c == '\n') {
+                line++;
+                lineStart = ++p;
+            } else if (c == ' ' || c == '\t' || c == '\r' || c == '\f' || c == '\uFEFF') {
+                p++;
+            } else if (c == '/' && p + 1 < end && input[p + 1] == '/') {
+                p += 2;
+                while (p < end && input[p] != '\n') {
+                    p++;
+                }
+            } else if (c == '/' && p + 1 < end && input[p + 1] == '*') {
+                p += 2;
+                while (p < end && !(input[p] == '*' && p + 1 < end && input[p + 1] == '/')) {
+                    if (input[p] == '\n') {
+                        line++;
+                        lineStart = p + 1;
+                    }
+                    p++;
+                }
+                p = Math.min(p + 2, end);
+            } else {
+                break;
+            }
+        }
+        pos = p;
+    }
+
+    private String intern(int from, int to) {
+        int hash = 0;
+        for (int i = from; i < to; i++) {
+            hash = 31 * hash + input[i];
+        }
+        int mask = names.length - 1;
+        int slot = mix(hash) & mask;
+        String name;
+        while ((name = names[slot]) != null) {
+            if (name.hashCode() == hash && matches(name, from, to)) {
+                return name;
+            }
+            slot = (slot + 1) & mask;
+        }
+        name = new String(input, from, to - from);
+        names[slot] = name;
+        if (++nameCount * 2 > names.length) {
+            rehash();
+        }
+        return name;
+    }
+
+    private boolean matches(String name, int from, int to) {
+        if (name.length() != to - from) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) != input[from + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehash() {
+        String[] old = names;
+        names = new String[old.length * 2];
+        int mask = names.length - 1;
+        for (String name : old) {
+            if (name != null) {
+                int slot = mix(name.hashCode()) & mask;
+                while (names[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                names[slot] = name;
+            }
+        }
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean isIdentifierStart(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_'
+                || (c > 0x7F && Character.isLetter(c));
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_'
+                || (c > 0x7F && Character.isLetterOrDigit(c));
+    }
+}
@@ -0,0 +1,657 @@
+package fr.baptgosse.automates.amdl;
+
+import fr.baptgosse.automates.model.Automaton;
+import fr.baptgosse.automates.model.State;
+import fr.baptgosse.automates.model.Transition;
+import fr.baptgosse.automates.util.IdSequence;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parseur AMDL (voir docs/amdl/AMDL-SPEC.md) : descente récursive sur le flux de jetons de
+ * {@link AMDLLexer}, en une seule passe, construisant directement les {@link Automaton} indexés.
+ *
+ * Un fichier peut contenir plusieurs automates. Les erreurs sont relevées avec leur ligne et
+ * leur colonne sans interrompre l'analyse : après une erreur, le parseur saute jusqu'à
+ * l'instruction suivante (première instruction d'une ligne ultérieure, accolades équilibrées)
+ * ou jusqu'à la fin de l'automate. Les transitions peuvent précéder la déclaration de leurs états.
+ *
+ * Les déclarations sont transmises à un {@link Handler} : par défaut la construction des automates,
+ * ou le suivi instruction par instruction de {@link AMDLIncrementalDocument}.
+ */
+public final class AMDLParser {
+
+    // Au-delà, l'entrée n'est probablement pas de l'AMDL : inutile de tout énumérer
+    static final int MAX_ERRORS = 100;
+
+    private static final String EPSILON = "ε";
+
+    // Position par défaut des états déclarés sans position (voir defaultX)
+    static final double DEFAULT_Y = 200;
+
+    private final AMDLLexer lexer;
+    private final Handler handler;
+    private final List<AMDLException> errors = new ArrayList<>();
+    private final boolean limitErrors;
+    private int previousLine;
+
+    private int statementBraces; // accolades ouvertes par l'instruction en cours
+    private final List<String> symbols = new ArrayList<>();
+
+    /**
+     * Destinataire des déclarations, dans l'ordre du texte.
+     */
+    interface Handler {
+
+        /**
+         * Début d'un automate, avant son corps.
+         */
+        void beginAutomaton(String name, int line, int column);
+
+        /**
+         * Accolade ouvrant le corps de l'automate.
+         */
+        default void beginBody(int line) {
+        }
+
+        /**
+         * État déclaré par une instruction valide.
+         * @param x NaN si la position n'est pas donnée (de même pour y)
+         */
+        void state(String name, String label, double x, double y, boolean initial, boolean accepting,
+                   int line, int column);
+
+        /**
+         * Transition(s) déclarée(s) par une instruction valide.
+         * @param symbols liste réutilisée par le parseur : à copier pour la conserver
+         */
+        void transition(String from, String to, List<String> symbols, int line, int column);
+
+        /**
+         * Fin d'une instruction du corps, après ses déclarations éventuelles.
+         * @param line ligne de son premier jeton (de même pour column)
+         * @param startsLine true si ce jeton est le premier de sa ligne
+         * @param errors erreurs de syntaxe relevées dans l'instruction (vide si elle est valide)
+         */
+        default void statement(int line, int column, boolean startsLine, List<AMDLException> errors) {
+        }
+
+        /**
+         * Fin de l'automate.
+         * @param line ligne de l'accolade fermante, ou -1 si elle manque
+         */
+        void endAutomaton(int line);
+    }
+
+    /**
+     * Erreur de syntaxe interne, convertie en {@link AMDLException} au point de reprise.
+     */
+    private static final class SyntaxError extends RuntimeException {
+        final int line;
+        final int column;
+
+        SyntaxError(String message, int line, int column) {
+            super(message, null, false, false);
+            this.line = line;
+            this.column = column;
+        }
+    }
+
+    private static final class TooManyErrors extends RuntimeException {
+        TooManyErrors() {
+            super(null, null, false, false);
+        }
+    }
+
+    private AMDLParser(char[] input, int start, int end) {
+        this.lexer = new AMDLLexer(input, start, end);
+        this.handler = new ModelBuilder();
+        this.limitErrors = true;
+    }
+
+    private AMDLParser(char[] input, int start, int end, int firstLine, Handler handler) {
+        this.lexer = new AMDLLexer(input, start, end, firstLine);
+        this.handler = handler;
+        // Chaque instruction compte : l'analyse n'est jamais interrompue
+        this.limitErrors = false;
+    }
+
+    /**
+     * Analyse un texte AMDL.
+     */
+    public static AMDLDocument parse(CharSequence source) {
+        if (source instanceof CharBuffer buffer) {
+            return parse(buffer);
+        }
+        char[] chars = source.toString().toCharArray();
+        return new AMDLParser(chars, 0, chars.length).parseDocument();
+    }
+
+    /**
+     * Analyse le contenu restant d'un tampon, sans copie s'il est adossé à un tableau.
+     */
+    public static AMDLDocument parse(CharBuffer source) {
+        if (source.hasArray()) {
+            int offset = source.arrayOffset();
+            return new AMDLParser(source.array(), offset + source.position(), offset + source.limit())
+                    .parseDocument();
+        }
+        char[] chars = new char[source.remaining()];
+        source.duplicate().get(chars);
+        return new AMDLParser(chars, 0, chars.length).parseDocument();
+    }
+
+    /**
+     * Analyse un fichier AMDL (UTF-8) projeté en mémoire.
+     */
+    public static AMDLDocument parse(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return parse(StandardCharsets.UTF_8.newDecoder().decode(bytes));
+        }
+    }
+
+    /**
+     * Analyse un texte contenant un seul automate.
+     * @throws AMDLException à la première erreur, ou si le texte ne contient aucun automate
+     */
+    public static Automaton parseAutomaton(CharSequence source) throws AMDLException {
+        AMDLDocument document = parse(source);
+        if (document.hasErrors()) {
+            throw document.errors().get(0);
+        }
+        if (document.automata().isEmpty()) {
+            throw new AMDLException("Aucun automate trouvé");
+        }
+        return document.automata().get(0);
+    }
+
+    /**
+     * Analyse un document complet en transmettant ses déclarations au destinataire.
+     * @return les erreurs de syntaxe
+     */
+    static List<AMDLException> parse(char[] input, int start, int end, Handler handler) {
+        AMDLParser parser = new AMDLParser(input, start, end, 1, handler);
+        parser.parseDocument();
+        return parser.errors;
+    }
+
+    /**
+     * Analyse une suite d'instructions extraite du corps d'un automate.
+     * @param firstLine numéro de ligne du début de l'extrait
+     * @return false si l'extrait ferme l'automate ou en ouvre un autre : il ne peut pas être
+     *         analysé isolément
+     */
+    static boolean parseStatements(char[] input, int start, int end, int firstLine, Handler handler) {
+        AMDLParser parser = new AMDLParser(input, start, end, firstLine, handler);
+        parser.advance();
+        while (parser.lexer.kind != AMDLLexer.EOF) {
+            if (parser.lexer.kind == AMDLLexer.RBRACE || parser.isAutomatonKeyword()) {
+                return false;
+            }
+            parser.parseBodyStatement();
+        }
+        return true;
+    }
+
+    private AMDLDocument parseDocument() {
+        advance();
+        try {
+            while (lexer.kind != AMDLLexer.EOF) {
+                if (isAutomatonKeyword()) {
+                    parseAutomaton();
+                } else {
+                    report(error("'Automaton' attendu, " + lexer.describe() + " trouvé"));
+                    // Reprise au prochain automate
+                    do {
+                        advance();
+                    } while (lexer.kind != AMDLLexer.EOF && !(isAutomatonKeyword() && startsLine()));
+                }
+            }
+        } catch (TooManyErrors e) {
+            errors.add(new AMDLException("Trop d'erreurs, analyse interrompue", lexer.tokenLine, lexer.tokenColumn));
+        }
+        List<Automaton> automata = handler instanceof ModelBuilder builder ? builder.automata : List.of();
+        return new AMDLDocument(automata, errors);
+    }
+
+    private void parseAutomaton() {
+        int line = lexer.tokenLine;
+        int column = lexer.tokenColumn;
+        advance();
+        String name = "Automate";
+        if (lexer.kind == AMDLLexer.STRING) {
+            name = lexer.text();
+            advance();
+        } else {
+            report(error("Nom de l'automate attendu (chaîne), " + lexer.describe() + " trouvé"));
+        }
+        handler.beginAutomaton(name, line, column);
+
+        if (lexer.kind == AMDLLexer.LBRACKET) {
+            try {
+                parseAttributes();
+            } catch (SyntaxError e) {
+                report(e);
+                while (lexer.kind != AMDLLexer.EOF && lexer.kind != AMDLLexer.LBRACE && !isAutomatonKeyword()) {
+                    advance();
+                }
+            }
+        }
+        if (lexer.kind == AMDLLexer.LBRACE) {
+            handler.beginBody(lexer.tokenLine);
+            advance();
+        } else {
+            // Corps analysé malgré tout : l'accolade oubliée ne doit pas masquer la suite
+            report(error("'{' attendu, " + lexer.describe() + " trouvé"));
+        }
+
+        int closingLine = -1;
+        while (true) {
+            if (lexer.kind == AMDLLexer.RBRACE) {
+                closingLine = lexer.tokenLine;
+                advance();
+                break;
+            }
+            if (lexer.kind == AMDLLexer.EOF || (isAutomatonKeyword() && startsLine())) {
+                report(new SyntaxError("'}' manquante pour l'automate \"" + name + "\"", line, column));
+                break;
+            }
+            parseBodyStatement();
+        }
+        handler.endAutomaton(closingLine);
+    }
+
+    private void parseBodyStatement() {
+        int statementLine = lexer.tokenLine;
+        int statementColumn = lexer.tokenColumn;
+        boolean startsLine = startsLine();
+        int reported = errors.size();
+        try {
+            parseStatement();
+        } catch (SyntaxError e) {
+            report(e);
+            recover(statementLine);
+        }
+        handler.statement(statementLine, statementColumn, startsLine,
+                errors.size() == reported ? List.of() : List.copyOf(errors.subList(reported, errors.size())));
+    }
+
+    /**
+     * Attributs de l'automate ({@code [type: "DFA", ...]}) : informatifs, non conservés par le modèle.
+     */
+    private void parseAttributes() {
+        advance();
+        while (lexer.kind != AMDLLexer.RBRACKET) {
+            expect(AMDLLexer.IDENT, "nom d'attribut");
+            expect(AMDLLexer.COLON, "':'");
+            skipValue();
+            if (lexer.kind != AMDLLexer.COMMA) {
+                break;
+            }
+            advance();
+        }
+        expect(AMDLLexer.RBRACKET, "']'");
+    }
+
+    private void parseStatement() {
+        statementBraces = 0;
+        if (lexer.kind != AMDLLexer.IDENT) {
+            throw error("Instruction attendue, " + lexer.describe() + " trouvé");
+        }
+        if (lexer.isIdent("State") || lexer.isIdent("state")) {
+            parseState();
+            return;
+        }
+        String first = lexer.text();
+        int line = lexer.tokenLine;
+        int column = lexer.tokenColumn;
+        advance();
+        if (lexer.kind == AMDLLexer.ARROW) {
+            parseTransition(first, line, column);
+        } else if (lexer.kind == AMDLLexer.COLON) {
+            advance();
+            if (first.equals("alphabet")) {
+                // L'alphabet du modèle est celui des transitions : la déclaration n'est que vérifiée
+                parseSymbols();
+            } else {
+                skipValue();
+            }
+        } else {
+            throw error("'->' ou ':' attendu après '" + first + "', " + lexer.describe() + " trouvé");
+        }
+    }
+
+    private void parseState() {
+        advance();
+        if (lexer.kind != AMDLLexer.IDENT) {
+            throw error("Nom d'état attendu, " + lexer.describe() + " trouvé");
+        }
+        String name = lexer.text();
+        int line = lexer.tokenLine;
+        int column = lexer.tokenColumn;
+        advance();
+
+        boolean initial = false;
+        boolean accepting = false;
+        double x = Double.NaN;
+        double y = Double.NaN;
+        String label = null;
+        while (true) {
+            if (lexer.kind == AMDLLexer.LBRACKET) {
+                advance();
+                while (true) {
+                    if (lexer.isIdent("initial")) {
+                        initial = true;
+                    } else if (lexer.isIdent("accepting") || lexer.isIdent("final")) {
+                        accepting = true;
+                    } else {
+                        throw error("'initial' ou 'accepting' attendu, " + lexer.describe() + " trouvé");
+                    }
+                    advance();
+                    if (lexer.kind != AMDLLexer.COMMA) {
+                        break;
+                    }
+                    advance();
+                }
+                expect(AMDLLexer.RBRACKET, "']'");
+            } else if (lexer.isIdent("at")) {
+                advance();
+                x = parseCoordinate(true);
+                y = parseCoordinate(false);
+            } else {
+                break;
+            }
+        }
+        if (lexer.kind == AMDLLexer.LBRACE) {
+            advance();
+            statementBraces++;
+            while (lexer.kind != AMDLLexer.RBRACE) {
+                String property = expect(AMDLLexer.IDENT, "propriété d'état");
+                expect(AMDLLexer.COLON, "':'");
+                switch (property) {
+                    case "initial" -> initial = parseBoolean();
+                    case "accepting" -> accepting = parseBoolean();
+                    case "label" -> label = expect(AMDLLexer.STRING, "chaîne");
+                    case "position" -> {
+                        x = parseCoordinate(true);
+                        y = parseCoordinate(false);
+                    }
+                    default -> skipValue(); // couleur, etc. : non conservées par le modèle
+                }
+                if (lexer.kind == AMDLLexer.COMMA) {
+                    advance();
+                }
+            }
+            advance();
+            statementBraces--;
+        }
+
+        handler.state(name, label, x, y, initial, accepting, line, column);
+    }
+
+    private void parseTransition(String fromName, int line, int column) {
+        advance();
+        if (lexer.kind != AMDLLexer.IDENT) {
+            throw error("État cible attendu, " + lexer.describe() + " trouvé");
+        }
+        String toName = lexer.text();
+        advance();
+        parseSymbols();
+        if (lexer.kind == AMDLLexer.LBRACE) {
+            // Propriétés d'affichage (label, couleur, courbure) : non conservées par le modèle
+            advance();
+            statementBraces++;
+            while (lexer.kind != AMDLLexer.RBRACE) {
+                expect(AMDLLexer.IDENT, "propriété de transition");
+                expect(AMDLLexer.COLON, "':'");
+                skipValue();
+                if (lexer.kind == AMDLLexer.COMMA) {
+                    advance();
+                }
+            }
+            advance();
+            statementBraces--;
+        }
+        handler.transition(fromName, toName, symbols, line, column);
+    }
+
+    /**
+     * Liste de symboles {@code [a, b, ε]} lue dans {@link #symbols}.
+     */
+    private void parseSymbols() {
+        expect(AMDLLexer.LBRACKET, "'['");
+        symbols.clear();
+        while (true) {
+            symbols.add(switch (lexer.kind) {
+                case AMDLLexer.IDENT -> normalizeSymbol(lexer.text());
+                case AMDLLexer.NUMBER, AMDLLexer.STRING, AMDLLexer.CHAR, AMDLLexer.DASH -> lexer.text();
+                default -> throw error("Symbole attendu, " + lexer.describe() + " trouvé");
+            });
+            advance();
+            if (lexer.kind != AMDLLexer.COMMA) {
+                break;
+            }
+            advance();
+        }
+        expect(AMDLLexer.RBRACKET, "']'");
+    }
+
+    static String normalizeSymbol(String symbol) {
+        return switch (symbol) {
+            case "epsilon", "eps", "λ" -> EPSILON;
+            default -> symbol;
+        };
+    }
+
+    /**
+     * Coordonnée d'une position {@code (x, y)}.
+     * @param first true pour x (précédée de '('), false pour y (précédée de ',' et suivie de ')')
+     */
+    private double parseCoordinate(boolean first) {
+        expect(first ? AMDLLexer.LPAREN : AMDLLexer.COMMA, first ? "'('" : "','");
+        boolean negative = false;
+        if (lexer.kind == AMDLLexer.DASH) {
+            negative = true;
+            advance();
+        }
+        if (lexer.kind != AMDLLexer.NUMBER) {
+            throw error("Nombre attendu, " + lexer.describe() + " trouvé");
+        }
+        double value = lexer.number();
+        advance();
+        if (!first) {
+            expect(AMDLLexer.RPAREN, "')'");
+        }
+        return negative ? -value : value;
+    }
+
+    private boolean parseBoolean() {
+        boolean value;
+        if (lexer.isIdent("true")) {
+            value = true;
+        } else if (lexer.isIdent("false")) {
+            value = false;
+        } else {
+            throw error("Booléen attendu (true ou false), " + lexer.describe() + " trouvé");
+        }
+        advance();
+        return value;
+    }
+
+    /**
+     * Saute une valeur : chaîne, nombre, identifiant, tableau ou tuple.
+     */
+    private void skipValue() {
+        switch (lexer.kind) {
+            case AMDLLexer.STRING, AMDLLexer.NUMBER, AMDLLexer.IDENT, AMDLLexer.CHAR -> advance();
+            case AMDLLexer.DASH -> {
+                advance();
+                expect(AMDLLexer.NUMBER, "nombre");
+            }
+            case AMDLLexer.LBRACKET, AMDLLexer.LPAREN -> {
+                int close = lexer.kind == AMDLLexer.LBRACKET ? AMDLLexer.RBRACKET : AMDLLexer.RPAREN;
+                advance();
+                while (lexer.kind != close) {
+                    skipValue();
+                    if (lexer.kind != AMDLLexer.COMMA) {
+                        break;
+                    }
+                    advance();
+                }
+                expect(close, close == AMDLLexer.RBRACKET ? "']'" : "')'");
+            }
+            default -> throw error("Valeur attendue, " + lexer.describe() + " trouvé");
+        }
+    }
+
+    /**
+     * Reprise après erreur : saute les jetons jusqu'à la fin de l'automate ou jusqu'à une
+     * instruction commençant une ligne postérieure au début de l'instruction fautive,
+     * hors des accolades ouvertes.
+     */
+    private void recover(int statementLine) {
+        int depth = statementBraces;
+        while (lexer.kind != AMDLLexer.EOF) {
+            if (isAutomatonKeyword() && startsLine()) {
+                return;
+            }
+            if (lexer.kind == AMDLLexer.LBRACE) {
+                depth++;
+            } else if (lexer.kind == AMDLLexer.RBRACE) {
+                if (depth == 0) {
+                    return;
+                }
+                depth--;
+            } else if (depth == 0 && lexer.kind == AMDLLexer.IDENT
+                    && lexer.tokenLine > statementLine && startsLine()) {
+                return;
+            }
+            advance();
+        }
+    }
+
+    private String expect(int kind, String expected) {
+        if (lexer.kind != kind) {
+            throw error(expected + " attendu, " + lexer.describe() + " trouvé");
+        }
+        String text = kind == AMDLLexer.IDENT || kind == AMDLLexer.STRING ? lexer.text() : null;
+        advance();
+        return text;
+    }
+
+    private void advance() {
+        previousLine = lexer.tokenLine;
+        lexer.next();
+    }
+
+    private boolean startsLine() {
+        return lexer.tokenLine > previousLine;
+    }
+
+    private boolean isAutomatonKeyword() {
+        return lexer.isIdent("Automaton") || lexer.isIdent("automaton");
+    }
+
+    private SyntaxError error(String message) {
+        if (lexer.kind == AMDLLexer.ERROR) {
+            message = lexer.errorMessage();
+        }
+        return new SyntaxError(message, lexer.tokenLine, lexer.tokenColumn);
+    }
+
+    private void report(SyntaxError e) {
+        errors.add(new AMDLException(e.getMessage(), e.line, e.column));
+        if (limitErrors && errors.size() >= MAX_ERRORS) {
+            throw new TooManyErrors();
+        }
+    }
+
+    /**
+     * Construction des automates indexés : doublons signalés, transitions vers des états
+     * pas encore déclarés résolues en fin d'automate.
+     */
+    private final class ModelBuilder implements Handler {
+        private final List<Automaton> automata = new ArrayList<>();
+        private Automaton automaton;
+        private IdSequence ids;
+        private Map<String, State> states;
+        private List<PendingTransition> pending;
+
+        @Override
+        public void beginAutomaton(String name, int line, int column) {
+            automaton = new Automaton(name);
+            ids = new IdSequence();
+            states = new HashMap<>();
+            pending = new ArrayList<>();
+        }
+
+        @Override
+        public void state(String name, String label, double x, double y, boolean initial, boolean accepting,
+                          int line, int column) {
+            if (states.containsKey(name)) {
+                report(new SyntaxError("État déjà déclaré: " + name, line, column));
+                return;
+            }
+            // Position par défaut : états alignés dans l'ordre de déclaration
+            int index = states.size();
+            State state = new State(ids.next(), label != null ? label : name,
+                    Double.isNaN(x) ? defaultX(index) : x, Double.isNaN(y) ? DEFAULT_Y : y, initial, accepting);
+            automaton.addState(state);
+            states.put(name, state);
+        }
+
+        @Override
+        public void transition(String fromName, String toName, List<String> symbols, int line, int column) {
+            State from = states.get(fromName);
+            State to = states.get(toName);
+            if (from == null || to == null) {
+                pending.add(new PendingTransition(fromName, toName, symbols.toArray(new String[0]), line, column));
+                return;
+            }
+            for (String symbol : symbols) {
+                automaton.addTransition(new Transition(ids.next(), from, to, symbol));
+            }
+        }
+
+        @Override
+        public void endAutomaton(int line) {
+            for (PendingTransition t : pending) {
+                State from = states.get(t.from());
+                State to = states.get(t.to());
+                if (from == null || to == null) {
+                    report(new SyntaxError("État non trouvé: " + (from == null ? t.from() : t.to()),
+                            t.line(), t.column()));
+                    continue;
+                }
+                for (String symbol : t.symbols()) {
+                    automaton.addTransition(new Transition(ids.next(), from, to, symbol));
+                }
+            }
+            automata.add(automaton);
+        }
+    }
+
+    /**
+     * Transition dont un état n'est pas encore déclaré, résolue en fin d'automate.
+     */
+    private record PendingTransition(String from, String to, String[] symbols, int line, int column) {
+    }
+
+    /**
+     * Abscisse par défaut du n-ième état déclaré sans position.
+     */
+    static double defaultX(int index) {
+        return 100 + index * 150;
+    }
+}
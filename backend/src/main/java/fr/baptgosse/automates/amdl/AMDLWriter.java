@@ -0,0 +1,302 @@
+package fr.baptgosse.automates.amdl;
+
+import fr.baptgosse.automates.model.Automaton;
+import fr.baptgosse.automates.model.State;
+import fr.baptgosse.automates.model.Transition;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Générateur et formateur AMDL : écrit un automate au format de docs/amdl/AMDL-SPEC.md,
+ * relisible par {@link AMDLParser}.
+ *
+ * La sortie est écrite au fil de l'eau dans un flux tamponné, sans construire le texte en mémoire.
+ * Les transitions parallèles (même source, même cible) sont regroupées en {@code q0 -> q1 [a, b]}
+ * à partir de l'index des transitions sortantes de chaque état : seule la table des noms d'états
+ * est proportionnelle à la taille de l'automate. La sortie est déterministe (états triés par label).
+ */
+public final class AMDLWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String INDENT = "  ";
+
+    private AMDLWriter() {
+    }
+
+    /**
+     * Écrit un automate dans un flux (UTF-8). Le flux n'est pas fermé.
+     */
+    public static void write(Automaton automaton, OutputStream out) throws IOException {
+        write(List.of(automaton), out);
+    }
+
+    /**
+     * Écrit plusieurs automates à la suite, séparés par une ligne vide. Le flux n'est pas fermé.
+     */
+    public static void write(List<Automaton> automata, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        for (int i = 0; i < automata.size(); i++) {
+            if (i > 0) {
+                writer.write('\n');
+            }
+            write(automata.get(i), writer);
+        }
+        writer.flush();
+    }
+
+    /**
+     * Texte AMDL d'un automate.
+     */
+    public static String toString(Automaton automaton) {
+        StringWriter writer = new StringWriter();
+        try {
+            write(automaton, writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Écrit un automate et renvoie le nom AMDL attribué à chaque état.
+     */
+    static Map<State, String> write(Automaton automaton, Writer out) throws IOException {
+        List<State> states = new ArrayList<>(automaton.getStates());
+        states.sort(Comparator.comparing(State::getLabel, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(State::getId));
+        Map<State, String> names = assignNames(states);
+
+        out.write("Automaton ");
+        writeString(out, automaton.getName() != null ? automaton.getName() : "Automate");
+        out.write(" {\n");
+
+        Set<String> alphabet = automaton.getAlphabet();
+        if (!alphabet.isEmpty() || automaton.getEpsilonTransitionsCount() > 0) {
+            out.write(INDENT);
+            out.write("alphabet: [");
+            boolean first = true;
+            for (String symbol : alphabet) {
+                if (!first) {
+                    out.write(", ");
+                }
+                writeSymbol(out, symbol);
+                first = false;
+            }
+            if (automaton.getEpsilonTransitionsCount() > 0) {
+                out.write(first ? "ε" : ", ε");
+            }
+            out.write("]\n");
+        }
+
+        if (!states.isEmpty()) {
+            out.write('\n');
+        }
+        for (State state : states) {
+            writeState(out, state, names.get(state));
+        }
+
+        // Cibles d'un même état source, triées par nom : une ligne par cible, symboles regroupés
+        TreeMap<String, List<String>> byTarget = new TreeMap<>();
+        for (State state : states) {
+            Set<Transition> outgoing = automaton.getTransitionsFrom(state);
+            if (outgoing.isEmpty()) {
+                continue;
+            }
+            byTarget.clear();
+            for (Transition t : outgoing) {
+                // ε sous sa forme écrite : le tri ne dépend pas de l'orthographe lue
+                byTarget.computeIfAbsent(names.get(t.getTo()), k -> new ArrayList<>(2))
+                        .add(t.isEpsilon() ? "ε" : t.getSymbol());
+            }
+            out.write('\n');
+            String from = names.get(state);
+            for (Map.Entry<String, List<String>> group : byTarget.entrySet()) {
+                List<String> symbols = group.getValue();
+                if (symbols.size() > 1) {
+                    symbols.sort(null);
+                }
+                out.write(INDENT);
+                out.write(from);
+                out.write(" -> ");
+                out.write(group.getKey());
+                out.write(" [");
+                for (int i = 0; i < symbols.size(); i++) {
+                    if (i > 0) {
+                        out.write(", ");
+                    }
+                    writeSymbol(out, symbols.get(i));
+                }
+                out.write("]\n");
+            }
+        }
+        out.write("}\n");
+        return names;
+    }
+
+    private static void writeState(Writer out, State state, String name) throws IOException {
+        out.write(INDENT);
+        out.write("State ");
+        out.write(name);
+        if (state.isInitial() || state.isAccepting()) {
+            out.write(state.isInitial() && state.isAccepting() ? " [initial, accepting]"
+                    : state.isInitial() ? " [initial]" : " [accepting]");
+        }
+        out.write(" at (");
+        writeNumber(out, state.getX());
+        out.write(", ");
+        writeNumber(out, state.getY());
+        out.write(')');
+        if (state.getLabel() != null && !state.getLabel().equals(name)) {
+            out.write(" {\n");
+            out.write(INDENT);
+            out.write(INDENT);
+            out.write("label: ");
+            writeString(out, state.getLabel());
+            out.write('\n');
+            out.write(INDENT);
+            out.write('}');
+        }
+        out.write('\n');
+    }
+
+    /**
+     * Identifiant AMDL de chaque état : son label s'il est un identifiant valide et libre,
+     * sinon le label assaini et suffixé (le label d'origine est alors écrit dans le corps de l'état).
+     */
+    private static Map<State, String> assignNames(List<State> states) {
+        Map<State, String> names = new HashMap<>(states.size() * 2);
+        Set<String> used = new HashSet<>(states.size() * 2);
+        for (State state : states) {
+            String label = state.getLabel();
+            if (label != null && isIdentifier(label) && !isReserved(label) && used.add(label)) {
+                names.put(state, label);
+            }
+        }
+        // Prochain suffixe à essayer par base : pas de recherche quadratique si beaucoup d'états
+        // partagent le même label
+        Map<String, Integer> suffixes = new HashMap<>();
+        for (State state : states) {
+            if (names.containsKey(state)) {
+                continue;
+            }
+            String base = sanitize(state.getLabel());
+            String name = base;
+            int suffix = suffixes.getOrDefault(base, 2);
+            while (isReserved(name) || !used.add(name)) {
+                name = base + "_" + suffix++;
+            }
+            suffixes.put(base, suffix);
+            names.put(state, name);
+        }
+        return names;
+    }
+
+    private static String sanitize(String label) {
+        if (label == null || label.isEmpty()) {
+            return "q";
+        }
+        StringBuilder name = new StringBuilder(label.length() + 1);
+        if (!isIdentifierStart(label.charAt(0))) {
+            name.append('q');
+        }
+        for (int i = 0; i < label.length(); i++) {
+            char c = label.charAt(i);
+            name.append(isIdentifierPart(c) ? c : '_');
+        }
+        return name.toString();
+    }
+
+    /**
+     * Mots qui, en tête d'instruction, ne désigneraient pas un état.
+     */
+    private static boolean isReserved(String name) {
+        return switch (name) {
+            case "State", "state", "Automaton", "automaton" -> true;
+            default -> false;
+        };
+    }
+
+    private static void writeSymbol(Writer out, String symbol) throws IOException {
+        if (symbol.isEmpty() || symbol.equals("ε") || symbol.equals("epsilon")) {
+            out.write("ε"); // même lecture que Transition#isEpsilon
+        } else if (isIdentifier(symbol) && !symbol.equals("eps") || isDigits(symbol)) {
+            out.write(symbol);
+        } else {
+            writeString(out, symbol);
+        }
+    }
+
+    private static void writeString(Writer out, String value) throws IOException {
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"', '\\' -> {
+                    out.write('\\');
+                    out.write(c);
+                }
+                case '\n' -> out.write("\\n");
+                case '\t' -> out.write("\\t");
+                default -> out.write(c);
+            }
+        }
+        out.write('"');
+    }
+
+    private static void writeNumber(Writer out, double value) throws IOException {
+        if (!Double.isFinite(value)) {
+            out.write('0');
+        } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.write(Long.toString((long) value));
+        } else {
+            // Pas de notation scientifique : la grammaire ne l'accepte pas
+            out.write(BigDecimal.valueOf(value).toPlainString());
+        }
+    }
+
+    private static boolean isIdentifier(String value) {
+        if (value.isEmpty() || !isIdentifierStart(value.charAt(0))) {
+            return false;
+        }
+        for (int i = 1; i < value.length(); i++) {
+            if (!isIdentifierPart(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDigits(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return !value.isEmpty();
+    }
+
+    private static boolean isIdentifierStart(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return isIdentifierStart(c) || (c >= '0' && c <= '9');
+    }
+}
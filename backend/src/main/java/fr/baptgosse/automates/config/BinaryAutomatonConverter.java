@@ -0,0 +1,71 @@
+package fr.baptgosse.automates.config;
+
+import fr.baptgosse.automates.model.Automaton;
+import fr.baptgosse.automates.persistence.AutomatonBinaryCodec;
+import fr.baptgosse.automates.persistence.BinaryReader;
+import fr.baptgosse.automates.persistence.BinaryWriter;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Convertisseur HTTP du format binaire compact ({@value #MEDIA_TYPE}) :
+ * table d'états indexée, table de symboles et transitions en varints
+ * (même encodage que les snapshots, voir {@link AutomatonBinaryCodec}).
+ */
+public class BinaryAutomatonConverter extends AbstractHttpMessageConverter<Automaton> {
+
+    public static final String MEDIA_TYPE = "application/vnd.automates.automaton+binary";
+
+    private final int maxBytes;
+
+    /**
+     * @param maxBytes taille maximale d'un corps de requête (lu entièrement en mémoire)
+     */
+    public BinaryAutomatonConverter(int maxBytes) {
+        super(MediaType.valueOf(MEDIA_TYPE));
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return Automaton.class.isAssignableFrom(clazz);
+    }
+
+    /**
+     * N'écrit que si ce format a été choisi explicitement (type de contenu fixé par le contrôleur
+     * d'après l'en-tête Accept) : la négociation par défaut, notamment pour {@code *}{@code /*}, reste au JSON.
+     */
+    @Override
+    protected boolean canWrite(MediaType mediaType) {
+        return mediaType != null && getSupportedMediaTypes().get(0).equalsTypeAndSubtype(mediaType);
+    }
+
+    @Override
+    protected Automaton readInternal(Class<? extends Automaton> clazz, HttpInputMessage inputMessage)
+            throws IOException {
+        byte[] body = inputMessage.getBody().readNBytes(maxBytes + 1);
+        if (body.length > maxBytes) {
+            throw new HttpMessageNotReadableException(
+                    "Automate binaire trop volumineux (limite : " + maxBytes + " octets)", inputMessage);
+        }
+        try {
+            return AutomatonBinaryCodec.read(new BinaryReader(ByteBuffer.wrap(body)));
+        } catch (RuntimeException | OutOfMemoryError e) {
+            // Les tailles sont bornées par le corps, mais l'automate construit peut rester trop gros pour le tas
+            throw new HttpMessageNotReadableException("Automate binaire invalide", e, inputMessage);
+        }
+    }
+
+    @Override
+    protected void writeInternal(Automaton automaton, HttpOutputMessage outputMessage) throws IOException {
+        BinaryWriter out = new BinaryWriter(outputMessage.getBody());
+        AutomatonBinaryCodec.write(automaton, out);
+        out.flush();
+    }
+}
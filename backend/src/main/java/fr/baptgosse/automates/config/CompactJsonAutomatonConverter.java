@@ -0,0 +1,62 @@
+package fr.baptgosse.automates.config;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import fr.baptgosse.automates.io.CompactAutomatonJson;
+import fr.baptgosse.automates.model.Automaton;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+
+/**
+ * Convertisseur HTTP du JSON normalisé ({@value CompactAutomatonJson#MEDIA_TYPE}).
+ * Lecture et écriture passent directement par l'API de flux Jackson, sans arbre intermédiaire
+ * ni copie imbriquée des états.
+ */
+public class CompactJsonAutomatonConverter extends AbstractHttpMessageConverter<Automaton> {
+
+    private final JsonFactory jsonFactory;
+
+    public CompactJsonAutomatonConverter(JsonFactory jsonFactory) {
+        super(MediaType.valueOf(CompactAutomatonJson.MEDIA_TYPE));
+        this.jsonFactory = jsonFactory;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return Automaton.class.isAssignableFrom(clazz);
+    }
+
+    /**
+     * N'écrit que si ce format a été choisi explicitement (type de contenu fixé par le contrôleur
+     * d'après l'en-tête Accept) : la négociation par défaut, notamment pour {@code *}{@code /*}, reste au JSON.
+     */
+    @Override
+    protected boolean canWrite(MediaType mediaType) {
+        return mediaType != null && getSupportedMediaTypes().get(0).equalsTypeAndSubtype(mediaType);
+    }
+
+    @Override
+    protected Automaton readInternal(Class<? extends Automaton> clazz, HttpInputMessage inputMessage)
+            throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(inputMessage.getBody())) {
+            return CompactAutomatonJson.read(parser);
+        } catch (JsonProcessingException e) {
+            throw new HttpMessageNotReadableException("JSON normalisé invalide: " + e.getOriginalMessage(), e, inputMessage);
+        }
+    }
+
+    @Override
+    protected void writeInternal(Automaton automaton, HttpOutputMessage outputMessage) throws IOException {
+        try (JsonGenerator gen = jsonFactory.createGenerator(outputMessage.getBody(), JsonEncoding.UTF8)) {
+            CompactAutomatonJson.write(automaton, gen);
+        }
+    }
+}
@@ -25,6 +25,7 @@ public class CorsConfig {
                             .allowedOrigins(allowedOrigins.split(","))
                             .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
                             .allowedHeaders("*")
+                            .exposedHeaders("ETag")
                             .allowCredentials(false)
                             .maxAge(3600);
                 }
@@ -0,0 +1,33 @@
+package fr.baptgosse.automates.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Enregistre les représentations alternatives des automates, choisies via l'en-tête Accept
+ * (ou Content-Type) : binaire compact et JSON normalisé. Le JSON par défaut reste inchangé.
+ *
+ * Les convertisseurs passent avant Jackson, qui accepterait sinon {@code application/*+json} pour
+ * le JSON normalisé ; ils n'écrivent que lorsque leur format est demandé explicitement.
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${formats.binary-max-bytes:67108864}")
+    private int binaryMaxBytes = 64 * 1024 * 1024;
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(0, new BinaryAutomatonConverter(binaryMaxBytes));
+        converters.add(1, new CompactJsonAutomatonConverter(objectMapper.getFactory()));
+    }
+}
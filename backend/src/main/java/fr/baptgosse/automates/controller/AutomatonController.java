@@ -1,17 +1,63 @@
 package fr.baptgosse.automates.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.baptgosse.automates.amdl.AMDLDocument;
+import fr.baptgosse.automates.amdl.AMDLParser;
+import fr.baptgosse.automates.amdl.AMDLWriter;
+import fr.baptgosse.automates.config.BinaryAutomatonConverter;
+import fr.baptgosse.automates.dto.AmdlEdit;
+import fr.baptgosse.automates.dto.AmdlEditResult;
 import fr.baptgosse.automates.dto.AutomatonInfo;
+import fr.baptgosse.automates.dto.EditBatchResult;
+import fr.baptgosse.automates.dto.EditOperation;
+import fr.baptgosse.automates.dto.HistoryInfo;
+import fr.baptgosse.automates.dto.ImportJobInfo;
+import fr.baptgosse.automates.dto.LayoutJobInfo;
+import fr.baptgosse.automates.io.CompactAutomatonJson;
+import fr.baptgosse.automates.io.ImportException;
+import fr.baptgosse.automates.io.ImportFormat;
+import fr.baptgosse.automates.io.ImportOptions;
+import fr.baptgosse.automates.io.TransitionTableJson;
+import fr.baptgosse.automates.io.ViewportJson;
 import fr.baptgosse.automates.model.Automaton;
+import fr.baptgosse.automates.model.IndexedAutomaton;
+import fr.baptgosse.automates.model.PersistentAutomaton;
 import fr.baptgosse.automates.model.State;
 import fr.baptgosse.automates.model.Transition;
 import fr.baptgosse.automates.service.AnalysisService;
 import fr.baptgosse.automates.service.AutomatonService;
+import fr.baptgosse.automates.service.AutomatonSnapshot;
+import fr.baptgosse.automates.service.ImportService;
+import fr.baptgosse.automates.service.LayoutService;
+import fr.baptgosse.automates.service.SessionEventService;
+import fr.baptgosse.automates.service.SummaryService;
+import fr.baptgosse.automates.service.VersionConflictException;
+import fr.baptgosse.automates.service.Versioned;
+import fr.baptgosse.automates.util.Determinizer;
+import fr.baptgosse.automates.util.Minimizer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * REST Controller pour la gestion des automates.
@@ -21,12 +67,31 @@ import java.util.Map;
 @CrossOrigin(origins = "*") // À configurer plus finement en production
 public class AutomatonController {
 
+    private static final MediaType AMDL_TEXT = new MediaType("text", "plain", StandardCharsets.UTF_8);
+    private static final MediaType BINARY = MediaType.valueOf(BinaryAutomatonConverter.MEDIA_TYPE);
+    private static final MediaType COMPACT_JSON = MediaType.valueOf(CompactAutomatonJson.MEDIA_TYPE);
+
     @Autowired
     private AutomatonService automatonService;
 
     @Autowired
     private AnalysisService analysisService;
 
+    @Autowired
+    private SessionEventService sessionEventService;
+
+    @Autowired
+    private ImportService importService;
+
+    @Autowired
+    private LayoutService layoutService;
+
+    @Autowired
+    private SummaryService summaryService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     /**
      * Crée un nouvel automate.
      */
@@ -37,24 +102,237 @@ public class AutomatonController {
         return ResponseEntity.ok(Map.of("sessionId", sessionId));
     }
 
+    /**
+     * Importe un fichier AMDL (un ou plusieurs automates), chaque automate dans une nouvelle session.
+     * Renvoie 400 avec toutes les erreurs (ligne, colonne) sans rien créer si le fichier en contient.
+     */
+    @PostMapping(value = "/amdl", consumes = {MediaType.TEXT_PLAIN_VALUE, "text/x-amdl"})
+    public ResponseEntity<Map<String, Object>> importAmdl(@RequestBody String source) {
+        AMDLDocument document = AMDLParser.parse(source);
+        if (document.hasErrors()) {
+            return ResponseEntity.badRequest().body(Map.of("errors", amdlErrors(document)));
+        }
+        List<Map<String, Object>> sessions = document.automata().stream()
+                .map(automaton -> Map.<String, Object>of(
+                        "sessionId", automatonService.createAutomaton(automaton),
+                        "name", automaton.getName(),
+                        "statesCount", automaton.getStates().size(),
+                        "transitionsCount", automaton.getTransitions().size()))
+                .toList();
+        return ResponseEntity.ok(Map.of("sessions", sessions));
+    }
+
+    /**
+     * Reformate un texte AMDL (un ou plusieurs automates) : indentation, regroupement des
+     * transitions parallèles, ordre des états. Les commentaires ne sont pas conservés.
+     * Renvoie 400 avec toutes les erreurs si le texte est invalide.
+     */
+    @PostMapping(value = "/amdl/format", consumes = {MediaType.TEXT_PLAIN_VALUE, "text/x-amdl"})
+    public ResponseEntity<?> formatAmdl(@RequestBody String source) {
+        AMDLDocument document = AMDLParser.parse(source);
+        if (document.hasErrors()) {
+            return ResponseEntity.badRequest().body(Map.of("errors", amdlErrors(document)));
+        }
+        StreamingResponseBody body = out -> AMDLWriter.write(document.automata(), out);
+        return ResponseEntity.ok().contentType(AMDL_TEXT).body(body);
+    }
+
+    /**
+     * Importe un fichier DOT, JFLAP (.jff), CSV ({@code from,symbol,to}) ou NDJSON dans une nouvelle
+     * session. Le corps est lu en flux, sans être chargé en mémoire. Avec {@code async=true}, le corps
+     * est mis de côté sur disque et analysé en arrière-plan : 202 avec l'import à suivre.
+     */
+    @PostMapping("/import")
+    public ResponseEntity<?> importAutomaton(
+            @RequestParam(required = false) String format,
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) List<String> initial,
+            @RequestParam(required = false) List<String> accepting,
+            @RequestParam(defaultValue = "false") boolean async,
+            @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+            InputStream body) throws IOException {
+        try {
+            ImportFormat importFormat = ImportFormat.detect(format, contentType);
+            ImportOptions options = new ImportOptions(name,
+                    initial != null ? Set.copyOf(initial) : Set.of(),
+                    accepting != null ? Set.copyOf(accepting) : Set.of());
+            if (async) {
+                return ResponseEntity.accepted().body(importService.submit(body, importFormat, options));
+            }
+            return ResponseEntity.ok(importService.importNow(body, importFormat, options));
+        } catch (ImportException | IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Avancement d'un import en arrière-plan.
+     */
+    @GetMapping("/import/jobs/{jobId}")
+    public ResponseEntity<ImportJobInfo> getImportJob(@PathVariable String jobId) {
+        return importService.getJob(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Annule un import en arrière-plan.
+     */
+    @DeleteMapping("/import/jobs/{jobId}")
+    public ResponseEntity<Void> cancelImportJob(@PathVariable String jobId) {
+        return importService.cancel(jobId)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Lance la disposition automatique des états en arrière-plan : 202 avec la disposition à suivre.
+     * Les positions sont appliquées à la fin, en une seule modification annulable.
+     */
+    @PostMapping("/{sessionId}/layout")
+    public ResponseEntity<?> startLayout(@PathVariable String sessionId,
+                                         @RequestParam(required = false) Double spacing,
+                                         @RequestParam(required = false) Integer iterations) {
+        if (automatonService.getSession(sessionId).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            return ResponseEntity.accepted().body(layoutService.submit(sessionId, spacing, iterations));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Avancement d'une disposition.
+     */
+    @GetMapping("/layout/jobs/{jobId}")
+    public ResponseEntity<LayoutJobInfo> getLayoutJob(@PathVariable String jobId) {
+        return layoutService.getJob(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Annule une disposition ; les positions de l'automate ne sont pas modifiées.
+     */
+    @DeleteMapping("/layout/jobs/{jobId}")
+    public ResponseEntity<Void> cancelLayoutJob(@PathVariable String jobId) {
+        return layoutService.cancel(jobId)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Flux SSE des positions intermédiaires d'une disposition (states, positions, done).
+     */
+    @GetMapping(value = "/layout/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamLayoutJob(@PathVariable String jobId) {
+        return layoutService.stream(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Exporte un automate en AMDL, écrit directement dans la réponse.
+     */
+    @GetMapping("/{sessionId}/amdl")
+    public ResponseEntity<StreamingResponseBody> exportAmdl(
+            @PathVariable String sessionId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return automatonService.getSession(sessionId)
+                .map(session -> {
+                    String etag = ETags.of(session.getVersion(), "amdl");
+                    if (ETags.matchesNoneMatch(ifNoneMatch, etag)) {
+                        return notModified(etag).<StreamingResponseBody>build();
+                    }
+                    // Version figée : l'écriture, asynchrone, n'est pas affectée par les modifications suivantes
+                    AutomatonSnapshot snapshot = session.snapshot();
+                    StreamingResponseBody body = out -> AMDLWriter.write(snapshot.automaton(), out);
+                    return ResponseEntity.ok()
+                            .eTag(ETags.of(snapshot.version(), "amdl"))
+                            .cacheControl(CacheControl.noCache())
+                            .contentType(AMDL_TEXT)
+                            .body(body);
+                })
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Remplace le texte AMDL d'une session : l'automate ne reçoit que les modifications
+     * nécessaires (identifiants conservés), et le texte devient la référence des modifications
+     * incrémentales suivantes.
+     */
+    @PutMapping(value = "/{sessionId}/amdl", consumes = {MediaType.TEXT_PLAIN_VALUE, "text/x-amdl"})
+    public ResponseEntity<?> replaceAmdl(@PathVariable String sessionId,
+                                         @RequestBody String source,
+                                         @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        if (automatonService.getSession(sessionId).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            Versioned<AmdlEditResult> result = automatonService.replaceAmdl(sessionId, source,
+                    ETags.expectedVersion(ifMatch));
+            return ResponseEntity.ok().eTag(ETags.of(result.version())).body(result.value());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Applique des modifications par plages de lignes au texte AMDL d'une session : seules les
+     * instructions touchées sont ré-analysées. Renvoie les opérations appliquées et les erreurs du texte.
+     */
+    @PostMapping("/{sessionId}/amdl/edits")
+    public ResponseEntity<?> editAmdl(@PathVariable String sessionId,
+                                      @RequestBody List<AmdlEdit> edits,
+                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        if (automatonService.getSession(sessionId).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            Versioned<AmdlEditResult> result = automatonService.editAmdl(sessionId, edits,
+                    ETags.expectedVersion(ifMatch));
+            return ResponseEntity.ok().eTag(ETags.of(result.version())).body(result.value());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     /**
      * Récupère un automate par son ID de session.
      */
     @GetMapping("/{sessionId}")
-    public ResponseEntity<Automaton> getAutomaton(@PathVariable String sessionId) {
-        return automatonService.getAutomaton(sessionId)
-                .map(ResponseEntity::ok)
+    public ResponseEntity<Automaton> getAutomaton(@PathVariable String sessionId,
+                                                  @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                  @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return automatonService.getSession(sessionId)
+                .map(session -> {
+                    MediaType mediaType = representation(accept);
+                    String etag = ETags.of(session.getVersion(), etagVariant(mediaType));
+                    if (ETags.matchesNoneMatch(ifNoneMatch, etag)) {
+                        return notModified(etag).<Automaton>build();
+                    }
+                    AutomatonSnapshot snapshot = session.snapshot();
+                    return ResponseEntity.ok()
+                            .contentType(mediaType)
+                            .eTag(ETags.of(snapshot.version(), etagVariant(mediaType)))
+                            .cacheControl(CacheControl.noCache())
+                            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                            .body(snapshot.automaton());
+                })
                 .orElse(ResponseEntity.notFound().build());
     }
 
     /**
-     * Met à jour un automate complet.
+     * Met à jour un automate complet (conditionnellement si If-Match est fourni).
      */
     @PutMapping("/{sessionId}")
     public ResponseEntity<Void> updateAutomaton(@PathVariable String sessionId,
-                                                @RequestBody Automaton automaton) {
-        automatonService.updateAutomaton(sessionId, automaton);
-        return ResponseEntity.ok().build();
+                                                @RequestBody Automaton automaton,
+                                                @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        long version = automatonService.updateAutomaton(sessionId, automaton, ETags.expectedVersion(ifMatch));
+        return ResponseEntity.ok().eTag(ETags.of(version)).build();
     }
 
     /**
@@ -71,11 +349,12 @@ public class AutomatonController {
      */
     @PostMapping("/{sessionId}/state")
     public ResponseEntity<State> addState(@PathVariable String sessionId,
-                                          @RequestBody Map<String, Double> coordinates) {
+                                          @RequestBody Map<String, Double> coordinates,
+                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         double x = coordinates.getOrDefault("x", 100.0);
         double y = coordinates.getOrDefault("y", 100.0);
-        State state = automatonService.addState(sessionId, x, y);
-        return ResponseEntity.status(HttpStatus.CREATED).body(state);
+        Versioned<State> state = automatonService.addState(sessionId, x, y, ETags.expectedVersion(ifMatch));
+        return ResponseEntity.status(HttpStatus.CREATED).eTag(ETags.of(state.version())).body(state.value());
     }
 
     /**
@@ -83,9 +362,10 @@ public class AutomatonController {
      */
     @DeleteMapping("/{sessionId}/state/{stateId}")
     public ResponseEntity<Void> removeState(@PathVariable String sessionId,
-                                            @PathVariable String stateId) {
-        automatonService.removeState(sessionId, stateId);
-        return ResponseEntity.noContent().build();
+                                            @PathVariable String stateId,
+                                            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        long version = automatonService.removeState(sessionId, stateId, ETags.expectedVersion(ifMatch));
+        return ResponseEntity.noContent().eTag(ETags.of(version)).build();
     }
 
     /**
@@ -94,14 +374,16 @@ public class AutomatonController {
     @PutMapping("/{sessionId}/state/{stateId}")
     public ResponseEntity<Void> updateState(@PathVariable String sessionId,
                                             @PathVariable String stateId,
-                                            @RequestBody Map<String, Object> updates) {
+                                            @RequestBody Map<String, Object> updates,
+                                            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         double x = updates.containsKey("x") ? ((Number) updates.get("x")).doubleValue() : 0;
         double y = updates.containsKey("y") ? ((Number) updates.get("y")).doubleValue() : 0;
         Boolean initial = updates.containsKey("initial") ? (Boolean) updates.get("initial") : null;
         Boolean accepting = updates.containsKey("accepting") ? (Boolean) updates.get("accepting") : null;
 
-        automatonService.updateState(sessionId, stateId, x, y, initial, accepting);
-        return ResponseEntity.ok().build();
+        long version = automatonService.updateState(sessionId, stateId, x, y, initial, accepting,
+                ETags.expectedVersion(ifMatch));
+        return ResponseEntity.ok().eTag(ETags.of(version)).build();
     }
 
     /**
@@ -109,13 +391,15 @@ public class AutomatonController {
      */
     @PostMapping("/{sessionId}/transition")
     public ResponseEntity<Transition> addTransition(@PathVariable String sessionId,
-                                                    @RequestBody Map<String, String> transitionData) {
+                                                    @RequestBody Map<String, String> transitionData,
+                                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         String fromId = transitionData.get("fromId");
         String toId = transitionData.get("toId");
         String symbol = transitionData.get("symbol");
 
-        Transition transition = automatonService.addTransition(sessionId, fromId, toId, symbol);
-        return ResponseEntity.status(HttpStatus.CREATED).body(transition);
+        Versioned<Transition> transition = automatonService.addTransition(sessionId, fromId, toId, symbol,
+                ETags.expectedVersion(ifMatch));
+        return ResponseEntity.status(HttpStatus.CREATED).eTag(ETags.of(transition.version())).body(transition.value());
     }
 
     /**
@@ -123,29 +407,402 @@ public class AutomatonController {
      */
     @DeleteMapping("/{sessionId}/transition/{transitionId}")
     public ResponseEntity<Void> removeTransition(@PathVariable String sessionId,
-                                                 @PathVariable String transitionId) {
-        automatonService.removeTransition(sessionId, transitionId);
-        return ResponseEntity.noContent().build();
+                                                 @PathVariable String transitionId,
+                                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        long version = automatonService.removeTransition(sessionId, transitionId, ETags.expectedVersion(ifMatch));
+        return ResponseEntity.noContent().eTag(ETags.of(version)).build();
     }
 
     /**
-     * Récupère la table de transitions.
+     * Applique un lot ordonné d'opérations d'édition de manière atomique.
+     * Renvoie 400 sans rien modifier si l'une des opérations est invalide.
+     */
+    @PostMapping("/{sessionId}/ops")
+    public ResponseEntity<?> applyOperations(@PathVariable String sessionId,
+                                             @RequestBody List<EditOperation> operations,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        if (automatonService.getSession(sessionId).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            Versioned<EditBatchResult> result = automatonService.applyBatch(sessionId, operations,
+                    ETags.expectedVersion(ifMatch));
+            return ResponseEntity.ok().eTag(ETags.of(result.version())).body(result.value());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Récupère la table de transitions, écrite ligne par ligne depuis l'automate compilé
+     * (mis en cache jusqu'à la prochaine modification). Fenêtre de lignes (offset, limit) et de
+     * colonnes (symbolOffset, symbolLimit) dans l'ordre des états et de l'alphabet.
      */
     @GetMapping("/{sessionId}/table")
-    public ResponseEntity<Map<State, Map<String, java.util.Set<State>>>> getTransitionTable(
-            @PathVariable String sessionId) {
-        return automatonService.getAutomaton(sessionId)
-                .map(automaton -> ResponseEntity.ok(automaton.getTransitionTable()))
+    public ResponseEntity<?> getTransitionTable(
+            @PathVariable String sessionId,
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(defaultValue = "2147483647") int limit,
+            @RequestParam(defaultValue = "0") int symbolOffset,
+            @RequestParam(defaultValue = "2147483647") int symbolLimit,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (offset < 0 || limit < 0 || symbolOffset < 0 || symbolLimit < 0) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Fenêtre de table invalide"));
+        }
+        return automatonService.getSession(sessionId)
+                .map(session -> {
+                    String etag = ETags.of(session.getVersion(), "table");
+                    if (ETags.matchesNoneMatch(ifNoneMatch, etag)) {
+                        return notModified(etag).build();
+                    }
+                    AutomatonSnapshot snapshot = session.snapshot();
+                    IndexedAutomaton compiled = session.compiled(snapshot);
+                    StreamingResponseBody body = out -> {
+                        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+                            TransitionTableJson.write(compiled, snapshot.version(), offset, limit,
+                                    symbolOffset, symbolLimit, gen);
+                        }
+                    };
+                    return ResponseEntity.ok()
+                            .eTag(ETags.of(snapshot.version(), "table"))
+                            .cacheControl(CacheControl.noCache())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .body(body);
+                })
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Récupère les états et transitions visibles dans le rectangle [x0, x1] × [y0, y1], lus dans
+     * la version immuable courante via son index spatial (sans copie de l'automate).
+     */
+    @GetMapping("/{sessionId}/viewport")
+    public ResponseEntity<?> getViewport(
+            @PathVariable String sessionId,
+            @RequestParam double x0,
+            @RequestParam double y0,
+            @RequestParam double x1,
+            @RequestParam double y1,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (!(x0 <= x1 && y0 <= y1) || Double.isInfinite(x1 - x0) || Double.isInfinite(y1 - y0)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Fenêtre invalide"));
+        }
+        return automatonService.getSession(sessionId)
+                .map(session -> {
+                    Versioned<PersistentAutomaton> current = session.current();
+                    String etag = ETags.of(current.version(), "viewport");
+                    if (ETags.matchesNoneMatch(ifNoneMatch, etag)) {
+                        return notModified(etag).build();
+                    }
+                    StreamingResponseBody body = out -> {
+                        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+                            ViewportJson.write(current.value(), current.version(), x0, y0, x1, y1, gen);
+                        }
+                    };
+                    return ResponseEntity.ok()
+                            .eTag(etag)
+                            .cacheControl(CacheControl.noCache())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .body(body);
+                })
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Résumé de la fenêtre [x0, x1] × [y0, y1] pour une vue dézoomée : groupes d'états par cellule
+     * et transitions agrégées entre groupes. Le palier (tier) est optionnel ; il est relevé si la
+     * fenêtre couvre trop de cellules, pour que la réponse reste bornée.
+     */
+    @GetMapping("/{sessionId}/summary")
+    public ResponseEntity<?> getSummary(
+            @PathVariable String sessionId,
+            @RequestParam double x0,
+            @RequestParam double y0,
+            @RequestParam double x1,
+            @RequestParam double y1,
+            @RequestParam(required = false) Integer tier,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (!(x0 <= x1 && y0 <= y1) || Double.isInfinite(x1 - x0) || Double.isInfinite(y1 - y0)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Fenêtre invalide"));
+        }
+        int level;
+        try {
+            level = summaryService.tier(x0, y0, x1, y1, tier);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        return automatonService.getSession(sessionId)
+                .map(session -> {
+                    Versioned<PersistentAutomaton> current = session.current();
+                    String etag = ETags.of(current.version(), "summary");
+                    if (ETags.matchesNoneMatch(ifNoneMatch, etag)) {
+                        return notModified(etag).build();
+                    }
+                    StreamingResponseBody body = out -> {
+                        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+                            summaryService.write(current, level, x0, y0, x1, y1, gen);
+                        }
+                    };
+                    return ResponseEntity.ok()
+                            .eTag(etag)
+                            .cacheControl(CacheControl.noCache())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .body(body);
+                })
                 .orElse(ResponseEntity.notFound().build());
     }
 
     /**
-     * Récupère les informations d'analyse de l'automate.
+     * Récupère les informations d'analyse de l'automate, ou d'une version conservée
+     * dans son historique (paramètre version).
      */
     @GetMapping("/{sessionId}/info")
-    public ResponseEntity<AutomatonInfo> getAutomatonInfo(@PathVariable String sessionId) {
-        return automatonService.getAutomaton(sessionId)
-                .map(automaton -> ResponseEntity.ok(analysisService.analyze(automaton)))
+    public ResponseEntity<AutomatonInfo> getAutomatonInfo(
+            @PathVariable String sessionId,
+            @RequestParam(required = false) Long version,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (version != null) {
+            return automatonService.getVersion(sessionId, version)
+                    .map(snapshot -> {
+                        String etag = ETags.of(snapshot.version());
+                        if (ETags.matchesNoneMatch(ifNoneMatch, etag)) {
+                            return notModified(etag).<AutomatonInfo>build();
+                        }
+                        AutomatonInfo info = analysisService.analyze(sessionId, snapshot);
+                        if (!info.getPending().isEmpty()) {
+                            return ResponseEntity.ok(info);
+                        }
+                        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(info);
+                    })
+                    .orElse(ResponseEntity.notFound().build());
+        }
+        return automatonService.getSession(sessionId)
+                .map(session -> {
+                    String etag = ETags.of(session.getVersion());
+                    if (ETags.matchesNoneMatch(ifNoneMatch, etag)) {
+                        return notModified(etag).<AutomatonInfo>build();
+                    }
+                    AutomatonSnapshot snapshot = session.snapshot();
+                    AutomatonInfo info = analysisService.analyze(sessionId, snapshot);
+                    if (!info.getPending().isEmpty()) {
+                        // Analyse incomplète (délai dépassé) : ne pas la rendre réutilisable
+                        return ResponseEntity.ok(info);
+                    }
+                    return ResponseEntity.ok()
+                            .eTag(ETags.of(snapshot.version()))
+                            .cacheControl(CacheControl.noCache())
+                            .body(info);
+                })
                 .orElse(ResponseEntity.notFound().build());
     }
+
+    /**
+     * Annule la dernière modification (409 s'il n'y a rien à annuler).
+     */
+    @PostMapping("/{sessionId}/undo")
+    public ResponseEntity<?> undo(@PathVariable String sessionId,
+                                  @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        if (automatonService.getSession(sessionId).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            long version = automatonService.undo(sessionId, ETags.expectedVersion(ifMatch));
+            return ResponseEntity.noContent().eTag(ETags.of(version)).build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Rétablit la dernière modification annulée (409 s'il n'y a rien à rétablir).
+     */
+    @PostMapping("/{sessionId}/redo")
+    public ResponseEntity<?> redo(@PathVariable String sessionId,
+                                  @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        if (automatonService.getSession(sessionId).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            long version = automatonService.redo(sessionId, ETags.expectedVersion(ifMatch));
+            return ResponseEntity.noContent().eTag(ETags.of(version)).build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Récupère l'historique d'annulation (versions annulables et rétablissables).
+     */
+    @GetMapping("/{sessionId}/history")
+    public ResponseEntity<HistoryInfo> getHistory(@PathVariable String sessionId) {
+        return automatonService.getHistory(sessionId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Duplique la session : la copie partage la version courante et évolue ensuite indépendamment.
+     */
+    @PostMapping("/{sessionId}/fork")
+    public ResponseEntity<Map<String, String>> fork(@PathVariable String sessionId) {
+        if (automatonService.getSession(sessionId).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(Map.of("sessionId", automatonService.fork(sessionId)));
+    }
+
+    /**
+     * Flux SSE des modifications de la session (deltas versionnés, analyse, suppression).
+     * La reprise se fait par l'en-tête Last-Event-ID (envoyé automatiquement par EventSource)
+     * ou le paramètre since ; sans reprise possible, le flux commence par un snapshot.
+     */
+    @GetMapping(value = "/{sessionId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamEvents(@PathVariable String sessionId,
+                                                   @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                                                   @RequestParam(required = false) String since) {
+        if (automatonService.getSession(sessionId).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(sessionEventService.subscribe(sessionId, lastEventId != null ? lastEventId : since));
+    }
+
+    /**
+     * Déterminise un automate dans une nouvelle session.
+     * Le moteur (sequential ou parallel) est choisi par requête ; la durée du calcul
+     * est renvoyée pour comparer les deux moteurs.
+     */
+    @PostMapping("/{sessionId}/determinize")
+    public ResponseEntity<Map<String, Object>> determinize(@PathVariable String sessionId,
+                                                           @RequestParam(defaultValue = "sequential") String mode) {
+        try {
+            Determinizer.Mode engine = parseMode(Determinizer.Mode.class, mode);
+            return automatonService.getAutomaton(sessionId)
+                    .map(automaton -> {
+                        long start = System.nanoTime();
+                        Automaton dfa = Determinizer.determinize(automaton, engine);
+                        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+                        String dfaSessionId = automatonService.createAutomaton(dfa);
+                        return ResponseEntity.ok(Map.<String, Object>of(
+                                "sessionId", dfaSessionId,
+                                "mode", engine.name().toLowerCase(Locale.ROOT),
+                                "statesCount", dfa.getStates().size(),
+                                "elapsedMs", elapsedMs));
+                    })
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            // Mode inconnu ou automate sans état initial
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Minimise un automate déterministe dans une nouvelle session.
+     * En mode auto, le moteur parallèle est choisi au-delà de {@link Minimizer#PARALLEL_THRESHOLD} états.
+     */
+    @PostMapping("/{sessionId}/minimize")
+    public ResponseEntity<Map<String, Object>> minimize(@PathVariable String sessionId,
+                                                        @RequestParam(defaultValue = "auto") String mode) {
+        try {
+            Minimizer.Mode engine = parseMode(Minimizer.Mode.class, mode);
+            return automatonService.getAutomaton(sessionId)
+                    .map(automaton -> {
+                        long start = System.nanoTime();
+                        Automaton minimal = Minimizer.minimize(automaton, engine);
+                        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+                        String minimalSessionId = automatonService.createAutomaton(minimal);
+                        return ResponseEntity.ok(Map.<String, Object>of(
+                                "sessionId", minimalSessionId,
+                                "mode", engine.name().toLowerCase(Locale.ROOT),
+                                "statesCount", minimal.getStates().size(),
+                                "elapsedMs", elapsedMs));
+                    })
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            // Mode inconnu ou automate non déterministe
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Modification conditionnelle sur une version périmée : 412 avec l'ETag courant.
+     */
+    @ExceptionHandler(VersionConflictException.class)
+    public ResponseEntity<Map<String, String>> handleVersionConflict(VersionConflictException e) {
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                .eTag(ETags.of(e.getCurrentVersion()))
+                .body(Map.of("error", e.getMessage()));
+    }
+
+    private static List<Map<String, Object>> amdlErrors(AMDLDocument document) {
+        return document.errors().stream()
+                .map(e -> Map.<String, Object>of(
+                        "line", e.getLine(),
+                        "column", e.getColumn(),
+                        "message", e.getMessage()))
+                .toList();
+    }
+
+    /**
+     * Moteur demandé par le paramètre mode (insensible à la casse).
+     */
+    private static <E extends Enum<E>> E parseMode(Class<E> type, String mode) {
+        for (E value : type.getEnumConstants()) {
+            if (value.name().equalsIgnoreCase(mode)) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Mode inconnu: " + mode + " (" + Arrays.stream(type.getEnumConstants())
+                .map(value -> value.name().toLowerCase(Locale.ROOT))
+                .collect(Collectors.joining(", ")) + ")");
+    }
+
+    private static ResponseEntity.HeadersBuilder<?> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag);
+    }
+
+    /**
+     * Représentation demandée par l'en-tête Accept, par ordre de préférence. Les formats binaire et
+     * JSON normalisé ne sont servis que s'ils sont demandés explicitement : sans en-tête, avec
+     * {@code *}{@code /*} ou un en-tête invalide, la réponse est le JSON par défaut.
+     */
+    private static MediaType representation(String accept) {
+        if (accept == null) {
+            return MediaType.APPLICATION_JSON;
+        }
+        List<MediaType> types;
+        try {
+            types = new ArrayList<>(MediaType.parseMediaTypes(accept));
+        } catch (InvalidMediaTypeException e) {
+            return MediaType.APPLICATION_JSON;
+        }
+        types.sort(Comparator.comparingDouble(MediaType::getQualityValue).reversed());
+        for (MediaType type : types) {
+            if (type.getQualityValue() <= 0) {
+                continue;
+            }
+            if (BINARY.equalsTypeAndSubtype(type)) {
+                return BINARY;
+            }
+            if (COMPACT_JSON.equalsTypeAndSubtype(type)) {
+                return COMPACT_JSON;
+            }
+            if (type.includes(MediaType.APPLICATION_JSON)) {
+                return MediaType.APPLICATION_JSON;
+            }
+        }
+        return MediaType.APPLICATION_JSON;
+    }
+
+    /**
+     * Variante d'ETag d'une représentation : chaque représentation a son propre ETag fort.
+     */
+    private static String etagVariant(MediaType mediaType) {
+        if (mediaType == BINARY) {
+            return "bin";
+        }
+        if (mediaType == COMPACT_JSON) {
+            return "compact";
+        }
+        return null;
+    }
 }
@@ -0,0 +1,75 @@
+package fr.baptgosse.automates.controller;
+
+/**
+ * ETags forts dérivés de la version des automates.
+ *
+ * Format : {@code "<époque>-<version>[-<variante>]"}. L'époque (instant de démarrage du serveur)
+ * invalide les ETags émis avant un redémarrage, les versions repartant alors de zéro.
+ * La variante distingue les représentations négociées d'une même version (binaire, JSON normalisé).
+ */
+final class ETags {
+
+    private static final String EPOCH = Long.toString(System.currentTimeMillis(), 36);
+
+    private ETags() {
+    }
+
+    /**
+     * ETag de la représentation par défaut d'une version.
+     */
+    static String of(long version) {
+        return of(version, null);
+    }
+
+    static String of(long version, String variant) {
+        return "\"" + EPOCH + "-" + version + (variant != null ? "-" + variant : "") + "\"";
+    }
+
+    /**
+     * Indique si l'en-tête If-None-Match désigne l'ETag courant (comparaison faible, RFC 9110).
+     */
+    static boolean matchesNoneMatch(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Extrait la version attendue d'un en-tête If-Match.
+     * @return null si l'en-tête est absent ou vaut "*" (pas de condition sur la version),
+     *         -1 si aucun ETag fort de l'époque courante n'y figure (la condition échouera)
+     */
+    static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String prefix = "\"" + EPOCH + "-";
+        for (String candidate : ifMatch.split(",")) {
+            String tag = candidate.trim();
+            if (!tag.startsWith(prefix) || !tag.endsWith("\"")) {
+                continue; // ETag faible ou d'une autre époque
+            }
+            String rest = tag.substring(prefix.length(), tag.length() - 1);
+            int dash = rest.indexOf('-');
+            try {
+                return Long.parseLong(dash >= 0 ? rest.substring(0, dash) : rest);
+            } catch (NumberFormatException e) {
+                // ETag malformé : essayer le suivant
+            }
+        }
+        return -1L;
+    }
+}
@@ -0,0 +1,24 @@
+package fr.baptgosse.automates.controller;
+
+import fr.baptgosse.automates.dto.SessionStats;
+import fr.baptgosse.automates.service.SessionStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Endpoint Actuator exposant les statistiques des sessions (/actuator/sessions).
+ */
+@Component
+@Endpoint(id = "sessions")
+public class SessionsEndpoint {
+
+    @Autowired
+    private SessionStore sessionStore;
+
+    @ReadOperation
+    public SessionStats stats() {
+        return sessionStore.stats();
+    }
+}
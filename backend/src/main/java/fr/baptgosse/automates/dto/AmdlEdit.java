@@ -0,0 +1,41 @@
+package fr.baptgosse.automates.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * DTO d'une modification du texte AMDL d'une session ({@code POST /{sessionId}/amdl/edits}) :
+ * les lignes {@code startLine..endLine} (incluses, à partir de 1) sont remplacées par {@code lines}.
+ * Une insertion avant la ligne n s'écrit {@code startLine = n, endLine = n - 1}.
+ */
+public class AmdlEdit {
+
+    @JsonProperty("startLine")
+    private int startLine;
+
+    @JsonProperty("endLine")
+    private int endLine;
+
+    @JsonProperty("lines")
+    private List<String> lines;
+
+    public AmdlEdit() {
+    }
+
+    public AmdlEdit(int startLine, int endLine, List<String> lines) {
+        this.startLine = startLine;
+        this.endLine = endLine;
+        this.lines = lines;
+    }
+
+    // Getters et Setters
+    public int getStartLine() { return startLine; }
+    public void setStartLine(int startLine) { this.startLine = startLine; }
+
+    public int getEndLine() { return endLine; }
+    public void setEndLine(int endLine) { this.endLine = endLine; }
+
+    public List<String> getLines() { return lines != null ? lines : List.of(); }
+    public void setLines(List<String> lines) { this.lines = lines; }
+}
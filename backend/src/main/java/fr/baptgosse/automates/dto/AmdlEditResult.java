@@ -0,0 +1,39 @@
+package fr.baptgosse.automates.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import fr.baptgosse.automates.amdl.AMDLException;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DTO du résultat d'une modification du texte AMDL d'une session.
+ */
+public class AmdlEditResult {
+
+    // Modifications appliquées à l'automate, au format des deltas du flux d'événements
+    @JsonProperty("operations")
+    private final List<Map<String, Object>> operations;
+
+    // Erreurs de tout le texte après modification
+    @JsonProperty("errors")
+    private final List<Map<String, Object>> errors;
+
+    @JsonProperty("lineCount")
+    private final int lineCount;
+
+    public AmdlEditResult(List<Map<String, Object>> operations, List<AMDLException> errors, int lineCount) {
+        this.operations = operations;
+        this.errors = errors.stream()
+                .map(e -> Map.<String, Object>of(
+                        "line", e.getLine(),
+                        "column", e.getColumn(),
+                        "message", e.getMessage()))
+                .toList();
+        this.lineCount = lineCount;
+    }
+
+    public List<Map<String, Object>> getOperations() { return operations; }
+    public List<Map<String, Object>> getErrors() { return errors; }
+    public int getLineCount() { return lineCount; }
+}
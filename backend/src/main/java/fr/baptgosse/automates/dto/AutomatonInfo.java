@@ -42,6 +42,9 @@ public class AutomatonInfo {
     @JsonProperty("languageDescription")
     private String languageDescription;
 
+    @JsonProperty("pending")
+    private Set<String> pending = Set.of(); // Analyses non terminées dans le délai imparti
+
     // Constructeur sans arguments
     public AutomatonInfo() {}
 
@@ -75,6 +78,7 @@ public class AutomatonInfo {
     public Set<String> getAcceptingStates() { return acceptingStates; }
     public String getRegex() { return regex; }
     public String getLanguageDescription() { return languageDescription; }
+    public Set<String> getPending() { return pending; }
 
     // Setters
     public void setName(String name) { this.name = name; }
@@ -88,4 +92,5 @@ public class AutomatonInfo {
     public void setAcceptingStates(Set<String> acceptingStates) { this.acceptingStates = acceptingStates; }
     public void setRegex(String regex) { this.regex = regex; }
     public void setLanguageDescription(String languageDescription) { this.languageDescription = languageDescription; }
+    public void setPending(Set<String> pending) { this.pending = pending; }
 }
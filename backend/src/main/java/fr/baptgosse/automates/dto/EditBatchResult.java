@@ -0,0 +1,28 @@
+package fr.baptgosse.automates.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DTO du résultat d'un lot d'opérations d'édition.
+ */
+public class EditBatchResult {
+
+    // Identifiants temporaires du client → identifiants attribués par le serveur
+    @JsonProperty("ids")
+    private final Map<String, String> ids;
+
+    // Un résultat par opération, dans l'ordre : l'état ou la transition créé(e), sinon null
+    @JsonProperty("results")
+    private final List<Object> results;
+
+    public EditBatchResult(Map<String, String> ids, List<Object> results) {
+        this.ids = ids;
+        this.results = results;
+    }
+
+    public Map<String, String> getIds() { return ids; }
+    public List<Object> getResults() { return results; }
+}
@@ -0,0 +1,96 @@
+package fr.baptgosse.automates.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * DTO d'une opération d'édition d'un lot ({@code POST /{sessionId}/ops}).
+ *
+ * Les champs utilisés dépendent du type d'opération :
+ * <ul>
+ *   <li>{@code addState} : tempId, x, y, label (facultatif)</li>
+ *   <li>{@code removeState} : stateId</li>
+ *   <li>{@code updateState} : stateId, x, y, initial, accepting</li>
+ *   <li>{@code addTransition} : tempId, fromId, toId, symbol</li>
+ *   <li>{@code removeTransition} : transitionId</li>
+ * </ul>
+ * Les identifiants d'états et de transitions peuvent désigner le tempId d'un ajout
+ * précédent du même lot.
+ */
+public class EditOperation {
+
+    @JsonProperty("op")
+    private String op;
+
+    @JsonProperty("tempId")
+    private String tempId;
+
+    @JsonProperty("stateId")
+    private String stateId;
+
+    @JsonProperty("transitionId")
+    private String transitionId;
+
+    @JsonProperty("label")
+    private String label;
+
+    @JsonProperty("x")
+    private Double x;
+
+    @JsonProperty("y")
+    private Double y;
+
+    @JsonProperty("initial")
+    private Boolean initial;
+
+    @JsonProperty("accepting")
+    private Boolean accepting;
+
+    @JsonProperty("fromId")
+    private String fromId;
+
+    @JsonProperty("toId")
+    private String toId;
+
+    @JsonProperty("symbol")
+    private String symbol;
+
+    public EditOperation() {
+    }
+
+    // Getters et Setters
+    public String getOp() { return op; }
+    public void setOp(String op) { this.op = op; }
+
+    public String getTempId() { return tempId; }
+    public void setTempId(String tempId) { this.tempId = tempId; }
+
+    public String getStateId() { return stateId; }
+    public void setStateId(String stateId) { this.stateId = stateId; }
+
+    public String getTransitionId() { return transitionId; }
+    public void setTransitionId(String transitionId) { this.transitionId = transitionId; }
+
+    public String getLabel() { return label; }
+    public void setLabel(String label) { this.label = label; }
+
+    public Double getX() { return x; }
+    public void setX(Double x) { this.x = x; }
+
+    public Double getY() { return y; }
+    public void setY(Double y) { this.y = y; }
+
+    public Boolean getInitial() { return initial; }
+    public void setInitial(Boolean initial) { this.initial = initial; }
+
+    public Boolean getAccepting() { return accepting; }
+    public void setAccepting(Boolean accepting) { this.accepting = accepting; }
+
+    public String getFromId() { return fromId; }
+    public void setFromId(String fromId) { this.fromId = fromId; }
+
+    public String getToId() { return toId; }
+    public void setToId(String toId) { this.toId = toId; }
+
+    public String getSymbol() { return symbol; }
+    public void setSymbol(String symbol) { this.symbol = symbol; }
+}
@@ -0,0 +1,57 @@
+package fr.baptgosse.automates.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * DTO de l'historique d'annulation d'une session.
+ */
+public class HistoryInfo {
+
+    /**
+     * Version conservée dans l'historique.
+     */
+    public static class Version {
+
+        @JsonProperty("version")
+        private final long version;
+
+        @JsonProperty("stateCount")
+        private final int stateCount;
+
+        @JsonProperty("transitionCount")
+        private final int transitionCount;
+
+        public Version(long version, int stateCount, int transitionCount) {
+            this.version = version;
+            this.stateCount = stateCount;
+            this.transitionCount = transitionCount;
+        }
+
+        public long getVersion() { return version; }
+        public int getStateCount() { return stateCount; }
+        public int getTransitionCount() { return transitionCount; }
+    }
+
+    @JsonProperty("currentVersion")
+    private final long currentVersion;
+
+    // De la plus récente à la plus ancienne
+    @JsonProperty("undo")
+    private final List<Version> undo;
+
+    // De la plus proche à la plus lointaine
+    @JsonProperty("redo")
+    private final List<Version> redo;
+
+    public HistoryInfo(long currentVersion, List<Version> undo, List<Version> redo) {
+        this.currentVersion = currentVersion;
+        this.undo = undo;
+        this.redo = redo;
+    }
+
+    public long getCurrentVersion() { return currentVersion; }
+    public List<Version> getUndo() { return undo; }
+    public List<Version> getRedo() { return redo; }
+}
@@ -0,0 +1,61 @@
+package fr.baptgosse.automates.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * DTO de l'état d'un import exécuté en arrière-plan.
+ */
+public class ImportJobInfo {
+
+    @JsonProperty("jobId")
+    private final String jobId;
+
+    @JsonProperty("format")
+    private final String format;
+
+    // PENDING, RUNNING, DONE, FAILED ou CANCELLED
+    @JsonProperty("status")
+    private final String status;
+
+    @JsonProperty("bytesRead")
+    private final long bytesRead;
+
+    @JsonProperty("totalBytes")
+    private final long totalBytes;
+
+    // Renseignés une fois l'import terminé
+    @JsonProperty("sessionId")
+    private final String sessionId;
+
+    @JsonProperty("statesCount")
+    private final int statesCount;
+
+    @JsonProperty("transitionsCount")
+    private final int transitionsCount;
+
+    @JsonProperty("error")
+    private final String error;
+
+    public ImportJobInfo(String jobId, String format, String status, long bytesRead, long totalBytes,
+                         String sessionId, int statesCount, int transitionsCount, String error) {
+        this.jobId = jobId;
+        this.format = format;
+        this.status = status;
+        this.bytesRead = bytesRead;
+        this.totalBytes = totalBytes;
+        this.sessionId = sessionId;
+        this.statesCount = statesCount;
+        this.transitionsCount = transitionsCount;
+        this.error = error;
+    }
+
+    public String getJobId() { return jobId; }
+    public String getFormat() { return format; }
+    public String getStatus() { return status; }
+    public long getBytesRead() { return bytesRead; }
+    public long getTotalBytes() { return totalBytes; }
+    public String getSessionId() { return sessionId; }
+    public int getStatesCount() { return statesCount; }
+    public int getTransitionsCount() { return transitionsCount; }
+    public String getError() { return error; }
+}
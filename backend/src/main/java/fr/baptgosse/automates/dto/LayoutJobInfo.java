@@ -0,0 +1,52 @@
+package fr.baptgosse.automates.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * DTO de l'état d'une disposition automatique exécutée en arrière-plan.
+ */
+public class LayoutJobInfo {
+
+    @JsonProperty("jobId")
+    private final String jobId;
+
+    @JsonProperty("sessionId")
+    private final String sessionId;
+
+    // PENDING, RUNNING, DONE, FAILED ou CANCELLED
+    @JsonProperty("status")
+    private final String status;
+
+    // Avancement estimé, de 0 à 1
+    @JsonProperty("progress")
+    private final double progress;
+
+    @JsonProperty("statesCount")
+    private final int statesCount;
+
+    // Version de l'automate une fois les positions appliquées
+    @JsonProperty("version")
+    private final Long version;
+
+    @JsonProperty("error")
+    private final String error;
+
+    public LayoutJobInfo(String jobId, String sessionId, String status, double progress, int statesCount,
+                         Long version, String error) {
+        this.jobId = jobId;
+        this.sessionId = sessionId;
+        this.status = status;
+        this.progress = progress;
+        this.statesCount = statesCount;
+        this.version = version;
+        this.error = error;
+    }
+
+    public String getJobId() { return jobId; }
+    public String getSessionId() { return sessionId; }
+    public String getStatus() { return status; }
+    public double getProgress() { return progress; }
+    public int getStatesCount() { return statesCount; }
+    public Long getVersion() { return version; }
+    public String getError() { return error; }
+}
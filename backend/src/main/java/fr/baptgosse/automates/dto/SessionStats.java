@@ -0,0 +1,65 @@
+package fr.baptgosse.automates.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * DTO des statistiques du stockage des sessions.
+ */
+public class SessionStats {
+
+    @JsonProperty("sessions")
+    private final int sessions;
+
+    @JsonProperty("maxSessions")
+    private final int maxSessions;
+
+    @JsonProperty("estimatedBytes")
+    private final long estimatedBytes;
+
+    @JsonProperty("maxBytes")
+    private final long maxBytes;
+
+    @JsonProperty("idleTtlMinutes")
+    private final long idleTtlMinutes;
+
+    @JsonProperty("hits")
+    private final long hits;
+
+    @JsonProperty("misses")
+    private final long misses;
+
+    @JsonProperty("expiredEvictions")
+    private final long expiredEvictions;
+
+    @JsonProperty("capacityEvictions")
+    private final long capacityEvictions;
+
+    @JsonProperty("memoryEvictions")
+    private final long memoryEvictions;
+
+    public SessionStats(int sessions, int maxSessions, long estimatedBytes, long maxBytes, long idleTtlMinutes,
+                        long hits, long misses, long expiredEvictions, long capacityEvictions, long memoryEvictions) {
+        this.sessions = sessions;
+        this.maxSessions = maxSessions;
+        this.estimatedBytes = estimatedBytes;
+        this.maxBytes = maxBytes;
+        this.idleTtlMinutes = idleTtlMinutes;
+        this.hits = hits;
+        this.misses = misses;
+        this.expiredEvictions = expiredEvictions;
+        this.capacityEvictions = capacityEvictions;
+        this.memoryEvictions = memoryEvictions;
+    }
+
+    // Getters
+    public int getSessions() { return sessions; }
+    public int getMaxSessions() { return maxSessions; }
+    public long getEstimatedBytes() { return estimatedBytes; }
+    public long getMaxBytes() { return maxBytes; }
+    public long getIdleTtlMinutes() { return idleTtlMinutes; }
+    public long getHits() { return hits; }
+    public long getMisses() { return misses; }
+    public long getExpiredEvictions() { return expiredEvictions; }
+    public long getCapacityEvictions() { return capacityEvictions; }
+    public long getMemoryEvictions() { return memoryEvictions; }
+}
@@ -0,0 +1,234 @@
+package fr.baptgosse.automates.io;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import fr.baptgosse.automates.model.Automaton;
+import fr.baptgosse.automates.model.State;
+import fr.baptgosse.automates.model.Transition;
+import fr.baptgosse.automates.util.Ids;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Représentation JSON normalisée d'un automate : les transitions référencent
+ * les états par identifiant au lieu d'embarquer des copies des états.
+ *
+ * <pre>
+ * {
+ *   "name": "...",
+ *   "alphabet": ["a", "b"],
+ *   "states": [{"id": "...", "label": "q0", "x": 100, "y": 100, "initial": true, "accepting": false}],
+ *   "transitions": [{"id": "...", "from": "&lt;id état&gt;", "to": "&lt;id état&gt;", "symbol": "a"}]
+ * }
+ * </pre>
+ *
+ * L'alphabet est redondant (déduit des transitions) : il est ignoré à la lecture.
+ */
+public class CompactAutomatonJson {
+
+    public static final String MEDIA_TYPE = "application/vnd.automates.compact+json";
+
+    /**
+     * Écrit l'automate au fil de l'eau sur le générateur, sans construire d'arbre intermédiaire.
+     */
+    public static void write(Automaton automaton, JsonGenerator gen) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("name", automaton.getName());
+
+        gen.writeArrayFieldStart("alphabet");
+        for (String symbol : automaton.getAlphabet()) {
+            gen.writeString(symbol);
+        }
+        gen.writeEndArray();
+
+        gen.writeArrayFieldStart("states");
+        for (State state : automaton.getStates()) {
+            gen.writeStartObject();
+            gen.writeStringField("id", state.getId());
+            gen.writeStringField("label", state.getLabel());
+            gen.writeNumberField("x", state.getX());
+            gen.writeNumberField("y", state.getY());
+            gen.writeBooleanField("initial", state.isInitial());
+            gen.writeBooleanField("accepting", state.isAccepting());
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+
+        gen.writeArrayFieldStart("transitions");
+        for (Transition transition : automaton.getTransitions()) {
+            gen.writeStartObject();
+            gen.writeStringField("id", transition.getId());
+            gen.writeStringField("from", transition.getFrom().getId());
+            gen.writeStringField("to", transition.getTo().getId());
+            gen.writeStringField("symbol", transition.getSymbol());
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+
+        gen.writeEndObject();
+    }
+
+    /**
+     * Lit un automate en une seule passe sur le flux de jetons, directement dans le modèle indexé.
+     * Les champs peuvent apparaître dans n'importe quel ordre ; seules les transitions lues avant
+     * les états qu'elles référencent sont mises en attente.
+     *
+     * @throws JsonParseException si le document est mal formé ou référence un état inconnu
+     */
+    public static Automaton read(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Objet automate attendu");
+        }
+        Automaton automaton = new Automaton();
+        Map<String, State> statesById = new HashMap<>();
+        Map<String, String> symbols = new HashMap<>();
+        List<String[]> unresolved = new ArrayList<>();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "name" -> automaton.setName(string(parser, field));
+                case "states" -> {
+                    expectArray(parser, value, field);
+                    JsonToken element;
+                    while ((element = parser.nextToken()) == JsonToken.START_OBJECT) {
+                        State state = readState(parser);
+                        if (statesById.putIfAbsent(state.getId(), state) != null) {
+                            throw new JsonParseException(parser, "État en double: " + state.getId());
+                        }
+                        automaton.addState(state);
+                    }
+                    expectArrayEnd(parser, element, field);
+                }
+                case "transitions" -> {
+                    expectArray(parser, value, field);
+                    JsonToken element;
+                    while ((element = parser.nextToken()) == JsonToken.START_OBJECT) {
+                        String[] t = readTransition(parser, symbols);
+                        State from = statesById.get(t[1]);
+                        State to = statesById.get(t[2]);
+                        if (from != null && to != null) {
+                            automaton.addTransition(new Transition(t[0], from, to, t[3]));
+                        } else {
+                            unresolved.add(t);
+                        }
+                    }
+                    expectArrayEnd(parser, element, field);
+                }
+                default -> parser.skipChildren();
+            }
+        }
+
+        for (String[] t : unresolved) {
+            State from = statesById.get(t[1]);
+            State to = statesById.get(t[2]);
+            if (from == null || to == null) {
+                throw new JsonParseException(parser, "État non trouvé: " + (from == null ? t[1] : t[2]));
+            }
+            automaton.addTransition(new Transition(t[0], from, to, t[3]));
+        }
+        return automaton;
+    }
+
+    private static State readState(JsonParser parser) throws IOException {
+        String id = null;
+        String label = null;
+        double x = 0;
+        double y = 0;
+        boolean initial = false;
+        boolean accepting = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "id" -> id = string(parser, field);
+                case "label" -> label = string(parser, field);
+                case "x" -> x = number(parser, field);
+                case "y" -> y = number(parser, field);
+                case "initial" -> initial = bool(parser, field);
+                case "accepting" -> accepting = bool(parser, field);
+                default -> parser.skipChildren();
+            }
+        }
+        return new State(id != null ? id : Ids.newId(), label, x, y, initial, accepting);
+    }
+
+    /**
+     * Lit une transition sous la forme {id, from, to, symbol} ; les symboles sont partagés
+     * entre transitions pour ne pas allouer une chaîne par occurrence.
+     */
+    private static String[] readTransition(JsonParser parser, Map<String, String> symbols) throws IOException {
+        String[] t = new String[4];
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "id" -> t[0] = string(parser, field);
+                case "from" -> t[1] = string(parser, field);
+                case "to" -> t[2] = string(parser, field);
+                case "symbol" -> {
+                    String symbol = string(parser, field);
+                    t[3] = symbol != null ? symbols.computeIfAbsent(symbol, k -> k) : null;
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        if (t[1] == null || t[2] == null || t[3] == null) {
+            throw new JsonParseException(parser, "Transition incomplète (from, to et symbol requis)");
+        }
+        if (t[0] == null) {
+            t[0] = Ids.newId();
+        }
+        return t;
+    }
+
+    private static void expectArray(JsonParser parser, JsonToken token, String field) throws IOException {
+        if (token != JsonToken.START_ARRAY) {
+            throw new JsonParseException(parser, "Tableau attendu pour \"" + field + "\"");
+        }
+    }
+
+    /**
+     * Un tableau d'états ou de transitions ne contient que des objets.
+     */
+    private static void expectArrayEnd(JsonParser parser, JsonToken token, String field) throws IOException {
+        if (token != JsonToken.END_ARRAY) {
+            throw new JsonParseException(parser, "Objet attendu dans \"" + field + "\"");
+        }
+    }
+
+    /**
+     * Valeurs scalaires : un objet ou un tableau à leur place est rejeté (et non sauté en silence).
+     */
+    private static String string(JsonParser parser, String field) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token != JsonToken.VALUE_STRING) {
+            throw new JsonParseException(parser, "Chaîne attendue pour \"" + field + "\"");
+        }
+        return parser.getText();
+    }
+
+    private static double number(JsonParser parser, String field) throws IOException {
+        if (!parser.currentToken().isNumeric()) {
+            throw new JsonParseException(parser, "Nombre attendu pour \"" + field + "\"");
+        }
+        return parser.getDoubleValue();
+    }
+
+    private static boolean bool(JsonParser parser, String field) throws IOException {
+        if (!parser.currentToken().isBoolean()) {
+            throw new JsonParseException(parser, "Booléen attendu pour \"" + field + "\"");
+        }
+        return parser.getBooleanValue();
+    }
+}
@@ -0,0 +1,562 @@
+package fr.baptgosse.automates.io;
+
+import fr.baptgosse.automates.model.Automaton;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Import GraphViz DOT : les nœuds deviennent des états, les arcs des transitions.
+ *
+ * Le texte est lu par morceaux et analysé en une passe (lexeur sur un tampon de 64 Ko, descente
+ * récursive sur les instructions) : seuls les nœuds et arcs lus sont conservés.
+ * <ul>
+ *   <li>{@code shape=doublecircle} ou {@code peripheries=2} : état acceptant ;</li>
+ *   <li>les nœuds {@code shape=point}, invisibles, sans label ou nommés {@code __start…} ne sont
+ *       que des marqueurs : les cibles de leurs arcs deviennent initiales ;</li>
+ *   <li>{@code label="a, b"} sur un arc : une transition par symbole, sans label : ε ;</li>
+ *   <li>{@code pos="x,y"} : position (ordonnée retournée), sinon disposition en grille.</li>
+ * </ul>
+ * Les arcs non orientés ({@code --}) sont lus dans le sens d'écriture.
+ */
+public final class DotImporter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_TOKEN_LENGTH = 64 * 1024;
+    // Les sous-graphes sont lus récursivement : la profondeur est bornée pour ne pas épuiser la pile
+    private static final int MAX_SUBGRAPH_DEPTH = 256;
+
+    private final Lexer lexer;
+    private final ImportBuilder builder = new ImportBuilder();
+    // Forme des nœuds dont le statut de marqueur dépend aussi du label (none, plaintext, plain)
+    private final Map<Integer, String> bareShapes = new HashMap<>();
+
+    private DotImporter(Reader reader) {
+        this.lexer = new Lexer(reader);
+    }
+
+    /**
+     * Lit le premier graphe du flux. Le flux n'est pas fermé.
+     */
+    public static Automaton read(Reader reader, ImportOptions options) throws IOException {
+        DotImporter importer = new DotImporter(reader);
+        String name = importer.parseGraph();
+        importer.finish();
+        return importer.builder.build(name != null ? name : "Import", options);
+    }
+
+    private String parseGraph() throws IOException {
+        Token token = lexer.next();
+        if (token.is("strict")) {
+            token = lexer.next();
+        }
+        if (!token.is("digraph") && !token.is("graph")) {
+            throw error("'digraph' ou 'graph' attendu");
+        }
+        String name = null;
+        token = lexer.next();
+        if (token.type == Type.ID) {
+            name = token.text;
+            token = lexer.next();
+        }
+        if (token.type != Type.LBRACE) {
+            throw error("'{' attendu");
+        }
+        parseStatements(new Scope(null));
+        return name;
+    }
+
+    /**
+     * Instructions jusqu'à l'accolade fermante incluse.
+     */
+    private void parseStatements(Scope scope) throws IOException {
+        while (true) {
+            Token token = lexer.next();
+            switch (token.type) {
+                case RBRACE -> {
+                    return;
+                }
+                case EOF -> throw error("'}' attendu");
+                case SEMICOLON, COMMA -> {
+                }
+                case LBRACE -> parseEdges(parseSubgraph(scope, false), scope);
+                case ID -> {
+                    if (!token.quoted && (token.is("node") || token.is("edge") || token.is("graph"))
+                            && lexer.peek().type == Type.LBRACKET) {
+                        Map<String, String> attributes = parseAttributes();
+                        if (token.is("node")) {
+                            scope.nodeDefaults.putAll(attributes);
+                        } else if (token.is("edge")) {
+                            scope.edgeDefaults.putAll(attributes);
+                        }
+                    } else if (!token.quoted && token.is("subgraph")) {
+                        parseEdges(parseSubgraph(scope, true), scope);
+                    } else if (lexer.peek().type == Type.EQUALS) {
+                        lexer.next();
+                        expectId(); // attribut du graphe, sans effet sur l'automate
+                    } else {
+                        int node = reference(token.text, scope);
+                        skipPort();
+                        if (lexer.peek().type == Type.EDGE) {
+                            parseEdges(List.of(node), scope);
+                        } else if (lexer.peek().type == Type.LBRACKET) {
+                            applyNode(node, parseAttributes());
+                        }
+                    }
+                }
+                default -> throw error("instruction attendue");
+            }
+        }
+    }
+
+    /**
+     * Suite d'arcs {@code a -> b -> {c d}} à partir de l'extrémité déjà lue (éventuellement seule).
+     */
+    private void parseEdges(List<Integer> first, Scope scope) throws IOException {
+        if (lexer.peek().type != Type.EDGE) {
+            return;
+        }
+        List<List<Integer>> ends = new ArrayList<>();
+        ends.add(first);
+        while (lexer.peek().type == Type.EDGE) {
+            lexer.next();
+            Token token = lexer.next();
+            if (token.type == Type.LBRACE) {
+                ends.add(parseSubgraph(scope, false));
+            } else if (token.type == Type.ID && !token.quoted && token.is("subgraph")) {
+                ends.add(parseSubgraph(scope, true));
+            } else if (token.type == Type.ID) {
+                ends.add(List.of(reference(token.text, scope)));
+                skipPort();
+            } else {
+                throw error("extrémité d'arc attendue");
+            }
+        }
+        Map<String, String> attributes = scope.edgeDefaults;
+        if (lexer.peek().type == Type.LBRACKET) {
+            attributes = new HashMap<>(scope.edgeDefaults);
+            attributes.putAll(parseAttributes());
+        }
+        String label = attributes.get("label");
+        String[] symbols = label != null ? label.split(",") : new String[]{""};
+        for (int i = 0; i < symbols.length; i++) {
+            symbols[i] = ImportBuilder.symbol(symbols[i]);
+        }
+        for (int i = 1; i < ends.size(); i++) {
+            for (int from : ends.get(i - 1)) {
+                for (int to : ends.get(i)) {
+                    for (String symbol : symbols) {
+                        builder.edge(from, to, symbol);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Sous-graphe, le mot-clé {@code subgraph} déjà lu ou non ; renvoie les nœuds qu'il mentionne.
+     */
+    private List<Integer> parseSubgraph(Scope parent, boolean keyword) throws IOException {
+        if (keyword) {
+            Token token = lexer.next();
+            if (token.type == Type.ID) {
+                token = lexer.next();
+            }
+            if (token.type != Type.LBRACE) {
+                throw error("'{' attendu");
+            }
+        }
+        if (parent.depth >= MAX_SUBGRAPH_DEPTH) {
+            throw error("sous-graphes trop imbriqués (plus de " + MAX_SUBGRAPH_DEPTH + " niveaux)");
+        }
+        Scope scope = new Scope(parent);
+        parseStatements(scope);
+        if (parent.members != null) {
+            parent.members.addAll(scope.members);
+        }
+        return scope.members;
+    }
+
+    private int reference(String name, Scope scope) {
+        boolean created = !builder.contains(name);
+        int node = builder.node(name);
+        if (created) {
+            if (name.startsWith("__start")) {
+                builder.marker(node, true);
+            }
+            if (!scope.nodeDefaults.isEmpty()) {
+                applyNode(node, scope.nodeDefaults);
+            }
+        }
+        if (scope.members != null) {
+            scope.members.add(node);
+        }
+        return node;
+    }
+
+    private void applyNode(int node, Map<String, String> attributes) {
+        for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+            String value = attribute.getValue();
+            switch (attribute.getKey()) {
+                case "label" -> builder.label(node, value);
+                case "shape" -> {
+                    builder.accepting(node, value.equals("doublecircle") || value.equals("doubleoctagon"));
+                    builder.marker(node, value.equals("point") || builder.name(node).startsWith("__start"));
+                    if (value.equals("none") || value.equals("plaintext") || value.equals("plain")) {
+                        bareShapes.put(node, value);
+                    } else {
+                        bareShapes.remove(node);
+                    }
+                }
+                case "peripheries" -> builder.accepting(node, !value.strip().equals("1") && !value.strip().equals("0"));
+                case "style" -> {
+                    if (value.contains("invis")) {
+                        builder.marker(node, true);
+                    }
+                }
+                case "pos" -> position(node, value);
+                default -> {
+                }
+            }
+        }
+    }
+
+    private void position(int node, String value) {
+        String[] coordinates = value.replace("!", "").split(",");
+        if (coordinates.length < 2) {
+            return;
+        }
+        try {
+            builder.position(node, Double.parseDouble(coordinates[0].strip()), Double.parseDouble(coordinates[1].strip()));
+        } catch (NumberFormatException e) {
+            // position illisible : le nœud sera placé en grille
+        }
+    }
+
+    private void finish() {
+        for (Map.Entry<Integer, String> bare : bareShapes.entrySet()) {
+            String label = builder.label(bare.getKey());
+            if (label != null && label.isEmpty()) {
+                builder.marker(bare.getKey(), true);
+            }
+        }
+        builder.flipY();
+    }
+
+    private Map<String, String> parseAttributes() throws IOException {
+        Map<String, String> attributes = new LinkedHashMap<>();
+        while (lexer.peek().type == Type.LBRACKET) {
+            lexer.next();
+            while (true) {
+                Token token = lexer.next();
+                if (token.type == Type.RBRACKET) {
+                    break;
+                }
+                if (token.type == Type.SEMICOLON || token.type == Type.COMMA) {
+                    continue;
+                }
+                if (token.type != Type.ID) {
+                    throw error("attribut attendu");
+                }
+                String key = token.text;
+                if (lexer.peek().type == Type.EQUALS) {
+                    lexer.next();
+                    attributes.put(key, expectId());
+                } else {
+                    attributes.put(key, "true");
+                }
+            }
+        }
+        return attributes;
+    }
+
+    private void skipPort() throws IOException {
+        while (lexer.peek().type == Type.COLON) {
+            lexer.next();
+            expectId();
+        }
+    }
+
+    private String expectId() throws IOException {
+        Token token = lexer.next();
+        if (token.type != Type.ID) {
+            throw error("identifiant attendu");
+        }
+        return token.text;
+    }
+
+    private ImportException error(String message) {
+        return new ImportException(message, lexer.line);
+    }
+
+    /**
+     * Portée des attributs par défaut : un sous-graphe hérite de ceux de son parent.
+     */
+    private static final class Scope {
+        final Map<String, String> nodeDefaults;
+        final Map<String, String> edgeDefaults;
+        final List<Integer> members; // null pour le graphe racine
+        final int depth;
+
+        Scope(Scope parent) {
+            this.nodeDefaults = parent != null ? new HashMap<>(parent.nodeDefaults) : new HashMap<>();
+            this.edgeDefaults = parent != null ? new HashMap<>(parent.edgeDefaults) : new HashMap<>();
+            this.members = parent != null ? new ArrayList<>() : null;
+            this.depth = parent != null ? parent.depth + 1 : 0;
+        }
+    }
+
+    private enum Type { ID, LBRACE, RBRACE, LBRACKET, RBRACKET, EQUALS, SEMICOLON, COMMA, COLON, EDGE, EOF }
+
+    private record Token(Type type, String text, boolean quoted) {
+        static final Token LBRACE = new Token(Type.LBRACE, "{", false);
+        static final Token RBRACE = new Token(Type.RBRACE, "}", false);
+        static final Token LBRACKET = new Token(Type.LBRACKET, "[", false);
+        static final Token RBRACKET = new Token(Type.RBRACKET, "]", false);
+        static final Token EQUALS = new Token(Type.EQUALS, "=", false);
+        static final Token SEMICOLON = new Token(Type.SEMICOLON, ";", false);
+        static final Token COMMA = new Token(Type.COMMA, ",", false);
+        static final Token COLON = new Token(Type.COLON, ":", false);
+        static final Token EDGE = new Token(Type.EDGE, "->", false);
+        static final Token EOF = new Token(Type.EOF, "", false);
+
+        /**
+         * Mot-clé DOT (insensible à la casse).
+         */
+        boolean is(String keyword) {
+            return type == Type.ID && !quoted && text.equalsIgnoreCase(keyword);
+        }
+    }
+
+    /**
+     * Lexeur DOT sur un flux de caractères, avec un jeton d'avance.
+     */
+    private static final class Lexer {
+        private final Reader reader;
+        private final char[] buffer = new char[BUFFER_SIZE];
+        private int position;
+        private int limit;
+        private long line = 1;
+        private Token lookahead;
+        private final StringBuilder text = new StringBuilder();
+
+        Lexer(Reader reader) {
+            this.reader = reader;
+        }
+
+        Token peek() throws IOException {
+            if (lookahead == null) {
+                lookahead = scan();
+            }
+            return lookahead;
+        }
+
+        Token next() throws IOException {
+            Token token = peek();
+            lookahead = null;
+            return token;
+        }
+
+        private int read() throws IOException {
+            if (position == limit) {
+                limit = reader.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            char c = buffer[position++];
+            if (c == '\n') {
+                line++;
+            }
+            return c;
+        }
+
+        private int peekChar() throws IOException {
+            if (position == limit) {
+                limit = reader.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return buffer[position];
+        }
+
+        private Token scan() throws IOException {
+            while (true) {
+                int c = read();
+                switch (c) {
+                    case -1 -> {
+                        return Token.EOF;
+                    }
+                    case ' ', '\t', '\r', '\n', '\f' -> {
+                    }
+                    case '{' -> {
+                        return Token.LBRACE;
+                    }
+                    case '}' -> {
+                        return Token.RBRACE;
+                    }
+                    case '[' -> {
+                        return Token.LBRACKET;
+                    }
+                    case ']' -> {
+                        return Token.RBRACKET;
+                    }
+                    case '=' -> {
+                        return Token.EQUALS;
+                    }
+                    case ';' -> {
+                        return Token.SEMICOLON;
+                    }
+                    case ',' -> {
+                        return Token.COMMA;
+                    }
+                    case ':' -> {
+                        return Token.COLON;
+                    }
+                    case '#' -> skipLine();
+                    case '/' -> {
+                        int next = read();
+                        if (next == '/') {
+                            skipLine();
+                        } else if (next == '*') {
+                            skipBlockComment();
+                        } else {
+                            throw new ImportException("caractère inattendu '/'", line);
+                        }
+                    }
+                    case '"' -> {
+                        return quoted();
+                    }
+                    case '<' -> {
+                        return html();
+                    }
+                    case '-' -> {
+                        int next = peekChar();
+                        if (next == '>' || next == '-') {
+                            read();
+                            return Token.EDGE;
+                        }
+                        return identifier((char) c);
+                    }
+                    default -> {
+                        if (isIdentifierPart(c) || c == '.') {
+                            return identifier((char) c);
+                        }
+                        throw new ImportException("caractère inattendu '" + (char) c + "'", line);
+                    }
+                }
+            }
+        }
+
+        private Token identifier(char first) throws IOException {
+            text.setLength(0);
+            text.append(first);
+            int c;
+            while ((c = peekChar()) != -1 && (isIdentifierPart(c) || c == '.')) {
+                append(read());
+            }
+            return new Token(Type.ID, text.toString(), false);
+        }
+
+        /**
+         * Chaîne entre guillemets, concaténations {@code "a" + "b"} comprises.
+         */
+        private Token quoted() throws IOException {
+            text.setLength(0);
+            while (true) {
+                int c;
+                while ((c = read()) != '"') {
+                    if (c == -1) {
+                        throw new ImportException("chaîne non terminée", line);
+                    }
+                    if (c == '\\') {
+                        int next = read();
+                        if (next == '"') {
+                            append('"');
+                        } else if (next != '\n' && next != -1) { // \ en fin de ligne : continuation
+                            append('\\');
+                            append(next);
+                        }
+                    } else {
+                        append(c);
+                    }
+                }
+                int next;
+                while ((next = peekChar()) == ' ' || next == '\t' || next == '\r' || next == '\n') {
+                    read();
+                }
+                if (next != '+') {
+                    return new Token(Type.ID, text.toString(), true);
+                }
+                read();
+                while ((next = read()) == ' ' || next == '\t' || next == '\r' || next == '\n') {
+                    // espaces entre + et la chaîne suivante
+                }
+                if (next != '"') {
+                    throw new ImportException("chaîne attendue après '+'", line);
+                }
+            }
+        }
+
+        /**
+         * Chaîne HTML {@code <...>} (chevrons imbriqués), gardée telle quelle.
+         */
+        private Token html() throws IOException {
+            text.setLength(0);
+            int depth = 1;
+            while (true) {
+                int c = read();
+                if (c == -1) {
+                    throw new ImportException("chaîne HTML non terminée", line);
+                }
+                if (c == '<') {
+                    depth++;
+                } else if (c == '>' && --depth == 0) {
+                    return new Token(Type.ID, text.toString(), true);
+                }
+                append(c);
+            }
+        }
+
+        private void append(int c) throws ImportException {
+            if (text.length() == MAX_TOKEN_LENGTH) {
+                throw new ImportException("identifiant trop long", line);
+            }
+            text.append((char) c);
+        }
+
+        private void skipLine() throws IOException {
+            int c;
+            while ((c = read()) != -1 && c != '\n') {
+                // commentaire jusqu'à la fin de ligne
+            }
+        }
+
+        private void skipBlockComment() throws IOException {
+            int previous = 0;
+            int c;
+            while ((c = read()) != -1) {
+                if (previous == '*' && c == '/') {
+                    return;
+                }
+                previous = c;
+            }
+            throw new ImportException("commentaire non terminé", line);
+        }
+
+        private static boolean isIdentifierPart(int c) {
+            return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || c == '_' || c >= 0x80;
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package fr.baptgosse.automates.io;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import fr.baptgosse.automates.model.Automaton;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Import de listes d'arcs, une transition par enregistrement.
+ *
+ * <ul>
+ *   <li>CSV (RFC 4180) : {@code from,symbol,to}, ou {@code from,to} pour une ε-transition. Une
+ *       première ligne nommant les colonnes ({@code from}, {@code to}, {@code symbol}) est reconnue
+ *       et fixe leur ordre ; les lignes vides et celles commençant par {@code #} sont ignorées.</li>
+ *   <li>NDJSON : un objet par ligne, {@code {"from": "q0", "symbol": "a", "to": "q1"}} ou
+ *       {@code {"state": "q0", "initial": true, "accepting": false, "x": 100, "y": 100, "label": "..."}}.</li>
+ * </ul>
+ * Les enregistrements sont lus un à un : le texte n'est jamais conservé.
+ */
+public final class EdgeListImporter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_FIELD_LENGTH = 64 * 1024;
+
+    private EdgeListImporter() {
+    }
+
+    /**
+     * Lit une liste d'arcs CSV. Le flux n'est pas fermé.
+     */
+    public static Automaton readCsv(Reader reader, ImportOptions options) throws IOException {
+        ImportBuilder builder = new ImportBuilder();
+        CsvReader csv = new CsvReader(reader);
+        List<String> record = new ArrayList<>(3);
+        int fromColumn = 0;
+        int symbolColumn = 1;
+        int toColumn = 2;
+        boolean first = true;
+
+        while (csv.next(record)) {
+            if (record.size() == 1 && record.get(0).isBlank() || record.get(0).startsWith("#")) {
+                continue;
+            }
+            if (first) {
+                first = false;
+                int[] header = header(record);
+                if (header != null) {
+                    fromColumn = header[0];
+                    symbolColumn = header[1];
+                    toColumn = header[2];
+                    continue;
+                }
+            }
+            String from;
+            String to;
+            String symbol;
+            if (record.size() == 2 && symbolColumn == 1 && toColumn == 2) {
+                from = record.get(0);
+                to = record.get(1);
+                symbol = "";
+            } else if (record.size() > Math.max(fromColumn, toColumn)) {
+                from = record.get(fromColumn);
+                to = record.get(toColumn);
+                symbol = symbolColumn >= 0 && symbolColumn < record.size() ? record.get(symbolColumn) : "";
+            } else {
+                throw new ImportException("Enregistrement incomplet (from,symbol,to attendu)", csv.recordLine);
+            }
+            from = from.strip();
+            to = to.strip();
+            if (from.isEmpty() || to.isEmpty()) {
+                throw new ImportException("État source ou cible vide", csv.recordLine);
+            }
+            builder.edge(builder.node(from), builder.node(to), ImportBuilder.symbol(symbol));
+        }
+        return builder.build("Import", options);
+    }
+
+    /**
+     * Colonnes from, symbol (-1 si absente) et to d'une ligne d'en-tête, ou null si la ligne n'en est pas une.
+     */
+    private static int[] header(List<String> record) {
+        int[] columns = {-1, -1, -1};
+        for (int i = 0; i < record.size(); i++) {
+            switch (record.get(i).strip().toLowerCase(Locale.ROOT)) {
+                case "from", "source", "src" -> columns[0] = i;
+                case "symbol", "label", "read", "input" -> columns[1] = i;
+                case "to", "target", "dst" -> columns[2] = i;
+                default -> {
+                }
+            }
+        }
+        return columns[0] >= 0 && columns[2] >= 0 ? columns : null;
+    }
+
+    /**
+     * Lit une liste d'arcs NDJSON (une valeur JSON après l'autre). Le parseur n'est pas fermé.
+     */
+    public static Automaton readNdjson(JsonParser parser, ImportOptions options) throws IOException {
+        ImportBuilder builder = new ImportBuilder();
+        JsonToken token;
+        while ((token = parser.nextToken()) != null) {
+            long line = parser.currentLocation().getLineNr();
+            if (token != JsonToken.START_OBJECT) {
+                throw new ImportException("Objet JSON attendu", line);
+            }
+            String from = null;
+            String to = null;
+            String symbol = "";
+            String state = null;
+            String label = null;
+            Boolean initial = null;
+            Boolean accepting = null;
+            double x = Double.NaN;
+            double y = Double.NaN;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "from" -> from = parser.getValueAsString();
+                    case "to" -> to = parser.getValueAsString();
+                    case "symbol" -> symbol = value == JsonToken.VALUE_NULL ? "" : parser.getValueAsString();
+                    case "state" -> state = parser.getValueAsString();
+                    case "label" -> label = parser.getValueAsString();
+                    case "initial" -> initial = parser.getValueAsBoolean();
+                    case "accepting" -> accepting = parser.getValueAsBoolean();
+                    case "x" -> x = parser.getValueAsDouble(Double.NaN);
+                    case "y" -> y = parser.getValueAsDouble(Double.NaN);
+                    default -> parser.skipChildren();
+                }
+            }
+            if (state != null) {
+                int node = builder.node(state);
+                if (label != null) {
+                    builder.label(node, label);
+                }
+                if (Boolean.TRUE.equals(initial)) {
+                    builder.initial(node);
+                }
+                if (accepting != null) {
+                    builder.accepting(node, accepting);
+                }
+                if (!Double.isNaN(x) && !Double.isNaN(y)) {
+                    builder.position(node, x, y);
+                }
+            } else if (from != null && to != null) {
+                builder.edge(builder.node(from), builder.node(to), ImportBuilder.symbol(symbol));
+            } else {
+                throw new ImportException("Champs from et to (ou state) attendus", line);
+            }
+        }
+        return builder.build("Import", options);
+    }
+
+    /**
+     * Lecteur CSV RFC 4180 : guillemets doublés, retours à la ligne dans les champs cités.
+     */
+    private static final class CsvReader {
+        private final Reader reader;
+        private final char[] buffer = new char[BUFFER_SIZE];
+        private int position;
+        private int limit;
+        private long line = 1;
+        private long recordLine;
+        private final StringBuilder field = new StringBuilder();
+
+        CsvReader(Reader reader) {
+            this.reader = reader;
+        }
+
+        private int read() throws IOException {
+            if (position == limit) {
+                limit = reader.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return buffer[position++];
+        }
+
+        /**
+         * Lit l'enregistrement suivant dans {@code record} ; faux en fin de flux.
+         */
+        boolean next(List<String> record) throws IOException {
+            record.clear();
+            recordLine = line;
+            int c = read();
+            if (c == -1) {
+                return false;
+            }
+            field.setLength(0);
+            boolean quoted = false;
+            boolean wasQuoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        throw new ImportException("Champ entre guillemets non terminé", recordLine);
+                    }
+                    if (c == '"') {
+                        c = read();
+                        if (c != '"') {
+                            quoted = false;
+                            continue;
+                        }
+                    } else if (c == '\n') {
+                        line++;
+                    }
+                    append(c);
+                } else if (c == ',') {
+                    record.add(field.toString());
+                    field.setLength(0);
+                    wasQuoted = false;
+                } else if (c == '\n' || c == -1) {
+                    if (c == '\n') {
+                        line++;
+                    }
+                    if (!wasQuoted && field.length() > 0 && field.charAt(field.length() - 1) == '\r') {
+                        field.setLength(field.length() - 1);
+                    }
+                    record.add(field.toString());
+                    return true;
+                } else if (c == '"' && field.isEmpty() && !wasQuoted) {
+                    quoted = true;
+                    wasQuoted = true;
+                } else if (c != '\r' || !wasQuoted) {
+                    append(c);
+                }
+                c = read();
+            }
+        }
+
+        private void append(int c) throws ImportException {
+            if (field.length() == MAX_FIELD_LENGTH) {
+                throw new ImportException("Champ trop long", recordLine);
+            }
+            field.append((char) c);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package fr.baptgosse.automates.io;
+
+import fr.baptgosse.automates.model.Automaton;
+import fr.baptgosse.automates.model.State;
+import fr.baptgosse.automates.model.Transition;
+import fr.baptgosse.automates.util.IdSequence;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Accumulateur commun aux imports : nœuds indexés par nom, arcs dans des tableaux d'entiers.
+ *
+ * Les attributs d'un nœud peuvent suivre ses arcs (DOT) et les marqueurs d'état initial ne sont
+ * connus qu'en fin de fichier : l'{@link Automaton} n'est construit qu'une fois tout lu. Un arc
+ * coûte deux entiers et une référence vers un symbole interné, jamais le texte du fichier.
+ */
+final class ImportBuilder {
+
+    private static final byte INITIAL = 1;
+    private static final byte ACCEPTING = 2;
+    // Nœud servant seulement à désigner l'état initial (DOT : shape=point, __start0 -> q0)
+    private static final byte MARKER = 4;
+
+    private static final double SPACING = 150;
+    private static final double MARGIN = 100;
+
+    private final Map<String, Integer> indexes = new HashMap<>();
+    private String[] names = new String[64];
+    private String[] labels = new String[64];
+    private double[] xs = new double[64];
+    private double[] ys = new double[64];
+    private byte[] flags = new byte[64];
+    private int nodeCount;
+
+    private int[] sources = new int[256];
+    private int[] targets = new int[256];
+    private String[] symbols = new String[256];
+    private int edgeCount;
+    private final Map<String, String> symbolTable = new HashMap<>();
+
+    /**
+     * Indice du nœud de ce nom, créé au besoin.
+     */
+    int node(String name) {
+        Integer index = indexes.get(name);
+        if (index != null) {
+            return index;
+        }
+        if (nodeCount == names.length) {
+            int capacity = nodeCount * 2;
+            names = Arrays.copyOf(names, capacity);
+            labels = Arrays.copyOf(labels, capacity);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            flags = Arrays.copyOf(flags, capacity);
+        }
+        int node = nodeCount++;
+        names[node] = name;
+        xs[node] = Double.NaN;
+        ys[node] = Double.NaN;
+        indexes.put(name, node);
+        return node;
+    }
+
+    boolean contains(String name) {
+        return indexes.containsKey(name);
+    }
+
+    void label(int node, String label) {
+        labels[node] = label;
+    }
+
+    String label(int node) {
+        return labels[node];
+    }
+
+    String name(int node) {
+        return names[node];
+    }
+
+    void position(int node, double x, double y) {
+        xs[node] = x;
+        ys[node] = y;
+    }
+
+    void initial(int node) {
+        flags[node] |= INITIAL;
+    }
+
+    void accepting(int node, boolean accepting) {
+        flags[node] = (byte) (accepting ? flags[node] | ACCEPTING : flags[node] & ~ACCEPTING);
+    }
+
+    void marker(int node, boolean marker) {
+        flags[node] = (byte) (marker ? flags[node] | MARKER : flags[node] & ~MARKER);
+    }
+
+    boolean isAccepting(int node) {
+        return (flags[node] & ACCEPTING) != 0;
+    }
+
+    void edge(int from, int to, String symbol) {
+        if (edgeCount == sources.length) {
+            int capacity = edgeCount * 2;
+            sources = Arrays.copyOf(sources, capacity);
+            targets = Arrays.copyOf(targets, capacity);
+            symbols = Arrays.copyOf(symbols, capacity);
+        }
+        String interned = symbolTable.putIfAbsent(symbol, symbol);
+        sources[edgeCount] = from;
+        targets[edgeCount] = to;
+        symbols[edgeCount] = interned != null ? interned : symbol;
+        edgeCount++;
+    }
+
+    /**
+     * Passe des coordonnées à ordonnée vers le haut (GraphViz) à celles de l'éditeur,
+     * ordonnée vers le bas.
+     */
+    void flipY() {
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < nodeCount; i++) {
+            if (!Double.isNaN(ys[i])) {
+                maxY = Math.max(maxY, ys[i]);
+            }
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            if (!Double.isNaN(ys[i])) {
+                ys[i] = MARGIN + maxY - ys[i];
+            }
+        }
+    }
+
+    int nodeCount() {
+        return nodeCount;
+    }
+
+    int edgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * Construit l'automate : les marqueurs rendent initiales les cibles de leurs arcs, les états
+     * sans position sont disposés en grille.
+     * @throws ImportException si un état désigné par les options n'existe pas
+     */
+    Automaton build(String name, ImportOptions options) throws ImportException {
+        for (String initial : options.initial()) {
+            initial(existing(initial));
+        }
+        for (String accepting : options.accepting()) {
+            accepting(existing(accepting), true);
+        }
+        for (int i = 0; i < edgeCount; i++) {
+            if ((flags[sources[i]] & MARKER) != 0 && (flags[targets[i]] & MARKER) == 0) {
+                flags[targets[i]] |= INITIAL;
+            }
+        }
+
+        Automaton automaton = new Automaton(options.name() != null ? options.name() : name);
+        IdSequence ids = new IdSequence();
+        State[] states = new State[nodeCount];
+        int columns = Math.max(1, (int) Math.ceil(Math.sqrt(nodeCount)));
+        int placed = 0;
+        for (int i = 0; i < nodeCount; i++) {
+            if ((flags[i] & MARKER) != 0) {
+                continue;
+            }
+            double x = xs[i];
+            double y = ys[i];
+            if (Double.isNaN(x) || Double.isNaN(y)) {
+                x = MARGIN + (placed % columns) * SPACING;
+                y = MARGIN + (placed / columns) * SPACING;
+            }
+            placed++;
+            states[i] = new State(ids.next(), labels[i] != null ? labels[i] : names[i], x, y,
+                    (flags[i] & INITIAL) != 0, (flags[i] & ACCEPTING) != 0);
+            automaton.addState(states[i]);
+        }
+        for (int i = 0; i < edgeCount; i++) {
+            State from = states[sources[i]];
+            State to = states[targets[i]];
+            if (from != null && to != null) {
+                automaton.addTransition(new Transition(ids.next(), from, to, symbols[i]));
+            }
+        }
+        return automaton;
+    }
+
+    private int existing(String name) throws ImportException {
+        Integer node = indexes.get(name);
+        if (node == null) {
+            throw new ImportException("État non trouvé: " + name);
+        }
+        return node;
+    }
+
+    /**
+     * Symbole d'un arc : les notations usuelles du mot vide deviennent ε.
+     */
+    static String symbol(String text) {
+        String symbol = text.strip();
+        return switch (symbol) {
+            case "", "λ", "lambda", "eps", "epsilon" -> "ε";
+            default -> symbol;
+        };
+    }
+}
@@ -0,0 +1,27 @@
+package fr.baptgosse.automates.io;
+
+import java.io.IOException;
+
+/**
+ * Fichier importé mal formé.
+ */
+public class ImportException extends IOException {
+    private final long line;
+
+    public ImportException(String message) {
+        super(message);
+        this.line = -1;
+    }
+
+    public ImportException(String message, long line) {
+        super("Ligne " + line + " : " + message);
+        this.line = line;
+    }
+
+    /**
+     * Ligne de l'erreur, ou -1 si elle n'est pas localisée.
+     */
+    public long getLine() {
+        return line;
+    }
+}
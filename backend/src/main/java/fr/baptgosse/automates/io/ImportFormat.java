@@ -0,0 +1,72 @@
+package fr.baptgosse.automates.io;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import fr.baptgosse.automates.model.Automaton;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Formats d'import en masse, lus en flux depuis un {@link InputStream} (UTF-8).
+ */
+public enum ImportFormat {
+    DOT,
+    JFLAP,
+    CSV,
+    NDJSON;
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    /**
+     * Format désigné par un paramètre ({@code dot}, {@code jff}, {@code csv}...) ou, à défaut,
+     * par le type de contenu de la requête.
+     * @throws IllegalArgumentException si aucun format n'est reconnu
+     */
+    public static ImportFormat detect(String format, String contentType) {
+        if (format != null && !format.isBlank()) {
+            return switch (format.strip().toLowerCase(Locale.ROOT)) {
+                case "dot", "gv", "graphviz" -> DOT;
+                case "jff", "jflap", "xml" -> JFLAP;
+                case "csv" -> CSV;
+                case "ndjson", "jsonl" -> NDJSON;
+                default -> throw new IllegalArgumentException("Format d'import non supporté: " + format);
+            };
+        }
+        String type = contentType != null ? contentType.toLowerCase(Locale.ROOT) : "";
+        if (type.contains("vnd.graphviz") || type.contains("x-dot")) {
+            return DOT;
+        }
+        if (type.contains("xml")) {
+            return JFLAP;
+        }
+        if (type.contains("csv")) {
+            return CSV;
+        }
+        if (type.contains("ndjson") || type.contains("jsonl")) {
+            return NDJSON;
+        }
+        throw new IllegalArgumentException("Format d'import non précisé (paramètre format ou Content-Type)");
+    }
+
+    /**
+     * Lit un automate dans ce format. Le flux n'est pas fermé.
+     */
+    public Automaton read(InputStream in, ImportOptions options) throws IOException {
+        return switch (this) {
+            case DOT -> DotImporter.read(new InputStreamReader(in, StandardCharsets.UTF_8), options);
+            case JFLAP -> JflapImporter.read(new BufferedInputStream(in), options);
+            case CSV -> EdgeListImporter.readCsv(new InputStreamReader(in, StandardCharsets.UTF_8), options);
+            case NDJSON -> {
+                try (JsonParser parser = JSON.createParser(in)) {
+                    parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+                    yield EdgeListImporter.readNdjson(parser, options);
+                }
+            }
+        };
+    }
+}
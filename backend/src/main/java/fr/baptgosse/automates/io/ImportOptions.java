@@ -0,0 +1,14 @@
+package fr.baptgosse.automates.io;
+
+import java.util.Set;
+
+/**
+ * Options d'un import.
+ * @param name nom de l'automate (null : celui du fichier, ou "Import")
+ * @param initial états à rendre initiaux, par nom (utile pour les listes d'arcs, qui n'en déclarent pas)
+ * @param accepting états à rendre acceptants, par nom
+ */
+public record ImportOptions(String name, Set<String> initial, Set<String> accepting) {
+
+    public static final ImportOptions DEFAULT = new ImportOptions(null, Set.of(), Set.of());
+}
@@ -0,0 +1,169 @@
+package fr.baptgosse.automates.io;
+
+import fr.baptgosse.automates.model.Automaton;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Import des fichiers JFLAP ({@code .jff}) d'automates finis.
+ *
+ * Le XML est lu en flux avec StAX : ni arbre DOM, ni texte du fichier en mémoire. Les DTD et
+ * entités externes sont désactivées. Un état est désigné par son {@code id} ; son {@code name}
+ * devient le label. Une transition sans {@code <read>} (ou vide) est une ε-transition.
+ */
+public final class JflapImporter {
+
+    private static final XMLInputFactory FACTORY = createFactory();
+
+    private JflapImporter() {
+    }
+
+    private static XMLInputFactory createFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    /**
+     * Lit un automate JFLAP. Le flux n'est pas fermé.
+     */
+    public static Automaton read(InputStream in, ImportOptions options) throws IOException {
+        XMLStreamReader xml = null;
+        try {
+            xml = FACTORY.createXMLStreamReader(in);
+            return read(xml, options);
+        } catch (XMLStreamException e) {
+            long line = e.getLocation() != null ? e.getLocation().getLineNumber() : -1;
+            throw new ImportException("XML invalide : " + e.getMessage(), line);
+        } finally {
+            if (xml != null) {
+                try {
+                    xml.close();
+                } catch (XMLStreamException e) {
+                    // le flux sous-jacent reste à la charge de l'appelant
+                }
+            }
+        }
+    }
+
+    private static Automaton read(XMLStreamReader xml, ImportOptions options) throws XMLStreamException, IOException {
+        ImportBuilder builder = new ImportBuilder();
+        boolean typeChecked = false;
+
+        while (xml.hasNext()) {
+            if (xml.next() != XMLStreamConstants.START_ELEMENT) {
+                continue;
+            }
+            switch (xml.getLocalName()) {
+                case "type" -> {
+                    String type = xml.getElementText().strip();
+                    if (!type.equals("fa")) {
+                        throw new ImportException("Type JFLAP non supporté: " + type, line(xml));
+                    }
+                    typeChecked = true;
+                }
+                case "state" -> readState(xml, builder);
+                case "transition" -> readTransition(xml, builder);
+                default -> {
+                }
+            }
+        }
+        if (!typeChecked) {
+            throw new ImportException("Élément <type>fa</type> manquant");
+        }
+        return builder.build("Import", options);
+    }
+
+    private static void readState(XMLStreamReader xml, ImportBuilder builder)
+            throws XMLStreamException, IOException {
+        String id = xml.getAttributeValue(null, "id");
+        if (id == null) {
+            throw new ImportException("État sans attribut id", line(xml));
+        }
+        int node = builder.node(id); // les transitions peuvent précéder l'état
+        String name = xml.getAttributeValue(null, "name");
+        if (name != null) {
+            builder.label(node, name);
+        }
+        double x = Double.NaN;
+        double y = Double.NaN;
+        String element = xml.getLocalName();
+        while (xml.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            switch (xml.getLocalName()) {
+                case "x" -> x = number(xml);
+                case "y" -> y = number(xml);
+                case "initial" -> {
+                    builder.initial(node);
+                    skip(xml);
+                }
+                case "final" -> {
+                    builder.accepting(node, true);
+                    skip(xml);
+                }
+                case "label" -> builder.label(node, xml.getElementText());
+                default -> skip(xml);
+            }
+        }
+        if (!xml.getLocalName().equals(element)) {
+            throw new ImportException("</" + element + "> attendu", line(xml));
+        }
+        if (!Double.isNaN(x) && !Double.isNaN(y)) {
+            builder.position(node, x, y);
+        }
+    }
+
+    private static void readTransition(XMLStreamReader xml, ImportBuilder builder)
+            throws XMLStreamException, IOException {
+        long line = line(xml);
+        String from = null;
+        String to = null;
+        String read = "";
+        while (xml.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            switch (xml.getLocalName()) {
+                case "from" -> from = xml.getElementText().strip();
+                case "to" -> to = xml.getElementText().strip();
+                case "read" -> read = xml.getElementText();
+                default -> skip(xml);
+            }
+        }
+        if (from == null || to == null) {
+            throw new ImportException("Transition sans <from> ou <to>", line);
+        }
+        builder.edge(builder.node(from), builder.node(to), ImportBuilder.symbol(read));
+    }
+
+    private static double number(XMLStreamReader xml) throws XMLStreamException, ImportException {
+        String text = xml.getElementText().strip();
+        try {
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            throw new ImportException("Nombre invalide: " + text, line(xml));
+        }
+    }
+
+    /**
+     * Saute l'élément courant et ses descendants.
+     */
+    private static void skip(XMLStreamReader xml) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = xml.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    private static long line(XMLStreamReader xml) {
+        return xml.getLocation() != null ? xml.getLocation().getLineNumber() : -1;
+    }
+}
@@ -0,0 +1,111 @@
+package fr.baptgosse.automates.io;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import fr.baptgosse.automates.model.PersistentAutomaton;
+import fr.baptgosse.automates.model.PersistentAutomaton.ClusterData;
+import fr.baptgosse.automates.model.PersistentAutomaton.LinkData;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Résumé d'une fenêtre d'un automate au format JSON, pour les vues dézoomées.
+ *
+ * <pre>
+ * {
+ *   "version": 42, "tier": 3, "cellSize": 2048, "x0": 0, "y0": 0, "x1": 50000, "y1": 30000,
+ *   "clusters": [{"cx": 0, "cy": 0, "states": 120, "x": 900.5, "y": 1010, "initials": 1, "accepting": 7}],
+ *   "anchors": [{"cx": 40, "cy": 2, "states": 3, "x": 82000, "y": 4500, "initials": 0, "accepting": 0}],
+ *   "links": [{"from": 0, "to": 1, "count": 12}],
+ *   "droppedLinks": 0
+ * }
+ * </pre>
+ *
+ * Chaque groupe réunit les états d'une cellule (cx, cy) de pas {@code cellSize} ; (x, y) est leur
+ * barycentre. {@code anchors} contient les groupes hors de la fenêtre reliés à un groupe visible.
+ * Les liens désignent les groupes par leur rang dans {@code clusters} suivi de {@code anchors} ;
+ * au-delà de {@code maxLinks}, seuls les plus chargés sont écrits.
+ */
+public final class SummaryJson {
+
+    private SummaryJson() {
+    }
+
+    /**
+     * Écrit le résumé au palier {@code tier} de la fenêtre [x0, x1] × [y0, y1].
+     */
+    public static void write(PersistentAutomaton automaton, long version, int tier,
+                             double x0, double y0, double x1, double y1, int maxLinks,
+                             JsonGenerator gen) throws IOException {
+        List<ClusterData> clusters = new ArrayList<>();
+        List<LinkData> links = new ArrayList<>();
+        automaton.summary(tier, x0, y0, x1, y1, clusters::add, links::add);
+        int dropped = Math.max(0, links.size() - maxLinks);
+        if (dropped > 0) {
+            links.sort(Comparator.comparingInt(LinkData::count).reversed());
+            links = links.subList(0, maxLinks);
+        }
+
+        Map<ClusterData, Integer> rank = new HashMap<>(clusters.size() * 2);
+        clusters.forEach(c -> rank.put(c, rank.size()));
+        List<ClusterData> anchors = new ArrayList<>();
+        for (LinkData link : links) {
+            for (ClusterData end : List.of(link.from(), link.to())) {
+                if (!rank.containsKey(end)) {
+                    rank.put(end, rank.size());
+                    anchors.add(end);
+                }
+            }
+        }
+
+        gen.writeStartObject();
+        gen.writeNumberField("version", version);
+        gen.writeNumberField("tier", tier);
+        gen.writeNumberField("cellSize", PersistentAutomaton.summaryCellSize(tier));
+        gen.writeNumberField("x0", x0);
+        gen.writeNumberField("y0", y0);
+        gen.writeNumberField("x1", x1);
+        gen.writeNumberField("y1", y1);
+
+        gen.writeArrayFieldStart("clusters");
+        for (ClusterData cluster : clusters) {
+            writeCluster(gen, cluster);
+        }
+        gen.writeEndArray();
+
+        gen.writeArrayFieldStart("anchors");
+        for (ClusterData cluster : anchors) {
+            writeCluster(gen, cluster);
+        }
+        gen.writeEndArray();
+
+        gen.writeArrayFieldStart("links");
+        for (LinkData link : links) {
+            gen.writeStartObject();
+            gen.writeNumberField("from", rank.get(link.from()));
+            gen.writeNumberField("to", rank.get(link.to()));
+            gen.writeNumberField("count", link.count());
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+        gen.writeNumberField("droppedLinks", dropped);
+
+        gen.writeEndObject();
+    }
+
+    private static void writeCluster(JsonGenerator gen, ClusterData cluster) throws IOException {
+        gen.writeStartObject();
+        gen.writeNumberField("cx", cluster.cx());
+        gen.writeNumberField("cy", cluster.cy());
+        gen.writeNumberField("states", cluster.states());
+        gen.writeNumberField("x", cluster.x());
+        gen.writeNumberField("y", cluster.y());
+        gen.writeNumberField("initials", cluster.initials());
+        gen.writeNumberField("accepting", cluster.accepting());
+        gen.writeEndObject();
+    }
+}
@@ -0,0 +1,106 @@
+package fr.baptgosse.automates.io;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import fr.baptgosse.automates.model.IndexedAutomaton;
+import fr.baptgosse.automates.model.State;
+
+import java.io.IOException;
+import java.util.BitSet;
+
+/**
+ * Table de transitions au format JSON, écrite ligne par ligne depuis l'automate compilé.
+ *
+ * <pre>
+ * {
+ *   "version": 42, "stateCount": 1000, "symbolCount": 2,
+ *   "offset": 0, "symbolOffset": 0, "symbols": ["a", "b"], "epsilon": false,
+ *   "rows": [{"index": 0, "id": "...", "label": "q0", "initial": true, "accepting": false,
+ *             "cells": [[1], [0, 2]], "epsilonTargets": [3]}],
+ *   "labels": {"917": "q917"}
+ * }
+ * </pre>
+ *
+ * Les lignes sont numérotées dans l'ordre de {@link IndexedAutomaton#compile} (label, puis identifiant) ;
+ * chaque cellule liste les indices des cibles. {@code labels} donne le label des cibles hors de la page.
+ * {@code epsilonTargets} n'est présent que si l'automate a des ε-transitions. Le coût est celui de la
+ * fenêtre demandée : lignes × symboles + cibles lues, sans filtrage des transitions.
+ */
+public final class TransitionTableJson {
+
+    private TransitionTableJson() {
+    }
+
+    /**
+     * Écrit les lignes [offset, offset + limit) restreintes aux symboles [symbolOffset, symbolOffset + symbolLimit).
+     * Les bornes sont ramenées dans la table.
+     */
+    public static void write(IndexedAutomaton automaton, long version, int offset, int limit,
+                             int symbolOffset, int symbolLimit, JsonGenerator gen) throws IOException {
+        int n = automaton.stateCount();
+        int k = automaton.symbolCount();
+        int firstRow = Math.min(offset, n);
+        int lastRow = (int) Math.min((long) firstRow + limit, n);
+        int firstSymbol = Math.min(symbolOffset, k);
+        int lastSymbol = (int) Math.min((long) firstSymbol + symbolLimit, k);
+        boolean epsilon = n > 0 && automaton.epsilonEnd(n - 1) > 0;
+
+        gen.writeStartObject();
+        gen.writeNumberField("version", version);
+        gen.writeNumberField("stateCount", n);
+        gen.writeNumberField("symbolCount", k);
+        gen.writeNumberField("offset", firstRow);
+        gen.writeNumberField("symbolOffset", firstSymbol);
+        gen.writeArrayFieldStart("symbols");
+        for (int a = firstSymbol; a < lastSymbol; a++) {
+            gen.writeString(automaton.symbol(a));
+        }
+        gen.writeEndArray();
+        gen.writeBooleanField("epsilon", epsilon);
+
+        // Cibles hors de la page, dont le label est donné à la fin
+        BitSet outside = new BitSet();
+        gen.writeArrayFieldStart("rows");
+        for (int q = firstRow; q < lastRow; q++) {
+            State state = automaton.state(q);
+            gen.writeStartObject();
+            gen.writeNumberField("index", q);
+            gen.writeStringField("id", state.getId());
+            gen.writeStringField("label", state.getLabel());
+            gen.writeBooleanField("initial", automaton.isInitial(q));
+            gen.writeBooleanField("accepting", automaton.isAccepting(q));
+            gen.writeArrayFieldStart("cells");
+            for (int a = firstSymbol; a < lastSymbol; a++) {
+                gen.writeStartArray();
+                for (int i = automaton.targetsStart(q, a), end = automaton.targetsEnd(q, a); i < end; i++) {
+                    writeTarget(gen, automaton.target(i), firstRow, lastRow, outside);
+                }
+                gen.writeEndArray();
+            }
+            gen.writeEndArray();
+            if (epsilon) {
+                gen.writeArrayFieldStart("epsilonTargets");
+                for (int i = automaton.epsilonStart(q), end = automaton.epsilonEnd(q); i < end; i++) {
+                    writeTarget(gen, automaton.epsilonTarget(i), firstRow, lastRow, outside);
+                }
+                gen.writeEndArray();
+            }
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+
+        gen.writeObjectFieldStart("labels");
+        for (int q = outside.nextSetBit(0); q >= 0; q = outside.nextSetBit(q + 1)) {
+            gen.writeStringField(Integer.toString(q), automaton.state(q).getLabel());
+        }
+        gen.writeEndObject();
+        gen.writeEndObject();
+    }
+
+    private static void writeTarget(JsonGenerator gen, int target, int firstRow, int lastRow, BitSet outside)
+            throws IOException {
+        gen.writeNumber(target);
+        if (target < firstRow || target >= lastRow) {
+            outside.set(target);
+        }
+    }
+}
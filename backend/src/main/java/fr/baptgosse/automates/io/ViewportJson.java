@@ -0,0 +1,99 @@
+package fr.baptgosse.automates.io;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import fr.baptgosse.automates.model.PersistentAutomaton;
+import fr.baptgosse.automates.model.PersistentAutomaton.StateData;
+import fr.baptgosse.automates.model.PersistentAutomaton.TransitionData;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Partie visible d'un automate au format JSON compact (transitions par identifiants d'états).
+ *
+ * <pre>
+ * {
+ *   "version": 42, "x0": 0, "y0": 0, "x1": 1920, "y1": 1080,
+ *   "states": [{"id": "...", "label": "q0", "x": 100, "y": 100, "initial": true, "accepting": false}],
+ *   "transitions": [{"id": "...", "from": "&lt;id état&gt;", "to": "&lt;id état&gt;", "symbol": "a"}],
+ *   "anchors": [{"id": "...", "label": "q917", "x": 5000, "y": 100, "initial": false, "accepting": false}]
+ * }
+ * </pre>
+ *
+ * {@code anchors} contient les extrémités des transitions visibles qui sont hors du rectangle,
+ * pour que le client puisse tracer ces transitions jusqu'au bord.
+ */
+public final class ViewportJson {
+
+    private ViewportJson() {
+    }
+
+    /**
+     * Écrit les états et transitions qui coupent le rectangle [x0, x1] × [y0, y1].
+     */
+    public static void write(PersistentAutomaton automaton, long version,
+                             double x0, double y0, double x1, double y1, JsonGenerator gen) throws IOException {
+        List<StateData> states = new ArrayList<>();
+        List<TransitionData> transitions = new ArrayList<>();
+        automaton.viewport(x0, y0, x1, y1, states::add, transitions::add);
+
+        Set<String> visible = new HashSet<>(states.size() * 2);
+        states.forEach(s -> visible.add(s.id()));
+        Set<String> anchors = new LinkedHashSet<>();
+        for (TransitionData t : transitions) {
+            if (!visible.contains(t.fromId())) {
+                anchors.add(t.fromId());
+            }
+            if (!visible.contains(t.toId())) {
+                anchors.add(t.toId());
+            }
+        }
+
+        gen.writeStartObject();
+        gen.writeNumberField("version", version);
+        gen.writeNumberField("x0", x0);
+        gen.writeNumberField("y0", y0);
+        gen.writeNumberField("x1", x1);
+        gen.writeNumberField("y1", y1);
+
+        gen.writeArrayFieldStart("states");
+        for (StateData state : states) {
+            writeState(gen, state);
+        }
+        gen.writeEndArray();
+
+        gen.writeArrayFieldStart("transitions");
+        for (TransitionData transition : transitions) {
+            gen.writeStartObject();
+            gen.writeStringField("id", transition.id());
+            gen.writeStringField("from", transition.fromId());
+            gen.writeStringField("to", transition.toId());
+            gen.writeStringField("symbol", transition.symbol());
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+
+        gen.writeArrayFieldStart("anchors");
+        for (String id : anchors) {
+            writeState(gen, automaton.findState(id));
+        }
+        gen.writeEndArray();
+
+        gen.writeEndObject();
+    }
+
+    private static void writeState(JsonGenerator gen, StateData state) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("id", state.id());
+        gen.writeStringField("label", state.label());
+        gen.writeNumberField("x", state.x());
+        gen.writeNumberField("y", state.y());
+        gen.writeBooleanField("initial", state.initial());
+        gen.writeBooleanField("accepting", state.accepting());
+        gen.writeEndObject();
+    }
+}
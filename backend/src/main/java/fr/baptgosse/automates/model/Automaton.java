@@ -1,5 +1,6 @@
 package fr.baptgosse.automates.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.util.*;
@@ -21,6 +22,20 @@ public class Automaton {
     @JsonProperty("name")
     private String name;
 
+    // Index maintenu incrémentalement à chaque mutation (non sérialisé)
+    private final Map<String, State> statesById = new HashMap<>();
+    private final Map<String, Transition> transitionsById = new HashMap<>();
+    private final Map<State, Set<Transition>> outgoing = new HashMap<>();
+    private final Map<State, Set<Transition>> incoming = new HashMap<>();
+    private final Map<State, Map<String, Integer>> symbolCountsByState = new HashMap<>();
+    private final Map<String, Integer> symbolOccurrences = new HashMap<>();
+
+    // Compteurs de déterminisme et de complétude
+    private int initialStatesCount;
+    private int epsilonTransitionsCount;
+    private int nondeterministicPairsCount; // couples (état, symbole) ayant plus d'une cible
+    private int coveredPairsCount;          // couples (état, symbole) ayant au moins une cible
+
     public Automaton() {
         this.states = new HashSet<>();
         this.transitions = new HashSet<>();
@@ -37,24 +52,67 @@ public class Automaton {
      * Ajoute un état à l'automate.
      */
     public void addState(State state) {
-        states.add(state);
+        if (states.add(state)) {
+            statesById.put(state.getId(), state);
+            if (state.isInitial()) {
+                initialStatesCount++;
+            }
+        }
     }
 
     /**
      * Supprime un état et toutes ses transitions associées.
      */
     public void removeState(State state) {
-        states.remove(state);
-        transitions.removeIf(t -> t.getFrom().equals(state) || t.getTo().equals(state));
+        List<Transition> attached = new ArrayList<>(outgoing.getOrDefault(state, Set.of()));
+        for (Transition t : incoming.getOrDefault(state, Set.of())) {
+            if (!t.getFrom().equals(state)) {
+                attached.add(t);
+            }
+        }
+        attached.forEach(this::removeTransition);
+
+        if (states.remove(state)) {
+            statesById.remove(state.getId());
+            if (state.isInitial()) {
+                initialStatesCount--;
+            }
+        }
+        outgoing.remove(state);
+        incoming.remove(state);
+        symbolCountsByState.remove(state);
+    }
+
+    /**
+     * Définit si un état est initial en maintenant le compteur d'états initiaux.
+     */
+    public void setStateInitial(State state, boolean initial) {
+        if (state.isInitial() == initial) {
+            return;
+        }
+        state.setInitial(initial);
+        if (states.contains(state)) {
+            initialStatesCount += initial ? 1 : -1;
+        }
+    }
+
+    /**
+     * Retire le statut initial de tous les états.
+     */
+    public void clearInitialStates() {
+        if (initialStatesCount == 0) {
+            return;
+        }
+        states.forEach(s -> s.setInitial(false));
+        initialStatesCount = 0;
     }
 
     /**
      * Ajoute une transition à l'automate.
      */
     public void addTransition(Transition transition) {
-        transitions.add(transition);
-        if (!transition.isEpsilon() && !transition.getSymbol().isEmpty()) {
-            alphabet.add(transition.getSymbol());
+        if (transitions.add(transition)) {
+            indexTransition(transition);
         }
     }
 
@@ -62,19 +120,220 @@ public class Automaton {
      * Supprime une transition.
      */
     public void removeTransition(Transition transition) {
-        transitions.remove(transition);
-        // Recalculer l'alphabet
-        updateAlphabet();
+        if (transitions.remove(transition)) {
+            unindexTransition(transition);
+        }
     }
 
     /**
-     * Met à jour l'alphabet en fonction des transitions.
+     * Enregistre une transition dans l'index et met à jour les compteurs.
      */
-    private void updateAlphabet() {
+    private void indexTransition(Transition t) {
+        transitionsById.put(t.getId(), t);
+        outgoing.computeIfAbsent(t.getFrom(), k -> new HashSet<>()).add(t);
+        incoming.computeIfAbsent(t.getTo(), k -> new HashSet<>()).add(t);
+
+        if (t.isEpsilon()) {
+            epsilonTransitionsCount++;
+            return;
+        }
+
+        String symbol = t.getSymbol();
+        if (symbolOccurrences.merge(symbol, 1, Integer::sum) == 1) {
+            alphabet.add(symbol);
+        }
+
+        int count = symbolCountsByState
+                .computeIfAbsent(t.getFrom(), k -> new HashMap<>())
+                .merge(symbol, 1, Integer::sum);
+        if (count == 1) {
+            coveredPairsCount++;
+        } else if (count == 2) {
+            nondeterministicPairsCount++;
+        }
+    }
+
+    /**
+     * Retire une transition de l'index et met à jour les compteurs.
+     */
+    private void unindexTransition(Transition t) {
+        transitionsById.remove(t.getId());
+        removeFromIndex(outgoing, t.getFrom(), t);
+        removeFromIndex(incoming, t.getTo(), t);
+
+        if (t.isEpsilon()) {
+            epsilonTransitionsCount--;
+            return;
+        }
+
+        String symbol = t.getSymbol();
+        if (decrement(symbolOccurrences, symbol) == 0) {
+            alphabet.remove(symbol);
+        }
+
+        Map<String, Integer> counts = symbolCountsByState.get(t.getFrom());
+        if (counts == null) {
+            return;
+        }
+        int count = decrement(counts, symbol);
+        if (count == 0) {
+            coveredPairsCount--;
+        } else if (count == 1) {
+            nondeterministicPairsCount--;
+        }
+        if (counts.isEmpty()) {
+            symbolCountsByState.remove(t.getFrom());
+        }
+    }
+
+    private static void removeFromIndex(Map<State, Set<Transition>> index, State key, Transition t) {
+        Set<Transition> set = index.get(key);
+        if (set != null) {
+            set.remove(t);
+            if (set.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private static int decrement(Map<String, Integer> counts, String key) {
+        Integer remaining = counts.computeIfPresent(key, (k, v) -> v > 1 ? v - 1 : null);
+        return remaining != null ? remaining : 0;
+    }
+
+    /**
+     * Reconstruit l'index et les compteurs à partir des ensembles d'états et de transitions.
+     * À appeler lorsque ces ensembles ont été remplis sans passer par les méthodes de mutation
+     * (désérialisation JSON par exemple).
+     */
+    public void reindex() {
+        statesById.clear();
+        states.forEach(s -> statesById.put(s.getId(), s));
+        transitionsById.clear();
+        outgoing.clear();
+        incoming.clear();
+        symbolCountsByState.clear();
+        symbolOccurrences.clear();
         alphabet.clear();
-        transitions.stream()
-                .filter(t -> !t.isEpsilon() && !t.getSymbol().isEmpty())
-                .forEach(t -> alphabet.add(t.getSymbol()));
+        epsilonTransitionsCount = 0;
+        nondeterministicPairsCount = 0;
+        coveredPairsCount = 0;
+        initialStatesCount = (int) states.stream().filter(State::isInitial).count();
+        transitions.forEach(this::indexTransition);
+    }
+
+    /**
+     * Trouve un état par son identifiant.
+     */
+    public State findState(String stateId) {
+        return statesById.get(stateId);
+    }
+
+    /**
+     * Trouve une transition par son identifiant.
+     */
+    public Transition findTransition(String transitionId) {
+        return transitionsById.get(transitionId);
+    }
+
+    /**
+     * Applique une mutation portant sur le contenu de l'automate.
+     * Les mutations sont idempotentes : une cible absente ou un identifiant déjà présent est ignoré.
+     */
+    public void apply(Mutation mutation) {
+        switch (mutation) {
+            case Mutation.AddState m -> {
+                if (findState(m.stateId()) == null) {
+                    addState(new State(m.stateId(), m.label(), m.x(), m.y(), false, false));
+                }
+            }
+            case Mutation.RemoveState m -> {
+                State state = findState(m.stateId());
+                if (state != null) {
+                    removeState(state);
+                }
+            }
+            case Mutation.UpdateState m -> {
+                State state = findState(m.stateId());
+                if (state == null) {
+                    throw new IllegalArgumentException("État non trouvé: " + m.stateId());
+                }
+                state.setX(m.x());
+                state.setY(m.y());
+                if (m.initial() != null) {
+                    // Si on définit cet état comme initial, retirer les autres
+                    if (m.initial()) {
+                        clearInitialStates();
+                    }
+                    setStateInitial(state, m.initial());
+                }
+                if (m.accepting() != null) {
+                    state.setAccepting(m.accepting());
+                }
+            }
+            case Mutation.RenameState m -> {
+                State state = findState(m.stateId());
+                if (state == null) {
+                    throw new IllegalArgumentException("État non trouvé: " + m.stateId());
+                }
+                state.setLabel(m.label());
+            }
+            case Mutation.AddTransition m -> {
+                if (findTransition(m.transitionId()) != null) {
+                    return;
+                }
+                State from = findState(m.fromId());
+                State to = findState(m.toId());
+                if (from == null || to == null) {
+                    throw new IllegalArgumentException("État source ou cible non trouvé");
+                }
+                addTransition(new Transition(m.transitionId(), from, to, m.symbol()));
+            }
+            case Mutation.RemoveTransition m -> {
+                Transition transition = findTransition(m.transitionId());
+                if (transition != null) {
+                    removeTransition(transition);
+                }
+            }
+            case Mutation.ReplaceAutomaton m ->
+                    throw new IllegalArgumentException("Le remplacement s'applique à la session");
+            case Mutation.DeleteAutomaton m ->
+                    throw new IllegalArgumentException("La suppression s'applique à la session");
+            case Mutation.ForkSession m ->
+                    throw new IllegalArgumentException("La duplication s'applique à la session");
+        }
+    }
+
+    /**
+     * Nombre d'états marqués comme initiaux.
+     */
+    @JsonIgnore
+    public int getInitialStatesCount() {
+        return initialStatesCount;
+    }
+
+    /**
+     * Nombre d'ε-transitions.
+     */
+    @JsonIgnore
+    public int getEpsilonTransitionsCount() {
+        return epsilonTransitionsCount;
+    }
+
+    /**
+     * Nombre de couples (état, symbole) ayant plus d'une transition.
+     */
+    @JsonIgnore
+    public int getNondeterministicPairsCount() {
+        return nondeterministicPairsCount;
+    }
+
+    /**
+     * Nombre de couples (état, symbole de l'alphabet) sans aucune transition.
+     */
+    @JsonIgnore
+    public long getMissingPairsCount() {
+        return (long) states.size() * alphabet.size() - coveredPairsCount;
     }
 
     /**
@@ -99,18 +358,14 @@ public class Automaton {
      * Retourne les transitions depuis un état donné.
      */
     public Set<Transition> getTransitionsFrom(State state) {
-        return transitions.stream()
-                .filter(t -> t.getFrom().equals(state))
-                .collect(Collectors.toSet());
+        return Collections.unmodifiableSet(outgoing.getOrDefault(state, Set.of()));
     }
 
     /**
      * Retourne les transitions vers un état donné.
      */
     public Set<Transition> getTransitionsTo(State state) {
-        return transitions.stream()
-                .filter(t -> t.getTo().equals(state))
-                .collect(Collectors.toSet());
+        return Collections.unmodifiableSet(incoming.getOrDefault(state, Set.of()));
     }
 
     /**
@@ -125,21 +380,22 @@ public class Automaton {
     /**
      * Génère la table de transitions sous forme de Map.
      * Map<État, Map<Symbole, Set<État>>>
+     * Construite à partir de l'index des transitions sortantes : O(|S|·|Σ| + |T|).
      */
     public Map<State, Map<String, Set<State>>> getTransitionTable() {
         Map<State, Map<String, Set<State>>> table = new LinkedHashMap<>();
 
         for (State state : states) {
             Map<String, Set<State>> symbolMap = new LinkedHashMap<>();
-
             for (String symbol : alphabet) {
-                Set<State> targetStates = transitions.stream()
-                        .filter(t -> t.getFrom().equals(state) && t.getSymbol().equals(symbol))
-                        .map(Transition::getTo)
-                        .collect(Collectors.toSet());
-                symbolMap.put(symbol, targetStates);
+                symbolMap.put(symbol, new HashSet<>());
+            }
+            for (Transition t : getTransitionsFrom(state)) {
+                Set<State> targetStates = symbolMap.get(t.getSymbol());
+                if (targetStates != null) {
+                    targetStates.add(t.getTo());
+                }
             }
-
             table.put(state, symbolMap);
         }
 
@@ -164,10 +420,13 @@ public class Automaton {
      * Nettoie l'automate (supprime les états isolés, etc.).
      */
     public void clean() {
-        // Supprimer les états sans transitions (sauf l'état initial)
-        states.removeIf(s -> !s.isInitial() &&
-                            getTransitionsFrom(s).isEmpty() &&
-                            getTransitionsTo(s).isEmpty());
+        // Supprimer les états sans transitions (sauf l'état initial), en maintenant index et compteurs
+        List<State> isolated = states.stream()
+                .filter(s -> !s.isInitial() &&
+                             getTransitionsFrom(s).isEmpty() &&
+                             getTransitionsTo(s).isEmpty())
+                .toList();
+        isolated.forEach(this::removeState);
     }
 
     // Getters
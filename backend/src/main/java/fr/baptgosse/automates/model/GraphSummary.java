@@ -0,0 +1,317 @@
+package fr.baptgosse.automates.model;
+
+import fr.baptgosse.automates.model.PersistentAutomaton.ClusterData;
+import fr.baptgosse.automates.model.PersistentAutomaton.LinkData;
+import fr.baptgosse.automates.model.PersistentAutomaton.StateData;
+import fr.baptgosse.automates.model.PersistentAutomaton.TransitionData;
+import fr.baptgosse.automates.util.PersistentMap;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Résumé persistant d'un {@link PersistentAutomaton} pour un niveau de zoom.
+ *
+ * Les états sont regroupés par cellule d'une grille de pas {@code 256 · 2^palier} : chaque
+ * groupe retient son nombre d'états, leur barycentre et le nombre d'états initiaux et acceptants ;
+ * les transitions sont agrégées en liens orientés entre groupes, avec leur nombre (un lien d'un
+ * groupe vers lui-même compte les transitions internes). Le volume d'une requête dépend du nombre
+ * de cellules de la fenêtre, pas du nombre d'états.
+ *
+ * Comme {@link SpatialIndex}, chaque modification renvoie un nouveau résumé qui partage les
+ * groupes inchangés : un déplacement ne touche que le groupe de l'état et les liens de ses transitions.
+ * Un palier plus grossier se déduit d'un palier plus fin sans relire l'automate.
+ */
+final class GraphSummary {
+
+    static final int MAX_TIER = 24;
+
+    private static final GraphSummary[] EMPTY = new GraphSummary[MAX_TIER + 1];
+
+    static {
+        for (int tier = 0; tier <= MAX_TIER; tier++) {
+            EMPTY[tier] = new GraphSummary(tier, PersistentMap.empty(), PersistentMap.empty(), PersistentMap.empty());
+        }
+    }
+
+    /**
+     * Contenu d'un groupe (sommes, pour ajouter et retirer des états sans tout recompter).
+     */
+    private record Cluster(int states, double sumX, double sumY, int initials, int accepting) {
+
+        static Cluster of(StateData s) {
+            return new Cluster(1, s.x(), s.y(), s.initial() ? 1 : 0, s.accepting() ? 1 : 0);
+        }
+
+        Cluster plus(Cluster other, int sign) {
+            return new Cluster(states + sign * other.states, sumX + sign * other.sumX, sumY + sign * other.sumY,
+                    initials + sign * other.initials, accepting + sign * other.accepting);
+        }
+    }
+
+    private final int tier;
+    private final PersistentMap<Long, Cluster> clusters;
+    // Liens par groupe source, puis par groupe cible (et l'inverse), avec leur nombre de transitions
+    private final PersistentMap<Long, PersistentMap<Long, Integer>> out;
+    private final PersistentMap<Long, PersistentMap<Long, Integer>> in;
+
+    private GraphSummary(int tier, PersistentMap<Long, Cluster> clusters,
+                         PersistentMap<Long, PersistentMap<Long, Integer>> out,
+                         PersistentMap<Long, PersistentMap<Long, Integer>> in) {
+        this.tier = tier;
+        this.clusters = clusters;
+        this.out = out;
+        this.in = in;
+    }
+
+    /**
+     * Pas de la grille d'un palier.
+     */
+    static double cellSize(int tier) {
+        return SpatialIndex.CELL * (1L << tier);
+    }
+
+    /**
+     * Plus petit palier dont la grille couvre [x0, x1] × [y0, y1] en au plus {@code maxClusters} cellules.
+     */
+    static int tierFor(double x0, double y0, double x1, double y1, int maxClusters) {
+        int tier = 0;
+        while (tier < MAX_TIER && cellCount(tier, x0, y0, x1, y1) > maxClusters) {
+            tier++;
+        }
+        return tier;
+    }
+
+    private static double cellCount(int tier, double x0, double y0, double x1, double y1) {
+        double size = cellSize(tier);
+        return (Math.floor(x1 / size) - Math.floor(x0 / size) + 1) * (Math.floor(y1 / size) - Math.floor(y0 / size) + 1);
+    }
+
+    /**
+     * Résume tout l'automate (O(n + m)).
+     */
+    static GraphSummary of(PersistentAutomaton automaton, int tier) {
+        double size = cellSize(tier);
+        Map<String, Long> cells = new HashMap<>(automaton.stateCount() * 2);
+        Map<Long, Cluster> clusters = new HashMap<>();
+        automaton.forEachState(s -> {
+            long key = key(s, size);
+            cells.put(s.id(), key);
+            clusters.merge(key, Cluster.of(s), (a, b) -> a.plus(b, 1));
+        });
+        Map<Long, Map<Long, Integer>> links = new HashMap<>();
+        automaton.forEachTransition(t -> links.computeIfAbsent(cells.get(t.fromId()), k -> new HashMap<>())
+                .merge(cells.get(t.toId()), 1, Integer::sum));
+        return build(tier, clusters, links);
+    }
+
+    /**
+     * Résumé de ce même automate à un palier plus grossier, par fusion des groupes (O(groupes + liens)).
+     */
+    GraphSummary coarsen(int coarser) {
+        int shift = coarser - tier;
+        Map<Long, Cluster> merged = new HashMap<>();
+        clusters.forEach((key, cluster) -> merged.merge(shift(key, shift), cluster, (a, b) -> a.plus(b, 1)));
+        Map<Long, Map<Long, Integer>> links = new HashMap<>();
+        out.forEach((from, targets) -> {
+            Map<Long, Integer> row = links.computeIfAbsent(shift(from, shift), k -> new HashMap<>());
+            targets.forEach((to, count) -> row.merge(shift(to, shift), count, Integer::sum));
+        });
+        return build(coarser, merged, links);
+    }
+
+    private static GraphSummary build(int tier, Map<Long, Cluster> clusters, Map<Long, Map<Long, Integer>> links) {
+        GraphSummary summary = EMPTY[tier];
+        PersistentMap<Long, Cluster> persistentClusters = summary.clusters;
+        for (Map.Entry<Long, Cluster> entry : clusters.entrySet()) {
+            persistentClusters = persistentClusters.put(entry.getKey(), entry.getValue());
+        }
+        summary = new GraphSummary(tier, persistentClusters, summary.out, summary.in);
+        for (Map.Entry<Long, Map<Long, Integer>> row : links.entrySet()) {
+            for (Map.Entry<Long, Integer> link : row.getValue().entrySet()) {
+                summary = summary.link(row.getKey(), link.getKey(), link.getValue());
+            }
+        }
+        return summary;
+    }
+
+    /**
+     * Résumé de {@code after}, obtenu de {@code before} par {@code mutation}.
+     */
+    GraphSummary apply(PersistentAutomaton before, PersistentAutomaton after, Mutation mutation) {
+        double size = cellSize(tier);
+        switch (mutation) {
+            case Mutation.AddState m -> {
+                StateData state = after.findState(m.stateId());
+                return before.findState(m.stateId()) == null && state != null
+                        ? cluster(key(state, size), Cluster.of(state), 1) : this;
+            }
+            case Mutation.RemoveState m -> {
+                StateData state = before.findState(m.stateId());
+                if (state == null) {
+                    return this;
+                }
+                GraphSummary[] summary = {this};
+                before.forEachIncident(m.stateId(), t -> summary[0] = summary[0].link(before, t, size, -1));
+                return summary[0].cluster(key(state, size), Cluster.of(state), -1);
+            }
+            case Mutation.UpdateState m -> {
+                // Rendre initial un état retire ce statut aux autres : leurs groupes changent aussi
+                Set<String> changed = new HashSet<>();
+                changed.add(m.stateId());
+                if (Boolean.TRUE.equals(m.initial())) {
+                    before.forEachInitial(s -> changed.add(s.id()));
+                }
+                GraphSummary[] summary = {this};
+                for (String id : changed) {
+                    StateData old = before.findState(id);
+                    StateData updated = after.findState(id);
+                    if (old == null || updated == null || old.equals(updated)) {
+                        continue;
+                    }
+                    long oldKey = key(old, size);
+                    long newKey = key(updated, size);
+                    summary[0] = summary[0].cluster(oldKey, Cluster.of(old), -1).cluster(newKey, Cluster.of(updated), 1);
+                    if (oldKey != newKey) {
+                        before.forEachIncident(id, t -> summary[0] = summary[0]
+                                .link(before, t, size, -1)
+                                .link(after, t, size, 1));
+                    }
+                }
+                return summary[0];
+            }
+            case Mutation.AddTransition m -> {
+                TransitionData transition = after.findTransition(m.transitionId());
+                return before.findTransition(m.transitionId()) == null && transition != null
+                        ? link(after, transition, size, 1) : this;
+            }
+            case Mutation.RemoveTransition m -> {
+                TransitionData transition = before.findTransition(m.transitionId());
+                return transition != null ? link(before, transition, size, -1) : this;
+            }
+            default -> {
+                return this;
+            }
+        }
+    }
+
+    /**
+     * Énumère les groupes dont la cellule coupe [x0, x1] × [y0, y1], puis les liens qui en partent
+     * ou y arrivent (une seule fois chacun).
+     */
+    void query(double x0, double y0, double x1, double y1, Consumer<ClusterData> clusterAction,
+               Consumer<LinkData> linkAction) {
+        double size = cellSize(tier);
+        int cx0 = coordinate(Math.floor(x0 / size));
+        int cy0 = coordinate(Math.floor(y0 / size));
+        int cx1 = coordinate(Math.floor(x1 / size));
+        int cy1 = coordinate(Math.floor(y1 / size));
+        Map<Long, ClusterData> visible = new HashMap<>();
+        if ((double) (cx1 - cx0 + 1) * (cy1 - cy0 + 1) > clusters.size()) {
+            // Fenêtre plus grande que la partie occupée de la grille : parcourir les groupes
+            clusters.forEach((key, cluster) -> {
+                if (x(key) >= cx0 && x(key) <= cx1 && y(key) >= cy0 && y(key) <= cy1) {
+                    visible.put(key, data(key, cluster));
+                }
+            });
+        } else {
+            for (int cx = cx0; cx <= cx1; cx++) {
+                for (int cy = cy0; cy <= cy1; cy++) {
+                    long key = key(cx, cy);
+                    Cluster cluster = clusters.get(key);
+                    if (cluster != null) {
+                        visible.put(key, data(key, cluster));
+                    }
+                }
+            }
+        }
+        visible.values().forEach(clusterAction);
+
+        for (Map.Entry<Long, ClusterData> entry : visible.entrySet()) {
+            long key = entry.getKey();
+            ClusterData cluster = entry.getValue();
+            PersistentMap<Long, Integer> targets = out.get(key);
+            if (targets != null) {
+                targets.forEach((to, count) -> {
+                    ClusterData target = visible.get(to);
+                    linkAction.accept(new LinkData(cluster, target != null ? target : data(to, clusters.get(to)), count));
+                });
+            }
+            PersistentMap<Long, Integer> sources = in.get(key);
+            if (sources != null) {
+                sources.forEach((from, count) -> {
+                    if (!visible.containsKey(from)) {
+                        linkAction.accept(new LinkData(data(from, clusters.get(from)), cluster, count));
+                    }
+                });
+            }
+        }
+    }
+
+    private static ClusterData data(long key, Cluster cluster) {
+        return new ClusterData(x(key), y(key), cluster.states(), cluster.sumX() / cluster.states(),
+                cluster.sumY() / cluster.states(), cluster.initials(), cluster.accepting());
+    }
+
+    private GraphSummary cluster(long key, Cluster delta, int sign) {
+        Cluster current = clusters.get(key);
+        Cluster updated = current != null ? current.plus(delta, sign) : delta;
+        return new GraphSummary(tier, updated.states() > 0 ? clusters.put(key, updated) : clusters.remove(key), out, in);
+    }
+
+    private GraphSummary link(PersistentAutomaton automaton, TransitionData t, double size, int delta) {
+        return link(key(automaton.findState(t.fromId()), size), key(automaton.findState(t.toId()), size), delta);
+    }
+
+    private GraphSummary link(long from, long to, int delta) {
+        return new GraphSummary(tier, clusters, count(out, from, to, delta), count(in, to, from, delta));
+    }
+
+    private static PersistentMap<Long, PersistentMap<Long, Integer>> count(
+            PersistentMap<Long, PersistentMap<Long, Integer>> links, long from, long to, int delta) {
+        PersistentMap<Long, Integer> row = links.get(from);
+        if (row == null) {
+            row = PersistentMap.empty();
+        }
+        Integer current = row.get(to);
+        int count = (current != null ? current : 0) + delta;
+        PersistentMap<Long, Integer> updated = count > 0 ? row.put(to, count) : row.remove(to);
+        return updated.isEmpty() ? links.remove(from) : links.put(from, updated);
+    }
+
+    private static long key(StateData s, double size) {
+        return key(coordinate(Math.floor(s.x() / size)), coordinate(Math.floor(s.y() / size)));
+    }
+
+    private static long key(int cx, int cy) {
+        return (long) cx << 32 | (cy & 0xFFFFFFFFL);
+    }
+
+    private static int x(long key) {
+        return (int) (key >> 32);
+    }
+
+    private static int y(long key) {
+        return (int) key;
+    }
+
+    /**
+     * Cellule qui contient celle-ci {@code shift} paliers plus haut (division entière par défaut).
+     */
+    private static long shift(long key, int shift) {
+        return key(x(key) >> shift, y(key) >> shift);
+    }
+
+    /**
+     * Coordonnée de cellule bornée (les positions démesurées partagent les cellules du bord).
+     */
+    private static int coordinate(double value) {
+        if (Double.isNaN(value)) {
+            return 0;
+        }
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, value));
+    }
+}
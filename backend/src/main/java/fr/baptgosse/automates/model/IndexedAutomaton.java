@@ -0,0 +1,157 @@
+package fr.baptgosse.automates.model;
+
+import java.util.*;
+
+/**
+ * Représentation compilée d'un automate, indexée par entiers.
+ * Les états sont numérotés de 0 à n-1, les symboles de l'alphabet de 0 à k-1,
+ * et les transitions sont stockées en CSR (offsets + cibles) par couple (état, symbole).
+ * Instance immuable, sûre à partager entre threads.
+ */
+public final class IndexedAutomaton {
+    private final State[] states;
+    private final String[] symbols;
+    private final boolean[] initial;
+    private final boolean[] accepting;
+
+    // Cibles de (q, a) : targets[offsets[q * k + a] .. offsets[q * k + a + 1]), triées
+    private final int[] offsets;
+    private final int[] targets;
+
+    // ε-transitions de q : epsilonTargets[epsilonOffsets[q] .. epsilonOffsets[q + 1]), triées
+    private final int[] epsilonOffsets;
+    private final int[] epsilonTargets;
+
+    private IndexedAutomaton(State[] states, String[] symbols, boolean[] initial, boolean[] accepting,
+                             int[] offsets, int[] targets, int[] epsilonOffsets, int[] epsilonTargets) {
+        this.states = states;
+        this.symbols = symbols;
+        this.initial = initial;
+        this.accepting = accepting;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.epsilonOffsets = epsilonOffsets;
+        this.epsilonTargets = epsilonTargets;
+    }
+
+    /**
+     * Compile un automate. Les états sont ordonnés par label puis par identifiant,
+     * ce qui rend la numérotation reproductible.
+     */
+    public static IndexedAutomaton compile(Automaton automaton) {
+        State[] states = automaton.getStates().toArray(new State[0]);
+        Arrays.sort(states, Comparator.comparing(State::getLabel, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(State::getId));
+        String[] symbols = automaton.getAlphabet().toArray(new String[0]);
+
+        int n = states.length;
+        int k = symbols.length;
+        Map<State, Integer> stateIndex = new HashMap<>(n * 2);
+        for (int i = 0; i < n; i++) {
+            stateIndex.put(states[i], i);
+        }
+        Map<String, Integer> symbolIndex = new HashMap<>(k * 2);
+        for (int a = 0; a < k; a++) {
+            symbolIndex.put(symbols[a], a);
+        }
+
+        boolean[] initial = new boolean[n];
+        boolean[] accepting = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            initial[i] = states[i].isInitial();
+            accepting[i] = states[i].isAccepting();
+        }
+
+        // Premier passage : comptage des degrés
+        int[] offsets = new int[n * k + 1];
+        int[] epsilonOffsets = new int[n + 1];
+        for (Transition t : automaton.getTransitions()) {
+            Integer from = stateIndex.get(t.getFrom());
+            if (from == null || !stateIndex.containsKey(t.getTo())) {
+                continue;
+            }
+            if (t.isEpsilon()) {
+                epsilonOffsets[from + 1]++;
+            } else {
+                offsets[from * k + symbolIndex.get(t.getSymbol()) + 1]++;
+            }
+        }
+        for (int i = 0; i < n * k; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        for (int i = 0; i < n; i++) {
+            epsilonOffsets[i + 1] += epsilonOffsets[i];
+        }
+
+        // Second passage : remplissage
+        int[] targets = new int[offsets[n * k]];
+        int[] epsilonTargets = new int[epsilonOffsets[n]];
+        int[] cursor = Arrays.copyOf(offsets, n * k);
+        int[] epsilonCursor = Arrays.copyOf(epsilonOffsets, n);
+        for (Transition t : automaton.getTransitions()) {
+            Integer from = stateIndex.get(t.getFrom());
+            Integer to = stateIndex.get(t.getTo());
+            if (from == null || to == null) {
+                continue;
+            }
+            if (t.isEpsilon()) {
+                epsilonTargets[epsilonCursor[from]++] = to;
+            } else {
+                targets[cursor[from * k + symbolIndex.get(t.getSymbol())]++] = to;
+            }
+        }
+        for (int i = 0; i < n * k; i++) {
+            Arrays.sort(targets, offsets[i], offsets[i + 1]);
+        }
+        for (int i = 0; i < n; i++) {
+            Arrays.sort(epsilonTargets, epsilonOffsets[i], epsilonOffsets[i + 1]);
+        }
+
+        return new IndexedAutomaton(states, symbols, initial, accepting,
+                offsets, targets, epsilonOffsets, epsilonTargets);
+    }
+
+    public int stateCount() { return states.length; }
+    public int symbolCount() { return symbols.length; }
+    public State state(int q) { return states[q]; }
+    public String symbol(int a) { return symbols[a]; }
+    public boolean isInitial(int q) { return initial[q]; }
+    public boolean isAccepting(int q) { return accepting[q]; }
+
+    /**
+     * Début (inclus) de la plage des cibles de (q, a) dans {@link #target(int)}.
+     */
+    public int targetsStart(int q, int a) {
+        return offsets[q * symbols.length + a];
+    }
+
+    /**
+     * Fin (exclue) de la plage des cibles de (q, a) dans {@link #target(int)}.
+     */
+    public int targetsEnd(int q, int a) {
+        return offsets[q * symbols.length + a + 1];
+    }
+
+    public int target(int i) {
+        return targets[i];
+    }
+
+    public int epsilonStart(int q) {
+        return epsilonOffsets[q];
+    }
+
+    public int epsilonEnd(int q) {
+        return epsilonOffsets[q + 1];
+    }
+
+    public int epsilonTarget(int i) {
+        return epsilonTargets[i];
+    }
+
+    /**
+     * Nombre total de transitions (ε comprises).
+     */
+    public int transitionCount() {
+        return targets.length + epsilonTargets.length;
+    }
+}
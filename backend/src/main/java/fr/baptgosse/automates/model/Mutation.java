@@ -0,0 +1,43 @@
+package fr.baptgosse.automates.model;
+
+/**
+ * Opération de modification d'une session.
+ * Chaque opération porte les identifiants qu'elle crée : la rejouer sur le même état
+ * produit le même résultat (journal, réplication, historique).
+ */
+public sealed interface Mutation {
+
+    record AddState(String stateId, String label, double x, double y) implements Mutation {}
+
+    record RemoveState(String stateId) implements Mutation {}
+
+    /**
+     * Déplace un état et modifie éventuellement ses propriétés (null = inchangé).
+     * Définir un état comme initial retire ce statut aux autres.
+     */
+    record UpdateState(String stateId, double x, double y, Boolean initial, Boolean accepting) implements Mutation {}
+
+    /**
+     * Change le label affiché d'un état.
+     */
+    record RenameState(String stateId, String label) implements Mutation {}
+
+    record AddTransition(String transitionId, String fromId, String toId, String symbol) implements Mutation {}
+
+    record RemoveTransition(String transitionId) implements Mutation {}
+
+    /**
+     * Remplace tout l'automate de la session (création, PUT).
+     */
+    record ReplaceAutomaton(Automaton automaton) implements Mutation {}
+
+    /**
+     * Supprime la session.
+     */
+    record DeleteAutomaton() implements Mutation {}
+
+    /**
+     * Crée la session comme copie de l'état courant d'une autre session.
+     */
+    record ForkSession(String sourceSessionId) implements Mutation {}
+}
@@ -0,0 +1,448 @@
+package fr.baptgosse.automates.model;
+
+import fr.baptgosse.automates.util.Ids;
+import fr.baptgosse.automates.util.PersistentMap;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Version immuable d'un automate, à partage de structure.
+ *
+ * Chaque {@link #apply(Mutation)} renvoie une nouvelle version qui ne copie que les chemins
+ * modifiés de ses tables ({@link PersistentMap}) : conserver de nombreuses versions
+ * (historique d'annulation, sessions dupliquées, lectures concurrentes) ne coûte que
+ * leurs différences. Les états et transitions y sont des valeurs, référencées par identifiant.
+ */
+public final class PersistentAutomaton {
+
+    public static final int MAX_SUMMARY_TIER = GraphSummary.MAX_TIER;
+
+    public record StateData(String id, String label, double x, double y, boolean initial, boolean accepting) {
+
+        /**
+         * Copie modifiable de l'état (réponses de l'API).
+         */
+        public State toState() {
+            return new State(id, label, x, y, initial, accepting);
+        }
+    }
+
+    public record TransitionData(String id, String fromId, String toId, String symbol) {
+    }
+
+    /**
+     * Groupe d'états d'une cellule (cx, cy) de la grille d'un palier : nombre d'états, barycentre,
+     * nombre d'états initiaux et acceptants.
+     */
+    public record ClusterData(int cx, int cy, int states, double x, double y, int initials, int accepting) {
+    }
+
+    /**
+     * Transitions d'un groupe vers un autre (ou vers lui-même), agrégées.
+     */
+    public record LinkData(ClusterData from, ClusterData to, int count) {
+    }
+
+    private final String name;
+    private final PersistentMap<String, StateData> states;
+    private final PersistentMap<String, TransitionData> transitions;
+    // Transitions entrantes et sortantes de chaque état, pour supprimer un état sans parcours global
+    private final PersistentMap<String, PersistentMap<String, Boolean>> incident;
+    private final PersistentMap<String, Boolean> initials;
+    // Index spatial, construit à la première requête de fenêtre puis tenu à jour par apply
+    private volatile SpatialIndex spatial;
+    // Résumés par palier de zoom, construits à la demande puis tenus à jour par apply
+    private volatile GraphSummary[] summaries;
+
+    private PersistentAutomaton(String name,
+                                PersistentMap<String, StateData> states,
+                                PersistentMap<String, TransitionData> transitions,
+                                PersistentMap<String, PersistentMap<String, Boolean>> incident,
+                                PersistentMap<String, Boolean> initials) {
+        this.name = name;
+        this.states = states;
+        this.transitions = transitions;
+        this.incident = incident;
+        this.initials = initials;
+    }
+
+    /**
+     * Construit la version immuable d'un automate (O(n)).
+     */
+    public static PersistentAutomaton of(Automaton automaton) {
+        PersistentAutomaton result = new PersistentAutomaton(automaton.getName(), PersistentMap.empty(),
+                PersistentMap.empty(), PersistentMap.empty(), PersistentMap.empty());
+        PersistentMap<String, StateData> states = PersistentMap.empty();
+        PersistentMap<String, Boolean> initials = PersistentMap.empty();
+        for (State s : automaton.getStates()) {
+            states = states.put(s.getId(),
+                    new StateData(s.getId(), s.getLabel(), s.getX(), s.getY(), s.isInitial(), s.isAccepting()));
+            if (s.isInitial()) {
+                initials = initials.put(s.getId(), Boolean.TRUE);
+            }
+        }
+        result = result.with(states, result.transitions, result.incident, initials);
+        for (Transition t : automaton.getTransitions()) {
+            result = result.addTransition(new TransitionData(t.getId(), t.getFrom().getId(), t.getTo().getId(),
+                    t.getSymbol()));
+        }
+        return result;
+    }
+
+    public String getName() { return name; }
+    public int stateCount() { return states.size(); }
+    public int transitionCount() { return transitions.size(); }
+    public int initialCount() { return initials.size(); }
+
+    /**
+     * Plus grand identifiant compact ({@link Ids}) des états et transitions, ou 0 (O(n)).
+     */
+    public long maxCompactId() {
+        long[] max = {0};
+        states.forEach((id, s) -> max[0] = Math.max(max[0], Ids.decode(id)));
+        transitions.forEach((id, t) -> max[0] = Math.max(max[0], Ids.decode(id)));
+        return max[0];
+    }
+
+    public StateData findState(String stateId) {
+        return states.get(stateId);
+    }
+
+    public TransitionData findTransition(String transitionId) {
+        return transitions.get(transitionId);
+    }
+
+    /**
+     * Copie modifiable d'une transition et de ses états (réponses de l'API).
+     */
+    public Transition toTransition(TransitionData transition) {
+        return new Transition(transition.id(), states.get(transition.fromId()).toState(),
+                states.get(transition.toId()).toState(), transition.symbol());
+    }
+
+    /**
+     * Premier label de la forme q0, q1... non utilisé (O(n)).
+     */
+    public String generateStateLabel() {
+        Set<String> used = new HashSet<>();
+        states.forEach((id, s) -> used.add(s.label()));
+        int counter = 0;
+        while (used.contains("q" + counter)) {
+            counter++;
+        }
+        return "q" + counter;
+    }
+
+    /**
+     * Matérialise un {@link Automaton} modifiable et indexé (O(n)).
+     */
+    public Automaton toAutomaton() {
+        Automaton automaton = new Automaton(name);
+        states.forEach((id, s) -> automaton.addState(
+                new State(s.id(), s.label(), s.x(), s.y(), s.initial(), s.accepting())));
+        transitions.forEach((id, t) -> automaton.addTransition(
+                new Transition(t.id(), automaton.findState(t.fromId()), automaton.findState(t.toId()), t.symbol())));
+        return automaton;
+    }
+
+    /**
+     * Applique une mutation avec la même sémantique que {@link Automaton#apply(Mutation)}.
+     * Si cette version a un index spatial ou des résumés, la nouvelle en hérite, mis à jour.
+     * @return la nouvelle version, ou cette version si la mutation est sans effet
+     */
+    public PersistentAutomaton apply(Mutation mutation) {
+        PersistentAutomaton result = change(mutation);
+        if (result == this) {
+            return this;
+        }
+        SpatialIndex index = spatial;
+        if (index != null) {
+            result.spatial = index.apply(this, result, mutation);
+        }
+        GraphSummary[] cached = summaries;
+        if (cached != null) {
+            GraphSummary[] updated = new GraphSummary[cached.length];
+            for (int tier = 0; tier < cached.length; tier++) {
+                if (cached[tier] != null) {
+                    updated[tier] = cached[tier].apply(this, result, mutation);
+                }
+            }
+            result.summaries = updated;
+        }
+        return result;
+    }
+
+    /**
+     * États et transitions visibles dans le rectangle [x0, x1] × [y0, y1] : états dont le cercle
+     * le coupe, transitions dont le segment (ou la boucle) passe à moins d'un rayon d'état.
+     * Coût de l'ordre des éléments proches du rectangle, après une première indexation en O(n).
+     */
+    public void viewport(double x0, double y0, double x1, double y1,
+                         Consumer<StateData> stateAction, Consumer<TransitionData> transitionAction) {
+        spatialIndex().query(x0, y0, x1, y1,
+                id -> stateAction.accept(states.get(id)),
+                id -> transitionAction.accept(transitions.get(id)));
+    }
+
+    /**
+     * Palier de résumé le plus fin qui couvre [x0, x1] × [y0, y1] en au plus {@code maxClusters} cellules.
+     */
+    public static int summaryTier(double x0, double y0, double x1, double y1, int maxClusters) {
+        return GraphSummary.tierFor(x0, y0, x1, y1, maxClusters);
+    }
+
+    /**
+     * Pas de la grille d'un palier de résumé ; le palier 0 est celui de l'index spatial.
+     */
+    public static double summaryCellSize(int tier) {
+        return GraphSummary.cellSize(tier);
+    }
+
+    /**
+     * Résumé de la fenêtre [x0, x1] × [y0, y1] au palier {@code tier} : groupes d'états des cellules
+     * qui la coupent, puis liens qui en partent ou y arrivent. Le premier résumé d'un palier coûte
+     * O(n + m), ou est déduit d'un palier plus fin déjà construit ; il est ensuite tenu à jour.
+     */
+    public void summary(int tier, double x0, double y0, double x1, double y1,
+                        Consumer<ClusterData> clusterAction, Consumer<LinkData> linkAction) {
+        if (tier < 0 || tier > MAX_SUMMARY_TIER) {
+            throw new IllegalArgumentException("Palier invalide (0 à " + MAX_SUMMARY_TIER + ")");
+        }
+        summaryAt(tier).query(x0, y0, x1, y1, clusterAction, linkAction);
+    }
+
+    private GraphSummary summaryAt(int tier) {
+        GraphSummary[] cached = summaries;
+        if (cached != null && cached[tier] != null) {
+            return cached[tier];
+        }
+        GraphSummary finer = null;
+        for (int t = tier - 1; cached != null && t >= 0 && finer == null; t--) {
+            finer = cached[t];
+        }
+        GraphSummary summary = finer != null ? finer.coarsen(tier) : GraphSummary.of(this, tier);
+        GraphSummary[] updated = cached != null ? cached.clone() : new GraphSummary[MAX_SUMMARY_TIER + 1];
+        updated[tier] = summary;
+        // Deux constructions simultanées peuvent se perdre l'une l'autre : le palier sera reconstruit
+        summaries = updated;
+        return summary;
+    }
+
+    private SpatialIndex spatialIndex() {
+        SpatialIndex index = spatial;
+        if (index == null) {
+            index = SpatialIndex.of(this);
+            spatial = index;
+        }
+        return index;
+    }
+
+    public void forEachState(Consumer<StateData> action) {
+        states.forEach((id, s) -> action.accept(s));
+    }
+
+    public void forEachTransition(Consumer<TransitionData> action) {
+        transitions.forEach((id, t) -> action.accept(t));
+    }
+
+    void forEachInitial(Consumer<StateData> action) {
+        initials.forEach((id, present) -> action.accept(states.get(id)));
+    }
+
+    /**
+     * Transitions entrantes et sortantes d'un état (une seule fois pour une boucle).
+     */
+    void forEachIncident(String stateId, Consumer<TransitionData> action) {
+        PersistentMap<String, Boolean> attached = incident.get(stateId);
+        if (attached != null) {
+            attached.forEach((id, present) -> action.accept(transitions.get(id)));
+        }
+    }
+
+    private PersistentAutomaton change(Mutation mutation) {
+        switch (mutation) {
+            case Mutation.AddState m -> {
+                if (states.containsKey(m.stateId())) {
+                    return this;
+                }
+                return with(states.put(m.stateId(), new StateData(m.stateId(), m.label(), m.x(), m.y(), false, false)),
+                        transitions, incident, initials);
+            }
+            case Mutation.RemoveState m -> {
+                if (!states.containsKey(m.stateId())) {
+                    return this;
+                }
+                PersistentAutomaton result = this;
+                PersistentMap<String, Boolean> attached = incident.get(m.stateId());
+                if (attached != null) {
+                    List<String> ids = new ArrayList<>(attached.size());
+                    attached.forEach((id, present) -> ids.add(id));
+                    for (String id : ids) {
+                        result = result.removeTransition(id);
+                    }
+                }
+                return result.with(result.states.remove(m.stateId()), result.transitions,
+                        result.incident.remove(m.stateId()), result.initials.remove(m.stateId()));
+            }
+            case Mutation.UpdateState m -> {
+                StateData state = states.get(m.stateId());
+                if (state == null) {
+                    throw new IllegalArgumentException("État non trouvé: " + m.stateId());
+                }
+                PersistentMap<String, StateData> newStates = states;
+                PersistentMap<String, Boolean> newInitials = initials;
+                boolean initial = state.initial();
+                if (m.initial() != null) {
+                    if (m.initial()) {
+                        // Définir cet état comme initial retire ce statut aux autres
+                        List<String> previous = new ArrayList<>(initials.size());
+                        initials.forEach((id, present) -> previous.add(id));
+                        for (String id : previous) {
+                            StateData other = newStates.get(id);
+                            newStates = newStates.put(id, new StateData(other.id(), other.label(), other.x(),
+                                    other.y(), false, other.accepting()));
+                        }
+                        newInitials = PersistentMap.<String, Boolean>empty().put(m.stateId(), Boolean.TRUE);
+                    } else {
+                        newInitials = newInitials.remove(m.stateId());
+                    }
+                    initial = m.initial();
+                }
+                boolean accepting = m.accepting() != null ? m.accepting() : state.accepting();
+                newStates = newStates.put(m.stateId(),
+                        new StateData(state.id(), state.label(), m.x(), m.y(), initial, accepting));
+                return with(newStates, transitions, incident, newInitials);
+            }
+            case Mutation.RenameState m -> {
+                StateData state = states.get(m.stateId());
+                if (state == null) {
+                    throw new IllegalArgumentException("État non trouvé: " + m.stateId());
+                }
+                return with(states.put(m.stateId(), new StateData(state.id(), m.label(), state.x(), state.y(),
+                        state.initial(), state.accepting())), transitions, incident, initials);
+            }
+            case Mutation.AddTransition m -> {
+                if (transitions.containsKey(m.transitionId())) {
+                    return this;
+                }
+                if (!states.containsKey(m.fromId()) || !states.containsKey(m.toId())) {
+                    throw new IllegalArgumentException("État source ou cible non trouvé");
+                }
+                return addTransition(new TransitionData(m.transitionId(), m.fromId(), m.toId(), m.symbol()));
+            }
+            case Mutation.RemoveTransition m -> {
+                return removeTransition(m.transitionId());
+            }
+            case Mutation.ReplaceAutomaton m ->
+                    throw new IllegalArgumentException("Le remplacement s'applique à la session");
+            case Mutation.DeleteAutomaton m ->
+                    throw new IllegalArgumentException("La suppression s'applique à la session");
+            case Mutation.ForkSession m ->
+                    throw new IllegalArgumentException("La duplication s'applique à la session");
+        }
+    }
+
+    /**
+     * Mutations élémentaires qui transforment cette version en {@code target}, calculées
+     * en ne parcourant que les parties non partagées des deux versions.
+     * @return null si la différence ne s'exprime pas en mutations élémentaires
+     *         (nom modifié, plusieurs états initiaux) : il faut alors remplacer l'automate
+     */
+    public List<Mutation> diffTo(PersistentAutomaton target) {
+        if (!Objects.equals(name, target.name) || target.initials.size() > 1) {
+            return null;
+        }
+        List<Mutation> removedTransitions = new ArrayList<>();
+        List<Mutation> removedStates = new ArrayList<>();
+        List<Mutation> addedStates = new ArrayList<>();
+        List<Mutation> updatedStates = new ArrayList<>();
+        List<Mutation> newInitial = new ArrayList<>();
+        List<Mutation> addedTransitions = new ArrayList<>();
+
+        states.diff(target.states, (id, before, after) -> {
+            if (after == null) {
+                removedStates.add(new Mutation.RemoveState(id));
+                return;
+            }
+            if (before == null) {
+                addedStates.add(new Mutation.AddState(id, after.label(), after.x(), after.y()));
+            } else if (!Objects.equals(before.label(), after.label())) {
+                updatedStates.add(new Mutation.RenameState(id, after.label()));
+            }
+            boolean wasInitial = before != null && before.initial();
+            boolean wasAccepting = before != null && before.accepting();
+            Boolean initial = wasInitial != after.initial() ? after.initial() : null;
+            Boolean accepting = wasAccepting != after.accepting() ? after.accepting() : null;
+            if (before != null ? before.x() == after.x() && before.y() == after.y() && initial == null
+                    && accepting == null : initial == null && accepting == null) {
+                return;
+            }
+            Mutation update = new Mutation.UpdateState(id, after.x(), after.y(), initial, accepting);
+            // Rendre un état initial retire ce statut aux autres : à appliquer en dernier
+            (Boolean.TRUE.equals(initial) ? newInitial : updatedStates).add(update);
+        });
+
+        transitions.diff(target.transitions, (id, before, after) -> {
+            if (before != null) {
+                removedTransitions.add(new Mutation.RemoveTransition(id));
+            }
+            if (after != null) {
+                addedTransitions.add(new Mutation.AddTransition(id, after.fromId(), after.toId(), after.symbol()));
+            }
+        });
+
+        List<Mutation> mutations = new ArrayList<>(removedTransitions);
+        mutations.addAll(removedStates);
+        mutations.addAll(addedStates);
+        mutations.addAll(updatedStates);
+        mutations.addAll(newInitial);
+        mutations.addAll(addedTransitions);
+        return mutations;
+    }
+
+    private PersistentAutomaton addTransition(TransitionData t) {
+        return with(states, transitions.put(t.id(), t),
+                link(link(incident, t.fromId(), t.id()), t.toId(), t.id()), initials);
+    }
+
+    private PersistentAutomaton removeTransition(String transitionId) {
+        TransitionData t = transitions.get(transitionId);
+        if (t == null) {
+            return this;
+        }
+        return with(states, transitions.remove(transitionId),
+                unlink(unlink(incident, t.fromId(), transitionId), t.toId(), transitionId), initials);
+    }
+
+    private static PersistentMap<String, PersistentMap<String, Boolean>> link(
+            PersistentMap<String, PersistentMap<String, Boolean>> incident, String stateId, String transitionId) {
+        PersistentMap<String, Boolean> set = incident.get(stateId);
+        return incident.put(stateId, (set != null ? set : PersistentMap.<String, Boolean>empty()).put(transitionId, Boolean.TRUE));
+    }
+
+    private static PersistentMap<String, PersistentMap<String, Boolean>> unlink(
+            PersistentMap<String, PersistentMap<String, Boolean>> incident, String stateId, String transitionId) {
+        PersistentMap<String, Boolean> set = incident.get(stateId);
+        if (set == null) {
+            return incident;
+        }
+        PersistentMap<String, Boolean> updated = set.remove(transitionId);
+        return updated.isEmpty() ? incident.remove(stateId) : incident.put(stateId, updated);
+    }
+
+    private PersistentAutomaton with(PersistentMap<String, StateData> states,
+                                     PersistentMap<String, TransitionData> transitions,
+                                     PersistentMap<String, PersistentMap<String, Boolean>> incident,
+                                     PersistentMap<String, Boolean> initials) {
+        if (states == this.states && transitions == this.transitions
+                && incident == this.incident && initials == this.initials) {
+            return this;
+        }
+        return new PersistentAutomaton(name, states, transitions, incident, initials);
+    }
+}
@@ -0,0 +1,315 @@
+package fr.baptgosse.automates.model;
+
+import fr.baptgosse.automates.model.PersistentAutomaton.StateData;
+import fr.baptgosse.automates.model.PersistentAutomaton.TransitionData;
+import fr.baptgosse.automates.util.PersistentMap;
+
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Index spatial persistant des états et transitions d'un {@link PersistentAutomaton}.
+ *
+ * Grille lâche hiérarchique : un élément est rangé une seule fois, au niveau dont la cellule
+ * (256 · 2^niveau unités) est au moins aussi grande que son rectangle englobant, dans la cellule
+ * qui contient le coin minimal de ce rectangle. Les états sont tous au niveau 0 ; une longue
+ * transition monte de niveau au lieu d'occuper toutes les cellules qu'elle traverse. Une requête
+ * parcourt, à chaque niveau utilisé, les cellules du rectangle étendu d'une cellule vers le bas.
+ *
+ * Chaque entrée porte la géométrie de l'élément (centre de l'état, extrémités de la transition) :
+ * les candidats d'une requête sont filtrés sans consulter l'automate. Comme {@link PersistentAutomaton},
+ * chaque modification renvoie un nouvel index qui partage les cellules inchangées : un déplacement
+ * ne touche que l'état et ses transitions.
+ */
+final class SpatialIndex {
+
+    static final double CELL = 256;
+    private static final int MAX_LEVEL = 40;
+    private static final int COORD_BITS = 29;
+    private static final long COORD_MASK = (1L << COORD_BITS) - 1;
+    private static final int COORD_MIN = -(1 << (COORD_BITS - 1));
+    private static final int COORD_MAX = (1 << (COORD_BITS - 1)) - 1;
+
+    private static final SpatialIndex EMPTY = new SpatialIndex(PersistentMap.empty(), PersistentMap.empty(), 0);
+
+    /**
+     * Géométrie indexée : centre d'un état, ou segment d'une transition (a = b pour une boucle).
+     */
+    private record Shape(double ax, double ay, double bx, double by) {
+    }
+
+    private final PersistentMap<Long, PersistentMap<String, Shape>> stateCells;
+    private final PersistentMap<Long, PersistentMap<String, Shape>> transitionCells;
+    // Niveaux ayant contenu au moins une transition (jamais retirés : une requête de trop, sans effet)
+    private final long levels;
+
+    private SpatialIndex(PersistentMap<Long, PersistentMap<String, Shape>> stateCells,
+                         PersistentMap<Long, PersistentMap<String, Shape>> transitionCells, long levels) {
+        this.stateCells = stateCells;
+        this.transitionCells = transitionCells;
+        this.levels = levels;
+    }
+
+    /**
+     * Indexe tous les états et transitions (O(n)).
+     */
+    static SpatialIndex of(PersistentAutomaton automaton) {
+        SpatialIndex[] index = {EMPTY};
+        automaton.forEachState(s -> index[0] = index[0].putState(s));
+        automaton.forEachTransition(t -> index[0] = index[0].putTransition(automaton, t));
+        return index[0];
+    }
+
+    /**
+     * Index de {@code after}, obtenu de {@code before} par {@code mutation}.
+     */
+    SpatialIndex apply(PersistentAutomaton before, PersistentAutomaton after, Mutation mutation) {
+        switch (mutation) {
+            case Mutation.AddState m -> {
+                StateData state = after.findState(m.stateId());
+                return before.findState(m.stateId()) == null && state != null ? putState(state) : this;
+            }
+            case Mutation.RemoveState m -> {
+                StateData state = before.findState(m.stateId());
+                if (state == null) {
+                    return this;
+                }
+                SpatialIndex[] index = {removeState(state)};
+                before.forEachIncident(m.stateId(), t -> index[0] = index[0].removeTransition(before, t));
+                return index[0];
+            }
+            case Mutation.UpdateState m -> {
+                StateData old = before.findState(m.stateId());
+                StateData moved = after.findState(m.stateId());
+                if (old == null || moved == null || old.x() == moved.x() && old.y() == moved.y()) {
+                    return this;
+                }
+                SpatialIndex[] index = {moveState(old, moved)};
+                before.forEachIncident(m.stateId(), t -> index[0] = index[0].moveTransition(before, after, t));
+                return index[0];
+            }
+            case Mutation.AddTransition m -> {
+                TransitionData transition = after.findTransition(m.transitionId());
+                return before.findTransition(m.transitionId()) == null && transition != null
+                        ? putTransition(after, transition) : this;
+            }
+            case Mutation.RemoveTransition m -> {
+                TransitionData transition = before.findTransition(m.transitionId());
+                return transition != null ? removeTransition(before, transition) : this;
+            }
+            default -> {
+                return this;
+            }
+        }
+    }
+
+    /**
+     * Énumère les identifiants des états dont le cercle coupe [x0, x1] × [y0, y1], puis ceux des
+     * transitions dont le segment passe à moins d'un rayon d'état du rectangle (boucles : leur
+     * rectangle englobant).
+     */
+    void query(double x0, double y0, double x1, double y1,
+               Consumer<String> states, Consumer<String> transitions) {
+        double r = State.getRadius();
+        query(stateCells, 1L, x0, y0, x1, y1, (id, shape) -> {
+            double dx = shape.ax() - Math.max(x0, Math.min(x1, shape.ax()));
+            double dy = shape.ay() - Math.max(y0, Math.min(y1, shape.ay()));
+            if (dx * dx + dy * dy <= r * r) {
+                states.accept(id);
+            }
+        });
+        query(transitionCells, levels, x0, y0, x1, y1, (id, shape) -> {
+            boolean visible = shape.ax() == shape.bx() && shape.ay() == shape.by()
+                    ? shape.ax() - 2 * r <= x1 && shape.ax() + 2 * r >= x0
+                            && shape.ay() - 2 * r <= y1 && shape.ay() + 2 * r >= y0
+                    : crosses(shape, x0 - r, y0 - r, x1 + r, y1 + r);
+            if (visible) {
+                transitions.accept(id);
+            }
+        });
+    }
+
+    /**
+     * Le segment coupe-t-il le rectangle ? (Liang-Barsky)
+     */
+    private static boolean crosses(Shape segment, double x0, double y0, double x1, double y1) {
+        double dx = segment.bx() - segment.ax();
+        double dy = segment.by() - segment.ay();
+        double[] p = {-dx, dx, -dy, dy};
+        double[] q = {segment.ax() - x0, x1 - segment.ax(), segment.ay() - y0, y1 - segment.ay()};
+        double t0 = 0;
+        double t1 = 1;
+        for (int i = 0; i < 4; i++) {
+            if (p[i] == 0) {
+                if (q[i] < 0) {
+                    return false;
+                }
+            } else {
+                double t = q[i] / p[i];
+                if (p[i] < 0) {
+                    t0 = Math.max(t0, t);
+                } else {
+                    t1 = Math.min(t1, t);
+                }
+                if (t0 > t1) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static void query(PersistentMap<Long, PersistentMap<String, Shape>> cells, long levels,
+                              double x0, double y0, double x1, double y1, BiConsumer<String, Shape> action) {
+        if (cells.isEmpty()) {
+            return;
+        }
+        for (int level = 0; level <= MAX_LEVEL; level++) {
+            if ((levels & (1L << level)) == 0) {
+                continue;
+            }
+            double size = CELL * (1L << level);
+            int cx0 = coordinate(Math.floor((x0 - size) / size));
+            int cy0 = coordinate(Math.floor((y0 - size) / size));
+            int cx1 = coordinate(Math.floor(x1 / size));
+            int cy1 = coordinate(Math.floor(y1 / size));
+            long area = (long) (cx1 - cx0 + 1) * (cy1 - cy0 + 1);
+            if (area > cells.size()) {
+                // Rectangle plus grand que la partie occupée de la grille : parcourir les cellules occupées
+                int l = level;
+                cells.forEach((key, ids) -> {
+                    if (level(key) == l && within(key, cx0, cy0, cx1, cy1)) {
+                        ids.forEach(action);
+                    }
+                });
+                continue;
+            }
+            for (int cx = cx0; cx <= cx1; cx++) {
+                for (int cy = cy0; cy <= cy1; cy++) {
+                    PersistentMap<String, Shape> ids = cells.get(key(level, cx, cy));
+                    if (ids != null) {
+                        ids.forEach(action);
+                    }
+                }
+            }
+        }
+    }
+
+    private SpatialIndex putState(StateData s) {
+        Shape shape = shape(s);
+        return new SpatialIndex(put(stateCells, key(shape), s.id(), shape), transitionCells, levels);
+    }
+
+    private SpatialIndex removeState(StateData s) {
+        return new SpatialIndex(remove(stateCells, key(shape(s)), s.id()), transitionCells, levels);
+    }
+
+    private SpatialIndex moveState(StateData old, StateData moved) {
+        Shape shape = shape(moved);
+        return new SpatialIndex(put(remove(stateCells, key(shape(old)), old.id()), key(shape), old.id(), shape),
+                transitionCells, levels);
+    }
+
+    private SpatialIndex putTransition(PersistentAutomaton automaton, TransitionData t) {
+        Shape shape = shape(automaton, t);
+        long key = key(shape);
+        return new SpatialIndex(stateCells, put(transitionCells, key, t.id(), shape), levels | 1L << level(key));
+    }
+
+    private SpatialIndex removeTransition(PersistentAutomaton automaton, TransitionData t) {
+        return new SpatialIndex(stateCells, remove(transitionCells, key(shape(automaton, t)), t.id()), levels);
+    }
+
+    private SpatialIndex moveTransition(PersistentAutomaton before, PersistentAutomaton after, TransitionData t) {
+        Shape shape = shape(after, t);
+        long key = key(shape);
+        return new SpatialIndex(stateCells,
+                put(remove(transitionCells, key(shape(before, t)), t.id()), key, t.id(), shape),
+                levels | 1L << level(key));
+    }
+
+    private static PersistentMap<Long, PersistentMap<String, Shape>> put(
+            PersistentMap<Long, PersistentMap<String, Shape>> cells, long key, String id, Shape shape) {
+        PersistentMap<String, Shape> ids = cells.get(key);
+        return cells.put(key, (ids != null ? ids : PersistentMap.<String, Shape>empty()).put(id, shape));
+    }
+
+    private static PersistentMap<Long, PersistentMap<String, Shape>> remove(
+            PersistentMap<Long, PersistentMap<String, Shape>> cells, long key, String id) {
+        PersistentMap<String, Shape> ids = cells.get(key);
+        if (ids == null) {
+            return cells;
+        }
+        PersistentMap<String, Shape> updated = ids.remove(id);
+        return updated.isEmpty() ? cells.remove(key) : cells.put(key, updated);
+    }
+
+    private static Shape shape(StateData s) {
+        return new Shape(s.x(), s.y(), s.x(), s.y());
+    }
+
+    private static Shape shape(PersistentAutomaton automaton, TransitionData t) {
+        StateData from = automaton.findState(t.fromId());
+        StateData to = automaton.findState(t.toId());
+        return new Shape(from.x(), from.y(), to.x(), to.y());
+    }
+
+    /**
+     * Cellule d'une forme : segment (ou centre) élargi d'un rayon d'état, d'un rayon de plus
+     * pour une boucle.
+     */
+    private static long key(Shape shape) {
+        double margin = shape.ax() == shape.bx() && shape.ay() == shape.by() ? 2 * State.getRadius() : State.getRadius();
+        return key(Math.min(shape.ax(), shape.bx()) - margin, Math.min(shape.ay(), shape.by()) - margin,
+                Math.max(shape.ax(), shape.bx()) + margin, Math.max(shape.ay(), shape.by()) + margin);
+    }
+
+    /**
+     * Cellule d'un rectangle englobant : niveau de la plus petite cellule qui le contient en taille,
+     * cellule de son coin minimal.
+     */
+    private static long key(double minX, double minY, double maxX, double maxY) {
+        double extent = Math.max(maxX - minX, maxY - minY);
+        int level = 0;
+        while (level < MAX_LEVEL && CELL * (1L << level) < extent) {
+            level++;
+        }
+        double size = CELL * (1L << level);
+        return key(level, coordinate(Math.floor(minX / size)), coordinate(Math.floor(minY / size)));
+    }
+
+    /**
+     * Cellule de niveau 0 contenant le point (x, y).
+     */
+    static long cell(double x, double y) {
+        return key(0, coordinate(Math.floor(x / CELL)), coordinate(Math.floor(y / CELL)));
+    }
+
+    private static long key(int level, int cx, int cy) {
+        return (long) level << (2 * COORD_BITS) | (cx & COORD_MASK) << COORD_BITS | (cy & COORD_MASK);
+    }
+
+    private static int level(long key) {
+        return (int) (key >>> (2 * COORD_BITS));
+    }
+
+    private static boolean within(long key, int cx0, int cy0, int cx1, int cy1) {
+        int cx = signed(key >>> COORD_BITS);
+        int cy = signed(key);
+        return cx >= cx0 && cx <= cx1 && cy >= cy0 && cy <= cy1;
+    }
+
+    private static int signed(long bits) {
+        return (int) (bits << (64 - COORD_BITS) >> (64 - COORD_BITS));
+    }
+
+    /**
+     * Coordonnée de cellule bornée (les positions démesurées partagent les cellules du bord).
+     */
+    private static int coordinate(double value) {
+        if (Double.isNaN(value)) {
+            return 0;
+        }
+        return (int) Math.max(COORD_MIN, Math.min(COORD_MAX, value));
+    }
+}
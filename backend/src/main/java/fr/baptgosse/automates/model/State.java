@@ -1,8 +1,7 @@
 package fr.baptgosse.automates.model;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
-
-import java.util.UUID;
+import fr.baptgosse.automates.util.Ids;
 
 /**
  * Représente un état dans un automate fini.
@@ -29,7 +28,7 @@ public class State {
     private static final double RADIUS = 30.0; // Rayon pour le dessin
 
     public State(String label, double x, double y) {
-        this.id = UUID.randomUUID().toString();
+        this.id = Ids.newId();
         this.label = label;
         this.x = x;
         this.y = y;
@@ -38,7 +37,14 @@ public class State {
     }
 
     public State(String label, double x, double y, boolean initial, boolean accepting) {
-        this.id = UUID.randomUUID().toString();
+        this(Ids.newId(), label, x, y, initial, accepting);
+    }
+
+    /**
+     * Recrée un état avec un identifiant existant (restauration, import).
+     */
+    public State(String id, String label, double x, double y, boolean initial, boolean accepting) {
+        this.id = id;
         this.label = label;
         this.x = x;
         this.y = y;
@@ -67,7 +73,7 @@ public class State {
     public boolean contains(double px, double py) {
         double dx = px - x;
         double dy = py - y;
-        return Math.sqrt(dx * dx + dy * dy) <= RADIUS;
+        return dx * dx + dy * dy <= RADIUS * RADIUS;
     }
 
     public static double getRadius() {
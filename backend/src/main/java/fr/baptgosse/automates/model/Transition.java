@@ -1,8 +1,7 @@
 package fr.baptgosse.automates.model;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
-
-import java.util.UUID;
+import fr.baptgosse.automates.util.Ids;
 
 /**
  * Représente une transition dans un automate fini.
@@ -21,7 +20,14 @@ public class Transition {
     private String symbol;
 
     public Transition(State from, State to, String symbol) {
-        this.id = UUID.randomUUID().toString();
+        this(Ids.newId(), from, to, symbol);
+    }
+
+    /**
+     * Recrée une transition avec un identifiant existant (restauration, import).
+     */
+    public Transition(String id, State from, State to, String symbol) {
+        this.id = id;
         this.from = from;
         this.to = to;
         this.symbol = symbol != null ? symbol : "";
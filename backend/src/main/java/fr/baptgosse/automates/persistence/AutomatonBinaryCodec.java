@@ -0,0 +1,241 @@
+package fr.baptgosse.automates.persistence;
+
+import fr.baptgosse.automates.model.Automaton;
+import fr.baptgosse.automates.model.PersistentAutomaton;
+import fr.baptgosse.automates.model.State;
+import fr.baptgosse.automates.model.Transition;
+import fr.baptgosse.automates.util.Ids;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Encodage binaire compact d'un automate.
+ *
+ * Structure :
+ * <pre>
+ *   nom                        string
+ *   table des symboles         varint n, n × string
+ *   table des états            varint n, n × (id, flags, [label], x, y)
+ *   transitions par état       pour chaque état : varint degré sortant,
+ *                              degré × (varint cible, varint symbole, id)
+ * </pre>
+ * Les états et symboles sont référencés par leur indice dans leur table ;
+ * les identifiants UUID sont stockés sur 16 octets au lieu de 36 caractères, les identifiants
+ * compacts ({@link Ids}) par leur entier en varint.
+ */
+public class AutomatonBinaryCodec {
+
+    private static final int FLAG_INITIAL = 1;
+    private static final int FLAG_ACCEPTING = 1 << 1;
+    private static final int FLAG_LABEL = 1 << 2;
+
+    private static final int ID_STRING = 0;
+    private static final int ID_UUID = 1;
+    private static final int ID_COMPACT = 2;
+
+    // Taille minimale encodée d'un élément de chaque table (borne les allocations à la lecture)
+    private static final int MIN_SYMBOL_BYTES = 1;              // longueur
+    private static final int MIN_STATE_BYTES = 2 + 1 + 16;      // id, flags, x, y
+    private static final int MIN_TRANSITION_BYTES = 2 + 2;      // cible, symbole, id
+
+    /**
+     * Écrit un automate.
+     */
+    public static void write(Automaton automaton, BinaryWriter out) throws IOException {
+        out.writeString(automaton.getName() != null ? automaton.getName() : "");
+
+        // Table des symboles internés (ε compris, sous sa forme d'origine)
+        Map<String, Integer> symbols = new LinkedHashMap<>();
+        for (Transition t : automaton.getTransitions()) {
+            symbols.putIfAbsent(t.getSymbol(), symbols.size());
+        }
+        out.writeVarint(symbols.size());
+        for (String symbol : symbols.keySet()) {
+            out.writeString(symbol);
+        }
+
+        List<State> states = new ArrayList<>(automaton.getStates());
+        Map<State, Integer> stateIndex = new HashMap<>(states.size() * 2);
+        out.writeVarint(states.size());
+        for (State state : states) {
+            stateIndex.put(state, stateIndex.size());
+            writeState(state.getId(), state.getLabel(), state.getX(), state.getY(),
+                    state.isInitial(), state.isAccepting(), out);
+        }
+
+        // Transitions groupées par état source grâce à l'index d'adjacence
+        for (State state : states) {
+            Set<Transition> outgoing = automaton.getTransitionsFrom(state);
+            int degree = 0;
+            for (Transition t : outgoing) {
+                if (stateIndex.containsKey(t.getTo())) {
+                    degree++;
+                }
+            }
+            out.writeVarint(degree);
+            for (Transition t : outgoing) {
+                Integer to = stateIndex.get(t.getTo());
+                if (to == null) {
+                    continue;
+                }
+                out.writeVarint(to);
+                out.writeVarint(symbols.get(t.getSymbol()));
+                writeId(t.getId(), out);
+            }
+        }
+    }
+
+    /**
+     * Écrit la version immuable d'un automate dans le même format, sans la matérialiser
+     * en {@link Automaton} : les transitions sont regroupées par état source par un tri
+     * par dénombrement (O(n + m)).
+     */
+    public static void write(PersistentAutomaton automaton, BinaryWriter out) throws IOException {
+        out.writeString(automaton.getName() != null ? automaton.getName() : "");
+
+        Map<String, Integer> symbols = new LinkedHashMap<>();
+        automaton.forEachTransition(t -> symbols.putIfAbsent(t.symbol(), symbols.size()));
+        out.writeVarint(symbols.size());
+        for (String symbol : symbols.keySet()) {
+            out.writeString(symbol);
+        }
+
+        List<PersistentAutomaton.StateData> states = new ArrayList<>(automaton.stateCount());
+        automaton.forEachState(states::add);
+        Map<String, Integer> stateIndex = new HashMap<>(states.size() * 2);
+        out.writeVarint(states.size());
+        for (PersistentAutomaton.StateData state : states) {
+            stateIndex.put(state.id(), stateIndex.size());
+            writeState(state.id(), state.label(), state.x(), state.y(), state.initial(), state.accepting(), out);
+        }
+
+        // Degré sortant de chaque état, puis transitions rangées par état source
+        int[] start = new int[states.size() + 1];
+        automaton.forEachTransition(t -> start[stateIndex.get(t.fromId()) + 1]++);
+        for (int i = 0; i < states.size(); i++) {
+            start[i + 1] += start[i];
+        }
+        PersistentAutomaton.TransitionData[] grouped = new PersistentAutomaton.TransitionData[automaton.transitionCount()];
+        int[] next = Arrays.copyOf(start, states.size());
+        automaton.forEachTransition(t -> grouped[next[stateIndex.get(t.fromId())]++] = t);
+        for (int i = 0; i < states.size(); i++) {
+            out.writeVarint(start[i + 1] - start[i]);
+            for (int j = start[i]; j < start[i + 1]; j++) {
+                out.writeVarint(stateIndex.get(grouped[j].toId()));
+                out.writeVarint(symbols.get(grouped[j].symbol()));
+                writeId(grouped[j].id(), out);
+            }
+        }
+    }
+
+    /**
+     * Lit un automate écrit par {@link #write}.
+     * Les tailles et indices sont vérifiés : une entrée tronquée ou forgée lève une
+     * {@link RuntimeException} au lieu d'allouer au-delà de sa propre taille.
+     */
+    public static Automaton read(BinaryReader in) {
+        Automaton automaton = new Automaton(in.readString());
+
+        String[] symbols = new String[in.readCount(MIN_SYMBOL_BYTES)];
+        for (int i = 0; i < symbols.length; i++) {
+            symbols[i] = in.readString().intern();
+        }
+
+        State[] states = new State[in.readCount(MIN_STATE_BYTES)];
+        for (int i = 0; i < states.length; i++) {
+            String id = readId(in);
+            int flags = in.readByte();
+            String label = (flags & FLAG_LABEL) != 0 ? in.readString() : null;
+            double x = in.readDouble();
+            double y = in.readDouble();
+            states[i] = new State(id, label, x, y,
+                    (flags & FLAG_INITIAL) != 0, (flags & FLAG_ACCEPTING) != 0);
+            automaton.addState(states[i]);
+        }
+
+        for (State from : states) {
+            int degree = in.readCount(MIN_TRANSITION_BYTES);
+            for (int j = 0; j < degree; j++) {
+                State to = states[readIndex(in, states.length)];
+                String symbol = symbols[readIndex(in, symbols.length)];
+                automaton.addTransition(new Transition(readId(in), from, to, symbol));
+            }
+        }
+        return automaton;
+    }
+
+    private static void writeState(String id, String label, double x, double y, boolean initial, boolean accepting,
+                                   BinaryWriter out) throws IOException {
+        writeId(id, out);
+        int flags = (initial ? FLAG_INITIAL : 0)
+                | (accepting ? FLAG_ACCEPTING : 0)
+                | (label != null ? FLAG_LABEL : 0);
+        out.writeByte(flags);
+        if (label != null) {
+            out.writeString(label);
+        }
+        out.writeDouble(x);
+        out.writeDouble(y);
+    }
+
+    private static void writeId(String id, BinaryWriter out) throws IOException {
+        long compact = Ids.decode(id);
+        if (compact >= 0 && compact <= Integer.MAX_VALUE) {
+            out.writeByte(ID_COMPACT);
+            out.writeVarint((int) compact);
+            return;
+        }
+        UUID uuid = asCanonicalUuid(id);
+        if (uuid != null) {
+            out.writeByte(ID_UUID);
+            out.writeLong(uuid.getMostSignificantBits());
+            out.writeLong(uuid.getLeastSignificantBits());
+        } else {
+            out.writeByte(ID_STRING);
+            out.writeString(id);
+        }
+    }
+
+    private static String readId(BinaryReader in) {
+        int tag = in.readByte();
+        if (tag == ID_UUID) {
+            return new UUID(in.readLong(), in.readLong()).toString();
+        }
+        if (tag == ID_COMPACT) {
+            int value = in.readVarint();
+            if (value < 0) {
+                throw new IllegalStateException("Identifiant compact invalide : " + value);
+            }
+            return Ids.encode(value);
+        }
+        if (tag == ID_STRING) {
+            return in.readString();
+        }
+        throw new IllegalStateException("Type d'identifiant inconnu : " + tag);
+    }
+
+    private static int readIndex(BinaryReader in, int size) {
+        int index = in.readVarint();
+        if (index < 0 || index >= size) {
+            throw new IllegalStateException("Indice hors table : " + index);
+        }
+        return index;
+    }
+
+    /**
+     * Retourne l'UUID si l'identifiant est exactement sa forme canonique (minuscules), sinon null.
+     */
+    private static UUID asCanonicalUuid(String id) {
+        if (id.length() != 36 || id.charAt(8) != '-' || id.charAt(13) != '-'
+                || id.charAt(18) != '-' || id.charAt(23) != '-') {
+            return null;
+        }
+        try {
+            UUID uuid = UUID.fromString(id);
+            return uuid.toString().equals(id) ? uuid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
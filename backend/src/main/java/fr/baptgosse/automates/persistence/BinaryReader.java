@@ -0,0 +1,81 @@
+package fr.baptgosse.automates.persistence;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Lecture des primitives du format binaire depuis un {@link ByteBuffer}
+ * (tableau en mémoire ou fichier projeté par mmap).
+ */
+public class BinaryReader {
+    private final ByteBuffer buffer;
+
+    public BinaryReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    public boolean hasRemaining() {
+        return buffer.hasRemaining();
+    }
+
+    public int remaining() {
+        return buffer.remaining();
+    }
+
+    /**
+     * Lit un nombre d'éléments et vérifie qu'il tient dans les octets restants,
+     * chaque élément en occupant au moins {@code minBytes} : une taille forgée
+     * ne peut pas provoquer une allocation démesurée.
+     */
+    public int readCount(int minBytes) {
+        int count = readVarint();
+        if (count < 0 || count > buffer.remaining() / minBytes) {
+            throw new IllegalStateException("Nombre d'éléments invalide : " + count);
+        }
+        return count;
+    }
+
+    public int readByte() {
+        return buffer.get() & 0xFF;
+    }
+
+    public byte[] readBytes(int length) {
+        if (length < 0 || length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    public int readVarint() {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Varint trop long");
+    }
+
+    public long readLong() {
+        return buffer.getLong();
+    }
+
+    public double readDouble() {
+        return Double.longBitsToDouble(buffer.getLong());
+    }
+
+    public String readString() {
+        int length = readVarint();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String value = StandardCharsets.UTF_8.decode(buffer.slice(buffer.position(), length)).toString();
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,88 @@
+package fr.baptgosse.automates.persistence;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Écriture tamponnée des primitives du format binaire : varints (LEB128), chaînes UTF-8
+ * préfixées par leur longueur, doubles IEEE 754 gros-boutistes.
+ */
+public class BinaryWriter {
+    private final OutputStream out;
+    private final byte[] buffer;
+    private int position;
+
+    public BinaryWriter(OutputStream out) {
+        this(out, 64 * 1024);
+    }
+
+    public BinaryWriter(OutputStream out, int bufferSize) {
+        this.out = out;
+        this.buffer = new byte[bufferSize];
+    }
+
+    public void writeByte(int value) throws IOException {
+        if (position == buffer.length) {
+            flushBuffer();
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    public void writeBytes(byte[] bytes) throws IOException {
+        if (bytes.length > buffer.length - position) {
+            flushBuffer();
+            if (bytes.length > buffer.length) {
+                out.write(bytes);
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    /**
+     * Entier non signé sur 1 à 5 octets (7 bits par octet).
+     */
+    public void writeVarint(int value) throws IOException {
+        if (buffer.length - position < 5) {
+            flushBuffer();
+        }
+        while ((value & ~0x7F) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    public void writeLong(long value) throws IOException {
+        if (buffer.length - position < 8) {
+            flushBuffer();
+        }
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[position++] = (byte) (value >>> shift);
+        }
+    }
+
+    public void writeDouble(double value) throws IOException {
+        writeLong(Double.doubleToRawLongBits(value));
+    }
+
+    public void writeString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(bytes.length);
+        writeBytes(bytes);
+    }
+
+    private void flushBuffer() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+}
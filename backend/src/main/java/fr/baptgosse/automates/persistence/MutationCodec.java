@@ -0,0 +1,97 @@
+package fr.baptgosse.automates.persistence;
+
+import fr.baptgosse.automates.model.Mutation;
+
+import java.io.IOException;
+
+/**
+ * Encodage binaire des mutations : un octet de type suivi des champs de l'opération.
+ */
+public class MutationCodec {
+
+    private static final int ADD_STATE = 1;
+    private static final int REMOVE_STATE = 2;
+    private static final int UPDATE_STATE = 3;
+    private static final int ADD_TRANSITION = 4;
+    private static final int REMOVE_TRANSITION = 5;
+    private static final int REPLACE_AUTOMATON = 6;
+    private static final int DELETE_AUTOMATON = 7;
+    private static final int FORK_SESSION = 8;
+    private static final int RENAME_STATE = 9;
+
+    public static void write(Mutation mutation, BinaryWriter out) throws IOException {
+        switch (mutation) {
+            case Mutation.AddState m -> {
+                out.writeByte(ADD_STATE);
+                out.writeString(m.stateId());
+                out.writeString(m.label());
+                out.writeDouble(m.x());
+                out.writeDouble(m.y());
+            }
+            case Mutation.RemoveState m -> {
+                out.writeByte(REMOVE_STATE);
+                out.writeString(m.stateId());
+            }
+            case Mutation.UpdateState m -> {
+                out.writeByte(UPDATE_STATE);
+                out.writeString(m.stateId());
+                out.writeDouble(m.x());
+                out.writeDouble(m.y());
+                writeOptionalBoolean(m.initial(), out);
+                writeOptionalBoolean(m.accepting(), out);
+            }
+            case Mutation.RenameState m -> {
+                out.writeByte(RENAME_STATE);
+                out.writeString(m.stateId());
+                out.writeString(m.label());
+            }
+            case Mutation.AddTransition m -> {
+                out.writeByte(ADD_TRANSITION);
+                out.writeString(m.transitionId());
+                out.writeString(m.fromId());
+                out.writeString(m.toId());
+                out.writeString(m.symbol() != null ? m.symbol() : "");
+            }
+            case Mutation.RemoveTransition m -> {
+                out.writeByte(REMOVE_TRANSITION);
+                out.writeString(m.transitionId());
+            }
+            case Mutation.ReplaceAutomaton m -> {
+                out.writeByte(REPLACE_AUTOMATON);
+                AutomatonBinaryCodec.write(m.automaton(), out);
+            }
+            case Mutation.DeleteAutomaton m -> out.writeByte(DELETE_AUTOMATON);
+            case Mutation.ForkSession m -> {
+                out.writeByte(FORK_SESSION);
+                out.writeString(m.sourceSessionId());
+            }
+        }
+    }
+
+    public static Mutation read(BinaryReader in) {
+        int type = in.readByte();
+        return switch (type) {
+            case ADD_STATE -> new Mutation.AddState(in.readString(), in.readString(), in.readDouble(), in.readDouble());
+            case REMOVE_STATE -> new Mutation.RemoveState(in.readString());
+            case UPDATE_STATE -> new Mutation.UpdateState(in.readString(), in.readDouble(), in.readDouble(),
+                    readOptionalBoolean(in), readOptionalBoolean(in));
+            case ADD_TRANSITION -> new Mutation.AddTransition(in.readString(), in.readString(), in.readString(), in.readString());
+            case REMOVE_TRANSITION -> new Mutation.RemoveTransition(in.readString());
+            case REPLACE_AUTOMATON -> new Mutation.ReplaceAutomaton(AutomatonBinaryCodec.read(in));
+            case DELETE_AUTOMATON -> new Mutation.DeleteAutomaton();
+            case FORK_SESSION -> new Mutation.ForkSession(in.readString());
+            case RENAME_STATE -> new Mutation.RenameState(in.readString(), in.readString());
+            default -> throw new IllegalStateException("Type de mutation inconnu: " + type);
+        };
+    }
+
+    // 0 = absent, 1 = false, 2 = true
+    private static void writeOptionalBoolean(Boolean value, BinaryWriter out) throws IOException {
+        out.writeByte(value == null ? 0 : value ? 2 : 1);
+    }
+
+    private static Boolean readOptionalBoolean(BinaryReader in) {
+        int value = in.readByte();
+        return value == 0 ? null : value == 2;
+    }
+}
@@ -0,0 +1,338 @@
+package fr.baptgosse.automates.persistence;
+
+import fr.baptgosse.automates.model.Mutation;
+import fr.baptgosse.automates.service.MutationListener;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Journal des mutations, en ajout seul, pour récupérer les modifications postérieures
+ * au dernier snapshot après un arrêt brutal.
+ *
+ * Les enregistrements sont encodés sur le thread appelant puis écrits par un thread dédié
+ * qui regroupe tout ce qui est en attente et ne fait qu'un fsync par lot : l'édition
+ * n'attend jamais le disque. Le journal est découpé en segments (journal-&lt;séquence&gt;.log) ;
+ * un nouveau segment est ouvert à chaque snapshot, et les segments entièrement couverts
+ * par un snapshot sont supprimés.
+ *
+ * Enregistrement : varint taille, [long séquence, string session, mutation], long CRC32.
+ */
+@Component
+public class MutationJournal implements MutationListener {
+
+    private static final Logger log = LoggerFactory.getLogger(MutationJournal.class);
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    @Value("${journal.enabled:${snapshots.enabled:true}}")
+    private boolean enabled = true;
+
+    @Value("${snapshots.directory:${user.home}/.automates/snapshots}")
+    private String directory;
+
+    /**
+     * Élément de la file d'écriture : un enregistrement encodé, ou une demande de rotation.
+     */
+    private record Pending(long sequence, byte[] bytes, CompletableFuture<Void> rotation) {}
+
+    private static final Pending STOP = new Pending(-1, null, null);
+
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    // Séquence maximale contenue dans chaque segment fermé (accès : thread d'écriture et compaction)
+    private final Map<Path, Long> closedSegments = Collections.synchronizedMap(new TreeMap<>());
+
+    private FileChannel channel;
+    private Path currentSegment;
+    private long currentMaxSequence;
+    private Thread writer;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Path dir = Path.of(directory);
+        Files.createDirectories(dir);
+
+        // Reprendre la numérotation après la dernière séquence présente sur disque
+        long last = 0;
+        for (Path segment : listSegments()) {
+            long[] max = {0};
+            readSegment(segment, (seq, sessionId, reader) -> max[0] = Math.max(max[0], seq));
+            if (max[0] == 0) {
+                Files.delete(segment); // segment vide : rien à rejouer
+                continue;
+            }
+            closedSegments.put(segment, max[0]);
+            last = Math.max(last, max[0]);
+        }
+        sequence.set(last);
+        openSegment();
+
+        running = true;
+        writer = new Thread(this::writeLoop, "mutation-journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Encode la mutation et la place dans la file d'écriture.
+     */
+    @Override
+    public void onMutation(String sessionId, long version, Mutation mutation) {
+        if (!running) {
+            return;
+        }
+        long seq = sequence.incrementAndGet();
+        try {
+            ByteArrayOutputStream payload = new ByteArrayOutputStream(64);
+            BinaryWriter out = new BinaryWriter(payload, 256);
+            out.writeLong(seq);
+            out.writeString(sessionId);
+            MutationCodec.write(mutation, out);
+            out.flush();
+            queue.add(new Pending(seq, frame(payload.toByteArray()), null));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Dernière séquence attribuée : toute mutation de séquence inférieure ou égale
+     * est déjà appliquée en mémoire.
+     */
+    public long currentSequence() {
+        return sequence.get();
+    }
+
+    /**
+     * Ferme le segment courant et en ouvre un nouveau, une fois les écritures en attente terminées.
+     */
+    public void rotate() {
+        if (!running) {
+            return;
+        }
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        queue.add(new Pending(0, null, done));
+        done.join();
+    }
+
+    /**
+     * Supprime les segments fermés dont toutes les mutations sont couvertes par un snapshot.
+     */
+    public void compact(long snapshotSequence) {
+        synchronized (closedSegments) {
+            Iterator<Map.Entry<Path, Long>> it = closedSegments.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Path, Long> segment = it.next();
+                if (segment.getValue() <= snapshotSequence) {
+                    try {
+                        Files.deleteIfExists(segment.getKey());
+                        it.remove();
+                    } catch (IOException e) {
+                        log.warn("Impossible de supprimer le segment {} : {}", segment.getKey(), e.toString());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Rejoue, dans l'ordre, les mutations de séquence strictement supérieure à {@code afterSequence}.
+     * Un enregistrement illisible est signalé et ignoré, sans interrompre la suite.
+     */
+    public void replay(long afterSequence, ReplayHandler handler) throws IOException {
+        for (Path segment : listSegments()) {
+            if (segment.equals(currentSegment)) {
+                continue;
+            }
+            readSegment(segment, (seq, sessionId, reader) -> {
+                if (seq <= afterSequence) {
+                    return;
+                }
+                Mutation mutation;
+                try {
+                    mutation = MutationCodec.read(reader);
+                } catch (RuntimeException e) {
+                    log.warn("Mutation {} illisible (session {}), ignorée : {}", seq, sessionId, e.toString());
+                    return;
+                }
+                handler.replay(seq, sessionId, mutation);
+            });
+        }
+    }
+
+    @FunctionalInterface
+    public interface ReplayHandler {
+        void replay(long sequence, String sessionId, Mutation mutation);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        queue.add(STOP);
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /**
+     * Boucle du thread d'écriture : un lot = tout ce qui est en attente, un seul fsync.
+     */
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>();
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            queue.drainTo(batch);
+            stopping = batch.remove(STOP);
+            try {
+                writeBatch(batch);
+            } catch (IOException e) {
+                log.error("Échec d'écriture du journal : {}", e.toString());
+                batch.stream()
+                        .filter(p -> p.rotation() != null)
+                        .forEach(p -> p.rotation().completeExceptionally(e));
+            }
+            batch.clear();
+        }
+        try {
+            channel.force(false);
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Fermeture du journal : {}", e.toString());
+        }
+    }
+
+    private void writeBatch(List<Pending> batch) throws IOException {
+        List<ByteBuffer> buffers = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            if (pending.rotation() != null) {
+                flush(buffers);
+                // Un segment vide est conservé comme segment courant
+                if (currentMaxSequence > 0) {
+                    closedSegments.put(currentSegment, currentMaxSequence);
+                    channel.close();
+                    openSegment();
+                }
+                pending.rotation().complete(null);
+                continue;
+            }
+            buffers.add(ByteBuffer.wrap(pending.bytes()));
+            currentMaxSequence = Math.max(currentMaxSequence, pending.sequence());
+        }
+        flush(buffers);
+    }
+
+    private void flush(List<ByteBuffer> buffers) throws IOException {
+        if (buffers.isEmpty()) {
+            return;
+        }
+        ByteBuffer[] array = buffers.toArray(new ByteBuffer[0]);
+        long remaining = 0;
+        for (ByteBuffer b : array) {
+            remaining += b.remaining();
+        }
+        while (remaining > 0) {
+            remaining -= channel.write(array);
+        }
+        channel.force(false);
+        buffers.clear();
+    }
+
+    private void openSegment() throws IOException {
+        currentSegment = Path.of(directory, String.format("%s%020d%s", SEGMENT_PREFIX, sequence.get() + 1, SEGMENT_SUFFIX));
+        channel = FileChannel.open(currentSegment, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        currentMaxSequence = 0;
+    }
+
+    private List<Path> listSegments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(Path.of(directory), SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            stream.forEach(segments::add);
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private static byte[] frame(byte[] payload) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteArrayOutputStream framed = new ByteArrayOutputStream(payload.length + 9);
+        BinaryWriter out = new BinaryWriter(framed, payload.length + 9);
+        out.writeVarint(payload.length);
+        out.writeBytes(payload);
+        out.writeLong(crc.getValue());
+        out.flush();
+        return framed.toByteArray();
+    }
+
+    @FunctionalInterface
+    private interface RecordVisitor {
+        void visit(long sequence, String sessionId, BinaryReader reader);
+    }
+
+    /**
+     * Parcourt les enregistrements valides d'un segment ; s'arrête au premier enregistrement
+     * tronqué ou corrompu (écriture interrompue par un arrêt brutal).
+     */
+    private static void readSegment(Path segment, RecordVisitor visitor) throws IOException {
+        try (FileChannel ch = FileChannel.open(segment, StandardOpenOption.READ)) {
+            if (ch.size() == 0) {
+                return;
+            }
+            MappedByteBuffer mapped = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            BinaryReader framing = new BinaryReader(mapped);
+            while (framing.hasRemaining()) {
+                byte[] payload;
+                long checksum;
+                try {
+                    payload = framing.readBytes(framing.readVarint());
+                    checksum = framing.readLong();
+                } catch (RuntimeException e) {
+                    log.warn("Fin de segment tronquée : {}", segment);
+                    return;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if (crc.getValue() != checksum) {
+                    log.warn("Enregistrement corrompu dans {}, lecture arrêtée", segment);
+                    return;
+                }
+                BinaryReader reader = new BinaryReader(ByteBuffer.wrap(payload));
+                visitor.visit(reader.readLong(), reader.readString(), reader);
+            }
+        }
+    }
+}
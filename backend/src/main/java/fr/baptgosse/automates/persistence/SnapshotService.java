@@ -0,0 +1,239 @@
+package fr.baptgosse.automates.persistence;
+
+import fr.baptgosse.automates.model.PersistentAutomaton;
+import fr.baptgosse.automates.service.AutomatonService;
+import fr.baptgosse.automates.service.Session;
+import fr.baptgosse.automates.service.SessionStore;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sauvegarde périodique (et à l'arrêt) de toutes les sessions dans un fichier binaire compact,
+ * rechargé au démarrage par projection mémoire, puis complété par le {@link MutationJournal}.
+ *
+ * Fichier : "AMSN", varint version, long horodatage, long séquence du journal couverte,
+ * varint nombre de sessions, puis pour chaque session : string ID, long séquence du journal
+ * couverte pour la session, varint taille, automate ({@link AutomatonBinaryCodec}).
+ *
+ * Chaque session est lue sous son verrou de lecture avec la dernière séquence attribuée :
+ * sa version et sa séquence sont cohérentes, et la récupération ne rejoue que ses mutations
+ * postérieures. Une session absente du snapshot reprend à la séquence globale.
+ */
+@Component
+public class SnapshotService {
+
+    private static final Logger log = LoggerFactory.getLogger(SnapshotService.class);
+
+    private static final byte[] MAGIC = "AMSN".getBytes(StandardCharsets.US_ASCII);
+    private static final int FORMAT_VERSION = 3;
+    private static final String FILE_NAME = "sessions.snap";
+
+    @Value("${snapshots.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${snapshots.directory:${user.home}/.automates/snapshots}")
+    private String directory;
+
+    @Autowired
+    private SessionStore sessionStore;
+
+    @Autowired
+    private AutomatonService automatonService;
+
+    @Autowired
+    private MutationJournal journal;
+
+    private long lastSnapshotChangeCount = -1;
+
+    /**
+     * Recharge les sessions du dernier snapshot au démarrage, puis rejoue le journal.
+     */
+    @PostConstruct
+    public void restore() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        Map<String, Long> sessionSequences = new HashMap<>();
+        long coveredSequence = restoreSnapshot(sessionSequences);
+        long[] replayed = {0, 0};
+        try {
+            journal.replay(coveredSequence, (sequence, sessionId, mutation) -> {
+                if (sequence <= sessionSequences.getOrDefault(sessionId, coveredSequence)) {
+                    return; // déjà contenue dans le snapshot de la session
+                }
+                try {
+                    automatonService.replay(sessionId, mutation);
+                    replayed[0]++;
+                } catch (RuntimeException e) {
+                    // Une mutation qui ne s'applique plus n'empêche pas de rejouer les suivantes
+                    replayed[1]++;
+                    log.warn("Mutation {} de la session {} ignorée : {}", sequence, sessionId, e.toString());
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Impossible de lire le journal : {}", e.toString());
+        }
+        if (replayed[0] > 0 || replayed[1] > 0) {
+            log.info("{} mutations rejouées depuis le journal, {} ignorées", replayed[0], replayed[1]);
+        }
+        lastSnapshotChangeCount = sessionStore.getChangeCount();
+        log.info("Récupération terminée en {} ms", (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Charge le snapshot par projection mémoire.
+     * @param sessionSequences reçoit la séquence du journal couverte pour chaque session restaurée
+     * @return la séquence du journal couverte par le snapshot (0 si aucun)
+     */
+    private long restoreSnapshot(Map<String, Long> sessionSequences) {
+        Path file = Path.of(directory, FILE_NAME);
+        if (!Files.isRegularFile(file)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            BinaryReader in = new BinaryReader(mapped);
+            int version = Arrays.equals(in.readBytes(MAGIC.length), MAGIC) ? in.readVarint() : -1;
+            if (version != FORMAT_VERSION) {
+                log.warn("Snapshot ignoré (format inconnu) : {}", file);
+                return 0;
+            }
+            in.readLong(); // horodatage
+            long coveredSequence = in.readLong();
+            int count = in.readVarint();
+            for (int i = 0; i < count; i++) {
+                String sessionId = in.readString();
+                long sequence = in.readLong();
+                in.readVarint(); // taille de l'automate encodé
+                sessionStore.put(sessionId, AutomatonBinaryCodec.read(in));
+                sessionSequences.put(sessionId, sequence);
+            }
+            log.info("{} sessions restaurées depuis {}", count, file);
+            return coveredSequence;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Impossible de relire le snapshot {} : {}", file, e.toString());
+            sessionSequences.clear();
+            return 0;
+        }
+    }
+
+    /**
+     * Écrit un snapshot si des sessions ont été ajoutées, supprimées ou modifiées depuis le précédent.
+     */
+    @Scheduled(fixedDelayString = "${snapshots.interval-ms:60000}", initialDelayString = "${snapshots.interval-ms:60000}")
+    public void snapshot() {
+        if (!enabled || sessionStore.getChangeCount() == lastSnapshotChangeCount) {
+            return;
+        }
+        try {
+            writeSnapshot();
+        } catch (IOException e) {
+            log.warn("Échec de l'écriture du snapshot : {}", e.toString());
+        }
+    }
+
+    @PreDestroy
+    public void snapshotOnShutdown() {
+        snapshot();
+    }
+
+    /**
+     * Écrit toutes les sessions dans un fichier temporaire puis le renomme atomiquement,
+     * et supprime les segments du journal désormais couverts.
+     */
+    public synchronized void writeSnapshot() throws IOException {
+        long changeCount = sessionStore.getChangeCount();
+        // Les mutations de séquence ≤ coveredSequence sont déjà appliquées en mémoire
+        journal.rotate();
+        long coveredSequence = journal.currentSequence();
+        List<Session> sessions = sessionStore.snapshot();
+
+        Path dir = Path.of(directory);
+        Files.createDirectories(dir);
+        Path tmp = dir.resolve(FILE_NAME + ".tmp");
+        try (OutputStream os = Files.newOutputStream(tmp)) {
+            BinaryWriter out = new BinaryWriter(os);
+            out.writeBytes(MAGIC);
+            out.writeVarint(FORMAT_VERSION);
+            out.writeLong(System.currentTimeMillis());
+            out.writeLong(coveredSequence);
+
+            List<Captured> captured = new ArrayList<>(sessions.size());
+            for (Session session : sessions) {
+                Captured capture = capture(session);
+                if (capture != null) {
+                    captured.add(capture);
+                }
+            }
+            out.writeVarint(captured.size());
+            for (Captured capture : captured) {
+                byte[] bytes = encode(capture.automaton());
+                out.writeString(capture.sessionId());
+                out.writeLong(capture.sequence());
+                out.writeVarint(bytes.length);
+                out.writeBytes(bytes);
+            }
+            out.flush();
+        }
+        Files.move(tmp, dir.resolve(FILE_NAME), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        lastSnapshotChangeCount = changeCount;
+        journal.compact(coveredSequence);
+    }
+
+    /**
+     * Version d'une session et dernière séquence du journal qu'elle contient.
+     */
+    private record Captured(String sessionId, long sequence, PersistentAutomaton automaton) {
+    }
+
+    /**
+     * Lit, sous le verrou de lecture de la session (aucune écriture en cours), sa version immuable
+     * et la dernière séquence attribuée : toutes ses mutations journalisées jusque-là y sont appliquées.
+     * @return null si la session a quitté le stockage entre-temps (sa suppression est journalisée)
+     */
+    private Captured capture(Session session) {
+        long stamp = session.getLock().readLock();
+        try {
+            if (!sessionStore.isStored(session)) {
+                return null;
+            }
+            return new Captured(session.getId(), journal.currentSequence(), session.getPersistent());
+        } finally {
+            session.getLock().unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Encode une version immuable, sans bloquer les écrivains de la session ni copier l'automate.
+     */
+    private byte[] encode(PersistentAutomaton automaton) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinaryWriter out = new BinaryWriter(bytes, 8 * 1024);
+        AutomatonBinaryCodec.write(automaton, out);
+        out.flush();
+        return bytes.toByteArray();
+    }
+}
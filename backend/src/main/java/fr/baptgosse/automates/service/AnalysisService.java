@@ -4,8 +4,17 @@ import fr.baptgosse.automates.dto.AutomatonInfo;
 import fr.baptgosse.automates.model.Automaton;
 import fr.baptgosse.automates.model.State;
 import fr.baptgosse.automates.util.RegexGenerator;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.*;
 import java.util.stream.Collectors;
 
 /**
@@ -15,10 +24,54 @@ import java.util.stream.Collectors;
 @Service
 public class AnalysisService {
 
+    private static final Logger log = LoggerFactory.getLogger(AnalysisService.class);
+
+    private static final int MAX_REGEX_RUNS = 1024;
+
+    // Un thread virtuel par analyse : les analyses indépendantes s'exécutent en parallèle
+    private final ExecutorService analysisExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Value("${analysis.timeout.default-ms:1000}")
+    private long defaultTimeoutMs = 1000;
+
+    @Value("${analysis.timeout.regex-ms:2000}")
+    private long regexTimeoutMs = 2000;
+
     /**
-     * Analyse un automate et retourne ses informations.
+     * Dernière génération d'expression régulière de chaque session (la plus ancienne est annulée au-delà
+     * de {@link #MAX_REGEX_RUNS}). Elle est partagée par les analyses de la même version : une génération
+     * qui dépasse son délai continue pour les requêtes suivantes au lieu d'être relancée.
      */
-    public AutomatonInfo analyze(Automaton automaton) {
+    private final Map<String, RegexRun> regexRuns = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, RegexRun> eldest) {
+            if (size() > MAX_REGEX_RUNS) {
+                eldest.getValue().future().cancel(true);
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private record RegexRun(long version, Future<String> future) {
+    }
+
+    /**
+     * Analyse une copie figée de l'automate d'une session et retourne ses informations.
+     * Les analyses coûteuses sont lancées simultanément, chacune avec son propre délai :
+     * une analyse trop lente est marquée "pending" au lieu de bloquer toute la réponse.
+     */
+    public AutomatonInfo analyze(String sessionId, AutomatonSnapshot snapshot) {
+        long start = System.nanoTime();
+        Automaton automaton = snapshot.automaton();
+
+        Future<String> regexTask = regex(sessionId, snapshot);
+        Future<String> languageTask = analysisExecutor.submit(() -> generateLanguageDescription(automaton));
+        Future<Set<String>> acceptingTask = analysisExecutor.submit(() -> automaton.getAcceptingStates().stream()
+                .map(State::getLabel)
+                .collect(Collectors.toSet()));
+
+        // Lectures O(1) des compteurs incrémentaux : inutile de les déporter
         boolean isDeterministic = isDeterministic(automaton);
         boolean isComplete = isComplete(automaton);
 
@@ -28,14 +81,12 @@ public class AnalysisService {
                 .map(State::getLabel)
                 .orElse(null);
 
-        var acceptingStates = automaton.getAcceptingStates().stream()
-                .map(State::getLabel)
-                .collect(Collectors.toSet());
-
-        String regex = RegexGenerator.generateRegex(automaton);
-        String languageDesc = generateLanguageDescription(automaton);
+        Set<String> pending = new TreeSet<>();
+        Set<String> acceptingStates = await("acceptingStates", acceptingTask, start, defaultTimeoutMs, true, pending);
+        String regex = await("regex", regexTask, start, regexTimeoutMs, false, pending);
+        String languageDesc = await("languageDescription", languageTask, start, defaultTimeoutMs, true, pending);
 
-        return new AutomatonInfo(
+        AutomatonInfo info = new AutomatonInfo(
                 automaton.getName(),
                 type,
                 isDeterministic,
@@ -48,70 +99,95 @@ public class AnalysisService {
                 regex,
                 languageDesc
         );
+        info.setPending(pending);
+        return info;
     }
 
     /**
-     * Vérifie si l'automate est déterministe.
-     * Logique extraite de AutomatonInfoPanel.java lignes 186-220
+     * Génération d'expression régulière pour cette version : celle en cours (ou terminée) si elle existe,
+     * sinon une nouvelle, qui interrompt celle d'une version précédente de la session.
      */
-    public boolean isDeterministic(Automaton automaton) {
-        if (automaton.getStates().isEmpty()) {
-            return true;
-        }
-
-        // Vérifier qu'il n'y a qu'un seul état initial
-        long initialCount = automaton.getStates().stream()
-                .filter(State::isInitial)
-                .count();
-        if (initialCount != 1) {
-            return false;
+    private Future<String> regex(String sessionId, AutomatonSnapshot snapshot) {
+        synchronized (regexRuns) {
+            RegexRun run = regexRuns.get(sessionId);
+            if (run != null && run.version() == snapshot.version()
+                    && run.future().state() != Future.State.FAILED && run.future().state() != Future.State.CANCELLED) {
+                return run.future();
+            }
+            if (run != null) {
+                run.future().cancel(true);
+            }
+            Future<String> future = analysisExecutor.submit(() -> RegexGenerator.generateRegex(snapshot.automaton()));
+            regexRuns.put(sessionId, new RegexRun(snapshot.version(), future));
+            return future;
         }
+    }
 
-        // Vérifier qu'il n'y a pas d'ε-transitions
-        boolean hasEpsilon = automaton.getTransitions().stream()
-                .anyMatch(t -> t.isEpsilon());
-        if (hasEpsilon) {
-            return false;
+    /**
+     * Attend le résultat d'une analyse jusqu'à son échéance (mesurée depuis le début de l'analyse).
+     * En cas de dépassement, son nom est ajouté à {@code pending} et {@code null} est retourné ;
+     * l'analyse est annulée si {@code cancelOnTimeout}, sinon elle continue pour les requêtes suivantes.
+     * Une analyse annulée ou en échec est aussi signalée dans {@code pending} (elle sera relancée).
+     */
+    private <T> T await(String name, Future<T> task, long startNanos, long timeoutMs, boolean cancelOnTimeout,
+                        Set<String> pending) {
+        long remaining = startNanos + TimeUnit.MILLISECONDS.toNanos(timeoutMs) - System.nanoTime();
+        try {
+            return task.get(Math.max(remaining, 0), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            if (cancelOnTimeout) {
+                task.cancel(true);
+            }
+            pending.add(name);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (cancelOnTimeout) {
+                task.cancel(true);
+            }
+            pending.add(name);
+            return null;
+        } catch (CancellationException e) {
+            pending.add(name);
+            return null;
+        } catch (ExecutionException e) {
+            log.warn("Échec de l'analyse {} : {}", name, e.getCause().toString());
+            pending.add(name);
+            return null;
         }
+    }
 
-        // Vérifier qu'il n'y a pas deux transitions avec le même symbole depuis un état
-        for (State state : automaton.getStates()) {
-            var transitionsFromState = automaton.getTransitionsFrom(state);
-            long distinctSymbols = transitionsFromState.stream()
-                    .map(t -> t.getSymbol())
-                    .distinct()
-                    .count();
+    @PreDestroy
+    public void shutdown() {
+        analysisExecutor.shutdownNow();
+    }
 
-            if (distinctSymbols != transitionsFromState.size()) {
-                return false;
-            }
+    /**
+     * Vérifie si l'automate est déterministe.
+     * Lecture en O(1) des compteurs maintenus par l'automate à chaque mutation.
+     */
+    public boolean isDeterministic(Automaton automaton) {
+        if (automaton.getStates().isEmpty()) {
+            return true;
         }
 
-        return true;
+        // Un seul état initial, pas d'ε-transitions, au plus une cible par couple (état, symbole)
+        return automaton.getInitialStatesCount() == 1
+                && automaton.getEpsilonTransitionsCount() == 0
+                && automaton.getNondeterministicPairsCount() == 0;
     }
 
     /**
      * Vérifie si l'automate est complet.
-     * Logique extraite de AutomatonInfoPanel.java lignes 225-243
+     * Lecture en O(1) des compteurs maintenus par l'automate à chaque mutation.
      */
     public boolean isComplete(Automaton automaton) {
         if (!isDeterministic(automaton) || automaton.getAlphabet().isEmpty()) {
             return false;
         }
 
-        // Pour chaque état, vérifier qu'il y a une transition pour chaque symbole
-        for (State state : automaton.getStates()) {
-            var transitionsFromState = automaton.getTransitionsFrom(state);
-            var symbolsFromState = transitionsFromState.stream()
-                    .map(t -> t.getSymbol())
-                    .collect(Collectors.toSet());
-
-            if (!symbolsFromState.containsAll(automaton.getAlphabet())) {
-                return false;
-            }
-        }
-
-        return true;
+        // Chaque état doit avoir une transition pour chaque symbole
+        return automaton.getMissingPairsCount() == 0;
     }
 
     /**
@@ -1,24 +1,78 @@
 package fr.baptgosse.automates.service;
 
+import fr.baptgosse.automates.amdl.AMDLIncrementalDocument;
+import fr.baptgosse.automates.dto.AmdlEdit;
+import fr.baptgosse.automates.dto.AmdlEditResult;
+import fr.baptgosse.automates.dto.EditBatchResult;
+import fr.baptgosse.automates.dto.EditOperation;
+import fr.baptgosse.automates.dto.HistoryInfo;
 import fr.baptgosse.automates.model.Automaton;
+import fr.baptgosse.automates.model.Mutation;
+import fr.baptgosse.automates.model.PersistentAutomaton;
 import fr.baptgosse.automates.model.State;
 import fr.baptgosse.automates.model.Transition;
+import fr.baptgosse.automates.util.IdSequence;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 /**
  * Service de gestion des automates.
  * Gère les sessions en mémoire.
+ *
+ * Toute modification est exprimée sous forme de {@link Mutation}, appliquée sous le verrou
+ * de la session puis transmise aux {@link MutationListener} (journal, etc.).
+ * Chaque modification de l'utilisateur conserve la version précédente dans l'historique
+ * de la session ; annuler et rétablir rejouent la différence entre versions sous forme de mutations.
  */
 @Service
 public class AutomatonService {
 
-    // Stockage en mémoire des automates par ID de session
-    private final Map<String, Automaton> sessions = new ConcurrentHashMap<>();
+    // Mémoire propre estimée d'une version conservée par mutation élémentaire (chemins recopiés)
+    private static final long STEP_BYTES = 512;
+
+    // Stockage borné des automates par ID de session
+    @Autowired
+    private SessionStore sessions;
+
+    @Autowired
+    private List<MutationListener> listeners;
+
+    // Limites de l'historique d'annulation, par session
+    @Value("${history.max-entries:1000}")
+    private int historyMaxEntries = 1000;
+
+    @Value("${history.max-memory-mb:16}")
+    private long historyMaxMemoryMb = 16;
+
+    @PostConstruct
+    public void start() {
+        sessions.setEvictionListener(this::onEvicted);
+    }
+
+    /**
+     * Une session évincée (inactivité, nombre ou mémoire) est transmise comme une suppression :
+     * sans cela, la récupération rejouerait ses mutations journalisées et la ferait réapparaître.
+     * Sans verrou de session : l'éviction peut survenir pendant une écriture (ou une copie) qui le détient.
+     * Une mutation journalisée ensuite est ignorée à la récupération, sauf un remplacement, qui recrée
+     * aussi la session en mémoire.
+     */
+    private void onEvicted(Session session) {
+        notifyListeners(session.getId(), session.nextVersion(), new Mutation.DeleteAutomaton());
+    }
 
     /**
      * Crée un nouvel automate.
@@ -26,145 +80,695 @@ public class AutomatonService {
      * @return ID de session de l'automate créé
      */
     public String createAutomaton(String name) {
+        return createAutomaton(new Automaton(name != null ? name : "Mon Automate"));
+    }
+
+    /**
+     * Enregistre un automate existant dans une nouvelle session.
+     * @return ID de session de l'automate
+     */
+    public String createAutomaton(Automaton automaton) {
         String sessionId = UUID.randomUUID().toString();
-        Automaton automaton = new Automaton(name != null ? name : "Mon Automate");
-        sessions.put(sessionId, automaton);
+        replace(sessionId, automaton, null);
         return sessionId;
     }
 
     /**
-     * Récupère un automate par son ID de session.
+     * Récupère une copie cohérente (en lecture seule) d'un automate par son ID de session.
      */
     public Optional<Automaton> getAutomaton(String sessionId) {
-        return Optional.ofNullable(sessions.get(sessionId));
+        return sessions.get(sessionId).map(session -> session.snapshot().automaton());
+    }
+
+    /**
+     * Récupère une session (automate et version).
+     */
+    public Optional<Session> getSession(String sessionId) {
+        return sessions.get(sessionId);
     }
 
     /**
      * Met à jour un automate complet.
      */
     public void updateAutomaton(String sessionId, Automaton automaton) {
-        sessions.put(sessionId, automaton);
+        updateAutomaton(sessionId, automaton, null);
+    }
+
+    /**
+     * Met à jour un automate complet si sa version courante est celle attendue.
+     * @param expectedVersion version attendue, ou null pour une mise à jour inconditionnelle
+     * @return la nouvelle version
+     * @throws VersionConflictException si la version courante diffère
+     */
+    public long updateAutomaton(String sessionId, Automaton automaton, Long expectedVersion) {
+        // Les ensembles ont été remplis par Jackson : reconstruire l'index
+        automaton.reindex();
+        return replace(sessionId, automaton, expectedVersion);
     }
 
     /**
      * Supprime un automate.
      */
     public void deleteAutomaton(String sessionId) {
-        sessions.remove(sessionId);
+        Session session = sessions.get(sessionId).orElse(null);
+        if (session == null) {
+            return;
+        }
+        long stamp = session.getLock().writeLock();
+        try {
+            sessions.remove(sessionId);
+            notifyListeners(sessionId, session.nextVersion(), new Mutation.DeleteAutomaton());
+        } finally {
+            session.getLock().unlockWrite(stamp);
+        }
     }
 
     /**
      * Ajoute un état à un automate.
      */
-    public State addState(String sessionId, double x, double y) {
-        Automaton automaton = sessions.get(sessionId);
-        if (automaton == null) {
-            throw new IllegalArgumentException("Automate non trouvé: " + sessionId);
+    public Versioned<State> addState(String sessionId, double x, double y, Long expectedVersion) {
+        Session session = requireSession(sessionId);
+        long stamp = session.getLock().writeLock();
+        try {
+            checkVersion(session, expectedVersion);
+            String label = session.getPersistent().generateStateLabel();
+            String stateId = session.getIds().next();
+            checkpoint(session, 1);
+            long version = apply(session, new Mutation.AddState(stateId, label, x, y));
+            return new Versioned<>(session.getPersistent().findState(stateId).toState(), version);
+        } finally {
+            session.getLock().unlockWrite(stamp);
         }
-
-        String label = automaton.generateStateLabel();
-        State state = new State(label, x, y);
-        automaton.addState(state);
-        return state;
     }
 
     /**
      * Supprime un état.
      */
-    public void removeState(String sessionId, String stateId) {
-        Automaton automaton = sessions.get(sessionId);
-        if (automaton == null) {
-            throw new IllegalArgumentException("Automate non trouvé: " + sessionId);
+    public long removeState(String sessionId, String stateId, Long expectedVersion) {
+        Session session = requireSession(sessionId);
+        long stamp = session.getLock().writeLock();
+        try {
+            checkVersion(session, expectedVersion);
+            if (session.getPersistent().findState(stateId) != null) {
+                checkpoint(session, 1);
+                return apply(session, new Mutation.RemoveState(stateId));
+            }
+            return session.getVersion();
+        } finally {
+            session.getLock().unlockWrite(stamp);
         }
+    }
 
-        State state = findStateById(automaton, stateId);
-        if (state != null) {
-            automaton.removeState(state);
+    /**
+     * Met à jour un état (position, propriétés).
+     */
+    public long updateState(String sessionId, String stateId, double x, double y,
+                            Boolean initial, Boolean accepting, Long expectedVersion) {
+        Session session = requireSession(sessionId);
+        long stamp = session.getLock().writeLock();
+        try {
+            checkVersion(session, expectedVersion);
+            if (session.getPersistent().findState(stateId) == null) {
+                throw new IllegalArgumentException("État non trouvé: " + stateId);
+            }
+            checkpoint(session, 1);
+            return apply(session, new Mutation.UpdateState(stateId, x, y, initial, accepting));
+        } finally {
+            session.getLock().unlockWrite(stamp);
         }
     }
 
     /**
-     * Met à jour un état (position, propriétés).
+     * Ajoute une transition.
      */
-    public void updateState(String sessionId, String stateId, double x, double y,
-                           Boolean initial, Boolean accepting) {
-        Automaton automaton = sessions.get(sessionId);
-        if (automaton == null) {
-            throw new IllegalArgumentException("Automate non trouvé: " + sessionId);
+    public Versioned<Transition> addTransition(String sessionId, String fromId, String toId, String symbol,
+                                               Long expectedVersion) {
+        Session session = requireSession(sessionId);
+        long stamp = session.getLock().writeLock();
+        try {
+            checkVersion(session, expectedVersion);
+            PersistentAutomaton automaton = session.getPersistent();
+            if (automaton.findState(fromId) == null || automaton.findState(toId) == null) {
+                throw new IllegalArgumentException("État source ou cible non trouvé");
+            }
+            String transitionId = session.getIds().next();
+            checkpoint(session, 1);
+            long version = apply(session,
+                    new Mutation.AddTransition(transitionId, fromId, toId, symbol != null ? symbol : ""));
+            automaton = session.getPersistent();
+            return new Versioned<>(automaton.toTransition(automaton.findTransition(transitionId)), version);
+        } finally {
+            session.getLock().unlockWrite(stamp);
         }
+    }
 
-        State state = findStateById(automaton, stateId);
-        if (state == null) {
-            throw new IllegalArgumentException("État non trouvé: " + stateId);
+    /**
+     * Supprime une transition.
+     */
+    public long removeTransition(String sessionId, String transitionId, Long expectedVersion) {
+        Session session = requireSession(sessionId);
+        long stamp = session.getLock().writeLock();
+        try {
+            checkVersion(session, expectedVersion);
+            if (session.getPersistent().findTransition(transitionId) != null) {
+                checkpoint(session, 1);
+                return apply(session, new Mutation.RemoveTransition(transitionId));
+            }
+            return session.getVersion();
+        } finally {
+            session.getLock().unlockWrite(stamp);
         }
+    }
+
+    /**
+     * Applique un lot ordonné d'opérations d'édition de manière atomique, sous un seul verrou.
+     * Le lot est d'abord entièrement validé (en tenant compte des effets des opérations précédentes
+     * du lot), puis appliqué : en cas d'erreur, l'automate n'est pas modifié.
+     * Les identifiants temporaires du client (tempId) sont remplacés par des identifiants serveur.
+     *
+     * @throws IllegalArgumentException si une opération est invalide (son indice est indiqué)
+     */
+    public Versioned<EditBatchResult> applyBatch(String sessionId, List<EditOperation> operations,
+                                                 Long expectedVersion) {
+        Session session = requireSession(sessionId);
+        long stamp = session.getLock().writeLock();
+        try {
+            checkVersion(session, expectedVersion);
+            BatchPlan plan = new BatchPlan(session.getPersistent(), session.getIds());
+            for (int i = 0; i < operations.size(); i++) {
+                try {
+                    plan.add(operations.get(i));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Opération " + i + " : " + e.getMessage());
+                }
+            }
 
-        state.setX(x);
-        state.setY(y);
-        if (initial != null) {
-            // Si on définit cet état comme initial, retirer les autres
-            if (initial) {
-                automaton.getStates().forEach(s -> s.setInitial(false));
+            // Un lot s'annule en une seule fois
+            int changes = (int) plan.mutations.stream().filter(Objects::nonNull).count();
+            if (changes > 0) {
+                checkpoint(session, changes);
+            }
+            for (Mutation mutation : plan.mutations) {
+                if (mutation != null) {
+                    apply(session, mutation);
+                }
+            }
+            // Éléments créés, tels qu'à la fin du lot (null s'ils ont été supprimés par une opération suivante)
+            PersistentAutomaton automaton = session.getPersistent();
+            List<Object> results = new ArrayList<>(operations.size());
+            for (Mutation mutation : plan.mutations) {
+                results.add(switch (mutation) {
+                    case Mutation.AddState m -> {
+                        PersistentAutomaton.StateData state = automaton.findState(m.stateId());
+                        yield state != null ? state.toState() : null;
+                    }
+                    case Mutation.AddTransition m -> {
+                        PersistentAutomaton.TransitionData transition = automaton.findTransition(m.transitionId());
+                        yield transition != null ? automaton.toTransition(transition) : null;
+                    }
+                    case null, default -> null; // suppression d'un élément déjà absent, ou modification
+                });
             }
-            state.setInitial(initial);
+            return new Versioned<>(new EditBatchResult(plan.ids, results), session.getVersion());
+        } finally {
+            session.getLock().unlockWrite(stamp);
         }
-        if (accepting != null) {
-            state.setAccepting(accepting);
+    }
+
+    /**
+     * Déplace des états en une seule modification annulable (disposition automatique).
+     * Les états supprimés entre-temps et ceux déjà en place sont ignorés.
+     * @return la nouvelle version
+     */
+    public long moveStates(String sessionId, String[] stateIds, double[] x, double[] y) {
+        Session session = requireSession(sessionId);
+        long stamp = session.getLock().writeLock();
+        try {
+            PersistentAutomaton automaton = session.getPersistent();
+            List<Mutation> moves = new ArrayList<>();
+            for (int i = 0; i < stateIds.length; i++) {
+                PersistentAutomaton.StateData state = automaton.findState(stateIds[i]);
+                if (state != null && (state.x() != x[i] || state.y() != y[i])) {
+                    moves.add(new Mutation.UpdateState(stateIds[i], x[i], y[i], null, null));
+                }
+            }
+            if (!moves.isEmpty()) {
+                checkpoint(session, moves.size());
+                moves.forEach(move -> apply(session, move));
+            }
+            return session.getVersion();
+        } finally {
+            session.getLock().unlockWrite(stamp);
         }
     }
 
     /**
-     * Ajoute une transition.
+     * Validation d'un lot : traduit chaque opération en {@link Mutation} (null pour une suppression
+     * sans effet) en simulant l'existence des états et transitions ajoutés ou supprimés
+     * par les opérations précédentes.
      */
-    public Transition addTransition(String sessionId, String fromId, String toId, String symbol) {
-        Automaton automaton = sessions.get(sessionId);
-        if (automaton == null) {
-            throw new IllegalArgumentException("Automate non trouvé: " + sessionId);
+    private static class BatchPlan {
+        private final PersistentAutomaton automaton;
+        private final IdSequence idSequence;
+        private final List<Mutation> mutations = new ArrayList<>();
+        private final Map<String, String> ids = new LinkedHashMap<>();
+
+        private final Set<String> addedStates = new HashSet<>();
+        private final Map<String, double[]> positions = new HashMap<>();
+        private final Set<String> removedStates = new HashSet<>();
+        private final Map<String, String[]> addedTransitions = new HashMap<>(); // id → {from, to}
+        private final Set<String> removedTransitions = new HashSet<>();
+
+        // Labels déjà pris, calculés une seule fois pour tout le lot
+        private Set<String> usedLabels;
+        private int labelCounter;
+
+        BatchPlan(PersistentAutomaton automaton, IdSequence idSequence) {
+            this.automaton = automaton;
+            this.idSequence = idSequence;
+        }
+
+        void add(EditOperation op) {
+            if (op.getOp() == null) {
+                throw new IllegalArgumentException("type d'opération manquant");
+            }
+            switch (op.getOp()) {
+                case "addState" -> {
+                    String stateId = newId(op.getTempId());
+                    double x = op.getX() != null ? op.getX() : 100.0;
+                    double y = op.getY() != null ? op.getY() : 100.0;
+                    String label = op.getLabel() != null ? op.getLabel() : nextLabel();
+                    labels().add(label);
+                    addedStates.add(stateId);
+                    positions.put(stateId, new double[]{x, y});
+                    mutations.add(new Mutation.AddState(stateId, label, x, y));
+                }
+                case "removeState" -> {
+                    String stateId = resolve(op.getStateId());
+                    if (stateExists(stateId)) {
+                        addedStates.remove(stateId);
+                        removedStates.add(stateId);
+                        mutations.add(new Mutation.RemoveState(stateId));
+                    } else {
+                        mutations.add(null);
+                    }
+                }
+                case "updateState" -> {
+                    String stateId = requireState(op.getStateId());
+                    double[] position = position(stateId);
+                    double x = op.getX() != null ? op.getX() : position[0];
+                    double y = op.getY() != null ? op.getY() : position[1];
+                    position[0] = x;
+                    position[1] = y;
+                    mutations.add(new Mutation.UpdateState(stateId, x, y, op.getInitial(), op.getAccepting()));
+                }
+                case "addTransition" -> {
+                    String fromId = requireState(op.getFromId());
+                    String toId = requireState(op.getToId());
+                    String transitionId = newId(op.getTempId());
+                    addedTransitions.put(transitionId, new String[]{fromId, toId});
+                    mutations.add(new Mutation.AddTransition(transitionId, fromId, toId,
+                            op.getSymbol() != null ? op.getSymbol() : ""));
+                }
+                case "removeTransition" -> {
+                    String transitionId = resolve(op.getTransitionId());
+                    if (transitionExists(transitionId)) {
+                        addedTransitions.remove(transitionId);
+                        removedTransitions.add(transitionId);
+                        mutations.add(new Mutation.RemoveTransition(transitionId));
+                    } else {
+                        mutations.add(null);
+                    }
+                }
+                default -> throw new IllegalArgumentException("type d'opération inconnu: " + op.getOp());
+            }
+        }
+
+        private String newId(String tempId) {
+            String id = idSequence.next();
+            if (tempId != null) {
+                // Les identifiants serveur sont courts : un tempId ne doit pas masquer un élément existant
+                if (automaton.findState(tempId) != null || automaton.findTransition(tempId) != null) {
+                    throw new IllegalArgumentException("tempId déjà utilisé par un élément: " + tempId);
+                }
+                if (ids.putIfAbsent(tempId, id) != null) {
+                    throw new IllegalArgumentException("tempId en double: " + tempId);
+                }
+            }
+            return id;
         }
 
-        State from = findStateById(automaton, fromId);
-        State to = findStateById(automaton, toId);
+        private String resolve(String id) {
+            if (id == null) {
+                throw new IllegalArgumentException("identifiant manquant");
+            }
+            return ids.getOrDefault(id, id);
+        }
 
-        if (from == null || to == null) {
-            throw new IllegalArgumentException("État source ou cible non trouvé");
+        private String requireState(String id) {
+            String stateId = resolve(id);
+            if (!stateExists(stateId)) {
+                throw new IllegalArgumentException("État non trouvé: " + id);
+            }
+            return stateId;
         }
 
-        Transition transition = new Transition(from, to, symbol);
-        automaton.addTransition(transition);
-        return transition;
+        private boolean stateExists(String stateId) {
+            return addedStates.contains(stateId)
+                    || (!removedStates.contains(stateId) && automaton.findState(stateId) != null);
+        }
+
+        private boolean transitionExists(String transitionId) {
+            String[] added = addedTransitions.get(transitionId);
+            if (added != null) {
+                return !removedStates.contains(added[0]) && !removedStates.contains(added[1]);
+            }
+            if (removedTransitions.contains(transitionId)) {
+                return false;
+            }
+            PersistentAutomaton.TransitionData t = automaton.findTransition(transitionId);
+            return t != null && !removedStates.contains(t.fromId()) && !removedStates.contains(t.toId());
+        }
+
+        private double[] position(String stateId) {
+            return positions.computeIfAbsent(stateId, id -> {
+                PersistentAutomaton.StateData state = automaton.findState(id);
+                return new double[]{state.x(), state.y()};
+            });
+        }
+
+        private Set<String> labels() {
+            if (usedLabels == null) {
+                usedLabels = new HashSet<>();
+                automaton.forEachState(s -> usedLabels.add(s.label()));
+            }
+            return usedLabels;
+        }
+
+        private String nextLabel() {
+            Set<String> used = labels();
+            while (used.contains("q" + labelCounter)) {
+                labelCounter++;
+            }
+            return "q" + labelCounter;
+        }
     }
 
     /**
-     * Supprime une transition.
+     * Applique des modifications du texte AMDL de la session, dans l'ordre, en une seule étape
+     * d'annulation. Seules les instructions touchées sont ré-analysées ; l'automate reçoit les
+     * mutations minimales qui le mettent en accord avec le texte.
+     *
+     * Le texte de référence est celui des modifications précédentes si la session n'a pas changé
+     * depuis, sinon celui de l'export AMDL ({@code GET /{sessionId}/amdl}) de la version courante.
+     * @throws IllegalArgumentException si une plage de lignes est invalide (rien n'est modifié)
+     */
+    public Versioned<AmdlEditResult> editAmdl(String sessionId, List<AmdlEdit> edits, Long expectedVersion) {
+        return editAmdl(sessionId, expectedVersion, document -> edits);
+    }
+
+    /**
+     * Remplace tout le texte AMDL de la session : l'automate ne reçoit que la différence.
+     */
+    public Versioned<AmdlEditResult> replaceAmdl(String sessionId, String source, Long expectedVersion) {
+        return editAmdl(sessionId, expectedVersion,
+                document -> List.of(new AmdlEdit(1, document.getLineCount(), List.of(source))));
+    }
+
+    private Versioned<AmdlEditResult> editAmdl(String sessionId, Long expectedVersion,
+                                               Function<AMDLIncrementalDocument, List<AmdlEdit>> changes) {
+        Session session = requireSession(sessionId);
+        long stamp = session.getLock().writeLock();
+        try {
+            checkVersion(session, expectedVersion);
+            AMDLIncrementalDocument document = session.getAmdlDocument();
+            if (document == null || document.getVersion() != session.getVersion()) {
+                document = AMDLIncrementalDocument.of(session.snapshot().automaton());
+                document.setVersion(session.getVersion());
+                session.setAmdlDocument(document);
+            }
+            List<AmdlEdit> edits = changes.apply(document);
+            // Plages vérifiées avant de toucher au document
+            int lineCount = document.getLineCount();
+            for (int i = 0; i < edits.size(); i++) {
+                AmdlEdit edit = edits.get(i);
+                try {
+                    AMDLIncrementalDocument.checkRange(edit.getStartLine(), edit.getEndLine(), lineCount);
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Modification " + i + " : " + e.getMessage());
+                }
+                lineCount += AMDLIncrementalDocument.countLines(edit.getLines())
+                        - (edit.getEndLine() - edit.getStartLine() + 1);
+            }
+
+            // Chaque modification est comparée à l'automate résultant des précédentes
+            List<Mutation> mutations = new ArrayList<>();
+            PersistentAutomaton target = session.getPersistent();
+            try {
+                for (AmdlEdit edit : edits) {
+                    for (Mutation mutation : document.edit(edit.getStartLine(), edit.getEndLine(),
+                            edit.getLines(), target, session.getIds())) {
+                        target = target.apply(mutation);
+                        mutations.add(mutation);
+                    }
+                }
+            } catch (RuntimeException e) {
+                // Document désynchronisé : reconstruit à la prochaine modification
+                session.setAmdlDocument(null);
+                throw e;
+            }
+
+            if (!mutations.isEmpty()) {
+                checkpoint(session, mutations.size());
+                for (Mutation mutation : mutations) {
+                    apply(session, mutation);
+                }
+            }
+            document.setVersion(session.getVersion());
+            List<Map<String, Object>> operations = new ArrayList<>(mutations.size());
+            for (Mutation mutation : mutations) {
+                operations.add(SessionEventService.describe(mutation));
+            }
+            return new Versioned<>(new AmdlEditResult(operations, document.getErrors(), document.getLineCount()),
+                    session.getVersion());
+        } finally {
+            session.getLock().unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Annule la dernière modification de l'utilisateur.
+     * @return la nouvelle version (la version rétablie reçoit un nouveau numéro)
+     * @throws IllegalStateException s'il n'y a rien à annuler
+     */
+    public long undo(String sessionId, Long expectedVersion) {
+        return travel(sessionId, expectedVersion, true);
+    }
+
+    /**
+     * Rétablit la dernière modification annulée.
+     * @return la nouvelle version
+     * @throws IllegalStateException s'il n'y a rien à rétablir
      */
-    public void removeTransition(String sessionId, String transitionId) {
-        Automaton automaton = sessions.get(sessionId);
-        if (automaton == null) {
-            throw new IllegalArgumentException("Automate non trouvé: " + sessionId);
+    public long redo(String sessionId, Long expectedVersion) {
+        return travel(sessionId, expectedVersion, false);
+    }
+
+    private long travel(String sessionId, Long expectedVersion, boolean backward) {
+        Session session = requireSession(sessionId);
+        long stamp = session.getLock().writeLock();
+        try {
+            checkVersion(session, expectedVersion);
+            UndoHistory history = session.getHistory();
+            UndoHistory.Entry target = backward ? history.popUndo() : history.popRedo();
+            if (target == null) {
+                throw new IllegalStateException(backward ? "Rien à annuler" : "Rien à rétablir");
+            }
+            UndoHistory.Entry current = new UndoHistory.Entry(session.getVersion(), session.getPersistent(),
+                    target.bytes());
+            if (backward) {
+                history.pushRedo(current, historyMaxEntries, historyMaxBytes());
+            } else {
+                history.pushUndo(current, historyMaxEntries, historyMaxBytes());
+            }
+
+            // Différence calculée sur les seules parties non partagées des deux versions
+            List<Mutation> mutations = current.automaton().diffTo(target.automaton());
+            if (mutations == null) {
+                sessions.put(sessionId, target.automaton());
+                notifyListeners(sessionId, session.getVersion(), new Mutation.ReplaceAutomaton(session.snapshot().automaton()));
+                return session.getVersion();
+            }
+            for (Mutation mutation : mutations) {
+                apply(session, mutation);
+            }
+            return session.getVersion();
+        } finally {
+            session.getLock().unlockWrite(stamp);
         }
+    }
 
-        Transition transition = findTransitionById(automaton, transitionId);
-        if (transition != null) {
-            automaton.removeTransition(transition);
+    /**
+     * Duplique une session en O(1) : la copie partage la version immuable courante de la source
+     * (l'historique n'est pas copié).
+     * @return ID de la nouvelle session
+     */
+    public String fork(String sessionId) {
+        Session source = requireSession(sessionId);
+        String forkId = UUID.randomUUID().toString();
+        // Le verrou de lecture ordonne la duplication par rapport aux écritures de la source (journal)
+        long sourceStamp = source.getLock().readLock();
+        try {
+            Session created = sessions.put(forkId, source.getPersistent());
+            long stamp = created.getLock().writeLock();
+            try {
+                notifyListeners(forkId, created.getVersion(), new Mutation.ForkSession(sessionId));
+            } finally {
+                created.getLock().unlockWrite(stamp);
+            }
+        } finally {
+            source.getLock().unlockRead(sourceStamp);
         }
+        return forkId;
     }
 
     /**
-     * Trouve un état par son ID.
+     * Historique d'annulation d'une session : versions annulables et rétablissables.
      */
-    private State findStateById(Automaton automaton, String stateId) {
-        return automaton.getStates().stream()
-                .filter(s -> s.getId().equals(stateId))
-                .findFirst()
-                .orElse(null);
+    public Optional<HistoryInfo> getHistory(String sessionId) {
+        return sessions.get(sessionId).map(session -> {
+            UndoHistory history = session.getHistory();
+            return new HistoryInfo(session.getVersion(),
+                    history.undoEntries().stream().map(AutomatonService::describe).toList(),
+                    history.redoEntries().stream().map(AutomatonService::describe).toList());
+        });
     }
 
     /**
-     * Trouve une transition par son ID.
+     * Automate d'une version donnée (courante ou conservée dans l'historique), en lecture seule.
      */
-    private Transition findTransitionById(Automaton automaton, String transitionId) {
-        return automaton.getTransitions().stream()
-                .filter(t -> t.getId().equals(transitionId))
-                .findFirst()
-                .orElse(null);
+    public Optional<AutomatonSnapshot> getVersion(String sessionId, long version) {
+        return sessions.get(sessionId).map(session -> {
+            AutomatonSnapshot current = session.snapshot();
+            if (current.version() == version) {
+                return current;
+            }
+            UndoHistory.Entry entry = session.getHistory().find(version);
+            return entry != null ? new AutomatonSnapshot(version, entry.automaton().toAutomaton()) : null;
+        });
+    }
+
+    private static HistoryInfo.Version describe(UndoHistory.Entry entry) {
+        return new HistoryInfo.Version(entry.version(), entry.automaton().stateCount(),
+                entry.automaton().transitionCount());
+    }
+
+    /**
+     * Conserve la version courante dans l'historique avant une modification de l'utilisateur
+     * (verrou de la session déjà pris).
+     * @param mutations nombre de mutations élémentaires de la modification
+     */
+    private void checkpoint(Session session, int mutations) {
+        session.getHistory().record(
+                new UndoHistory.Entry(session.getVersion(), session.getPersistent(), mutations * STEP_BYTES),
+                historyMaxEntries, historyMaxBytes());
+    }
+
+    private long historyMaxBytes() {
+        return historyMaxMemoryMb * 1024 * 1024;
+    }
+
+    private static long sizeOf(PersistentAutomaton automaton) {
+        return Session.BASE_BYTES
+                + automaton.stateCount() * Session.STATE_BYTES
+                + automaton.transitionCount() * Session.TRANSITION_BYTES;
+    }
+
+    /**
+     * Réapplique une mutation lors de la récupération (journal), sans la retransmettre aux observateurs.
+     */
+    public void replay(String sessionId, Mutation mutation) {
+        switch (mutation) {
+            case Mutation.ReplaceAutomaton m -> sessions.put(sessionId, m.automaton());
+            case Mutation.DeleteAutomaton m -> sessions.remove(sessionId);
+            // Source absente : elle a été évincée avant le snapshot, la copie l'est aussi
+            case Mutation.ForkSession m -> sessions.get(m.sourceSessionId())
+                    .ifPresent(source -> sessions.put(sessionId, source.getPersistent()));
+            default -> sessions.get(sessionId).ifPresent(session -> {
+                long stamp = session.getLock().writeLock();
+                try {
+                    session.apply(mutation);
+                    sessions.modified(session);
+                } finally {
+                    session.getLock().unlockWrite(stamp);
+                }
+            });
+        }
+    }
+
+    /**
+     * Remplace (ou crée) l'automate d'une session.
+     * @return la version de l'automate remplaçant
+     */
+    private long replace(String sessionId, Automaton automaton, Long expectedVersion) {
+        Session existing = sessions.get(sessionId).orElse(null);
+        if (existing == null) {
+            if (expectedVersion != null) {
+                throw new VersionConflictException(expectedVersion, 0);
+            }
+            Session created = sessions.put(sessionId, automaton);
+            long stamp = created.getLock().writeLock();
+            try {
+                notifyListeners(sessionId, created.getVersion(), new Mutation.ReplaceAutomaton(automaton));
+                return created.getVersion();
+            } finally {
+                created.getLock().unlockWrite(stamp);
+            }
+        }
+        long stamp = existing.getLock().writeLock();
+        try {
+            checkVersion(existing, expectedVersion);
+            // Version précédente entièrement distincte de la nouvelle : coût de sa taille complète
+            PersistentAutomaton previous = existing.getPersistent();
+            existing.getHistory().record(new UndoHistory.Entry(existing.getVersion(), previous, sizeOf(previous)),
+                    historyMaxEntries, historyMaxBytes());
+            sessions.put(sessionId, automaton);
+            long version = existing.getVersion();
+            notifyListeners(sessionId, version, new Mutation.ReplaceAutomaton(automaton));
+            return version;
+        } finally {
+            existing.getLock().unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Applique une mutation à la session (verrou de la session déjà pris) et la diffuse.
+     * @return la nouvelle version de l'automate
+     */
+    private long apply(Session session, Mutation mutation) {
+        long version = session.apply(mutation);
+        sessions.modified(session);
+        notifyListeners(session.getId(), version, mutation);
+        return version;
+    }
+
+    /**
+     * Vérifie la version attendue par une modification conditionnelle (verrou de la session déjà pris).
+     */
+    private static void checkVersion(Session session, Long expectedVersion) {
+        if (expectedVersion != null && expectedVersion != session.getVersion()) {
+            throw new VersionConflictException(expectedVersion, session.getVersion());
+        }
+    }
+
+    private void notifyListeners(String sessionId, long version, Mutation mutation) {
+        for (MutationListener listener : listeners) {
+            listener.onMutation(sessionId, version, mutation);
+        }
+    }
+
+    private Session requireSession(String sessionId) {
+        return sessions.get(sessionId)
+                .orElseThrow(() -> new IllegalArgumentException("Automate non trouvé: " + sessionId));
     }
 }
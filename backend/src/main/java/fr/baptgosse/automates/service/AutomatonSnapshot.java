@@ -0,0 +1,10 @@
+package fr.baptgosse.automates.service;
+
+import fr.baptgosse.automates.model.Automaton;
+
+/**
+ * Copie figée de l'automate d'une session à une version donnée.
+ * Partagée entre lecteurs concurrents : elle ne doit jamais être modifiée.
+ */
+public record AutomatonSnapshot(long version, Automaton automaton) {
+}
@@ -0,0 +1,296 @@
+package fr.baptgosse.automates.service;
+
+import fr.baptgosse.automates.dto.ImportJobInfo;
+import fr.baptgosse.automates.io.ImportException;
+import fr.baptgosse.automates.io.ImportFormat;
+import fr.baptgosse.automates.io.ImportOptions;
+import fr.baptgosse.automates.model.Automaton;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Import en masse (DOT, JFLAP, CSV, NDJSON) vers une nouvelle session.
+ *
+ * L'import direct lit le corps de la requête au fil de l'eau. L'import en arrière-plan recopie
+ * d'abord le corps dans un fichier temporaire (la requête se termine aussitôt, sans garder le
+ * texte en mémoire), puis l'analyse sur un pool borné ; l'avancement (octets lus) est consultable
+ * et l'import annulable. Dans les deux cas, la mémoire utilisée est celle de l'automate construit.
+ */
+@Service
+public class ImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportService.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Value("${imports.max-concurrent:2}")
+    private int maxConcurrent = 2;
+
+    @Value("${imports.max-bytes:1073741824}")
+    private long maxBytes = 1L << 30;
+
+    @Value("${imports.spool-directory:${java.io.tmpdir}}")
+    private String spoolDirectory = System.getProperty("java.io.tmpdir");
+
+    @Value("${imports.retention-ms:600000}")
+    private long retentionMs = 600_000;
+
+    @Autowired
+    private AutomatonService automatonService;
+
+    private ExecutorService executor;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void start() {
+        executor = Executors.newFixedThreadPool(Math.max(1, maxConcurrent), runnable -> {
+            Thread thread = new Thread(runnable, "automaton-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        jobs.values().forEach(Job::deleteSpool);
+    }
+
+    /**
+     * Importe directement le flux dans une nouvelle session.
+     * @return l'import terminé (statut DONE)
+     * @throws ImportException si le fichier est invalide ou trop volumineux
+     */
+    public ImportJobInfo importNow(InputStream body, ImportFormat format, ImportOptions options) throws IOException {
+        Job job = new Job(null, format, options, -1);
+        job.status = "RUNNING";
+        run(job, new CountingInputStream(body, job));
+        return job.toInfo();
+    }
+
+    /**
+     * Recopie le flux sur disque et lance son import en arrière-plan.
+     * @return l'import en attente
+     */
+    public ImportJobInfo submit(InputStream body, ImportFormat format, ImportOptions options) throws IOException {
+        sweep();
+        Path spool = Files.createTempFile(Files.createDirectories(Path.of(spoolDirectory)), "import-", ".tmp");
+        long size;
+        try (OutputStream out = Files.newOutputStream(spool)) {
+            size = copy(body, out);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(spool);
+            throw e;
+        }
+
+        Job job = new Job(UUID.randomUUID().toString(), format, options, size);
+        job.spool = spool;
+        job.future = executor.submit(() -> {
+            job.status = "RUNNING";
+            try (InputStream in = Files.newInputStream(spool)) {
+                run(job, new CountingInputStream(in, job));
+            } catch (InterruptedIOException | CancellationException e) {
+                job.status = "CANCELLED";
+            } catch (IOException | RuntimeException e) {
+                job.status = "FAILED";
+                job.error = e.getMessage();
+            } catch (Throwable e) {
+                // Pile ou mémoire épuisée sur un fichier pathologique : l'import échoue, le serveur continue
+                log.warn("Import {} interrompu : {}", job.id, e.toString());
+                job.status = "FAILED";
+                job.error = e.toString();
+            } finally {
+                job.deleteSpool();
+                job.finishedAt = System.currentTimeMillis();
+            }
+        });
+        jobs.put(job.id, job);
+        return job.toInfo();
+    }
+
+    private void run(Job job, InputStream in) throws IOException {
+        long start = System.nanoTime();
+        Automaton automaton = job.format.read(in, job.options);
+        job.statesCount = automaton.getStates().size();
+        job.transitionsCount = automaton.getTransitions().size();
+        if (!job.startCommitting()) {
+            throw new CancellationException();
+        }
+        job.sessionId = automatonService.createAutomaton(automaton);
+        job.status = "DONE";
+        log.info("Import {} : {} états, {} transitions en {} ms", job.format, job.statesCount,
+                job.transitionsCount, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * État d'un import en arrière-plan.
+     */
+    public Optional<ImportJobInfo> getJob(String jobId) {
+        sweep();
+        return Optional.ofNullable(jobs.get(jobId)).map(Job::toInfo);
+    }
+
+    /**
+     * Annule un import en arrière-plan (sans effet s'il est terminé ou si sa session est déjà créée).
+     * @return faux si l'import est inconnu
+     */
+    public boolean cancel(String jobId) {
+        Job job = jobs.get(jobId);
+        if (job == null) {
+            return false;
+        }
+        if (job.requestCancel() && job.future.cancel(true) && job.status.equals("PENDING")) {
+            // Jamais démarré : la tâche ne nettoiera pas elle-même
+            job.status = "CANCELLED";
+            job.deleteSpool();
+            job.finishedAt = System.currentTimeMillis();
+        }
+        return true;
+    }
+
+    /**
+     * Oublie les imports terminés depuis plus de {@code imports.retention-ms}.
+     */
+    private void sweep() {
+        long limit = System.currentTimeMillis() - retentionMs;
+        jobs.values().removeIf(job -> job.finishedAt > 0 && job.finishedAt < limit);
+    }
+
+    private long copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long total = 0;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            total += read;
+            if (total > maxBytes) {
+                throw new ImportException("Fichier trop volumineux (limite : " + maxBytes + " octets)");
+            }
+            out.write(buffer, 0, read);
+        }
+        return total;
+    }
+
+    /**
+     * Import en cours ou terminé. Les champs sont écrits par la tâche d'import et lus par les requêtes de suivi.
+     */
+    private final class Job {
+        final String id;
+        final ImportFormat format;
+        final ImportOptions options;
+        final long totalBytes;
+        volatile String status = "PENDING";
+        volatile long bytesRead;
+        volatile String sessionId;
+        volatile int statesCount;
+        volatile int transitionsCount;
+        volatile String error;
+        volatile long finishedAt;
+        volatile Path spool;
+        Future<?> future;
+        private boolean cancelRequested;
+        private boolean committing;
+
+        Job(String id, ImportFormat format, ImportOptions options, long totalBytes) {
+            this.id = id;
+            this.format = format;
+            this.options = options;
+            this.totalBytes = totalBytes;
+        }
+
+        /**
+         * Demande l'annulation ; faux si la session est déjà en cours de création.
+         */
+        synchronized boolean requestCancel() {
+            if (committing) {
+                return false;
+            }
+            cancelRequested = true;
+            return true;
+        }
+
+        /**
+         * Réserve la création de la session ; faux si l'import a été annulé entre-temps.
+         */
+        synchronized boolean startCommitting() {
+            if (cancelRequested) {
+                return false;
+            }
+            committing = true;
+            return true;
+        }
+
+        void deleteSpool() {
+            Path file = spool;
+            if (file != null) {
+                spool = null;
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    log.warn("Impossible de supprimer {} : {}", file, e.toString());
+                }
+            }
+        }
+
+        ImportJobInfo toInfo() {
+            return new ImportJobInfo(id, format.name().toLowerCase(Locale.ROOT), status, bytesRead, totalBytes,
+                    sessionId, statesCount, transitionsCount, error);
+        }
+    }
+
+    /**
+     * Compte les octets lus (avancement, limite de taille) et interrompt la lecture si l'import est annulé.
+     */
+    private final class CountingInputStream extends FilterInputStream {
+        private final Job job;
+
+        CountingInputStream(InputStream in, Job job) {
+            super(in);
+            this.job = job;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("Import annulé");
+            }
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                long total = job.bytesRead + read;
+                if (total > maxBytes) {
+                    throw new ImportException("Fichier trop volumineux (limite : " + maxBytes + " octets)");
+                }
+                job.bytesRead = total;
+            }
+            return read;
+        }
+    }
+}
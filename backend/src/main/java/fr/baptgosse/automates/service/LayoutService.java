@@ -0,0 +1,380 @@
+package fr.baptgosse.automates.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.baptgosse.automates.dto.LayoutJobInfo;
+import fr.baptgosse.automates.model.PersistentAutomaton;
+import fr.baptgosse.automates.util.ForceLayout;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Disposition automatique des états d'une session, en arrière-plan.
+ *
+ * La disposition ({@link ForceLayout}) est calculée sur une copie figée de l'automate, sans bloquer
+ * les modifications ; les forces sont accumulées sur un pool dédié. Pendant le calcul, les positions
+ * intermédiaires sont diffusées (SSE) aux clients qui suivent la disposition, au plus une image par
+ * {@code layout.frame-interval-ms} ; un client lent ne reçoit que la plus récente. À la fin, les
+ * positions sont appliquées en une seule modification annulable. La disposition est annulable
+ * jusqu'à l'application des positions : une disposition annulée ne modifie pas l'automate.
+ *
+ * Événements du suivi : {@code states} (identifiants des états, dans l'ordre des positions),
+ * {@code positions} (avancement et coordonnées {@code [x0, y0, x1, y1, ...]}), {@code done}
+ * (état final de la disposition).
+ */
+@Service
+public class LayoutService {
+
+    private static final Logger log = LoggerFactory.getLogger(LayoutService.class);
+
+    private static final long HEARTBEAT_MS = 15_000;
+    private static final int MAX_ITERATIONS = 10_000;
+
+    @Value("${layout.max-concurrent:2}")
+    private int maxConcurrent = 2;
+
+    @Value("${layout.parallelism:0}")
+    private int parallelism = 0;
+
+    @Value("${layout.iterations:100}")
+    private int defaultIterations = 100;
+
+    @Value("${layout.spacing:150}")
+    private double defaultSpacing = 150;
+
+    @Value("${layout.frame-interval-ms:250}")
+    private long frameIntervalMs = 250;
+
+    @Value("${layout.stream-timeout-ms:600000}")
+    private long streamTimeoutMs = 600_000;
+
+    @Value("${layout.retention-ms:600000}")
+    private long retentionMs = 600_000;
+
+    @Autowired
+    private AutomatonService automatonService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private ExecutorService executor;
+    private ForkJoinPool pool;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void start() {
+        executor = Executors.newFixedThreadPool(Math.max(1, maxConcurrent), runnable -> {
+            Thread thread = new Thread(runnable, "automaton-layout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        pool.shutdownNow();
+    }
+
+    /**
+     * Lance la disposition des états d'une session.
+     * @param spacing longueur moyenne des transitions (défaut : {@code layout.spacing})
+     * @param iterations itérations maximales par niveau (défaut : {@code layout.iterations})
+     * @return la disposition en attente
+     */
+    public LayoutJobInfo submit(String sessionId, Double spacing, Integer iterations) {
+        sweep();
+        if (automatonService.getSession(sessionId).isEmpty()) {
+            throw new IllegalArgumentException("Automate non trouvé: " + sessionId);
+        }
+        double s = spacing != null ? spacing : defaultSpacing;
+        int it = iterations != null ? iterations : defaultIterations;
+        if (!(s > 0) || Double.isInfinite(s)) {
+            throw new IllegalArgumentException("Espacement invalide: " + s);
+        }
+        if (it < 1 || it > MAX_ITERATIONS) {
+            throw new IllegalArgumentException("Nombre d'itérations invalide (1 à " + MAX_ITERATIONS + ")");
+        }
+
+        Job job = new Job(UUID.randomUUID().toString(), sessionId, s, it);
+        job.future = executor.submit(() -> run(job));
+        jobs.put(job.id, job);
+        return job.toInfo();
+    }
+
+    private void run(Job job) {
+        long start = System.nanoTime();
+        job.status = "RUNNING";
+        try {
+            PersistentAutomaton automaton = automatonService.getSession(job.sessionId)
+                    .orElseThrow(() -> new IllegalArgumentException("Automate non trouvé: " + job.sessionId))
+                    .getPersistent();
+            int n = automaton.stateCount();
+            String[] ids = new String[n];
+            Map<String, Integer> index = new HashMap<>(n * 2);
+            automaton.forEachState(state -> {
+                ids[index.size()] = state.id();
+                index.put(state.id(), index.size());
+            });
+            int[] from = new int[automaton.transitionCount()];
+            int[] to = new int[from.length];
+            int[] e = {0};
+            automaton.forEachTransition(t -> {
+                from[e[0]] = index.get(t.fromId());
+                to[e[0]++] = index.get(t.toId());
+            });
+            job.begin(ids);
+
+            double[] x = new double[n];
+            double[] y = new double[n];
+            ForceLayout.layout(x, y, from, to, job.spacing, job.iterations, pool, new ForceLayout.Listener() {
+                private long nextFrame;
+
+                @Override
+                public boolean progress(double fraction) {
+                    job.progress = fraction;
+                    long now = System.currentTimeMillis();
+                    if (now >= nextFrame && job.hasSubscribers()) {
+                        nextFrame = now + frameIntervalMs;
+                        return true;
+                    }
+                    return false;
+                }
+
+                @Override
+                public void positions(double[] px, double[] py) {
+                    job.publish(px, py);
+                }
+            });
+            job.progress = 1;
+            job.publish(x, y);
+            if (!job.startApplying()) {
+                throw new CancellationException();
+            }
+            job.version = automatonService.moveStates(job.sessionId, ids, x, y);
+            job.status = "DONE";
+            log.info("Disposition de {} : {} états, {} transitions en {} ms", job.sessionId, n, from.length,
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (CancellationException e) {
+            job.status = "CANCELLED";
+        } catch (RuntimeException e) {
+            job.status = "FAILED";
+            job.error = e.getMessage();
+        } finally {
+            job.finish();
+        }
+    }
+
+    /**
+     * État d'une disposition.
+     */
+    public Optional<LayoutJobInfo> getJob(String jobId) {
+        sweep();
+        return Optional.ofNullable(jobs.get(jobId)).map(Job::toInfo);
+    }
+
+    /**
+     * Annule une disposition (sans effet si elle est terminée ou si ses positions sont en cours d'application).
+     * @return faux si la disposition est inconnue
+     */
+    public boolean cancel(String jobId) {
+        Job job = jobs.get(jobId);
+        if (job == null) {
+            return false;
+        }
+        if (job.requestCancel() && job.future.cancel(true) && job.status.equals("PENDING")) {
+            // Jamais démarrée : la tâche ne terminera pas elle-même
+            job.status = "CANCELLED";
+            job.finish();
+        }
+        return true;
+    }
+
+    /**
+     * Suit une disposition : identifiants des états, positions intermédiaires, puis état final.
+     * Un client qui arrive après la fin reçoit directement les positions finales.
+     */
+    public Optional<SseEmitter> stream(String jobId) {
+        Job job = jobs.get(jobId);
+        if (job == null) {
+            return Optional.empty();
+        }
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        Thread.ofVirtual().name("layout-stream-" + jobId).start(() -> send(job, emitter));
+        return Optional.of(emitter);
+    }
+
+    private void send(Job job, SseEmitter emitter) {
+        synchronized (job) {
+            job.subscribers++;
+        }
+        try {
+            boolean idsSent = false;
+            int sent = 0;
+            while (true) {
+                String[] ids;
+                float[] frame;
+                int frameNumber;
+                double progress;
+                boolean finished;
+                synchronized (job) {
+                    if (job.finishedAt == 0 && job.frameNumber == sent && (idsSent || job.ids == null)) {
+                        job.wait(HEARTBEAT_MS);
+                    }
+                    ids = job.ids;
+                    frame = job.frame;
+                    frameNumber = job.frameNumber;
+                    progress = job.frameProgress;
+                    finished = job.finishedAt != 0;
+                }
+                boolean idle = true;
+                if (!idsSent && ids != null) {
+                    emitter.send(SseEmitter.event().name("states").data(objectMapper.writeValueAsString(ids)));
+                    idsSent = true;
+                    idle = false;
+                }
+                if (frameNumber != sent) {
+                    emitter.send(SseEmitter.event().name("positions").data(objectMapper.writeValueAsString(
+                            Map.of("progress", progress, "xy", frame))));
+                    sent = frameNumber;
+                    idle = false;
+                }
+                if (finished) {
+                    emitter.send(SseEmitter.event().name("done").data(objectMapper.writeValueAsString(job.toInfo())));
+                    emitter.complete();
+                    return;
+                }
+                if (idle) {
+                    emitter.send(SseEmitter.event().comment("ping"));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            emitter.completeWithError(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            emitter.complete();
+        } finally {
+            synchronized (job) {
+                job.subscribers--;
+            }
+        }
+    }
+
+    /**
+     * Oublie les dispositions terminées depuis plus de {@code layout.retention-ms}.
+     */
+    private void sweep() {
+        long limit = System.currentTimeMillis() - retentionMs;
+        jobs.values().removeIf(job -> job.finishedAt > 0 && job.finishedAt < limit);
+    }
+
+    /**
+     * Disposition en cours ou terminée. Les champs sont écrits par la tâche et lus par les requêtes de suivi ;
+     * les identifiants, la dernière image et les abonnés sont protégés par le moniteur du job.
+     */
+    private static final class Job {
+        final String id;
+        final String sessionId;
+        final double spacing;
+        final int iterations;
+        volatile String status = "PENDING";
+        volatile double progress;
+        volatile int statesCount;
+        volatile Long version;
+        volatile String error;
+        volatile long finishedAt;
+        Future<?> future;
+
+        private String[] ids;
+        private float[] frame;
+        private double frameProgress;
+        private int frameNumber;
+        private int subscribers;
+        private boolean cancelRequested;
+        private boolean applying;
+
+        Job(String id, String sessionId, double spacing, int iterations) {
+            this.id = id;
+            this.sessionId = sessionId;
+            this.spacing = spacing;
+            this.iterations = iterations;
+        }
+
+        synchronized void begin(String[] ids) {
+            this.ids = ids;
+            this.statesCount = ids.length;
+            notifyAll();
+        }
+
+        /**
+         * Demande l'annulation ; faux si les positions sont déjà en cours d'application.
+         */
+        synchronized boolean requestCancel() {
+            if (applying) {
+                return false;
+            }
+            cancelRequested = true;
+            return true;
+        }
+
+        /**
+         * Réserve l'application des positions ; faux si la disposition a été annulée entre-temps.
+         */
+        synchronized boolean startApplying() {
+            if (cancelRequested) {
+                return false;
+            }
+            applying = true;
+            return true;
+        }
+
+        synchronized boolean hasSubscribers() {
+            return subscribers > 0;
+        }
+
+        /**
+         * Publie une image des positions (copiée), qui remplace la précédente.
+         */
+        void publish(double[] x, double[] y) {
+            float[] xy = new float[2 * x.length];
+            for (int i = 0; i < x.length; i++) {
+                xy[2 * i] = (float) x[i];
+                xy[2 * i + 1] = (float) y[i];
+            }
+            synchronized (this) {
+                frame = xy;
+                frameProgress = progress;
+                frameNumber++;
+                notifyAll();
+            }
+        }
+
+        synchronized void finish() {
+            finishedAt = System.currentTimeMillis();
+            notifyAll();
+        }
+
+        LayoutJobInfo toInfo() {
+            return new LayoutJobInfo(id, sessionId, status, progress, statesCount, version, error);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package fr.baptgosse.automates.service;
+
+import fr.baptgosse.automates.model.Mutation;
+
+/**
+ * Observateur des mutations appliquées aux sessions par {@link AutomatonService}.
+ * Appelé sous le verrou de la session, dans l'ordre d'application : l'implémentation
+ * doit rester rapide et ne pas bloquer.
+ */
+public interface MutationListener {
+
+    /**
+     * @param version version de l'automate après la mutation
+     */
+    void onMutation(String sessionId, long version, Mutation mutation);
+}
@@ -0,0 +1,201 @@
+package fr.baptgosse.automates.service;
+
+import fr.baptgosse.automates.amdl.AMDLIncrementalDocument;
+import fr.baptgosse.automates.model.Automaton;
+import fr.baptgosse.automates.model.IndexedAutomaton;
+import fr.baptgosse.automates.model.Mutation;
+import fr.baptgosse.automates.model.PersistentAutomaton;
+import fr.baptgosse.automates.util.IdSequence;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Session d'édition : un automate et ses métadonnées de stockage.
+ *
+ * Les écritures sont sérialisées par le verrou d'écriture de {@link #getLock()} et produisent
+ * chacune une nouvelle {@link PersistentAutomaton version immuable} partageant sa structure avec
+ * la précédente : c'est la seule représentation tenue à jour. Les écrivains la consultent
+ * directement (recherche par identifiant en O(log n)), de même que les lecteurs qui n'ont besoin
+ * que des états et transitions (snapshot disque, disposition, fenêtres, résumés).
+ * Les lecteurs qui travaillent sur le graphe d'objets (JSON, AMDL, analyses) utilisent
+ * {@link #snapshot()}, matérialisé une seule fois par version lue, jamais par version écrite.
+ */
+public class Session {
+
+    // Estimation grossière de l'empreinte mémoire (objets, identifiants, index)
+    static final long BASE_BYTES = 2_048;
+    static final long STATE_BYTES = 320;
+    static final long TRANSITION_BYTES = 280;
+
+    // Compteur global : une version n'est jamais réutilisée, même par une session recréée
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    private final String id;
+    private volatile long lastAccessMillis;
+    private volatile long estimatedBytes;
+
+    // Version courante : numéro et automate immuable, publiés ensemble
+    private volatile Head head;
+
+    private final StampedLock lock = new StampedLock();
+    private final UndoHistory history = new UndoHistory();
+    private volatile AutomatonSnapshot readView;
+    private volatile CompiledView compiledView;
+    // Texte AMDL en cours d'édition, valide pour la version qu'il porte
+    private volatile AMDLIncrementalDocument amdlDocument;
+    // Identifiants des éléments créés, sous le verrou d'écriture ; calculés à la première création
+    private IdSequence ids;
+    private long idFloor = 1;
+
+    private record Head(long version, PersistentAutomaton automaton) {
+    }
+
+    private record CompiledView(long version, IndexedAutomaton automaton) {
+    }
+
+    /**
+     * @param automaton instance dont est issue {@code persistent}, qui ne sera plus modifiée :
+     *                  elle sert de copie de lecture à la première version (ou null)
+     */
+    Session(String id, Automaton automaton, PersistentAutomaton persistent, long now) {
+        this.id = id;
+        this.head = new Head(VERSIONS.incrementAndGet(), persistent);
+        this.readView = automaton != null ? new AutomatonSnapshot(head.version(), automaton) : null;
+        this.lastAccessMillis = now;
+        refreshEstimate();
+    }
+
+    public String getId() { return id; }
+    public StampedLock getLock() { return lock; }
+
+    public long getLastAccessMillis() { return lastAccessMillis; }
+    public long getEstimatedBytes() { return estimatedBytes; }
+
+    /**
+     * Version de l'automate, incrémentée à chaque modification.
+     */
+    public long getVersion() { return head.version(); }
+
+    /**
+     * Version immuable courante (O(1), sans verrou).
+     */
+    public PersistentAutomaton getPersistent() { return head.automaton(); }
+
+    /**
+     * Version immuable courante et son numéro, lus ensemble (O(1), sans verrou).
+     */
+    public Versioned<PersistentAutomaton> current() {
+        Head current = head;
+        return new Versioned<>(current.automaton(), current.version());
+    }
+
+    UndoHistory getHistory() { return history; }
+
+    /**
+     * Identifiants compacts de la session (sous le verrou d'écriture). La suite reprend après le plus
+     * grand identifiant compact de l'automate, et ne redescend jamais : un identifiant n'est pas
+     * réattribué après une annulation ou un remplacement.
+     */
+    IdSequence getIds() {
+        if (ids == null) {
+            ids = new IdSequence(Math.max(idFloor, head.automaton().maxCompactId() + 1));
+        }
+        return ids;
+    }
+
+    AMDLIncrementalDocument getAmdlDocument() { return amdlDocument; }
+    void setAmdlDocument(AMDLIncrementalDocument amdlDocument) { this.amdlDocument = amdlDocument; }
+
+    /**
+     * Automate de la version courante, à ne pas modifier. Matérialisé sans verrou à partir
+     * de la version immuable, puis partagé par tous les lecteurs jusqu'à la prochaine modification.
+     */
+    public AutomatonSnapshot snapshot() {
+        Head current = head;
+        AutomatonSnapshot cached = readView;
+        if (cached != null && cached.version() == current.version()) {
+            return cached;
+        }
+        AutomatonSnapshot copy = new AutomatonSnapshot(current.version(), current.automaton().toAutomaton());
+        readView = copy;
+        return copy;
+    }
+
+    /**
+     * Automate compilé d'une copie figée, partagé comme {@link #snapshot()} jusqu'à la prochaine modification.
+     */
+    public IndexedAutomaton compiled(AutomatonSnapshot snapshot) {
+        CompiledView cached = compiledView;
+        if (cached != null && cached.version() == snapshot.version()) {
+            return cached.automaton();
+        }
+        IndexedAutomaton compiled = IndexedAutomaton.compile(snapshot.automaton());
+        if (snapshot.version() == head.version()) {
+            compiledView = new CompiledView(snapshot.version(), compiled);
+        }
+        return compiled;
+    }
+
+    /**
+     * Applique une mutation (sous le verrou d'écriture) : nouvelle version immuable, sans copie.
+     * @return la nouvelle version
+     */
+    long apply(Mutation mutation) {
+        Head current = head;
+        head = new Head(VERSIONS.incrementAndGet(), current.automaton().apply(mutation));
+        return head.version();
+    }
+
+    /**
+     * Remplace l'automate (sous le verrou d'écriture) et passe à une nouvelle version.
+     * @param automaton instance dont est issue {@code persistent}, qui ne sera plus modifiée
+     *                  (copie de lecture de la nouvelle version), ou null
+     */
+    void replace(Automaton automaton, PersistentAutomaton persistent) {
+        if (ids != null) {
+            idFloor = ids.peek();
+            ids = null;
+        }
+        Head replaced = new Head(VERSIONS.incrementAndGet(), persistent);
+        this.head = replaced;
+        if (automaton != null) {
+            readView = new AutomatonSnapshot(replaced.version(), automaton);
+        }
+        refreshEstimate();
+    }
+
+    /**
+     * Passe à une nouvelle version sans modifier l'automate (suppression de la session).
+     */
+    long nextVersion() {
+        Head current = head;
+        head = new Head(VERSIONS.incrementAndGet(), current.automaton());
+        return head.version();
+    }
+
+    void touch(long now) {
+        this.lastAccessMillis = now;
+    }
+
+    /**
+     * Recalcule l'estimation mémoire à partir du nombre d'états et de transitions,
+     * de la part propre de l'historique d'annulation et du texte AMDL en cours d'édition.
+     * Synchronisé sur la session : l'écriture et le balayage du stockage peuvent l'appeler ensemble.
+     * @return la différence avec l'estimation précédente
+     */
+    synchronized long refreshEstimate() {
+        PersistentAutomaton current = head.automaton();
+        long estimate = BASE_BYTES
+                + current.stateCount() * STATE_BYTES
+                + current.transitionCount() * TRANSITION_BYTES
+                + history.getEstimatedBytes();
+        AMDLIncrementalDocument document = amdlDocument;
+        if (document != null) {
+            estimate += document.getEstimatedBytes();
+        }
+        long delta = estimate - estimatedBytes;
+        estimatedBytes = estimate;
+        return delta;
+    }
+}
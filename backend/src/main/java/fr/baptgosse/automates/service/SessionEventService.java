@@ -0,0 +1,424 @@
+package fr.baptgosse.automates.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.baptgosse.automates.dto.AutomatonInfo;
+import fr.baptgosse.automates.io.CompactAutomatonJson;
+import fr.baptgosse.automates.model.Automaton;
+import fr.baptgosse.automates.model.Mutation;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Diffusion en direct (Server-Sent Events) des modifications d'une session.
+ *
+ * Chaque mutation est traduite en un delta JSON compact, étiqueté par la version de l'automate
+ * ({@code id: <époque>-<version>}). Les derniers deltas de chaque session observée sont conservés
+ * pour permettre à un client qui se reconnecte (en-tête Last-Event-ID) de ne recevoir que ce
+ * qu'il a manqué ; au-delà, ou après un remplacement complet, il reçoit un snapshot.
+ * L'analyse est recalculée après un délai d'inactivité (debounce) puis poussée.
+ *
+ * Événements : {@code snapshot} (automate au format normalisé), {@code delta}, {@code analysis},
+ * {@code deleted}.
+ */
+@Component
+public class SessionEventService implements MutationListener {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionEventService.class);
+
+    // Identifie l'instance du serveur : les ids d'événements d'avant un redémarrage sont ignorés
+    private static final String EPOCH = Long.toString(System.currentTimeMillis(), 36);
+
+    private static final Event CLOSE = new Event(0, null, null);
+
+    @Value("${events.buffer-size:1000}")
+    private int bufferSize = 1000;
+
+    @Value("${events.analysis-debounce-ms:300}")
+    private long analysisDebounceMs = 300;
+
+    @Value("${events.timeout-ms:1800000}")
+    private long timeoutMs = 1_800_000;
+
+    @Value("${events.max-queued:10000}")
+    private int maxQueued = 10_000;
+
+    @Value("${events.idle-retention-ms:300000}")
+    private long idleRetentionMs = 300_000;
+
+    @Autowired
+    private SessionStore sessions;
+
+    @Autowired
+    private AnalysisService analysisService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Canaux des sessions ayant (eu) au moins un abonné ; les autres sessions ne coûtent rien
+    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService debouncer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "session-events-debounce");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Événement prêt à envoyer : données JSON déjà sérialisées.
+     */
+    private record Event(long version, String name, String data) {
+    }
+
+    /**
+     * Abonné : une file et un thread virtuel d'envoi, pour qu'un client lent ne bloque personne.
+     */
+    private class Subscriber {
+        private final String sessionId;
+        private final SseEmitter emitter = new SseEmitter(timeoutMs);
+        private final LinkedBlockingQueue<Event> queue = new LinkedBlockingQueue<>();
+
+        Subscriber(String sessionId) {
+            this.sessionId = sessionId;
+        }
+
+        void offer(Event event) {
+            if (queue.size() >= maxQueued) {
+                // Client trop lent : il se reconnectera et reprendra depuis sa dernière version
+                abort();
+                return;
+            }
+            queue.offer(event);
+        }
+
+        /**
+         * Termine le flux après l'envoi des événements déjà en file.
+         */
+        void close() {
+            queue.offer(CLOSE);
+        }
+
+        /**
+         * Termine le flux sans envoyer les événements en file.
+         */
+        void abort() {
+            queue.clear();
+            queue.offer(CLOSE);
+        }
+
+        void run() {
+            try {
+                while (true) {
+                    Event event = queue.take();
+                    if (event == CLOSE) {
+                        emitter.complete();
+                        return;
+                    }
+                    if (event.name() == null) {
+                        emitter.send(SseEmitter.event().comment(event.data()));
+                        continue;
+                    }
+                    emitter.send(SseEmitter.event()
+                            .id(EPOCH + "-" + event.version())
+                            .name(event.name())
+                            .data(event.data()));
+                }
+            } catch (IOException | RuntimeException e) {
+                emitter.completeWithError(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                unsubscribe(this);
+            }
+        }
+    }
+
+    /**
+     * Canal d'une session : derniers deltas et abonnés. Modifié sous le verrou de la session.
+     */
+    private static class Channel {
+        private final Session session;
+        private final ArrayDeque<Event> log = new ArrayDeque<>();
+        // Les deltas de version strictement supérieure à floor sont tous dans le journal
+        private long floor;
+        private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+        private volatile long idleSince;
+        private ScheduledFuture<?> pendingAnalysis;
+
+        Channel(Session session) {
+            this.session = session;
+            this.floor = session.getVersion();
+        }
+    }
+
+    /**
+     * Abonne un client aux événements d'une session.
+     * @param lastEventId dernier id reçu (reprise), ou null pour commencer par un snapshot
+     */
+    public SseEmitter subscribe(String sessionId, String lastEventId) {
+        Session session = sessions.get(sessionId)
+                .orElseThrow(() -> new IllegalArgumentException("Automate non trouvé: " + sessionId));
+        Subscriber subscriber = new Subscriber(sessionId);
+        // Sous le verrou de lecture : aucune mutation ne peut s'intercaler entre le rattrapage et l'abonnement
+        long stamp = session.getLock().readLock();
+        try {
+            long since = parseVersion(lastEventId);
+            // compute est atomique vis-à-vis du nettoyage périodique des canaux inactifs
+            Channel channel = channels.compute(sessionId, (id, existing) -> {
+                Channel c = existing != null ? existing : new Channel(session);
+                if (since >= c.floor && since <= session.getVersion()) {
+                    for (Event event : c.log) {
+                        if (event.version() > since) {
+                            subscriber.offer(event);
+                        }
+                    }
+                } else {
+                    subscriber.offer(snapshot(session.getVersion(), session.snapshot().automaton()));
+                }
+                c.subscribers.add(subscriber);
+                return c;
+            });
+            scheduleAnalysis(sessionId, channel);
+        } finally {
+            session.getLock().unlockRead(stamp);
+        }
+
+        subscriber.emitter.onCompletion(subscriber::abort);
+        subscriber.emitter.onTimeout(subscriber::abort);
+        subscriber.emitter.onError(e -> subscriber.abort());
+        Thread.ofVirtual().name("session-events-" + sessionId).start(subscriber::run);
+        return subscriber.emitter;
+    }
+
+    /**
+     * Appelé sous le verrou de la session : traduit la mutation en delta et le distribue.
+     */
+    @Override
+    public void onMutation(String sessionId, long version, Mutation mutation) {
+        Channel channel = channels.get(sessionId);
+        if (channel == null) {
+            return;
+        }
+        switch (mutation) {
+            case Mutation.ReplaceAutomaton m -> {
+                // Les deltas antérieurs ne servent plus : toute reprise passe par un snapshot
+                channel.log.clear();
+                channel.floor = version;
+                if (!channel.subscribers.isEmpty()) {
+                    publish(channel, snapshot(version, m.automaton()));
+                }
+                scheduleAnalysis(sessionId, channel);
+            }
+            // Une session dupliquée est nouvelle : aucun abonné ne peut encore l'écouter
+            case Mutation.ForkSession m -> {
+            }
+            case Mutation.DeleteAutomaton m -> {
+                channels.remove(sessionId);
+                if (channel.pendingAnalysis != null) {
+                    channel.pendingAnalysis.cancel(false);
+                }
+                publish(channel, new Event(version, "deleted", "{}"));
+                channel.subscribers.forEach(Subscriber::close);
+            }
+            default -> {
+                Event event = new Event(version, "delta", delta(version, mutation));
+                channel.log.addLast(event);
+                while (channel.log.size() > bufferSize) {
+                    channel.floor = channel.log.removeFirst().version();
+                }
+                publish(channel, event);
+                scheduleAnalysis(sessionId, channel);
+            }
+        }
+    }
+
+    /**
+     * Entretien périodique : commentaire de maintien de connexion pour les abonnés,
+     * suppression des canaux sans abonné depuis trop longtemps ou dont la session a disparu.
+     */
+    @Scheduled(fixedDelayString = "${events.heartbeat-ms:15000}")
+    public void heartbeat() {
+        long now = System.currentTimeMillis();
+        Event ping = new Event(0, null, "ping");
+        for (String sessionId : channels.keySet()) {
+            channels.computeIfPresent(sessionId, (id, channel) -> {
+                if (!channel.subscribers.isEmpty()) {
+                    channel.subscribers.forEach(s -> s.offer(ping));
+                    return channel;
+                }
+                boolean expired = now - channel.idleSince > idleRetentionMs || !sessions.contains(id);
+                return expired ? null : channel;
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        debouncer.shutdownNow();
+        channels.values().forEach(channel -> channel.subscribers.forEach(Subscriber::close));
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        Channel channel = channels.get(subscriber.sessionId);
+        if (channel != null && channel.subscribers.remove(subscriber) && channel.subscribers.isEmpty()) {
+            channel.idleSince = System.currentTimeMillis();
+        }
+    }
+
+    private static void publish(Channel channel, Event event) {
+        for (Subscriber subscriber : channel.subscribers) {
+            subscriber.offer(event);
+        }
+    }
+
+    /**
+     * (Re)programme le recalcul de l'analyse : seule la dernière demande d'une rafale s'exécute.
+     * Appelé sous le verrou de la session (en lecture pour les abonnements concurrents).
+     */
+    private void scheduleAnalysis(String sessionId, Channel channel) {
+        if (channel.subscribers.isEmpty()) {
+            return;
+        }
+        synchronized (channel) {
+            if (channel.pendingAnalysis != null) {
+                channel.pendingAnalysis.cancel(false);
+            }
+            channel.pendingAnalysis = debouncer.schedule(
+                    () -> Thread.ofVirtual().name("session-events-analysis").start(() -> pushAnalysis(sessionId, channel)),
+                    analysisDebounceMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void pushAnalysis(String sessionId, Channel channel) {
+        if (channel.subscribers.isEmpty()) {
+            return;
+        }
+        AutomatonSnapshot snapshot = channel.session.snapshot();
+        try {
+            AutomatonInfo info = analysisService.analyze(sessionId, snapshot);
+            publish(channel, new Event(snapshot.version(), "analysis", objectMapper.writeValueAsString(info)));
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.warn("Analyse non diffusée pour la session {} : {}", sessionId, e.toString());
+        }
+    }
+
+    /**
+     * Delta compact d'une mutation : {@code {"v":12,"op":"addState","id":"...",...}}.
+     */
+    private String delta(long version, Mutation mutation) {
+        Map<String, Object> delta = new LinkedHashMap<>();
+        delta.put("v", version);
+        delta.putAll(describe(mutation));
+        try {
+            return objectMapper.writeValueAsString(delta);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Description JSON d'une mutation élémentaire : {@code {"op":"addState","id":"...",...}}.
+     */
+    static Map<String, Object> describe(Mutation mutation) {
+        Map<String, Object> delta = new LinkedHashMap<>();
+        switch (mutation) {
+            case Mutation.AddState m -> {
+                delta.put("op", "addState");
+                delta.put("id", m.stateId());
+                delta.put("label", m.label());
+                delta.put("x", m.x());
+                delta.put("y", m.y());
+            }
+            case Mutation.RemoveState m -> {
+                delta.put("op", "removeState");
+                delta.put("id", m.stateId());
+            }
+            case Mutation.UpdateState m -> {
+                delta.put("op", "updateState");
+                delta.put("id", m.stateId());
+                delta.put("x", m.x());
+                delta.put("y", m.y());
+                if (m.initial() != null) {
+                    delta.put("initial", m.initial());
+                }
+                if (m.accepting() != null) {
+                    delta.put("accepting", m.accepting());
+                }
+            }
+            case Mutation.RenameState m -> {
+                delta.put("op", "renameState");
+                delta.put("id", m.stateId());
+                delta.put("label", m.label());
+            }
+            case Mutation.AddTransition m -> {
+                delta.put("op", "addTransition");
+                delta.put("id", m.transitionId());
+                delta.put("from", m.fromId());
+                delta.put("to", m.toId());
+                delta.put("symbol", m.symbol());
+            }
+            case Mutation.RemoveTransition m -> {
+                delta.put("op", "removeTransition");
+                delta.put("id", m.transitionId());
+            }
+            case Mutation.ReplaceAutomaton m -> throw new IllegalArgumentException("Pas de delta pour un remplacement");
+            case Mutation.DeleteAutomaton m -> throw new IllegalArgumentException("Pas de delta pour une suppression");
+            case Mutation.ForkSession m -> throw new IllegalArgumentException("Pas de delta pour une duplication");
+        }
+        return delta;
+    }
+
+    /**
+     * Snapshot au format normalisé, sérialisé immédiatement (sous le verrou de la session).
+     */
+    private Event snapshot(long version, Automaton automaton) {
+        StringWriter out = new StringWriter();
+        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+            gen.writeStartObject();
+            gen.writeNumberField("v", version);
+            gen.writeFieldName("automaton");
+            CompactAutomatonJson.write(automaton, gen);
+            gen.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new Event(version, "snapshot", out.toString());
+    }
+
+    /**
+     * Extrait la version d'un id d'événement {@code <époque>-<version>} de cette instance.
+     * @return -1 si l'id est absent, malformé ou émis avant un redémarrage
+     */
+    private static long parseVersion(String eventId) {
+        if (eventId == null || !eventId.startsWith(EPOCH + "-")) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(eventId.substring(EPOCH.length() + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package fr.baptgosse.automates.service;
+
+import fr.baptgosse.automates.dto.SessionStats;
+import fr.baptgosse.automates.model.Automaton;
+import fr.baptgosse.automates.model.PersistentAutomaton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Stockage borné des sessions en mémoire.
+ * Une session est évincée lorsqu'elle est inactive depuis plus que le TTL, ou lorsque le nombre
+ * de sessions ou le budget mémoire estimé sont dépassés (la moins récemment utilisée d'abord).
+ * Les sessions évincées sont signalées ({@link #setEvictionListener}) hors du moniteur du stockage.
+ *
+ * La lecture ({@link #get}) ne prend aucun verrou : elle ne fait que dater l'accès de la session.
+ * L'ordre LRU n'est reconstitué, à partir de ces dates, que lorsqu'une limite est dépassée ;
+ * les ajouts, suppressions et évictions restent sérialisés par le moniteur du stockage.
+ */
+@Component
+public class SessionStore {
+
+    @Value("${sessions.idle-ttl-minutes:120}")
+    private long idleTtlMinutes = 120;
+
+    @Value("${sessions.max-sessions:10000}")
+    private int maxSessions = 10_000;
+
+    @Value("${sessions.max-memory-mb:512}")
+    private long maxMemoryMb = 512;
+
+    private static final Comparator<Session> LEAST_RECENTLY_USED = Comparator.comparingLong(Session::getLastAccessMillis);
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong totalBytes = new AtomicLong();
+    // Incrémenté à chaque ajout, suppression ou modification d'une session (jamais par une lecture)
+    private final AtomicLong changeCount = new AtomicLong();
+
+    // Sessions évincées pas encore signalées (protégé par le moniteur du stockage)
+    private final List<Session> evicted = new ArrayList<>();
+    private volatile Consumer<Session> evictionListener = session -> { };
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong expiredEvictions = new AtomicLong();
+    private final AtomicLong capacityEvictions = new AtomicLong();
+    private final AtomicLong memoryEvictions = new AtomicLong();
+
+    /**
+     * Ajoute (ou remplace) une session, puis applique les limites.
+     * L'automate ne doit plus être modifié : il sert de copie de lecture à la nouvelle version.
+     */
+    public Session put(String sessionId, Automaton automaton) {
+        // Construction de la version immuable (O(n)) hors du moniteur du stockage
+        Session session = put(sessionId, automaton, PersistentAutomaton.of(automaton));
+        notifyEvictions();
+        return session;
+    }
+
+    /**
+     * Ajoute (ou remplace) une session à partir d'une version immuable existante, sans copie.
+     */
+    public Session put(String sessionId, PersistentAutomaton automaton) {
+        Session session = put(sessionId, null, automaton);
+        notifyEvictions();
+        return session;
+    }
+
+    /**
+     * Observateur des sessions évincées (journalisation de leur suppression).
+     */
+    public void setEvictionListener(Consumer<Session> listener) {
+        this.evictionListener = listener;
+    }
+
+    private void notifyEvictions() {
+        List<Session> batch;
+        synchronized (this) {
+            if (evicted.isEmpty()) {
+                return;
+            }
+            batch = new ArrayList<>(evicted);
+            evicted.clear();
+        }
+        batch.forEach(evictionListener);
+    }
+
+    private synchronized Session put(String sessionId, Automaton automaton, PersistentAutomaton persistent) {
+        changeCount.incrementAndGet();
+        long now = System.currentTimeMillis();
+        Session session = sessions.get(sessionId);
+        if (session == null) {
+            session = new Session(sessionId, automaton, persistent, now);
+            sessions.put(sessionId, session);
+            totalBytes.addAndGet(session.getEstimatedBytes());
+        } else {
+            session.touch(now);
+            long before = session.getEstimatedBytes();
+            session.replace(automaton, persistent);
+            totalBytes.addAndGet(session.getEstimatedBytes() - before);
+        }
+        enforceLimits(sessionId);
+        return session;
+    }
+
+    /**
+     * Récupère une session et la marque comme récemment utilisée (sans verrou).
+     */
+    public Optional<Session> get(String sessionId) {
+        Session session = sessions.get(sessionId);
+        if (session == null) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        session.touch(System.currentTimeMillis());
+        hits.incrementAndGet();
+        return Optional.of(session);
+    }
+
+    /**
+     * Signale la modification d'une session (sous son verrou d'écriture) : met à jour son
+     * estimation mémoire et le compteur de modifications. Les limites seront appliquées au
+     * prochain ajout ou balayage.
+     */
+    public void modified(Session session) {
+        changeCount.incrementAndGet();
+        totalBytes.addAndGet(session.refreshEstimate());
+    }
+
+    /**
+     * Indique si une session existe, sans la marquer comme utilisée.
+     */
+    public boolean contains(String sessionId) {
+        return sessions.containsKey(sessionId);
+    }
+
+    /**
+     * Indique si cette session est toujours stockée (ni supprimée, ni évincée).
+     */
+    public boolean isStored(Session session) {
+        return sessions.get(session.getId()) == session;
+    }
+
+    /**
+     * Supprime une session.
+     */
+    public synchronized void remove(String sessionId) {
+        Session removed = sessions.remove(sessionId);
+        if (removed != null) {
+            changeCount.incrementAndGet();
+            totalBytes.addAndGet(-removed.getEstimatedBytes());
+        }
+    }
+
+    /**
+     * Compteur de modifications, permettant de savoir si le stockage a pu changer.
+     */
+    public long getChangeCount() {
+        return changeCount.get();
+    }
+
+    /**
+     * Vue des sessions, de la moins à la plus récemment utilisée (copie).
+     */
+    public List<Session> snapshot() {
+        List<Session> snapshot = new ArrayList<>(sessions.values());
+        snapshot.sort(LEAST_RECENTLY_USED);
+        return snapshot;
+    }
+
+    /**
+     * Évince périodiquement les sessions inactives et réajuste les estimations mémoire.
+     */
+    @Scheduled(fixedDelayString = "${sessions.sweep-interval-ms:30000}")
+    public void sweep() {
+        expire();
+        notifyEvictions();
+    }
+
+    /**
+     * Évince les sessions expirées et recalcule le total des estimations mémoire
+     * (corrige les écarts laissés par des modifications concurrentes d'une suppression).
+     */
+    private synchronized void expire() {
+        long cutoff = System.currentTimeMillis() - idleTtlMinutes * 60_000;
+        long total = 0;
+        Iterator<Session> it = sessions.values().iterator();
+        while (it.hasNext()) {
+            Session session = it.next();
+            if (session.getLastAccessMillis() < cutoff) {
+                it.remove();
+                evicted.add(session);
+                changeCount.incrementAndGet();
+                expiredEvictions.incrementAndGet();
+            } else {
+                session.refreshEstimate();
+                total += session.getEstimatedBytes();
+            }
+        }
+        totalBytes.set(total);
+        enforceLimits(null);
+    }
+
+    /**
+     * Évince les sessions les moins récemment utilisées tant que les limites sont dépassées.
+     * La session {@code protectedId} (celle qui vient d'être écrite) n'est jamais évincée.
+     */
+    private void enforceLimits(String protectedId) {
+        long maxBytes = maxMemoryMb * 1024 * 1024;
+        if (sessions.size() <= maxSessions && totalBytes.get() <= maxBytes) {
+            return;
+        }
+        // Ordre LRU reconstitué à partir des dates d'accès, seulement en cas de dépassement
+        Iterator<Session> it = snapshot().iterator();
+        while (it.hasNext() && (sessions.size() > maxSessions || totalBytes.get() > maxBytes)) {
+            Session eldest = it.next();
+            if (eldest.getId().equals(protectedId)) {
+                continue;
+            }
+            boolean overCapacity = sessions.size() > maxSessions;
+            sessions.remove(eldest.getId());
+            evicted.add(eldest);
+            changeCount.incrementAndGet();
+            totalBytes.addAndGet(-eldest.getEstimatedBytes());
+            (overCapacity ? capacityEvictions : memoryEvictions).incrementAndGet();
+        }
+    }
+
+    /**
+     * Statistiques de taille et d'éviction.
+     */
+    public SessionStats stats() {
+        return new SessionStats(
+                sessions.size(),
+                maxSessions,
+                totalBytes.get(),
+                maxMemoryMb * 1024 * 1024,
+                idleTtlMinutes,
+                hits.get(),
+                misses.get(),
+                expiredEvictions.get(),
+                capacityEvictions.get(),
+                memoryEvictions.get()
+        );
+    }
+}
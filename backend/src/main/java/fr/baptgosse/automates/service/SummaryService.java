@@ -0,0 +1,47 @@
+package fr.baptgosse.automates.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import fr.baptgosse.automates.io.SummaryJson;
+import fr.baptgosse.automates.model.PersistentAutomaton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+
+/**
+ * Résumés des vues dézoomées : les états sont regroupés par cellule d'une grille dont le pas
+ * double à chaque palier, les transitions agrégées entre groupes.
+ *
+ * Le palier est choisi pour que la fenêtre couvre au plus {@code summary.max-clusters} cellules :
+ * la taille de la réponse est bornée quel que soit le nombre d'états. Chaque version immuable
+ * garde ses résumés par palier, mis à jour (et non recalculés) à chaque modification.
+ */
+@Service
+public class SummaryService {
+
+    @Value("${summary.max-clusters:1024}")
+    private int maxClusters = 1024;
+
+    @Value("${summary.max-links:4096}")
+    private int maxLinks = 4096;
+
+    /**
+     * Palier du résumé de la fenêtre : le palier demandé, relevé si la fenêtre y couvre trop de cellules,
+     * ou à défaut le plus fin qui respecte {@code summary.max-clusters}.
+     */
+    public int tier(double x0, double y0, double x1, double y1, Integer requested) {
+        if (requested != null && (requested < 0 || requested > PersistentAutomaton.MAX_SUMMARY_TIER)) {
+            throw new IllegalArgumentException("Palier invalide (0 à " + PersistentAutomaton.MAX_SUMMARY_TIER + ")");
+        }
+        int minimum = PersistentAutomaton.summaryTier(x0, y0, x1, y1, maxClusters);
+        return requested != null ? Math.max(requested, minimum) : minimum;
+    }
+
+    /**
+     * Écrit le résumé de la fenêtre [x0, x1] × [y0, y1] de la version courante.
+     */
+    public void write(Versioned<PersistentAutomaton> current, int tier,
+                      double x0, double y0, double x1, double y1, JsonGenerator gen) throws IOException {
+        SummaryJson.write(current.value(), current.version(), tier, x0, y0, x1, y1, maxLinks, gen);
+    }
+}
@@ -0,0 +1,119 @@
+package fr.baptgosse.automates.service;
+
+import fr.baptgosse.automates.model.PersistentAutomaton;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Historique d'annulation d'une session : piles de versions immuables antérieures (annuler)
+ * et postérieures (rétablir).
+ *
+ * Les versions partagent leur structure : chaque entrée ne coûte que ce qui la distingue de
+ * ses voisines, estimé à la création ({@link Entry#bytes()}). Les entrées les plus anciennes
+ * sont abandonnées au-delà du nombre ou de la mémoire maximum.
+ */
+class UndoHistory {
+
+    /**
+     * Version conservée.
+     * @param bytes estimation de la mémoire propre à cette version
+     */
+    record Entry(long version, PersistentAutomaton automaton, long bytes) {
+    }
+
+    // Premier élément : la version la plus récente
+    private final Deque<Entry> undo = new ArrayDeque<>();
+    private final Deque<Entry> redo = new ArrayDeque<>();
+    private long estimatedBytes;
+
+    /**
+     * Enregistre la version précédant une modification de l'utilisateur ; rétablir n'est plus possible.
+     */
+    synchronized void record(Entry entry, int maxEntries, long maxBytes) {
+        redo.forEach(e -> estimatedBytes -= e.bytes());
+        redo.clear();
+        push(undo, entry, maxEntries, maxBytes);
+    }
+
+    synchronized Entry popUndo() {
+        return pop(undo);
+    }
+
+    synchronized Entry popRedo() {
+        return pop(redo);
+    }
+
+    synchronized void pushUndo(Entry entry, int maxEntries, long maxBytes) {
+        push(undo, entry, maxEntries, maxBytes);
+    }
+
+    synchronized void pushRedo(Entry entry, int maxEntries, long maxBytes) {
+        push(redo, entry, maxEntries, maxBytes);
+    }
+
+    synchronized int undoSize() {
+        return undo.size();
+    }
+
+    synchronized int redoSize() {
+        return redo.size();
+    }
+
+    synchronized long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    /**
+     * Versions annulables, de la plus récente à la plus ancienne (copie).
+     */
+    synchronized List<Entry> undoEntries() {
+        return new ArrayList<>(undo);
+    }
+
+    /**
+     * Versions rétablissables, de la plus proche à la plus lointaine (copie).
+     */
+    synchronized List<Entry> redoEntries() {
+        return new ArrayList<>(redo);
+    }
+
+    /**
+     * Recherche une version conservée par son numéro.
+     */
+    synchronized Entry find(long version) {
+        for (Entry entry : undo) {
+            if (entry.version() == version) {
+                return entry;
+            }
+        }
+        for (Entry entry : redo) {
+            if (entry.version() == version) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private Entry pop(Deque<Entry> stack) {
+        Entry entry = stack.pollFirst();
+        if (entry != null) {
+            estimatedBytes -= entry.bytes();
+        }
+        return entry;
+    }
+
+    private void push(Deque<Entry> stack, Entry entry, int maxEntries, long maxBytes) {
+        stack.addFirst(entry);
+        estimatedBytes += entry.bytes();
+        // Abandonne les versions les plus lointaines, sans jamais vider la pile
+        Iterator<Entry> oldest = stack.descendingIterator();
+        while (stack.size() > 1 && (stack.size() > maxEntries || estimatedBytes > maxBytes)) {
+            estimatedBytes -= oldest.next().bytes();
+            oldest.remove();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package fr.baptgosse.automates.service;
+
+/**
+ * Levée lorsqu'une modification conditionnelle (If-Match) porte sur une version
+ * de l'automate qui n'est plus la version courante.
+ */
+public class VersionConflictException extends RuntimeException {
+
+    private final long currentVersion;
+
+    public VersionConflictException(long expectedVersion, long currentVersion) {
+        super("Version attendue " + expectedVersion + ", version courante " + currentVersion);
+        this.currentVersion = currentVersion;
+    }
+
+    public long getCurrentVersion() {
+        return currentVersion;
+    }
+}
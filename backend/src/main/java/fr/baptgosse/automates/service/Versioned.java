@@ -0,0 +1,7 @@
+package fr.baptgosse.automates.service;
+
+/**
+ * Résultat d'une modification accompagné de la version de l'automate qui en résulte.
+ */
+public record Versioned<T>(T value, long version) {
+}
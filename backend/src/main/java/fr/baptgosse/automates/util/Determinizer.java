@@ -0,0 +1,298 @@
+package fr.baptgosse.automates.util;
+
+import fr.baptgosse.automates.model.Automaton;
+import fr.baptgosse.automates.model.IndexedAutomaton;
+import fr.baptgosse.automates.model.State;
+import fr.baptgosse.automates.model.Transition;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Déterminisation d'un automate par construction des sous-ensembles.
+ *
+ * Deux moteurs produisent exactement le même AFD :
+ * - SEQUENTIAL : parcours en largeur classique ;
+ * - PARALLEL : chaque couche du parcours en largeur est développée sur un {@link ForkJoinPool},
+ *   les sous-ensembles sont internés dans une table concurrente à verrous par segments,
+ *   puis numérotés séquentiellement dans l'ordre (sous-ensemble, symbole) de la couche,
+ *   ce qui reproduit la numérotation du moteur séquentiel.
+ */
+public class Determinizer {
+
+    public enum Mode { SEQUENTIAL, PARALLEL }
+
+    // En dessous de ce nombre de sous-ensembles, une tâche fork-join n'est plus découpée
+    private static final int SPLIT_THRESHOLD = 16;
+
+    private static final double GRID_SPACING = 150.0;
+    private static final int GRID_COLUMNS = 10;
+
+    /**
+     * Déterminise un automate avec le moteur demandé.
+     */
+    public static Automaton determinize(Automaton automaton, Mode mode) {
+        return determinize(automaton, mode, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Déterminise un automate ; le pool n'est utilisé qu'en mode PARALLEL.
+     */
+    public static Automaton determinize(Automaton automaton, Mode mode, ForkJoinPool pool) {
+        IndexedAutomaton nfa = IndexedAutomaton.compile(automaton);
+        List<SubsetTable.Entry> subsets = new ArrayList<>();
+        List<int[]> successors = new ArrayList<>();
+
+        if (mode == Mode.PARALLEL) {
+            expandParallel(nfa, pool, subsets, successors);
+        } else {
+            expandSequential(nfa, subsets, successors);
+        }
+        return build(nfa, automaton.getName(), subsets, successors);
+    }
+
+    /**
+     * Parcours en largeur séquentiel.
+     */
+    private static void expandSequential(IndexedAutomaton nfa, List<SubsetTable.Entry> subsets, List<int[]> successors) {
+        SubsetTable table = new SubsetTable(1);
+        SubsetTable.Entry start = table.intern(initialSubset(nfa));
+        start.id = 0;
+        subsets.add(start);
+
+        int k = nfa.symbolCount();
+        for (int i = 0; i < subsets.size(); i++) {
+            int[] row = new int[k];
+            for (int a = 0; a < k; a++) {
+                int[] next = step(nfa, subsets.get(i).states, a);
+                if (next.length == 0) {
+                    row[a] = -1;
+                    continue;
+                }
+                SubsetTable.Entry entry = table.intern(next);
+                if (entry.id < 0) {
+                    entry.id = subsets.size();
+                    subsets.add(entry);
+                }
+                row[a] = entry.id;
+            }
+            successors.add(row);
+        }
+    }
+
+    /**
+     * Parcours en largeur couche par couche : calcul parallèle des successeurs,
+     * puis attribution séquentielle et déterministe des identifiants.
+     */
+    private static void expandParallel(IndexedAutomaton nfa, ForkJoinPool pool,
+                                       List<SubsetTable.Entry> subsets, List<int[]> successors) {
+        SubsetTable table = new SubsetTable(64);
+        SubsetTable.Entry start = table.intern(initialSubset(nfa));
+        start.id = 0;
+        subsets.add(start);
+
+        int k = nfa.symbolCount();
+        int layerStart = 0;
+        while (layerStart < subsets.size()) {
+            List<SubsetTable.Entry> layer = new ArrayList<>(subsets.subList(layerStart, subsets.size()));
+            SubsetTable.Entry[][] expanded = new SubsetTable.Entry[layer.size()][];
+            pool.invoke(new ExpandLayer(nfa, table, layer, expanded, 0, layer.size()));
+
+            int layerEnd = subsets.size();
+            for (SubsetTable.Entry[] cells : expanded) {
+                int[] row = new int[k];
+                for (int a = 0; a < k; a++) {
+                    SubsetTable.Entry entry = cells[a];
+                    if (entry == null) {
+                        row[a] = -1;
+                        continue;
+                    }
+                    if (entry.id < 0) {
+                        entry.id = subsets.size();
+                        subsets.add(entry);
+                    }
+                    row[a] = entry.id;
+                }
+                successors.add(row);
+            }
+            layerStart = layerEnd;
+        }
+    }
+
+    /**
+     * Tâche fork-join calculant les successeurs d'une tranche de la couche courante.
+     */
+    private static final class ExpandLayer extends RecursiveAction {
+        private final IndexedAutomaton nfa;
+        private final SubsetTable table;
+        private final List<SubsetTable.Entry> layer;
+        private final SubsetTable.Entry[][] expanded;
+        private final int from;
+        private final int to;
+
+        ExpandLayer(IndexedAutomaton nfa, SubsetTable table, List<SubsetTable.Entry> layer,
+                    SubsetTable.Entry[][] expanded, int from, int to) {
+            this.nfa = nfa;
+            this.table = table;
+            this.layer = layer;
+            this.expanded = expanded;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > SPLIT_THRESHOLD) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ExpandLayer(nfa, table, layer, expanded, from, mid),
+                          new ExpandLayer(nfa, table, layer, expanded, mid, to));
+                return;
+            }
+            int k = nfa.symbolCount();
+            for (int i = from; i < to; i++) {
+                SubsetTable.Entry[] cells = new SubsetTable.Entry[k];
+                for (int a = 0; a < k; a++) {
+                    int[] next = step(nfa, layer.get(i).states, a);
+                    cells[a] = next.length == 0 ? null : table.intern(next);
+                }
+                expanded[i] = cells;
+            }
+        }
+    }
+
+    /**
+     * ε-fermeture de l'ensemble des états initiaux.
+     */
+    private static int[] initialSubset(IndexedAutomaton nfa) {
+        BitSet seeds = new BitSet(nfa.stateCount());
+        for (int q = 0; q < nfa.stateCount(); q++) {
+            if (nfa.isInitial(q)) {
+                seeds.set(q);
+            }
+        }
+        if (seeds.isEmpty()) {
+            throw new IllegalArgumentException("L'automate n'a pas d'état initial");
+        }
+        return closure(nfa, seeds);
+    }
+
+    /**
+     * Calcule ε-fermeture(δ(subset, a)), triée.
+     */
+    private static int[] step(IndexedAutomaton nfa, int[] subset, int a) {
+        BitSet moved = new BitSet(nfa.stateCount());
+        for (int q : subset) {
+            for (int i = nfa.targetsStart(q, a), end = nfa.targetsEnd(q, a); i < end; i++) {
+                moved.set(nfa.target(i));
+            }
+        }
+        return moved.isEmpty() ? new int[0] : closure(nfa, moved);
+    }
+
+    private static int[] closure(IndexedAutomaton nfa, BitSet seeds) {
+        int[] stack = seeds.stream().toArray();
+        int top = stack.length;
+        while (top > 0) {
+            int q = stack[--top];
+            for (int i = nfa.epsilonStart(q), end = nfa.epsilonEnd(q); i < end; i++) {
+                int r = nfa.epsilonTarget(i);
+                if (!seeds.get(r)) {
+                    seeds.set(r);
+                    if (top == stack.length) {
+                        stack = Arrays.copyOf(stack, stack.length * 2 + 1);
+                    }
+                    stack[top++] = r;
+                }
+            }
+        }
+        return seeds.stream().toArray();
+    }
+
+    /**
+     * Construit l'AFD résultat ; les états sont disposés en grille dans l'ordre de découverte.
+     */
+    private static Automaton build(IndexedAutomaton nfa, String name, List<SubsetTable.Entry> subsets, List<int[]> successors) {
+        Automaton dfa = new Automaton(name + " (déterminisé)");
+        IdSequence ids = new IdSequence();
+        State[] states = new State[subsets.size()];
+        for (int id = 0; id < subsets.size(); id++) {
+            int[] subset = subsets.get(id).states;
+            StringJoiner label = new StringJoiner(",", "{", "}");
+            boolean accepting = false;
+            for (int q : subset) {
+                label.add(nfa.state(q).getLabel());
+                accepting |= nfa.isAccepting(q);
+            }
+            double x = 100 + (id % GRID_COLUMNS) * GRID_SPACING;
+            double y = 100 + (id / GRID_COLUMNS) * GRID_SPACING;
+            states[id] = new State(ids.next(), label.toString(), x, y, id == 0, accepting);
+            dfa.addState(states[id]);
+        }
+        for (int id = 0; id < successors.size(); id++) {
+            int[] row = successors.get(id);
+            for (int a = 0; a < row.length; a++) {
+                if (row[a] >= 0) {
+                    dfa.addTransition(new Transition(ids.next(), states[id], states[row[a]], nfa.symbol(a)));
+                }
+            }
+        }
+        return dfa;
+    }
+
+    /**
+     * Table d'internement des sous-ensembles, segmentée en plusieurs verrous
+     * pour limiter la contention entre les tâches parallèles.
+     */
+    private static final class SubsetTable {
+
+        static final class Entry {
+            final int[] states;
+            final int hash;
+            int id = -1; // Attribué uniquement pendant la phase séquentielle
+
+            Entry(int[] states) {
+                this.states = states;
+                this.hash = Arrays.hashCode(states);
+            }
+
+            @Override
+            public boolean equals(Object o) {
+                return o instanceof Entry other && hash == other.hash && Arrays.equals(states, other.states);
+            }
+
+            @Override
+            public int hashCode() {
+                return hash;
+            }
+        }
+
+        private final ReentrantLock[] locks;
+        private final List<Map<Entry, Entry>> segments;
+
+        SubsetTable(int segmentCount) {
+            locks = new ReentrantLock[segmentCount];
+            segments = new ArrayList<>(segmentCount);
+            for (int i = 0; i < segmentCount; i++) {
+                locks[i] = new ReentrantLock();
+                segments.add(new HashMap<>());
+            }
+        }
+
+        /**
+         * Retourne l'entrée canonique pour ce sous-ensemble, en la créant si nécessaire.
+         */
+        Entry intern(int[] subset) {
+            Entry candidate = new Entry(subset);
+            int segment = Math.floorMod(candidate.hash ^ (candidate.hash >>> 16), locks.length);
+            ReentrantLock lock = locks[segment];
+            lock.lock();
+            try {
+                return segments.get(segment).computeIfAbsent(candidate, e -> e);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,540 @@
+package fr.baptgosse.automates.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Disposition automatique par forces (modèle ressort-électrique multi-niveaux de Yifan Hu),
+ * répulsion approchée par Barnes-Hut.
+ *
+ * Le graphe (arcs non orientés) est d'abord contracté par appariements successifs d'états voisins
+ * jusqu'à quelques dizaines d'états. Le graphe le plus grossier est disposé à partir d'une spirale,
+ * puis chaque niveau hérite des positions du niveau plus grossier (un état à la place de son
+ * représentant) et les affine : une disposition à grande échelle est ainsi trouvée sur peu d'états,
+ * et les états réels ne font que se placer localement, sans se replier.
+ *
+ * Les positions sont des tableaux plats. À chaque itération, un quadtree (lui aussi en tableaux)
+ * est construit sur les positions, puis la force sur chaque état est accumulée en parallèle par
+ * blocs d'états : la répulsion de tous les autres en O(log n) grâce au quadtree, l'attraction de
+ * ses voisins et un léger rappel vers le centre. Chaque bloc n'écrit que ses propres forces, sans
+ * synchronisation. Le pas s'adapte à l'énergie (il grandit tant qu'elle diminue, rétrécit sinon).
+ * La disposition finale est mise à l'échelle pour que les arcs mesurent en moyenne l'espacement demandé.
+ */
+public final class ForceLayout {
+
+    /**
+     * Suivi d'une disposition, appelé depuis le thread de {@link #layout} après chaque itération.
+     */
+    public interface Listener {
+        /**
+         * @param fraction avancement estimé, de 0 à 1
+         * @return vrai pour recevoir les positions courantes de tous les états
+         */
+        boolean progress(double fraction);
+
+        /**
+         * Positions courantes (tableaux réutilisés : à copier s'ils doivent être conservés).
+         */
+        void positions(double[] x, double[] y);
+    }
+
+    // Précision de Barnes-Hut : une cellule est vue comme un seul corps si taille / distance < THETA
+    private static final double THETA = 0.9;
+    // Force relative de la répulsion, et facteur d'adaptation du pas
+    private static final double REPULSION = 0.2;
+    private static final double COOLING = 0.9;
+    // Contraction arrêtée à cette taille, ou quand un niveau ne réduit presque plus le graphe
+    private static final int COARSEST = 50;
+    private static final double MIN_REDUCTION = 0.9;
+    private static final int MAX_DEPTH = 40;
+    private static final int CHUNK = 512;
+
+    private ForceLayout() {
+    }
+
+    /**
+     * Graphe d'un niveau : voisins au format CSR, représentant de chaque état au niveau suivant.
+     */
+    private record Level(int size, int[] offsets, int[] neighbors, int[] parent) {
+    }
+
+    /**
+     * Calcule des positions pour {@code x.length} états, écrites dans {@code x} et {@code y}.
+     * Chaque niveau fait au plus {@code iterations} itérations (moins s'il se stabilise).
+     * Le résultat ne dépend que du graphe : les positions d'entrée sont ignorées.
+     * @param from extrémités des arcs (indices d'états) ; les boucles sont ignorées
+     * @param spacing longueur moyenne des arcs une fois disposés
+     * @throws CancellationException si le thread est interrompu
+     */
+    public static void layout(double[] x, double[] y, int[] from, int[] to, double spacing, int iterations,
+                              ForkJoinPool pool, Listener listener) {
+        int n = x.length;
+        if (n == 0) {
+            return;
+        }
+        SplittableRandom random = new SplittableRandom(n);
+        List<Level> levels = coarsen(n, from, to, random);
+        long work = levels.stream().mapToLong(Level::size).sum();
+        long done = 0;
+
+        // Spirale (phyllotaxie) pour le niveau le plus grossier
+        Level coarsest = levels.get(levels.size() - 1);
+        double[] cx = new double[coarsest.size()];
+        double[] cy = new double[coarsest.size()];
+        double angle = Math.PI * (3 - Math.sqrt(5));
+        for (int i = 0; i < cx.length; i++) {
+            double r = spacing * Math.sqrt(i + 0.5);
+            cx[i] = r * Math.cos(i * angle);
+            cy[i] = r * Math.sin(i * angle);
+        }
+
+        for (int l = levels.size() - 1; l >= 0; l--) {
+            Level level = levels.get(l);
+            if (l < levels.size() - 1) {
+                // Chaque état part de la position de son représentant, légèrement décalé
+                double scale = Math.sqrt((double) level.size() / cx.length);
+                double[] px = new double[level.size()];
+                double[] py = new double[level.size()];
+                for (int i = 0; i < px.length; i++) {
+                    px[i] = cx[level.parent()[i]] * scale + (random.nextDouble() - 0.5) * spacing * 0.1;
+                    py[i] = cy[level.parent()[i]] * scale + (random.nextDouble() - 0.5) * spacing * 0.1;
+                }
+                cx = px;
+                cy = py;
+            }
+            double firstStep = l == levels.size() - 1 ? spacing * Math.sqrt(level.size()) / 10 : spacing * 0.3;
+            long before = done;
+            int depth = l;
+            refine(level, cx, cy, spacing, firstStep, iterations, pool, listener == null ? null : (fraction, px, py) -> {
+                double total = (before + fraction * level.size()) / work;
+                if (listener.progress(total)) {
+                    // x et y servent de tampon : ils sont réécrits à la fin
+                    project(levels, depth, px, py, x, y);
+                    normalize(x, y, from, to, spacing);
+                    listener.positions(x, y);
+                }
+            });
+            done += level.size();
+        }
+        System.arraycopy(cx, 0, x, 0, n);
+        System.arraycopy(cy, 0, y, 0, n);
+        normalize(x, y, from, to, spacing);
+    }
+
+    /**
+     * Suivi d'un niveau : avancement dans le niveau et positions de ses états.
+     */
+    private interface LevelListener {
+        void iteration(double fraction, double[] x, double[] y);
+    }
+
+    /**
+     * Affine les positions d'un niveau (Yifan Hu : pas adaptatif, arrêt à la stabilisation).
+     */
+    private static void refine(Level level, double[] x, double[] y, double k, double step, int iterations,
+                               ForkJoinPool pool, LevelListener listener) {
+        int n = level.size();
+        if (n < 2) {
+            return;
+        }
+        int[] offsets = level.offsets();
+        int[] neighbors = level.neighbors();
+        double gravity = 1 / Math.sqrt(n);
+        double energy = Double.POSITIVE_INFINITY;
+        int progress = 0;
+
+        double[] fx = new double[n];
+        double[] fy = new double[n];
+        QuadTree tree = new QuadTree(n);
+        int chunks = (n + CHUNK - 1) / CHUNK;
+
+        for (int iteration = 1; iteration <= iterations; iteration++) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("Disposition annulée");
+            }
+            tree.build(x, y);
+            double centerX = tree.sumX[0] / n;
+            double centerY = tree.sumY[0] / n;
+
+            pool.submit(() -> IntStream.range(0, chunks).parallel().forEach(c -> {
+                int[] stack = new int[4 * (MAX_DEPTH + 1)];
+                for (int i = c * CHUNK, end = Math.min(n, i + CHUNK); i < end; i++) {
+                    double[] force = {0, 0};
+                    tree.repulsion(i, x, y, REPULSION * k * k, stack, force);
+                    for (int e = offsets[i]; e < offsets[i + 1]; e++) {
+                        int j = neighbors[e];
+                        double dx = x[i] - x[j];
+                        double dy = y[i] - y[j];
+                        double d = Math.sqrt(dx * dx + dy * dy);
+                        force[0] -= dx * d / k;
+                        force[1] -= dy * d / k;
+                    }
+                    force[0] -= (x[i] - centerX) * gravity;
+                    force[1] -= (y[i] - centerY) * gravity;
+                    fx[i] = force[0];
+                    fy[i] = force[1];
+                }
+            })).join();
+
+            // Déplacements d'un pas dans la direction de la force, après le calcul de toutes les forces
+            double previous = energy;
+            energy = 0;
+            double moved = 0;
+            for (int i = 0; i < n; i++) {
+                double length2 = fx[i] * fx[i] + fy[i] * fy[i];
+                if (length2 > 0) {
+                    double length = Math.sqrt(length2);
+                    x[i] += fx[i] * step / length;
+                    y[i] += fy[i] * step / length;
+                    energy += length2;
+                    moved += Math.min(step, length);
+                }
+            }
+            if (energy < previous) {
+                if (++progress >= 5) {
+                    progress = 0;
+                    step /= COOLING;
+                }
+            } else {
+                progress = 0;
+                step *= COOLING;
+            }
+            boolean stable = step < k * 0.02 || moved < n * k * 0.02;
+            if (listener != null) {
+                listener.iteration(stable ? 1 : (double) iteration / iterations, x, y);
+            }
+            if (stable) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Contracte le graphe par appariements d'états voisins (le voisin de plus faible degré),
+     * jusqu'à {@link #COARSEST} états ou un niveau qui ne réduit plus assez.
+     * @return les niveaux, du graphe d'origine au plus grossier
+     */
+    private static List<Level> coarsen(int n, int[] from, int[] to, SplittableRandom random) {
+        List<Level> levels = new ArrayList<>();
+        int[][] csr = adjacency(n, from, to);
+        Level level = new Level(n, csr[0], csr[1], null);
+        while (true) {
+            if (level.size() <= COARSEST) {
+                levels.add(level);
+                return levels;
+            }
+            int size = level.size();
+            int[] offsets = level.offsets();
+            int[] neighbors = level.neighbors();
+            int[] parent = new int[size];
+            Arrays.fill(parent, -1);
+            int[] order = IntStream.range(0, size).toArray();
+            for (int i = size - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int swap = order[i];
+                order[i] = order[j];
+                order[j] = swap;
+            }
+            int coarse = 0;
+            for (int u : order) {
+                if (parent[u] >= 0) {
+                    continue;
+                }
+                int match = -1;
+                for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                    int v = neighbors[e];
+                    if (parent[v] < 0 && v != u && (match < 0
+                            || offsets[v + 1] - offsets[v] < offsets[match + 1] - offsets[match])) {
+                        match = v;
+                    }
+                }
+                parent[u] = coarse;
+                if (match >= 0) {
+                    parent[match] = coarse;
+                }
+                coarse++;
+            }
+            if (coarse > size * MIN_REDUCTION) {
+                levels.add(level);
+                return levels;
+            }
+            levels.add(new Level(size, offsets, neighbors, parent));
+
+            // Graphe contracté : voisins des deux états fusionnés, sans doublons ni boucles
+            int[] members = new int[size];
+            int[] memberOffsets = new int[coarse + 1];
+            for (int u = 0; u < size; u++) {
+                memberOffsets[parent[u] + 1]++;
+            }
+            for (int c = 0; c < coarse; c++) {
+                memberOffsets[c + 1] += memberOffsets[c];
+            }
+            int[] fill = Arrays.copyOf(memberOffsets, coarse);
+            for (int u = 0; u < size; u++) {
+                members[fill[parent[u]]++] = u;
+            }
+            int[] seen = new int[coarse];
+            Arrays.fill(seen, -1);
+            int[] coarseOffsets = new int[coarse + 1];
+            int[] coarseNeighbors = new int[offsets[size]];
+            int count = 0;
+            for (int c = 0; c < coarse; c++) {
+                seen[c] = c;
+                for (int m = memberOffsets[c]; m < memberOffsets[c + 1]; m++) {
+                    int u = members[m];
+                    for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                        int d = parent[neighbors[e]];
+                        if (seen[d] != c) {
+                            seen[d] = c;
+                            coarseNeighbors[count++] = d;
+                        }
+                    }
+                }
+                coarseOffsets[c + 1] = count;
+            }
+            level = new Level(coarse, coarseOffsets, Arrays.copyOf(coarseNeighbors, count), null);
+        }
+    }
+
+    /**
+     * Positions des états d'origine d'après celles du niveau {@code l} (chacun à la place de son représentant).
+     */
+    private static void project(List<Level> levels, int l, double[] lx, double[] ly, double[] x, double[] y) {
+        for (int i = 0; i < x.length; i++) {
+            int node = i;
+            for (int j = 0; j < l; j++) {
+                node = levels.get(j).parent()[node];
+            }
+            x[i] = lx[node];
+            y[i] = ly[node];
+        }
+    }
+
+    /**
+     * Met la disposition à l'échelle (autour de son centre) pour que les arcs mesurent {@code spacing} en moyenne.
+     */
+    private static void normalize(double[] x, double[] y, int[] from, int[] to, double spacing) {
+        double total = 0;
+        int count = 0;
+        for (int e = 0; e < from.length; e++) {
+            if (from[e] != to[e]) {
+                total += Math.hypot(x[from[e]] - x[to[e]], y[from[e]] - y[to[e]]);
+                count++;
+            }
+        }
+        if (count == 0 || total == 0) {
+            return;
+        }
+        double scale = spacing * count / total;
+        double centerX = Arrays.stream(x).average().orElse(0);
+        double centerY = Arrays.stream(y).average().orElse(0);
+        for (int i = 0; i < x.length; i++) {
+            x[i] = centerX + (x[i] - centerX) * scale;
+            y[i] = centerY + (y[i] - centerY) * scale;
+        }
+    }
+
+    /**
+     * Voisins distincts de chaque état (arcs non orientés, boucles exclues) au format CSR : {offsets, voisins}.
+     */
+    private static int[][] adjacency(int n, int[] from, int[] to) {
+        int[] offsets = new int[n + 1];
+        for (int e = 0; e < from.length; e++) {
+            if (from[e] != to[e]) {
+                offsets[from[e] + 1]++;
+                offsets[to[e] + 1]++;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] fill = Arrays.copyOf(offsets, n);
+        int[] neighbors = new int[offsets[n]];
+        for (int e = 0; e < from.length; e++) {
+            if (from[e] != to[e]) {
+                neighbors[fill[from[e]]++] = to[e];
+                neighbors[fill[to[e]]++] = from[e];
+            }
+        }
+        // Arcs parallèles ou opposés : un seul voisin
+        int[] seen = new int[n];
+        Arrays.fill(seen, -1);
+        int[] distinct = new int[n + 1];
+        int count = 0;
+        for (int u = 0; u < n; u++) {
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                int v = neighbors[e];
+                if (seen[v] != u) {
+                    seen[v] = u;
+                    neighbors[count++] = v;
+                }
+            }
+            distinct[u + 1] = count;
+        }
+        return new int[][]{distinct, Arrays.copyOf(neighbors, count)};
+    }
+
+    /**
+     * Quadtree de Barnes-Hut en tableaux, reconstruit à chaque itération sans réallocation.
+     * Nœud 0 : racine ; les 4 enfants d'un nœud sont consécutifs à partir de {@code child[nœud]}.
+     */
+    private static final class QuadTree {
+        private int capacity;
+        private int size;
+        private double[] minX;
+        private double[] minY;
+        private double[] width;
+        private double[] sumX;
+        private double[] sumY;
+        private int[] mass;
+        private int[] body;   // état d'une feuille à un seul corps, sinon -1
+        private int[] child;  // premier enfant, ou -1 pour une feuille
+
+        QuadTree(int n) {
+            allocate(Math.max(16, 2 * n));
+        }
+
+        private void allocate(int capacity) {
+            this.capacity = capacity;
+            minX = grow(minX, capacity);
+            minY = grow(minY, capacity);
+            width = grow(width, capacity);
+            sumX = grow(sumX, capacity);
+            sumY = grow(sumY, capacity);
+            mass = grow(mass, capacity);
+            body = grow(body, capacity);
+            child = grow(child, capacity);
+        }
+
+        private static double[] grow(double[] array, int capacity) {
+            return array == null ? new double[capacity] : Arrays.copyOf(array, capacity);
+        }
+
+        private static int[] grow(int[] array, int capacity) {
+            return array == null ? new int[capacity] : Arrays.copyOf(array, capacity);
+        }
+
+        void build(double[] x, double[] y) {
+            double x0 = Double.POSITIVE_INFINITY;
+            double y0 = Double.POSITIVE_INFINITY;
+            double x1 = Double.NEGATIVE_INFINITY;
+            double y1 = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < x.length; i++) {
+                x0 = Math.min(x0, x[i]);
+                y0 = Math.min(y0, y[i]);
+                x1 = Math.max(x1, x[i]);
+                y1 = Math.max(y1, y[i]);
+            }
+            size = 0;
+            node(x0, y0, Math.max(x1 - x0, y1 - y0) * 1.0001 + 1e-6);
+            for (int i = 0; i < x.length; i++) {
+                insert(i, x[i], y[i]);
+            }
+        }
+
+        private int node(double x0, double y0, double w) {
+            if (size == capacity) {
+                allocate(capacity * 2);
+            }
+            int node = size++;
+            minX[node] = x0;
+            minY[node] = y0;
+            width[node] = w;
+            sumX[node] = 0;
+            sumY[node] = 0;
+            mass[node] = 0;
+            body[node] = -1;
+            child[node] = -1;
+            return node;
+        }
+
+        private void insert(int i, double px, double py) {
+            int node = 0;
+            for (int depth = 0; ; depth++) {
+                mass[node]++;
+                sumX[node] += px;
+                sumY[node] += py;
+                if (child[node] < 0) {
+                    if (mass[node] == 1) {
+                        body[node] = i;
+                        return;
+                    }
+                    if (depth >= MAX_DEPTH) {
+                        body[node] = -1; // corps confondus, regroupés dans la feuille
+                        return;
+                    }
+                    int other = body[node];
+                    body[node] = -1;
+                    double half = width[node] / 2;
+                    int first = node(minX[node], minY[node], half);
+                    node(minX[node] + half, minY[node], half);
+                    node(minX[node], minY[node] + half, half);
+                    node(minX[node] + half, minY[node] + half, half);
+                    child[node] = first;
+                    int c = quadrant(node, sumX[node] - px, sumY[node] - py);
+                    mass[c] = 1;
+                    sumX[c] = sumX[node] - px;
+                    sumY[c] = sumY[node] - py;
+                    body[c] = other;
+                }
+                node = quadrant(node, px, py);
+            }
+        }
+
+        private int quadrant(int node, double px, double py) {
+            double half = width[node] / 2;
+            int q = (px >= minX[node] + half ? 1 : 0) + (py >= minY[node] + half ? 2 : 0);
+            return child[node] + q;
+        }
+
+        /**
+         * Ajoute à {@code force} la répulsion k²/d exercée sur l'état i par tous les autres.
+         */
+        void repulsion(int i, double[] x, double[] y, double k2, int[] stack, double[] force) {
+            double px = x[i];
+            double py = y[i];
+            int top = 0;
+            stack[top++] = 0;
+            while (top > 0) {
+                int node = stack[--top];
+                int m = mass[node];
+                if (m == 0 || body[node] == i) {
+                    continue;
+                }
+                double sx = sumX[node];
+                double sy = sumY[node];
+                boolean leaf = child[node] < 0;
+                if (leaf && body[node] < 0 && px >= minX[node] && px <= minX[node] + width[node]
+                        && py >= minY[node] && py <= minY[node] + width[node]) {
+                    // Feuille de corps confondus contenant i : sans lui
+                    m--;
+                    sx -= px;
+                    sy -= py;
+                    if (m == 0) {
+                        continue;
+                    }
+                }
+                double dx = px - sx / m;
+                double dy = py - sy / m;
+                double d2 = dx * dx + dy * dy;
+                if (leaf || width[node] * width[node] < THETA * THETA * d2) {
+                    if (d2 > 1e-12) {
+                        force[0] += dx * k2 * m / d2;
+                        force[1] += dy * k2 * m / d2;
+                    }
+                } else {
+                    int first = child[node];
+                    stack[top++] = first;
+                    stack[top++] = first + 1;
+                    stack[top++] = first + 2;
+                    stack[top++] = first + 3;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package fr.baptgosse.automates.util;
+
+/**
+ * Suite croissante d'identifiants compacts ({@link Ids#encode}), sans synchronisation :
+ * une session n'en alloue que sous son verrou d'écriture, un import ou une construction
+ * d'automate dans un seul thread.
+ */
+public final class IdSequence {
+
+    private long next;
+
+    public IdSequence() {
+        this(1);
+    }
+
+    public IdSequence(long next) {
+        this.next = next;
+    }
+
+    /**
+     * Identifiant suivant.
+     */
+    public String next() {
+        return Ids.encode(next++);
+    }
+
+    /**
+     * Garantit que la suite ne produira pas cet identifiant (déjà utilisé).
+     */
+    public void reserve(String id) {
+        long value = Ids.decode(id);
+        if (value >= next) {
+            next = value + 1;
+        }
+    }
+
+    /**
+     * Entier du prochain identifiant.
+     */
+    public long peek() {
+        return next;
+    }
+}
@@ -0,0 +1,65 @@
+package fr.baptgosse.automates.util;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Identifiants des états et transitions.
+ *
+ * Les éléments créés par le serveur reçoivent un identifiant compact : un compteur croissant
+ * propre à chaque session ({@link IdSequence}), écrit en base 36 ("1", "2", ..., "a", ..., "10").
+ * Les identifiants existants (UUID, identifiants choisis par un client) restent acceptés tels quels :
+ * un identifiant n'est compact que s'il est l'écriture canonique d'un entier.
+ */
+public final class Ids {
+
+    private static final int RADIX = 36;
+    // 36^12 < 2^63 : toute écriture de 12 chiffres au plus tient dans un long
+    private static final int MAX_LENGTH = 12;
+
+    private Ids() {
+    }
+
+    /**
+     * Écriture compacte d'un entier positif.
+     */
+    public static String encode(long value) {
+        return Long.toString(value, RADIX);
+    }
+
+    /**
+     * Entier d'un identifiant compact, ou -1 si l'identifiant n'en est pas un
+     * (UUID, zéros en tête, majuscules...).
+     */
+    public static long decode(String id) {
+        int length = id.length();
+        if (length == 0 || length > MAX_LENGTH || (length > 1 && id.charAt(0) == '0')) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            char c = id.charAt(i);
+            int digit;
+            if (c >= '0' && c <= '9') {
+                digit = c - '0';
+            } else if (c >= 'a' && c <= 'z') {
+                digit = c - 'a' + 10;
+            } else {
+                return -1;
+            }
+            value = value * RADIX + digit;
+        }
+        return value;
+    }
+
+    /**
+     * UUID aléatoire (version 4) sans passer par SecureRandom, pour les éléments créés hors de
+     * toute session : l'identifiant n'a pas à être imprévisible.
+     */
+    public static String newId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long msb = (random.nextLong() & ~0xF000L) | 0x4000L;
+        long lsb = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(msb, lsb).toString();
+    }
+}
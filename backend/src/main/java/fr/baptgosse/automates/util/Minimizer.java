@@ -0,0 +1,431 @@
+package fr.baptgosse.automates.util;
+
+import fr.baptgosse.automates.model.Automaton;
+import fr.baptgosse.automates.model.IndexedAutomaton;
+import fr.baptgosse.automates.model.State;
+import fr.baptgosse.automates.model.Transition;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Minimisation d'un automate déterministe par raffinement de partition.
+ *
+ * Deux moteurs calculent la même partition (la plus grossière compatible avec δ) :
+ * - SEQUENTIAL : algorithme de Hopcroft, en O(n·k·log n) ;
+ * - PARALLEL : tours de Moore dont les signatures (bloc de q, blocs de δ(q, a)) sont
+ *   calculées et regroupées en parallèle.
+ * Les blocs sont ensuite renumérotés dans l'ordre de première apparition des états,
+ * si bien que les deux moteurs produisent exactement le même automate.
+ * En mode AUTO, le moteur est choisi selon le nombre d'états accessibles.
+ */
+public class Minimizer {
+
+    public enum Mode { AUTO, SEQUENTIAL, PARALLEL }
+
+    // À partir de ce nombre d'états accessibles, le mode AUTO passe en parallèle
+    public static final int PARALLEL_THRESHOLD = 50_000;
+
+    // Nombre maximal de labels d'origine affichés dans le label d'un bloc
+    private static final int MAX_LABEL_MEMBERS = 5;
+
+    /**
+     * Minimise un automate déterministe avec le moteur demandé.
+     */
+    public static Automaton minimize(Automaton automaton, Mode mode) {
+        return minimize(automaton, mode, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Minimise un automate déterministe ; le pool n'est utilisé qu'en mode parallèle.
+     */
+    public static Automaton minimize(Automaton automaton, Mode mode, ForkJoinPool pool) {
+        // Compteurs incrémentaux de l'automate : vérification en O(1)
+        if (automaton.getInitialStatesCount() != 1
+                || automaton.getEpsilonTransitionsCount() > 0
+                || automaton.getNondeterministicPairsCount() > 0) {
+            throw new IllegalArgumentException("La minimisation requiert un automate déterministe");
+        }
+        IndexedAutomaton dfa = IndexedAutomaton.compile(automaton);
+        Completed complete = Completed.of(dfa);
+
+        boolean parallel = mode == Mode.PARALLEL
+                || (mode == Mode.AUTO && complete.size() >= PARALLEL_THRESHOLD);
+        int[] blocks = parallel ? refineMoore(complete, pool) : refineHopcroft(complete);
+        return build(dfa, complete, canonicalize(blocks), automaton.getName());
+    }
+
+    /**
+     * Automate accessible et complété par un puits (dernier indice), sous forme de tableau δ.
+     */
+    private record Completed(int[] states, int[] delta, boolean[] accepting, int symbols, int initial) {
+
+        static Completed of(IndexedAutomaton dfa) {
+            int n = dfa.stateCount();
+            int k = dfa.symbolCount();
+            int initial = -1;
+            for (int q = 0; q < n && initial < 0; q++) {
+                if (dfa.isInitial(q)) {
+                    initial = q;
+                }
+            }
+            // États accessibles depuis l'état initial, conservés dans l'ordre des indices
+            boolean[] reachable = new boolean[n];
+            int[] stack = new int[n];
+            int top = 0;
+            reachable[initial] = true;
+            stack[top++] = initial;
+            while (top > 0) {
+                int q = stack[--top];
+                for (int a = 0; a < k; a++) {
+                    int start = dfa.targetsStart(q, a);
+                    if (start < dfa.targetsEnd(q, a) && !reachable[dfa.target(start)]) {
+                        reachable[dfa.target(start)] = true;
+                        stack[top++] = dfa.target(start);
+                    }
+                }
+            }
+
+            int[] local = new int[n];
+            int m = 0;
+            for (int q = 0; q < n; q++) {
+                local[q] = reachable[q] ? m++ : -1;
+            }
+            int[] states = new int[m];
+            for (int q = 0; q < n; q++) {
+                if (reachable[q]) {
+                    states[local[q]] = q;
+                }
+            }
+
+            int sink = m;
+            int[] delta = new int[(m + 1) * k];
+            boolean[] accepting = new boolean[m + 1];
+            Arrays.fill(delta, sink);
+            for (int i = 0; i < m; i++) {
+                int q = states[i];
+                accepting[i] = dfa.isAccepting(q);
+                for (int a = 0; a < k; a++) {
+                    int start = dfa.targetsStart(q, a);
+                    if (start < dfa.targetsEnd(q, a)) {
+                        delta[i * k + a] = local[dfa.target(start)];
+                    }
+                }
+            }
+            return new Completed(states, delta, accepting, k, local[initial]);
+        }
+
+        int size() {
+            return accepting.length;
+        }
+
+        int sink() {
+            return accepting.length - 1;
+        }
+    }
+
+    /**
+     * Algorithme de Hopcroft sur une partition raffinable (tableaux d'éléments par bloc).
+     */
+    private static int[] refineHopcroft(Completed dfa) {
+        int n = dfa.size();
+        int k = dfa.symbols();
+
+        // Transitions inverses : sources de (a, cible) en CSR
+        int[] inverseOffsets = new int[n * k + 1];
+        for (int q = 0; q < n; q++) {
+            for (int a = 0; a < k; a++) {
+                inverseOffsets[dfa.delta()[q * k + a] * k + a + 1]++;
+            }
+        }
+        for (int i = 0; i < n * k; i++) {
+            inverseOffsets[i + 1] += inverseOffsets[i];
+        }
+        int[] inverse = new int[n * k];
+        int[] cursor = Arrays.copyOf(inverseOffsets, n * k);
+        for (int q = 0; q < n; q++) {
+            for (int a = 0; a < k; a++) {
+                inverse[cursor[dfa.delta()[q * k + a] * k + a]++] = q;
+            }
+        }
+
+        // Partition initiale : acceptants / non acceptants
+        int[] elements = new int[n];
+        int[] location = new int[n];
+        int[] blockOf = new int[n];
+        int[] first = new int[n + 1];
+        int[] end = new int[n + 1];
+        int[] marked = new int[n + 1]; // fin de la zone marquée [first, marked)
+        int blockCount = 0;
+
+        int position = 0;
+        for (boolean acceptingBlock : new boolean[]{false, true}) {
+            int start = position;
+            for (int q = 0; q < n; q++) {
+                if (dfa.accepting()[q] == acceptingBlock) {
+                    elements[position] = q;
+                    location[q] = position++;
+                    blockOf[q] = blockCount;
+                }
+            }
+            if (position > start) {
+                first[blockCount] = start;
+                end[blockCount] = position;
+                marked[blockCount] = start;
+                blockCount++;
+            }
+        }
+
+        boolean[] inWorklist = new boolean[n + 1];
+        Deque<Integer> worklist = new ArrayDeque<>();
+        for (int b = 0; b < blockCount; b++) {
+            worklist.add(b);
+            inWorklist[b] = true;
+        }
+
+        int[] touched = new int[n + 1];
+        while (!worklist.isEmpty()) {
+            int splitter = worklist.poll();
+            inWorklist[splitter] = false;
+            int[] splitterStates = Arrays.copyOfRange(elements, first[splitter], end[splitter]);
+
+            for (int a = 0; a < k; a++) {
+                // Marquer les prédécesseurs par a du bloc séparateur
+                int touchedCount = 0;
+                for (int target : splitterStates) {
+                    for (int i = inverseOffsets[target * k + a], stop = inverseOffsets[target * k + a + 1]; i < stop; i++) {
+                        int q = inverse[i];
+                        int b = blockOf[q];
+                        int loc = location[q];
+                        if (loc < marked[b]) {
+                            continue; // déjà marqué
+                        }
+                        if (marked[b] == first[b]) {
+                            touched[touchedCount++] = b;
+                        }
+                        int swapPos = marked[b]++;
+                        int other = elements[swapPos];
+                        elements[swapPos] = q;
+                        location[q] = swapPos;
+                        elements[loc] = other;
+                        location[other] = loc;
+                    }
+                }
+
+                // Scinder les blocs partiellement marqués
+                for (int t = 0; t < touchedCount; t++) {
+                    int b = touched[t];
+                    if (marked[b] == end[b]) {
+                        marked[b] = first[b];
+                        continue;
+                    }
+                    int nb = blockCount++;
+                    first[nb] = first[b];
+                    end[nb] = marked[b];
+                    marked[nb] = first[nb];
+                    first[b] = end[nb];
+                    marked[b] = first[b];
+                    for (int i = first[nb]; i < end[nb]; i++) {
+                        blockOf[elements[i]] = nb;
+                    }
+                    if (inWorklist[b]) {
+                        worklist.add(nb);
+                        inWorklist[nb] = true;
+                    } else {
+                        int smaller = (end[nb] - first[nb]) <= (end[b] - first[b]) ? nb : b;
+                        worklist.add(smaller);
+                        inWorklist[smaller] = true;
+                    }
+                }
+            }
+        }
+        return blockOf;
+    }
+
+    /**
+     * Tours de Moore : à chaque tour, les états de même signature restent ensemble.
+     * Le calcul des signatures et leur regroupement (par segments de hachage) sont parallèles.
+     */
+    private static int[] refineMoore(Completed dfa, ForkJoinPool pool) {
+        int n = dfa.size();
+        int k = dfa.symbols();
+        int segments = Math.max(1, pool.getParallelism() * 4);
+
+        int[] blocks = new int[n];
+        for (int q = 0; q < n; q++) {
+            blocks[q] = dfa.accepting()[q] ? 1 : 0;
+        }
+        blocks = canonicalize(blocks);
+        int blockCount = IntStream.of(blocks).max().orElse(-1) + 1;
+
+        long[] hashes = new long[n];
+        int[] representative = new int[n];
+        while (true) {
+            final int[] current = blocks;
+
+            // 1. Signatures en parallèle
+            pool.submit(() -> IntStream.range(0, n).parallel().forEach(q -> {
+                long h = current[q];
+                for (int a = 0; a < k; a++) {
+                    h = h * 0x9E3779B97F4A7C15L + current[dfa.delta()[q * k + a]];
+                }
+                hashes[q] = h ^ (h >>> 29);
+            })).join();
+
+            // 2. Répartition des états par segment de hachage (ordre des indices conservé)
+            int[] segmentOffsets = new int[segments + 1];
+            for (int q = 0; q < n; q++) {
+                segmentOffsets[segmentOf(hashes[q], segments) + 1]++;
+            }
+            for (int s = 0; s < segments; s++) {
+                segmentOffsets[s + 1] += segmentOffsets[s];
+            }
+            int[] bySegment = new int[n];
+            int[] fill = Arrays.copyOf(segmentOffsets, segments);
+            for (int q = 0; q < n; q++) {
+                bySegment[fill[segmentOf(hashes[q], segments)]++] = q;
+            }
+
+            // 3. Dans chaque segment, en parallèle : premier état de même signature
+            pool.submit(() -> IntStream.range(0, segments).parallel().forEach(s -> {
+                Map<Signature, Integer> seen = new HashMap<>();
+                for (int i = segmentOffsets[s]; i < segmentOffsets[s + 1]; i++) {
+                    int q = bySegment[i];
+                    representative[q] = seen.computeIfAbsent(new Signature(q, hashes[q], current, dfa), sig -> q);
+                }
+            })).join();
+
+            // 4. Numérotation canonique : les représentants précèdent toujours leurs membres
+            int[] next = new int[n];
+            int count = 0;
+            for (int q = 0; q < n; q++) {
+                next[q] = representative[q] == q ? count++ : next[representative[q]];
+            }
+            blocks = next;
+            if (count == blockCount) {
+                return blocks;
+            }
+            blockCount = count;
+        }
+    }
+
+    private static int segmentOf(long hash, int segments) {
+        return (int) Math.floorMod(hash, (long) segments);
+    }
+
+    /**
+     * Signature de Moore d'un état, comparée directement sur les tableaux du tour courant.
+     */
+    private static final class Signature {
+        private final int state;
+        private final long hash;
+        private final int[] blocks;
+        private final Completed dfa;
+
+        Signature(int state, long hash, int[] blocks, Completed dfa) {
+            this.state = state;
+            this.hash = hash;
+            this.blocks = blocks;
+            this.dfa = dfa;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Signature other) || hash != other.hash) {
+                return false;
+            }
+            int p = state;
+            int q = other.state;
+            if (blocks[p] != blocks[q]) {
+                return false;
+            }
+            int k = dfa.symbols();
+            for (int a = 0; a < k; a++) {
+                if (blocks[dfa.delta()[p * k + a]] != blocks[dfa.delta()[q * k + a]]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(hash);
+        }
+    }
+
+    /**
+     * Renumérote les blocs dans l'ordre de première apparition des états.
+     */
+    private static int[] canonicalize(int[] blocks) {
+        int[] renumber = new int[blocks.length + 1];
+        Arrays.fill(renumber, -1);
+        int[] result = new int[blocks.length];
+        int count = 0;
+        for (int q = 0; q < blocks.length; q++) {
+            if (renumber[blocks[q]] < 0) {
+                renumber[blocks[q]] = count++;
+            }
+            result[q] = renumber[blocks[q]];
+        }
+        return result;
+    }
+
+    /**
+     * Construit l'automate minimal ; le bloc du puits (états morts) est omis.
+     */
+    private static Automaton build(IndexedAutomaton source, Completed dfa, int[] blocks, String name) {
+        Automaton minimal = new Automaton(name + " (minimisé)");
+        int k = dfa.symbols();
+        int deadBlock = blocks[dfa.sink()];
+        int blockCount = IntStream.of(blocks).max().orElse(-1) + 1;
+
+        // Membres de chaque bloc, dans l'ordre des indices
+        int[] representative = new int[blockCount];
+        Arrays.fill(representative, -1);
+        List<List<String>> members = new ArrayList<>(blockCount);
+        for (int b = 0; b < blockCount; b++) {
+            members.add(new ArrayList<>());
+        }
+        for (int i = 0; i < dfa.states().length; i++) {
+            int b = blocks[i];
+            if (representative[b] < 0) {
+                representative[b] = i;
+            }
+            if (members.get(b).size() <= MAX_LABEL_MEMBERS) {
+                members.get(b).add(source.state(dfa.states()[i]).getLabel());
+            }
+        }
+
+        IdSequence ids = new IdSequence();
+        State[] states = new State[blockCount];
+        int initialBlock = blocks[dfa.initial()];
+        for (int b = 0; b < blockCount; b++) {
+            if (representative[b] < 0 || (b == deadBlock && b != initialBlock)) {
+                continue;
+            }
+            State origin = source.state(dfa.states()[representative[b]]);
+            List<String> labels = members.get(b);
+            String label = labels.size() == 1
+                    ? labels.get(0)
+                    : "{" + String.join(",", labels.subList(0, Math.min(labels.size(), MAX_LABEL_MEMBERS)))
+                      + (labels.size() > MAX_LABEL_MEMBERS ? ",…}" : "}");
+            states[b] = new State(ids.next(), label, origin.getX(), origin.getY(), b == initialBlock, dfa.accepting()[representative[b]]);
+            minimal.addState(states[b]);
+        }
+        for (int b = 0; b < blockCount; b++) {
+            if (states[b] == null) {
+                continue;
+            }
+            int q = representative[b];
+            for (int a = 0; a < k; a++) {
+                int target = blocks[dfa.delta()[q * k + a]];
+                if (target != deadBlock && states[target] != null) {
+                    minimal.addTransition(new Transition(ids.next(), states[b], states[target], source.symbol(a)));
+                }
+            }
+        }
+        return minimal;
+    }
+}
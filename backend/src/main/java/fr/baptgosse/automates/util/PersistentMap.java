@@ -0,0 +1,389 @@
+package fr.baptgosse.automates.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+/**
+ * Table associative persistante (Hash Array Mapped Trie, 32 branches par niveau).
+ *
+ * Chaque modification renvoie une nouvelle table qui partage avec la précédente tous
+ * les nœuds hors du chemin modifié : O(log32 n) nœuds copiés par opération, anciennes
+ * versions intactes. La comparaison de deux versions ({@link #diff}) saute les sous-arbres
+ * partagés et coûte donc de l'ordre du nombre de différences.
+ */
+public final class PersistentMap<K, V> {
+
+    @SuppressWarnings("rawtypes")
+    private static final PersistentMap EMPTY = new PersistentMap<>(null, 0);
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private final Node root;
+    private final int size;
+
+    private PersistentMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        return root != null ? (V) root.get(0, hash(key), key) : null;
+    }
+
+    public boolean containsKey(K key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Associe une valeur (non nulle) à une clé.
+     * @return la nouvelle table, ou cette table si la valeur était déjà associée
+     */
+    public PersistentMap<K, V> put(K key, V value) {
+        Objects.requireNonNull(value);
+        boolean[] added = new boolean[1];
+        Node start = root != null ? root : BitmapNode.EMPTY;
+        Node updated = start.put(0, hash(key), key, value, added);
+        if (updated == root) {
+            return this;
+        }
+        return new PersistentMap<>(updated, added[0] ? size + 1 : size);
+    }
+
+    /**
+     * @return la nouvelle table, ou cette table si la clé était absente
+     */
+    public PersistentMap<K, V> remove(K key) {
+        if (root == null) {
+            return this;
+        }
+        Node updated = root.remove(0, hash(key), key);
+        if (updated == root) {
+            return this;
+        }
+        return updated != null ? new PersistentMap<>(updated, size - 1) : empty();
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        if (root != null) {
+            root.forEach((BiConsumer<Object, Object>) action);
+        }
+    }
+
+    /**
+     * Visiteur des différences entre deux tables.
+     */
+    public interface DiffVisitor<K, V> {
+        /**
+         * @param oldValue valeur dans cette table (null si la clé a été ajoutée)
+         * @param newValue valeur dans l'autre table (null si la clé a été supprimée)
+         */
+        void entry(K key, V oldValue, V newValue);
+    }
+
+    /**
+     * Énumère les clés dont la valeur diffère entre cette table et {@code other}.
+     * Les sous-arbres physiquement partagés ne sont pas parcourus.
+     */
+    @SuppressWarnings("unchecked")
+    public void diff(PersistentMap<K, V> other, DiffVisitor<K, V> visitor) {
+        diff(root, other.root, (DiffVisitor<Object, Object>) visitor);
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    // ------------------------------------------------------------------ Différences
+
+    private static void diff(Node a, Node b, DiffVisitor<Object, Object> visitor) {
+        if (a == b) {
+            return;
+        }
+        if (a instanceof BitmapNode na && b instanceof BitmapNode nb) {
+            int bits = na.bitmap | nb.bitmap;
+            while (bits != 0) {
+                int bit = Integer.lowestOneBit(bits);
+                bits &= bits - 1;
+                diffSlot(na, nb, bit, visitor);
+            }
+            return;
+        }
+        diffGeneric(a, b, visitor);
+    }
+
+    private static void diffSlot(BitmapNode a, BitmapNode b, int bit, DiffVisitor<Object, Object> visitor) {
+        boolean inA = (a.bitmap & bit) != 0;
+        boolean inB = (b.bitmap & bit) != 0;
+        Object keyA = inA ? a.array[2 * a.index(bit)] : null;
+        Object valA = inA ? a.array[2 * a.index(bit) + 1] : null;
+        Object keyB = inB ? b.array[2 * b.index(bit)] : null;
+        Object valB = inB ? b.array[2 * b.index(bit) + 1] : null;
+
+        if (inA && inB && keyA == null && keyB == null) {
+            diff((Node) valA, (Node) valB, visitor);
+        } else if (inA && inB && keyA != null && keyB != null) {
+            if (keyA.equals(keyB)) {
+                if (valA != valB && !valA.equals(valB)) {
+                    visitor.entry(keyA, valA, valB);
+                }
+            } else {
+                visitor.entry(keyA, valA, null);
+                visitor.entry(keyB, null, valB);
+            }
+        } else {
+            diffGeneric(slotNode(inA, keyA, valA), slotNode(inB, keyB, valB), visitor);
+        }
+    }
+
+    private static Node slotNode(boolean present, Object key, Object value) {
+        if (!present) {
+            return null;
+        }
+        return key == null ? (Node) value : new CollisionNode(0, new Object[]{key, value});
+    }
+
+    /**
+     * Comparaison par matérialisation des deux sous-arbres (formes différentes, collisions).
+     */
+    private static void diffGeneric(Node a, Node b, DiffVisitor<Object, Object> visitor) {
+        Map<Object, Object> left = new HashMap<>();
+        if (a != null) {
+            a.forEach(left::put);
+        }
+        if (b != null) {
+            b.forEach((key, value) -> {
+                Object old = left.remove(key);
+                if (old == null || (old != value && !old.equals(value))) {
+                    visitor.entry(key, old, value);
+                }
+            });
+        }
+        left.forEach((key, value) -> visitor.entry(key, value, null));
+    }
+
+    // ------------------------------------------------------------------ Nœuds
+
+    private interface Node {
+        Object get(int shift, int hash, Object key);
+
+        Node put(int shift, int hash, Object key, Object value, boolean[] added);
+
+        Node remove(int shift, int hash, Object key);
+
+        void forEach(BiConsumer<Object, Object> action);
+    }
+
+    /**
+     * Nœud interne : bitmap des branches présentes et tableau compact de paires
+     * (clé, valeur) ou (null, sous-nœud).
+     */
+    private static final class BitmapNode implements Node {
+        static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        final int bitmap;
+        final Object[] array;
+
+        BitmapNode(int bitmap, Object[] array) {
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+
+        int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        public Object get(int shift, int hash, Object key) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            int idx = index(bit);
+            Object keyOrNull = array[2 * idx];
+            Object valOrNode = array[2 * idx + 1];
+            if (keyOrNull == null) {
+                return ((Node) valOrNode).get(shift + BITS, hash, key);
+            }
+            return key.equals(keyOrNull) ? valOrNode : null;
+        }
+
+        @Override
+        public Node put(int shift, int hash, Object key, Object value, boolean[] added) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            int idx = index(bit);
+            if ((bitmap & bit) != 0) {
+                Object keyOrNull = array[2 * idx];
+                Object valOrNode = array[2 * idx + 1];
+                if (keyOrNull == null) {
+                    Node sub = ((Node) valOrNode).put(shift + BITS, hash, key, value, added);
+                    return sub == valOrNode ? this : new BitmapNode(bitmap, with(array, 2 * idx + 1, sub));
+                }
+                if (key.equals(keyOrNull)) {
+                    if (value == valOrNode || value.equals(valOrNode)) {
+                        return this;
+                    }
+                    return new BitmapNode(bitmap, with(array, 2 * idx + 1, value));
+                }
+                added[0] = true;
+                Node sub = pair(shift + BITS, keyOrNull, valOrNode, hash, key, value);
+                Object[] copy = array.clone();
+                copy[2 * idx] = null;
+                copy[2 * idx + 1] = sub;
+                return new BitmapNode(bitmap, copy);
+            }
+            added[0] = true;
+            Object[] copy = new Object[array.length + 2];
+            System.arraycopy(array, 0, copy, 0, 2 * idx);
+            copy[2 * idx] = key;
+            copy[2 * idx + 1] = value;
+            System.arraycopy(array, 2 * idx, copy, 2 * idx + 2, array.length - 2 * idx);
+            return new BitmapNode(bitmap | bit, copy);
+        }
+
+        @Override
+        public Node remove(int shift, int hash, Object key) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int idx = index(bit);
+            Object keyOrNull = array[2 * idx];
+            Object valOrNode = array[2 * idx + 1];
+            if (keyOrNull == null) {
+                Node sub = ((Node) valOrNode).remove(shift + BITS, hash, key);
+                if (sub == valOrNode) {
+                    return this;
+                }
+                if (sub != null) {
+                    return new BitmapNode(bitmap, with(array, 2 * idx + 1, sub));
+                }
+            } else if (!key.equals(keyOrNull)) {
+                return this;
+            }
+            if (bitmap == bit) {
+                return null;
+            }
+            Object[] copy = new Object[array.length - 2];
+            System.arraycopy(array, 0, copy, 0, 2 * idx);
+            System.arraycopy(array, 2 * idx + 2, copy, 2 * idx, array.length - 2 * idx - 2);
+            return new BitmapNode(bitmap ^ bit, copy);
+        }
+
+        @Override
+        public void forEach(BiConsumer<Object, Object> action) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (array[i] == null) {
+                    ((Node) array[i + 1]).forEach(action);
+                } else {
+                    action.accept(array[i], array[i + 1]);
+                }
+            }
+        }
+
+        private static Node pair(int shift, Object k1, Object v1, int h2, Object k2, Object v2) {
+            int h1 = hash(k1);
+            if (h1 == h2) {
+                return new CollisionNode(h1, new Object[]{k1, v1, k2, v2});
+            }
+            boolean[] ignored = new boolean[1];
+            return EMPTY.put(shift, h1, k1, v1, ignored).put(shift, h2, k2, v2, ignored);
+        }
+    }
+
+    /**
+     * Clés de même hachage complet : liste de paires comparées par equals.
+     */
+    private static final class CollisionNode implements Node {
+        final int hash;
+        final Object[] array;
+
+        CollisionNode(int hash, Object[] array) {
+            this.hash = hash;
+            this.array = array;
+        }
+
+        private int find(Object key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (key.equals(array[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public Object get(int shift, int hash, Object key) {
+            int i = find(key);
+            return i >= 0 ? array[i + 1] : null;
+        }
+
+        @Override
+        public Node put(int shift, int hash, Object key, Object value, boolean[] added) {
+            if (hash != this.hash) {
+                // Imbriquer la collision dans un nœud de branchement
+                int bit = 1 << ((this.hash >>> shift) & MASK);
+                return new BitmapNode(bit, new Object[]{null, this}).put(shift, hash, key, value, added);
+            }
+            int i = find(key);
+            if (i >= 0) {
+                if (value == array[i + 1] || value.equals(array[i + 1])) {
+                    return this;
+                }
+                return new CollisionNode(hash, with(array, i + 1, value));
+            }
+            added[0] = true;
+            Object[] copy = new Object[array.length + 2];
+            System.arraycopy(array, 0, copy, 0, array.length);
+            copy[array.length] = key;
+            copy[array.length + 1] = value;
+            return new CollisionNode(hash, copy);
+        }
+
+        @Override
+        public Node remove(int shift, int hash, Object key) {
+            int i = find(key);
+            if (i < 0) {
+                return this;
+            }
+            if (array.length == 2) {
+                return null;
+            }
+            Object[] copy = new Object[array.length - 2];
+            System.arraycopy(array, 0, copy, 0, i);
+            System.arraycopy(array, i + 2, copy, i, array.length - i - 2);
+            return new CollisionNode(hash, copy);
+        }
+
+        @Override
+        public void forEach(BiConsumer<Object, Object> action) {
+            for (int i = 0; i < array.length; i += 2) {
+                action.accept(array[i], array[i + 1]);
+            }
+        }
+    }
+
+    private static Object[] with(Object[] array, int i, Object value) {
+        Object[] copy = array.clone();
+        copy[i] = value;
+        return copy;
+    }
+}
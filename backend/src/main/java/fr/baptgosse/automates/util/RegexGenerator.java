@@ -5,10 +5,12 @@ import fr.baptgosse.automates.model.State;
 import fr.baptgosse.automates.model.Transition;
 
 import java.util.*;
+import java.util.concurrent.CancellationException;
 import java.util.stream.Collectors;
 
 /**
  * Génère une expression régulière à partir d'un automate.
+ * La génération s'arrête ({@link CancellationException}) si le thread appelant est interrompu.
  */
 public class RegexGenerator {
 
@@ -54,12 +56,14 @@ public class RegexGenerator {
         }
 
         // Cas simple : chemin linéaire
+        checkInterrupted();
         String linearRegex = tryLinearPath(automaton, initialState.get(), acceptingStates);
         if (linearRegex != null) {
             return linearRegex;
         }
 
         // Pour les cas plus complexes, on affiche une description
+        checkInterrupted();
         return generateDescription(automaton);
     }
 
@@ -73,6 +77,7 @@ public class RegexGenerator {
         Set<State> visited = new HashSet<>();
 
         while (!accepting.contains(current)) {
+            checkInterrupted();
             if (visited.contains(current)) {
                 return null; // Il y a un cycle
             }
@@ -138,4 +143,13 @@ public class RegexGenerator {
 
         return desc.toString();
     }
+
+    /**
+     * Abandonne la génération si elle a été annulée (délai dépassé ou version de l'automate dépassée).
+     */
+    private static void checkInterrupted() {
+        if (Thread.interrupted()) {
+            throw new CancellationException("Génération de l'expression régulière annulée");
+        }
+    }
 }
@@ -0,0 +1,284 @@
+package fr.baptgosse.automates.amdl;
+
+import fr.baptgosse.automates.model.Automaton;
+import fr.baptgosse.automates.model.Mutation;
+import fr.baptgosse.automates.model.PersistentAutomaton;
+import fr.baptgosse.automates.model.State;
+import fr.baptgosse.automates.model.Transition;
+import fr.baptgosse.automates.util.IdSequence;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Édition incrémentale du texte AMDL : après chaque modification, l'automate obtenu en appliquant
+ * les mutations produites doit être celui de l'analyse complète du texte.
+ */
+class AMDLIncrementalDocumentTest {
+
+    private static final String SOURCE = """
+            Automaton "Test" {
+              alphabet: [a, b]
+
+              State q0 [initial] at (100, 200)
+              State q1 at (250, 200)
+              State q2 [accepting] at (400, 200)
+
+              q0 -> q1 [a]
+              q1 -> q2 [b]
+              q2 -> q2 [a, b]
+            }
+            """;
+
+    private static final String[] NAMES = {"q0", "q1", "q2", "q3", "q4", "q5", "q6", "q7"};
+    private static final Pattern DECLARATION = Pattern.compile("^\\s*State (\\w+)");
+    private static final String[] SYMBOLS = {"a", "b", "c", "ε"};
+
+    private record LineEdit(int start, int end, List<String> replacement) {
+    }
+
+    /**
+     * Session simulée : le document, la version courante et les identifiants de la session.
+     */
+    private static final class Editor {
+        final AMDLIncrementalDocument document;
+        PersistentAutomaton model;
+        final IdSequence ids;
+        /** Modifications inverses, la plus récente en tête. */
+        final Deque<LineEdit> undo = new ArrayDeque<>();
+
+        Editor(String source) throws AMDLException {
+            Automaton automaton = AMDLParser.parseAutomaton(source);
+            document = AMDLIncrementalDocument.of(automaton);
+            model = PersistentAutomaton.of(automaton);
+            ids = new IdSequence(model.maxCompactId() + 1);
+        }
+
+        void edit(int startLine, int endLine, List<String> replacement) {
+            for (Mutation mutation : document.edit(startLine, endLine, replacement, model, ids)) {
+                model = model.apply(mutation);
+            }
+        }
+
+        List<String> lines() {
+            return List.of(document.getText().split("\n", -1));
+        }
+    }
+
+    @Test
+    void randomLineEditsMatchFullParse() throws AMDLException {
+        for (long seed = 0; seed < 300; seed++) {
+            Random random = new Random(seed);
+            Editor editor = new Editor(SOURCE);
+            for (int step = 0; step < 40; step++) {
+                List<String> lines = editor.lines();
+                int footer = lines.lastIndexOf("}") + 1;
+                int start;
+                int end;
+                List<String> replacement;
+                if (!editor.document.getErrors().isEmpty() && random.nextInt(4) != 0) {
+                    // Annulation de la dernière modification, jusqu'à retrouver un texte valide
+                    LineEdit inverse = editor.undo.pop();
+                    start = inverse.start();
+                    end = inverse.end();
+                    replacement = inverse.replacement();
+                } else {
+                    // Corps de l'automate : lignes 2 à footer - 1 (insertion possible avant l'accolade fermante)
+                    start = 2 + random.nextInt(footer - 1);
+                    end = start - 1 + random.nextInt(Math.min(3, footer - start) + 1);
+                    replacement = randomLines(random, declared(lines), lines.stream().anyMatch(l -> l.contains("initial")));
+                    editor.undo.push(new LineEdit(start, start + replacement.size() - 1,
+                            List.copyOf(lines.subList(start - 1, end))));
+                }
+
+                editor.edit(start, end, replacement);
+                if (editor.document.getErrors().isEmpty()) {
+                    editor.undo.clear();
+                }
+
+                String text = editor.document.getText();
+                String context = "graine " + seed + ", étape " + step + ", lignes " + start + "-" + end
+                        + " remplacées par " + replacement + " :\n" + text;
+                AMDLDocument parsed = AMDLParser.parse(text);
+                assertEquals(parsed.hasErrors(), !editor.document.getErrors().isEmpty(), context);
+                if (!parsed.hasErrors()) {
+                    assertEquals(describe(parsed.automata().get(0)), describe(editor.model.toAutomaton()), context);
+                }
+            }
+        }
+    }
+
+    @Test
+    void renameAndMoveKeepIdentifiers() throws AMDLException {
+        Editor editor = new Editor(SOURCE);
+        String id = editor.model.findState(idOf(editor.model, "q1")).id();
+        int line = editor.lines().indexOf("  State q1 at (250, 200)") + 1;
+
+        editor.edit(line, line, List.of("  State q1 [accepting] at (300, 250) {", "    label: \"Milieu\"", "  }"));
+
+        PersistentAutomaton.StateData state = editor.model.findState(id);
+        assertEquals("Milieu", state.label());
+        assertEquals(300.0, state.x());
+        assertEquals(250.0, state.y());
+        assertTrue(state.accepting());
+        assertEquals(4, editor.model.transitionCount());
+    }
+
+    @Test
+    void removingAStateRemovesItsTransitions() throws AMDLException {
+        Editor editor = new Editor(SOURCE);
+        int line = editor.lines().indexOf("  State q1 at (250, 200)") + 1;
+
+        editor.edit(line, line, List.of());
+
+        // q0 -> q1 et q1 -> q2 désignent un état inconnu : erreurs, transitions retirées
+        assertEquals(2, editor.model.stateCount());
+        assertEquals(2, editor.model.transitionCount());
+        assertEquals(2, editor.document.getErrors().size());
+
+        editor.edit(line, line - 1, List.of("  State q1 at (250, 200)"));
+        assertTrue(editor.document.getErrors().isEmpty());
+        assertEquals(describe(AMDLParser.parseAutomaton(editor.document.getText())),
+                describe(editor.model.toAutomaton()));
+    }
+
+    @Test
+    void unterminatedStatementRecoversOnceClosed() throws AMDLException {
+        Editor editor = new Editor(SOURCE);
+        int line = editor.lines().indexOf("  q1 -> q2 [b]") + 1;
+        String before = describe(editor.model.toAutomaton());
+
+        editor.edit(line, line, List.of("  q1 -> q2 ["));
+
+        // La liste ouverte avale la transition suivante : seule q0 -> q1 reste
+        assertEquals(1, editor.document.getErrors().size());
+        assertEquals(1, editor.model.transitionCount());
+
+        editor.edit(line, line, List.of("  q1 -> q2 [b]"));
+        assertTrue(editor.document.getErrors().isEmpty());
+        assertEquals(before, describe(editor.model.toAutomaton()));
+    }
+
+    @Test
+    void invalidRangeIsRejected() throws AMDLException {
+        Editor editor = new Editor(SOURCE);
+        int count = editor.document.getLineCount();
+
+        assertThrows(IllegalArgumentException.class, () -> editor.edit(0, 1, List.of("")));
+        assertThrows(IllegalArgumentException.class, () -> editor.edit(3, 1, List.of("")));
+        assertThrows(IllegalArgumentException.class, () -> editor.edit(count, count + 1, List.of("")));
+    }
+
+    /**
+     * Lignes de remplacement : déclarations (positions explicites, au plus un état initial dans le texte,
+     * nom le plus souvent nouveau), blocs de propriétés, transitions le plus souvent entre états déclarés,
+     * commentaires et instructions incomplètes.
+     */
+    private static List<String> randomLines(Random random, List<String> declared, boolean hasInitial) {
+        List<String> lines = new ArrayList<>();
+        int count = random.nextInt(4);
+        for (int i = 0; i < count; i++) {
+            int kind = random.nextInt(20);
+            String name = pick(random, declared, false);
+            String position = " at (" + 50 * random.nextInt(10) + ", " + 50 * random.nextInt(10) + ")";
+            if (kind < 8) {
+                name = pick(random, declared, true);
+            }
+            if (kind < 6) {
+                String flags = "";
+                if (!hasInitial && random.nextInt(5) == 0) {
+                    flags = random.nextBoolean() ? " [initial]" : " [initial, accepting]";
+                    hasInitial = true;
+                } else if (random.nextInt(3) == 0) {
+                    flags = " [accepting]";
+                }
+                lines.add("  State " + name + flags + position);
+            } else if (kind < 8) {
+                lines.add("  State " + name + position + " {");
+                lines.add("    label: \"" + name.toUpperCase() + "\"");
+                lines.add("  }");
+            } else if (kind < 15) {
+                String symbols = SYMBOLS[random.nextInt(SYMBOLS.length)];
+                if (random.nextInt(3) == 0) {
+                    symbols += ", " + SYMBOLS[random.nextInt(SYMBOLS.length)];
+                }
+                lines.add("  " + name + " -> " + pick(random, declared, false) + " [" + symbols + "]");
+            } else if (kind < 17) {
+                lines.add("");
+            } else if (kind < 18) {
+                lines.add("  // " + name);
+            } else {
+                lines.add(switch (random.nextInt(4)) {
+                    case 0 -> "  State 42";
+                    case 1 -> "  " + name + " -> [a]";
+                    case 2 -> "  " + name + " -> q1 [";
+                    default -> "  State " + name + " at (1,";
+                });
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Nom d'état : déclaré (ou au contraire nouveau, si {@code fresh}) neuf fois sur dix.
+     */
+    private static String pick(Random random, List<String> declared, boolean fresh) {
+        List<String> candidates = Arrays.stream(NAMES).filter(n -> declared.contains(n) != fresh).toList();
+        if (candidates.isEmpty() || random.nextInt(10) == 0) {
+            return NAMES[random.nextInt(NAMES.length)];
+        }
+        return candidates.get(random.nextInt(candidates.size()));
+    }
+
+    private static List<String> declared(List<String> lines) {
+        List<String> names = new ArrayList<>();
+        for (String line : lines) {
+            Matcher matcher = DECLARATION.matcher(line);
+            if (matcher.find()) {
+                names.add(matcher.group(1));
+            }
+        }
+        return names;
+    }
+
+    private static String idOf(PersistentAutomaton model, String label) {
+        String[] id = {null};
+        model.forEachState(state -> {
+            if (state.label().equals(label)) {
+                id[0] = state.id();
+            }
+        });
+        return id[0];
+    }
+
+    /**
+     * Description indépendante des identifiants : états (label, position, statut) et nombre
+     * de transitions par (source, cible, symbole), triés ; toutes les écritures de ε sont confondues.
+     */
+    static String describe(Automaton automaton) {
+        Map<String, Integer> states = new TreeMap<>();
+        for (State s : automaton.getStates()) {
+            states.merge(s.getLabel() + " (" + s.getX() + ", " + s.getY() + ")"
+                    + (s.isInitial() ? " initial" : "") + (s.isAccepting() ? " accepting" : ""), 1, Integer::sum);
+        }
+        Map<String, Integer> transitions = new TreeMap<>();
+        for (Transition t : automaton.getTransitions()) {
+            transitions.merge(t.getFrom().getLabel() + " -> " + t.getTo().getLabel() + " [" + (t.isEpsilon() ? "ε" : t.getSymbol()) + "]",
+                    1, Integer::sum);
+        }
+        return "états " + states + "\ntransitions " + transitions;
+    }
+}
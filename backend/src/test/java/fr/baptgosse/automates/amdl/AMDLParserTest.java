@@ -0,0 +1,153 @@
+package fr.baptgosse.automates.amdl;
+
+import fr.baptgosse.automates.model.Automaton;
+import fr.baptgosse.automates.model.State;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Analyse AMDL : reprise après erreur, erreurs sémantiques et limite du nombre d'erreurs.
+ */
+class AMDLParserTest {
+
+    @Test
+    void validDocumentHasNoErrors() {
+        AMDLDocument document = AMDLParser.parse("""
+                Automaton "Valide" {
+                  alphabet: [a, b]
+                  State q0 [initial] at (100, 200)
+                  State q1 [accepting] at (250.5, -20) {
+                    label: "Fin"
+                  }
+                  q0 -> q1 [a, b]
+                  q1 -> q1 [ε]
+                }
+                """);
+
+        assertFalse(document.hasErrors());
+        Automaton automaton = document.automata().get(0);
+        assertEquals("Valide", automaton.getName());
+        assertEquals(2, automaton.getStates().size());
+        assertEquals(3, automaton.getTransitions().size());
+        State end = state(automaton, "Fin");
+        assertEquals(250.5, end.getX());
+        assertEquals(-20.0, end.getY());
+        assertTrue(end.isAccepting());
+        assertEquals(1, automaton.getEpsilonTransitionsCount());
+    }
+
+    @Test
+    void recoversAfterSyntaxErrors() {
+        AMDLDocument document = AMDLParser.parse("""
+                Automaton "Erreurs" {
+                  State q0 [initial] at (0, 0)
+                  State q1 at (1,
+                  State q2 at (2, 0)
+                  q0 -> [a]
+                  q0 -> q2 [a]
+                  q2 -> q0 [a
+                  State q3 [accepting] at (3, 0)
+                }
+                """);
+
+        assertEquals(List.of(4, 5, 8), document.errors().stream().map(AMDLException::getLine).toList());
+        // Les instructions valides qui suivent une erreur sont construites
+        Automaton automaton = document.automata().get(0);
+        assertEquals(3, automaton.getStates().size());
+        assertTrue(state(automaton, "q3").isAccepting());
+        assertEquals(1, automaton.getTransitions().size());
+    }
+
+    @Test
+    void reportsDuplicateStates() {
+        AMDLDocument document = AMDLParser.parse("""
+                Automaton "Doublon" {
+                  State q0 at (0, 0)
+                  State q0 at (5, 5)
+                }
+                """);
+
+        assertEquals(1, document.errors().size());
+        AMDLException error = document.errors().get(0);
+        assertEquals(3, error.getLine());
+        assertTrue(error.getMessage().contains("q0"), error.getMessage());
+        // La première déclaration est gardée
+        Automaton automaton = document.automata().get(0);
+        assertEquals(1, automaton.getStates().size());
+        assertEquals(0.0, state(automaton, "q0").getX());
+    }
+
+    @Test
+    void resolvesForwardReferencesAndReportsUnknownStates() {
+        AMDLDocument document = AMDLParser.parse("""
+                Automaton "Références" {
+                  q0 -> q1 [a]
+                  q1 -> q9 [b]
+                  State q0 at (0, 0)
+                  State q1 at (1, 0)
+                }
+                """);
+
+        assertEquals(1, document.errors().size());
+        assertEquals(3, document.errors().get(0).getLine());
+        assertTrue(document.errors().get(0).getMessage().contains("q9"));
+        assertEquals(1, document.automata().get(0).getTransitions().size());
+    }
+
+    @Test
+    void statesWithoutPositionAreAlignedInDeclarationOrder() {
+        Automaton automaton = AMDLParser.parse("""
+                Automaton "Positions" {
+                  State q0
+                  State q1 at (7, 7)
+                  State q2
+                }
+                """).automata().get(0);
+
+        assertEquals(AMDLParser.defaultX(0), state(automaton, "q0").getX());
+        assertEquals(AMDLParser.defaultX(2), state(automaton, "q2").getX());
+        assertEquals(AMDLParser.DEFAULT_Y, state(automaton, "q2").getY());
+    }
+
+    @Test
+    void stopsAfterTooManyErrors() {
+        StringBuilder source = new StringBuilder("Automaton \"Limite\" {\n");
+        for (int i = 0; i < 2 * AMDLParser.MAX_ERRORS; i++) {
+            source.append("  State q").append(i).append(" at (\n");
+        }
+        source.append("}\n");
+
+        List<AMDLException> errors = AMDLParser.parse(source).errors();
+
+        // MAX_ERRORS erreurs, puis le message d'interruption
+        assertEquals(AMDLParser.MAX_ERRORS + 1, errors.size());
+        assertTrue(errors.get(AMDLParser.MAX_ERRORS).getMessage().contains("Trop d'erreurs"));
+    }
+
+    @Test
+    void parseAutomatonThrowsFirstError() {
+        AMDLException error = assertThrows(AMDLException.class, () -> AMDLParser.parseAutomaton("""
+                Automaton "Erreur" {
+                  State q0 at (0, 0)
+                  q0 -> q1 [a]
+                  State 42
+                }
+                """));
+
+        assertEquals(4, error.getLine());
+        assertThrows(AMDLException.class, () -> AMDLParser.parseAutomaton("// vide\n"));
+    }
+
+    static State state(Automaton automaton, String label) {
+        return automaton.getStates().stream()
+                .filter(s -> s.getLabel().equals(label))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("État absent: " + label));
+    }
+}
@@ -0,0 +1,102 @@
+package fr.baptgosse.automates.amdl;
+
+import fr.baptgosse.automates.model.Automaton;
+import fr.baptgosse.automates.model.State;
+import fr.baptgosse.automates.model.Transition;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static fr.baptgosse.automates.amdl.AMDLIncrementalDocumentTest.describe;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Écriture AMDL : le texte écrit se relit en un automate identique (hors identifiants),
+ * et réécrire un automate relu redonne le même texte.
+ */
+class AMDLWriterTest {
+
+    private static final String[] LABELS = {
+            "q0", "q1", "A", "A", "état initial", "avec \"guillemets\"", "State", "automaton", "1er",
+            "q0_2", "", "tab\tulation", "a\\b"
+    };
+    private static final String[] SYMBOLS = {"a", "b", "0", "42", "ε", "epsilon", "", "eps", "x y", "#", "é"};
+
+    @Test
+    void edgeCasesRoundTrip() throws AMDLException {
+        Automaton automaton = new Automaton("Nom \"cité\"");
+        List<State> states = new ArrayList<>();
+        for (int i = 0; i < LABELS.length; i++) {
+            State state = new State(LABELS[i], i * 12.5, -i / 4.0, i < 2, i % 3 == 0);
+            automaton.addState(state);
+            states.add(state);
+        }
+        for (int i = 0; i < SYMBOLS.length; i++) {
+            automaton.addTransition(new Transition(states.get(i), states.get((i * 5) % states.size()), SYMBOLS[i]));
+        }
+        // Transitions parallèles, y compris sur le même symbole
+        automaton.addTransition(new Transition(states.get(2), states.get(3), "a"));
+        automaton.addTransition(new Transition(states.get(2), states.get(3), "a"));
+        automaton.addTransition(new Transition(states.get(2), states.get(3), "b"));
+
+        assertRoundTrip(automaton, "cas limites");
+    }
+
+    @Test
+    void randomAutomataRoundTrip() throws AMDLException {
+        for (long seed = 0; seed < 200; seed++) {
+            Random random = new Random(seed);
+            Automaton automaton = new Automaton("Aléatoire " + seed);
+            List<State> states = new ArrayList<>();
+            int count = random.nextInt(12);
+            for (int i = 0; i < count; i++) {
+                String label = LABELS[random.nextInt(LABELS.length)] + (random.nextBoolean() ? "" : i);
+                State state = new State(label, random.nextInt(2000) / 8.0 - 50, random.nextInt(2000) / 8.0,
+                        random.nextInt(6) == 0, random.nextInt(3) == 0);
+                automaton.addState(state);
+                states.add(state);
+            }
+            for (int i = 0; !states.isEmpty() && i < random.nextInt(3 * count + 1); i++) {
+                automaton.addTransition(new Transition(states.get(random.nextInt(count)),
+                        states.get(random.nextInt(count)), SYMBOLS[random.nextInt(SYMBOLS.length)]));
+            }
+
+            assertRoundTrip(automaton, "graine " + seed);
+        }
+    }
+
+    @Test
+    void writesToStreamAsUtf8() throws IOException {
+        Automaton automaton = new Automaton("Flux");
+        State state = new State("état", 0, 0, true, false);
+        automaton.addState(state);
+        automaton.addTransition(new Transition(state, state, "ε"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AMDLWriter.write(automaton, out);
+
+        assertEquals(AMDLWriter.toString(automaton), out.toString(StandardCharsets.UTF_8));
+    }
+
+    private static void assertRoundTrip(Automaton automaton, String context) throws AMDLException {
+        String text = AMDLWriter.toString(automaton);
+        AMDLDocument document = AMDLParser.parse(text);
+        assertFalse(document.hasErrors(), () -> context + " : " + document.errors() + "\n" + text);
+        assertEquals(1, document.automata().size(), context);
+
+        Automaton parsed = document.automata().get(0);
+        assertEquals(automaton.getName(), parsed.getName(), context);
+        assertEquals(describe(automaton), describe(parsed), () -> context + " :\n" + text);
+        // Écriture déterministe : relire puis réécrire ne change rien
+        assertEquals(text, AMDLWriter.toString(parsed), context);
+        assertTrue(text.endsWith("}\n"), context);
+        assertEquals(describe(parsed), describe(AMDLParser.parseAutomaton(AMDLWriter.toString(parsed))), context);
+    }
+}
@@ -1,5 +1,21 @@
 import axios from 'axios';
-import type { Automaton, State, Transition, AutomatonInfo } from '../types/automaton';
+import type {
+	Automaton,
+	State,
+	Transition,
+	AutomatonInfo,
+	EditOperation,
+	EditBatchResult,
+	HistoryInfo,
+	AmdlEdit,
+	AmdlEditResult,
+	ImportFormat,
+	ImportJobInfo,
+	LayoutJobInfo,
+	SummaryPage,
+	TransitionTablePage,
+	ViewportPage
+} from '../types/automaton';
 
 /**
  * Configuration de l'URL de l'API
@@ -91,6 +107,83 @@ export const api = {
 		return response.data.sessionId;
 	},
 
+	/**
+	 * Importe un fichier AMDL côté serveur : une session par automate
+	 * (erreur 400 avec la liste des erreurs, ligne et colonne, si le fichier est invalide)
+	 */
+	async importAmdl(
+		source: string
+	): Promise<{ sessionId: string; name: string; statesCount: number; transitionsCount: number }[]> {
+		const response = await client.post('/automaton/amdl', source, {
+			headers: { 'Content-Type': 'text/plain' }
+		});
+		return response.data.sessions;
+	},
+
+	/**
+	 * Exporte un automate au format AMDL
+	 */
+	async exportAmdl(sessionId: string): Promise<string> {
+		const response = await client.get<string>(`/automaton/${sessionId}/amdl`, { responseType: 'text' });
+		return response.data;
+	},
+
+	/**
+	 * Remplace le texte AMDL d'une session : seules les différences sont appliquées à l'automate
+	 */
+	async replaceAmdl(sessionId: string, source: string): Promise<AmdlEditResult> {
+		const response = await client.put<AmdlEditResult>(`/automaton/${sessionId}/amdl`, source, {
+			headers: { 'Content-Type': 'text/plain' }
+		});
+		return response.data;
+	},
+
+	/**
+	 * Modifie le texte AMDL d'une session par plages de lignes (seules les instructions touchées
+	 * sont ré-analysées)
+	 */
+	async editAmdl(sessionId: string, edits: AmdlEdit[]): Promise<AmdlEditResult> {
+		const response = await client.post<AmdlEditResult>(`/automaton/${sessionId}/amdl/edits`, edits);
+		return response.data;
+	},
+
+	/**
+	 * Importe un fichier DOT, JFLAP, CSV ou NDJSON dans une nouvelle session ; avec async,
+	 * l'import se poursuit en arrière-plan (suivi par getImportJob)
+	 */
+	async importFile(
+		file: Blob,
+		format: ImportFormat,
+		options: { name?: string; initial?: string[]; accepting?: string[]; async?: boolean } = {}
+	): Promise<ImportJobInfo> {
+		const response = await client.post<ImportJobInfo>('/automaton/import', file, {
+			headers: { 'Content-Type': 'application/octet-stream' },
+			params: {
+				format,
+				name: options.name,
+				initial: options.initial?.join(','),
+				accepting: options.accepting?.join(','),
+				async: options.async
+			}
+		});
+		return response.data;
+	},
+
+	/**
+	 * Avancement d'un import en arrière-plan
+	 */
+	async getImportJob(jobId: string): Promise<ImportJobInfo> {
+		const response = await client.get<ImportJobInfo>(`/automaton/import/jobs/${jobId}`);
+		return response.data;
+	},
+
+	/**
+	 * Annule un import en arrière-plan
+	 */
+	async cancelImportJob(jobId: string): Promise<void> {
+		await client.delete(`/automaton/import/jobs/${jobId}`);
+	},
+
 	/**
 	 * Récupère un automate par son ID de session
 	 */
@@ -103,7 +196,20 @@ export const api = {
 	 * Met à jour un automate complet
 	 */
 	async updateAutomaton(sessionId: string, automaton: Automaton): Promise<void> {
-		await client.put(`/automaton/${sessionId}`, automaton);
+		// Format normalisé : les transitions référencent les états par ID
+		const body = {
+			name: automaton.name,
+			states: automaton.states,
+			transitions: automaton.transitions.map((t) => ({
+				id: t.id,
+				from: t.from.id,
+				to: t.to.id,
+				symbol: t.symbol
+			}))
+		};
+		await client.put(`/automaton/${sessionId}`, body, {
+			headers: { 'Content-Type': 'application/vnd.automates.compact+json' }
+		});
 	},
 
 	/**
@@ -164,18 +270,150 @@ export const api = {
 	},
 
 	/**
-	 * Récupère la table de transitions
+	 * Applique un lot d'opérations d'édition en une seule requête (tout ou rien)
+	 */
+	async applyOperations(sessionId: string, operations: EditOperation[]): Promise<EditBatchResult> {
+		const response = await client.post<EditBatchResult>(`/automaton/${sessionId}/ops`, operations);
+		return response.data;
+	},
+
+	/**
+	 * Annule la dernière modification (erreur 409 s'il n'y a rien à annuler)
+	 */
+	async undo(sessionId: string): Promise<void> {
+		await client.post(`/automaton/${sessionId}/undo`);
+	},
+
+	/**
+	 * Rétablit la dernière modification annulée
+	 */
+	async redo(sessionId: string): Promise<void> {
+		await client.post(`/automaton/${sessionId}/redo`);
+	},
+
+	/**
+	 * Récupère l'historique d'annulation
+	 */
+	async getHistory(sessionId: string): Promise<HistoryInfo> {
+		const response = await client.get<HistoryInfo>(`/automaton/${sessionId}/history`);
+		return response.data;
+	},
+
+	/**
+	 * Duplique la session (copie indépendante de la version courante)
+	 */
+	async forkSession(sessionId: string): Promise<string> {
+		const response = await client.post<{ sessionId: string }>(`/automaton/${sessionId}/fork`);
+		return response.data.sessionId;
+	},
+
+	/**
+	 * Ouvre le flux SSE des modifications de la session (snapshot, delta, analysis, deleted).
+	 * EventSource se reconnecte seul et reprend depuis le dernier événement reçu.
+	 */
+	async openEventStream(
+		sessionId: string,
+		handlers: Partial<Record<'snapshot' | 'delta' | 'analysis' | 'deleted', (data: any) => void>>
+	): Promise<EventSource> {
+		await initializeClient();
+		const source = new EventSource(`${client.defaults.baseURL}/automaton/${sessionId}/events`);
+		for (const [name, handler] of Object.entries(handlers)) {
+			source.addEventListener(name, (event) => handler(JSON.parse((event as MessageEvent).data)));
+		}
+		return source;
+	},
+
+	/**
+	 * Récupère une fenêtre de la table de transitions (lignes et symboles)
+	 */
+	async getTransitionTable(
+		sessionId: string,
+		window: { offset?: number; limit?: number; symbolOffset?: number; symbolLimit?: number } = {}
+	): Promise<TransitionTablePage> {
+		const response = await client.get<TransitionTablePage>(`/automaton/${sessionId}/table`, {
+			params: window
+		});
+		return response.data;
+	},
+
+	/**
+	 * Récupère les états et transitions visibles dans le rectangle [x0, x1] × [y0, y1]
+	 */
+	async getViewport(
+		sessionId: string,
+		rect: { x0: number; y0: number; x1: number; y1: number }
+	): Promise<ViewportPage> {
+		const response = await client.get<ViewportPage>(`/automaton/${sessionId}/viewport`, {
+			params: rect
+		});
+		return response.data;
+	},
+
+	/**
+	 * Récupère le résumé d'une fenêtre pour une vue dézoomée (groupes d'états et liens agrégés)
+	 */
+	async getSummary(
+		sessionId: string,
+		rect: { x0: number; y0: number; x1: number; y1: number },
+		tier?: number
+	): Promise<SummaryPage> {
+		const response = await client.get<SummaryPage>(`/automaton/${sessionId}/summary`, {
+			params: { ...rect, tier }
+		});
+		return response.data;
+	},
+
+	/**
+	 * Lance la disposition automatique des états en arrière-plan
+	 */
+	async startLayout(
+		sessionId: string,
+		options: { spacing?: number; iterations?: number } = {}
+	): Promise<LayoutJobInfo> {
+		const response = await client.post<LayoutJobInfo>(`/automaton/${sessionId}/layout`, null, {
+			params: options
+		});
+		return response.data;
+	},
+
+	/**
+	 * Avancement d'une disposition
 	 */
-	async getTransitionTable(sessionId: string): Promise<any> {
-		const response = await client.get(`/automaton/${sessionId}/table`);
+	async getLayoutJob(jobId: string): Promise<LayoutJobInfo> {
+		const response = await client.get<LayoutJobInfo>(`/automaton/layout/jobs/${jobId}`);
 		return response.data;
 	},
 
+	/**
+	 * Annule une disposition (les positions ne sont pas modifiées)
+	 */
+	async cancelLayoutJob(jobId: string): Promise<void> {
+		await client.delete(`/automaton/layout/jobs/${jobId}`);
+	},
+
+	/**
+	 * Suit une disposition : states (identifiants), positions ({ progress, xy: [x0, y0, ...] }), done
+	 */
+	async openLayoutStream(
+		jobId: string,
+		handlers: Partial<Record<'states' | 'positions' | 'done', (data: any) => void>>
+	): Promise<EventSource> {
+		await initializeClient();
+		const source = new EventSource(`${client.defaults.baseURL}/automaton/layout/jobs/${jobId}/events`);
+		for (const [name, handler] of Object.entries(handlers)) {
+			source.addEventListener(name, (event) => handler(JSON.parse((event as MessageEvent).data)));
+		}
+		source.addEventListener('done', () => source.close());
+		return source;
+	},
+
 	/**
 	 * Récupère les informations d'analyse de l'automate
 	 */
-	async getAutomatonInfo(sessionId: string): Promise<AutomatonInfo> {
-		const response = await client.get<AutomatonInfo>(`/automaton/${sessionId}/info`);
+	async getAutomatonInfo(sessionId: string, version?: number): Promise<AutomatonInfo> {
+		const response = await client.get<AutomatonInfo>(`/automaton/${sessionId}/info`, {
+			params: version !== undefined ? { version } : undefined
+		});
 		return response.data;
 	}
 };
@@ -35,8 +35,163 @@ export interface AutomatonInfo {
 	alphabet: string[];
 	initialState: string | null;
 	acceptingStates: string[];
-	regex: string;
-	languageDescription: string;
+	regex: string | null;
+	languageDescription: string | null;
+	pending: string[];
+}
+
+/**
+ * Opération d'un lot d'édition (POST /automaton/{id}/ops).
+ * Les identifiants peuvent désigner le tempId d'un ajout précédent du même lot.
+ */
+export type EditOperation =
+	| { op: 'addState'; tempId?: string; x?: number; y?: number; label?: string }
+	| { op: 'removeState'; stateId: string }
+	| {
+			op: 'updateState';
+			stateId: string;
+			x?: number;
+			y?: number;
+			initial?: boolean;
+			accepting?: boolean;
+	  }
+	| { op: 'addTransition'; tempId?: string; fromId: string; toId: string; symbol: string }
+	| { op: 'removeTransition'; transitionId: string };
+
+export interface EditBatchResult {
+	ids: Record<string, string>;
+	results: (State | Transition | null)[];
+}
+
+/**
+ * Modification du texte AMDL : lignes startLine..endLine (incluses, à partir de 1) remplacées
+ */
+export interface AmdlEdit {
+	startLine: number;
+	endLine: number;
+	lines: string[];
+}
+
+export interface AmdlEditResult {
+	// Au format des deltas du flux d'événements (op, id, ...)
+	operations: Record<string, unknown>[];
+	errors: { line: number; column: number; message: string }[];
+	lineCount: number;
+}
+
+export interface TransitionTableRow {
+	index: number;
+	id: string;
+	label: string;
+	initial: boolean;
+	accepting: boolean;
+	// Une cellule par symbole de la fenêtre : indices des états cibles
+	cells: number[][];
+	epsilonTargets?: number[];
+}
+
+export interface TransitionTablePage {
+	version: number;
+	stateCount: number;
+	symbolCount: number;
+	offset: number;
+	symbolOffset: number;
+	symbols: string[];
+	epsilon: boolean;
+	rows: TransitionTableRow[];
+	// Labels des cibles hors de la page, par indice
+	labels: Record<string, string>;
+}
+
+/**
+ * Partie visible d'un automate (GET /automaton/{id}/viewport)
+ */
+export interface ViewportTransition {
+	id: string;
+	from: string;
+	to: string;
+	symbol: string;
+}
+
+export interface ViewportPage {
+	version: number;
+	x0: number;
+	y0: number;
+	x1: number;
+	y1: number;
+	states: State[];
+	transitions: ViewportTransition[];
+	// Extrémités hors du rectangle des transitions visibles
+	anchors: State[];
+}
+
+export interface SummaryCluster {
+	cx: number;
+	cy: number;
+	states: number;
+	// Barycentre des états du groupe
+	x: number;
+	y: number;
+	initials: number;
+	accepting: number;
+}
+
+export interface SummaryLink {
+	// Rangs dans clusters suivi de anchors
+	from: number;
+	to: number;
+	count: number;
+}
+
+export interface SummaryPage {
+	version: number;
+	tier: number;
+	cellSize: number;
+	x0: number;
+	y0: number;
+	x1: number;
+	y1: number;
+	clusters: SummaryCluster[];
+	// Groupes hors de la fenêtre reliés à un groupe visible
+	anchors: SummaryCluster[];
+	links: SummaryLink[];
+	droppedLinks: number;
+}
+
+export type ImportFormat = 'dot' | 'jff' | 'csv' | 'ndjson';
+
+export interface ImportJobInfo {
+	jobId: string | null;
+	format: ImportFormat;
+	status: 'PENDING' | 'RUNNING' | 'DONE' | 'FAILED' | 'CANCELLED';
+	bytesRead: number;
+	totalBytes: number;
+	sessionId: string | null;
+	statesCount: number;
+	transitionsCount: number;
+	error: string | null;
+}
+
+export interface LayoutJobInfo {
+	jobId: string;
+	sessionId: string;
+	status: 'PENDING' | 'RUNNING' | 'DONE' | 'FAILED' | 'CANCELLED';
+	progress: number;
+	statesCount: number;
+	version: number | null;
+	error: string | null;
+}
+
+export interface HistoryVersion {
+	version: number;
+	stateCount: number;
+	transitionCount: number;
+}
+
+export interface HistoryInfo {
+	currentVersion: number;
+	undo: HistoryVersion[];
+	redo: HistoryVersion[];
 }
 
 export type Tool = 'select' | 'addState' | 'addTransition';
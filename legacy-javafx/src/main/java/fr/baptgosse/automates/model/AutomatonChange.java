@@ -0,0 +1,42 @@
+package fr.baptgosse.automates.model;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Modification de l'automate faite par l'éditeur, pour que les vues ne mettent à jour que ce qui a changé.
+ * Les états modifiés sont ceux dont le statut (initial, acceptant) a changé ; la suppression d'un état
+ * s'accompagne des transitions supprimées avec lui. Un changement complet ({@link #full()}, {@code reload}) demande
+ * de tout relire (automate vidé ou remplacé).
+ */
+public record AutomatonChange(Set<State> addedStates,
+                              Set<State> removedStates,
+                              Set<State> updatedStates,
+                              Set<Transition> addedTransitions,
+                              Set<Transition> removedTransitions,
+                              boolean reload) {
+
+    public static AutomatonChange full() {
+        return new AutomatonChange(Set.of(), Set.of(), Set.of(), Set.of(), Set.of(), true);
+    }
+
+    public static AutomatonChange stateAdded(State state) {
+        return new AutomatonChange(Set.of(state), Set.of(), Set.of(), Set.of(), Set.of(), false);
+    }
+
+    public static AutomatonChange stateRemoved(State state, Collection<Transition> transitions) {
+        return new AutomatonChange(Set.of(), Set.of(state), Set.of(), Set.of(), Set.copyOf(transitions), false);
+    }
+
+    public static AutomatonChange statesUpdated(Collection<State> states) {
+        return new AutomatonChange(Set.of(), Set.of(), Set.copyOf(states), Set.of(), Set.of(), false);
+    }
+
+    public static AutomatonChange transitionsAdded(Collection<Transition> transitions) {
+        return new AutomatonChange(Set.of(), Set.of(), Set.of(), Set.copyOf(transitions), Set.of(), false);
+    }
+
+    public static AutomatonChange transitionsRemoved(Collection<Transition> transitions) {
+        return new AutomatonChange(Set.of(), Set.of(), Set.of(), Set.of(), Set.copyOf(transitions), false);
+    }
+}
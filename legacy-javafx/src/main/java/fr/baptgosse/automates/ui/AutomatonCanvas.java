@@ -1,8 +1,12 @@
 package fr.baptgosse.automates.ui;
 
 import fr.baptgosse.automates.model.Automaton;
+import fr.baptgosse.automates.model.AutomatonChange;
 import fr.baptgosse.automates.model.State;
 import fr.baptgosse.automates.model.Transition;
+import javafx.animation.AnimationTimer;
+import javafx.geometry.BoundingBox;
+import javafx.geometry.Bounds;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.control.TextInputDialog;
@@ -10,14 +14,17 @@ import javafx.scene.input.MouseButton;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
-import javafx.scene.text.Font;
-import javafx.scene.text.Text;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 /**
  * Canvas pour dessiner et interagir avec l'automate.
+ *
+ * Le dessin est réparti sur deux calques : le calque statique (tous les éléments, dans leur style
+ * normal) garde son contenu d'un dessin à l'autre et n'est redessiné que dans les zones modifiées,
+ * retrouvées par {@link CanvasIndex} ; le calque de sélection, transparent, ne contient que les
+ * éléments sélectionnés. Les zones modifiées sont accumulées puis dessinées une fois par image.
  */
 public class AutomatonCanvas extends Pane {
 
@@ -27,23 +34,48 @@ public class AutomatonCanvas extends Pane {
         ADD_TRANSITION
     }
 
+    // Au-delà, un dessin complet coûte moins que les zones une à une
+    private static final int MAX_DIRTY_REGIONS = 64;
+
     private final Canvas canvas;
+    private final Canvas overlay;
     private final Automaton automaton;
+    private final CanvasIndex index = new CanvasIndex();
+    private final List<Bounds> dirtyRegions = new ArrayList<>();
+    private boolean fullRedraw = true;
+    private boolean overlayDirty = true;
+    private Bounds overlayBounds = null;
+    private final AnimationTimer renderTimer;
+    private boolean renderScheduled = false;
     private Tool currentTool = Tool.SELECT;
     private State selectedState = null;
     private Transition selectedTransition = null;
     private State transitionStartState = null;
-    private Runnable onAutomatonChanged;
+    private State draggedState = null;
+    private double dragOffsetX;
+    private double dragOffsetY;
+    private Consumer<AutomatonChange> onAutomatonChanged;
 
     public AutomatonCanvas() {
         this.automaton = new Automaton("Mon Automate");
         this.canvas = new Canvas(800, 600);
+        this.overlay = new Canvas(800, 600);
+        overlay.setMouseTransparent(true);
 
-        getChildren().add(canvas);
+        getChildren().addAll(canvas, overlay);
 
-        // Redimensionner le canvas avec le pane
+        // Redimensionner les calques avec le pane
         canvas.widthProperty().bind(this.widthProperty());
         canvas.heightProperty().bind(this.heightProperty());
+        overlay.widthProperty().bind(this.widthProperty());
+        overlay.heightProperty().bind(this.heightProperty());
+
+        renderTimer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                render();
+            }
+        };
 
         // Redessiner quand la taille change
         canvas.widthProperty().addListener((obs, oldVal, newVal) -> draw());
@@ -56,6 +88,9 @@ public class AutomatonCanvas extends Pane {
     private void setupMouseHandlers() {
         canvas.setOnMouseClicked(this::handleMouseClick);
         canvas.setOnMouseMoved(this::handleMouseMove);
+        canvas.setOnMousePressed(this::handleMousePress);
+        canvas.setOnMouseDragged(this::handleMouseDrag);
+        canvas.setOnMouseReleased(event -> draggedState = null);
     }
 
     private void handleMouseClick(MouseEvent event) {
@@ -72,7 +107,10 @@ public class AutomatonCanvas extends Pane {
                 break;
 
             case SELECT:
-                handleSelection(x, y, event.getButton());
+                // La fin d'un déplacement n'est pas un clic
+                if (event.isStillSincePress()) {
+                    handleSelection(x, y, event.getButton());
+                }
                 break;
         }
     }
@@ -81,16 +119,40 @@ public class AutomatonCanvas extends Pane {
         // Pourrait être utilisé pour afficher un aperçu
     }
 
+    private void handleMousePress(MouseEvent event) {
+        if (currentTool != Tool.SELECT || event.getButton() != MouseButton.PRIMARY) {
+            return;
+        }
+        index.stateAt(event.getX(), event.getY()).ifPresent(state -> {
+            draggedState = state;
+            dragOffsetX = state.getX() - event.getX();
+            dragOffsetY = state.getY() - event.getY();
+            selectState(state);
+        });
+    }
+
+    private void handleMouseDrag(MouseEvent event) {
+        if (draggedState == null) {
+            return;
+        }
+        draggedState.setX(event.getX() + dragOffsetX);
+        draggedState.setY(event.getY() + dragOffsetY);
+        index.updateState(draggedState, this::invalidate);
+        overlayDirty = true;
+        scheduleRender();
+    }
+
     private void addState(double x, double y) {
         String label = automaton.generateStateLabel();
         State state = new State(label, x, y);
         automaton.addState(state);
-        draw();
-        notifyChange();
+        index.addState(state, this::invalidate);
+        scheduleRender();
+        notifyChange(AutomatonChange.stateAdded(state));
     }
 
     private void handleTransitionClick(double x, double y) {
-        Optional<State> clickedState = automaton.getStateAt(x, y);
+        Optional<State> clickedState = index.stateAt(x, y);
 
         if (clickedState.isPresent()) {
             if (transitionStartState == null) {
@@ -110,15 +172,17 @@ public class AutomatonCanvas extends Pane {
                 result.ifPresent(input -> {
                     // Séparer les symboles par des virgules
                     String[] symbols = input.split(",");
+                    List<Transition> added = new ArrayList<>();
                     for (String symbol : symbols) {
                         String trimmedSymbol = symbol.trim();
                         if (!trimmedSymbol.isEmpty()) {
                             Transition transition = new Transition(transitionStartState, endState, trimmedSymbol);
                             automaton.addTransition(transition);
+                            index.addTransition(transition, this::invalidate);
+                            added.add(transition);
                         }
                     }
-                    draw();
-                    notifyChange();
+                    notifyChange(AutomatonChange.transitionsAdded(added));
                 });
 
                 transitionStartState = null;
@@ -128,77 +192,100 @@ public class AutomatonCanvas extends Pane {
             transitionStartState = null;
         }
 
-        draw();
+        overlayDirty = true;
+        scheduleRender();
     }
 
     private void handleSelection(double x, double y, MouseButton button) {
-        Optional<State> clickedState = automaton.getStateAt(x, y);
+        Optional<State> clickedState = index.stateAt(x, y);
 
         if (clickedState.isPresent()) {
-            selectedState = clickedState.get();
-            selectedTransition = null;
-            draw();
+            selectState(clickedState.get());
         } else {
             // Vérifier si on a cliqué sur une transition
             selectedState = null;
             selectedTransition = getTransitionAt(x, y);
-            draw();
+            overlayDirty = true;
+            scheduleRender();
         }
     }
 
+    private void selectState(State state) {
+        selectedState = state;
+        selectedTransition = null;
+        overlayDirty = true;
+        scheduleRender();
+    }
+
     public void deleteSelected() {
         if (selectedState != null) {
-            automaton.removeState(selectedState);
+            State removed = selectedState;
+            List<Transition> transitions = index.removeState(removed, this::invalidate);
+            automaton.removeState(removed);
             selectedState = null;
-            draw();
-            notifyChange();
+            overlayDirty = true;
+            scheduleRender();
+            notifyChange(AutomatonChange.stateRemoved(removed, transitions));
         } else if (selectedTransition != null) {
             // Supprimer toutes les transitions entre les mêmes états
-            State from = selectedTransition.getFrom();
-            State to = selectedTransition.getTo();
+            CanvasIndex.Edge edge = index.edgeOf(selectedTransition);
+            List<Transition> toRemove = edge != null ? new ArrayList<>(edge.transitions) : List.of(selectedTransition);
 
-            List<Transition> toRemove = automaton.getTransitions().stream()
-                    .filter(t -> t.getFrom().equals(from) && t.getTo().equals(to))
-                    .collect(Collectors.toList());
-
-            toRemove.forEach(automaton::removeTransition);
+            for (Transition transition : toRemove) {
+                index.removeTransition(transition, this::invalidate);
+                automaton.removeTransition(transition);
+            }
             selectedTransition = null;
-            draw();
-            notifyChange();
+            overlayDirty = true;
+            scheduleRender();
+            notifyChange(AutomatonChange.transitionsRemoved(toRemove));
         }
     }
 
     public void toggleInitialOnSelected() {
         if (selectedState != null) {
+            List<State> changed = new ArrayList<>(List.of(selectedState));
             if (selectedState.isInitial()) {
                 // Si déjà initial, on le désactive
                 selectedState.setInitial(false);
             } else {
                 // Retirer le statut initial des autres états
-                automaton.getStates().forEach(s -> s.setInitial(false));
+                for (State state : automaton.getStates()) {
+                    if (state.isInitial()) {
+                        state.setInitial(false);
+                        index.updateState(state, this::invalidate);
+                        changed.add(state);
+                    }
+                }
                 selectedState.setInitial(true);
             }
-            draw();
-            notifyChange();
+            index.updateState(selectedState, this::invalidate);
+            overlayDirty = true;
+            scheduleRender();
+            notifyChange(AutomatonChange.statesUpdated(changed));
         }
     }
 
     public void toggleAcceptingOnSelected() {
         if (selectedState != null) {
             selectedState.setAccepting(!selectedState.isAccepting());
-            draw();
-            notifyChange();
+            index.updateState(selectedState, this::invalidate);
+            overlayDirty = true;
+            scheduleRender();
+            notifyChange(AutomatonChange.statesUpdated(List.of(selectedState)));
         }
     }
 
     public void clear() {
         automaton.getStates().clear();
         automaton.getTransitions().clear();
+        index.clear();
         selectedState = null;
         selectedTransition = null;
         transitionStartState = null;
+        draggedState = null;
         draw();
-        notifyChange();
+        notifyChange(AutomatonChange.full());
     }
 
     /**
@@ -207,55 +294,120 @@ public class AutomatonCanvas extends Pane {
     private Transition getTransitionAt(double x, double y) {
         double threshold = 15; // Distance seuil pour la sélection
 
-        // Regrouper les transitions par paire (from, to)
-        Map<String, List<Transition>> groupedTransitions = new HashMap<>();
-        for (Transition transition : automaton.getTransitions()) {
-            String key = transition.getFrom().getId() + "->" + transition.getTo().getId();
-            groupedTransitions.computeIfAbsent(key, k -> new ArrayList<>()).add(transition);
-        }
-
-        for (List<Transition> group : groupedTransitions.values()) {
-            if (group.isEmpty()) continue;
+        // Retourner la première transition de la flèche la plus proche
+        CanvasIndex.Edge edge = index.edgeAt(x, y, threshold);
+        return edge != null ? edge.transitions.get(0) : null;
+    }
 
-            Transition firstTransition = group.get(0);
-            State from = firstTransition.getFrom();
-            State to = firstTransition.getTo();
+    /**
+     * Redessine tout (taille modifiée, automate vidé).
+     */
+    private void draw() {
+        fullRedraw = true;
+        overlayDirty = true;
+        scheduleRender();
+    }
 
-            // Ignorer les boucles pour l'instant (plus complexe à détecter)
-            if (from.equals(to)) {
-                continue;
+    /**
+     * Marque une zone du calque statique à redessiner.
+     */
+    private void invalidate(Bounds area) {
+        if (!fullRedraw) {
+            dirtyRegions.add(area);
+            if (dirtyRegions.size() > MAX_DIRTY_REGIONS) {
+                fullRedraw = true;
+                dirtyRegions.clear();
             }
+        }
+    }
 
-            // Calculer le point milieu de la transition
-            double midX = (from.getX() + to.getX()) / 2;
-            double midY = (from.getY() + to.getY()) / 2;
+    private void scheduleRender() {
+        if (!renderScheduled) {
+            renderScheduled = true;
+            renderTimer.start();
+        }
+    }
+
+    /**
+     * Dessine les zones accumulées depuis la dernière image.
+     */
+    private void render() {
+        renderTimer.stop();
+        renderScheduled = false;
 
-            // Vérifier si le clic est proche du milieu
-            double distance = Math.sqrt(Math.pow(x - midX, 2) + Math.pow(y - midY, 2));
-            if (distance < threshold) {
-                // Retourner la première transition du groupe
-                return firstTransition;
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        if (fullRedraw) {
+            // Effacer
+            gc.setFill(Color.WHITE);
+            gc.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+
+            // Dessiner les transitions d'abord (sous les états), puis les états
+            index.forEach(edge -> drawEdge(gc, edge, false), state -> drawState(gc, state, false));
+        } else {
+            Bounds visible = new BoundingBox(0, 0, canvas.getWidth(), canvas.getHeight());
+            for (Bounds area : dirtyRegions) {
+                if (area.intersects(visible)) {
+                    redrawRegion(gc, area);
+                }
             }
         }
+        fullRedraw = false;
+        dirtyRegions.clear();
 
-        return null;
+        if (overlayDirty) {
+            renderOverlay();
+            overlayDirty = false;
+        }
     }
 
-    private void draw() {
-        GraphicsContext gc = canvas.getGraphicsContext2D();
+    /**
+     * Redessine une zone du calque statique, limitée aux pixels entiers qui la couvrent :
+     * les éléments qui la coupent y sont redessinés dans l'ordre habituel.
+     */
+    private void redrawRegion(GraphicsContext gc, Bounds area) {
+        double minX = Math.floor(area.getMinX());
+        double minY = Math.floor(area.getMinY());
+        double width = Math.ceil(area.getMaxX()) - minX;
+        double height = Math.ceil(area.getMaxY()) - minY;
 
-        // Effacer
+        gc.save();
+        gc.beginPath();
+        gc.rect(minX, minY, width, height);
+        gc.clip();
         gc.setFill(Color.WHITE);
-        gc.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        gc.fillRect(minX, minY, width, height);
+        index.forEachIn(new BoundingBox(minX, minY, width, height),
+                edge -> drawEdge(gc, edge, false),
+                state -> drawState(gc, state, false));
+        gc.restore();
+    }
+
+    /**
+     * Calque de sélection : efface la sélection précédente et dessine la nouvelle.
+     */
+    private void renderOverlay() {
+        GraphicsContext gc = overlay.getGraphicsContext2D();
+        if (overlayBounds != null) {
+            gc.clearRect(overlayBounds.getMinX() - 1, overlayBounds.getMinY() - 1,
+                    overlayBounds.getWidth() + 2, overlayBounds.getHeight() + 2);
+        }
+        overlayBounds = null;
 
-        // Dessiner les transitions d'abord (sous les états)
-        drawTransitions(gc);
+        CanvasIndex.Edge selectedEdge = selectedTransition != null ? index.edgeOf(selectedTransition) : null;
+        if (selectedEdge != null) {
+            drawEdge(gc, selectedEdge, true);
+            overlayBounds = selectedEdge.bounds;
+        }
 
-        // Dessiner les états
-        drawStates(gc);
+        Bounds stateBounds = selectedState != null ? index.boundsOf(selectedState) : null;
+        if (stateBounds != null) {
+            drawState(gc, selectedState, true);
+            overlayBounds = overlayBounds != null ? CanvasIndex.union(overlayBounds, stateBounds) : stateBounds;
+        }
 
         // Dessiner l'état de départ de transition en cours
-        if (transitionStartState != null) {
+        Bounds startBounds = transitionStartState != null ? index.boundsOf(transitionStartState) : null;
+        if (startBounds != null) {
             gc.setStroke(Color.ORANGE);
             gc.setLineWidth(3);
             gc.strokeOval(
@@ -264,166 +416,96 @@ public class AutomatonCanvas extends Pane {
                     State.getRadius() * 2,
                     State.getRadius() * 2
             );
+            overlayBounds = overlayBounds != null ? CanvasIndex.union(overlayBounds, startBounds) : startBounds;
         }
     }
 
-    private void drawStates(GraphicsContext gc) {
-        for (State state : automaton.getStates()) {
-            double x = state.getX();
-            double y = state.getY();
-            double radius = State.getRadius();
-
-            // Cercle de l'état (fond blanc ou bleu clair si sélectionné)
-            gc.setFill(state == selectedState ? Color.rgb(220, 240, 255) : Color.WHITE);
-            gc.setStroke(Color.BLACK);
-            gc.setLineWidth(1.5);
-            gc.fillOval(x - radius, y - radius, radius * 2, radius * 2);
-            gc.strokeOval(x - radius, y - radius, radius * 2, radius * 2);
-
-            // Double cercle si acceptant (style des exercices)
-            if (state.isAccepting()) {
-                double innerRadius = radius - 6;
-                gc.setLineWidth(1.5);
-                gc.strokeOval(x - innerRadius, y - innerRadius, innerRadius * 2, innerRadius * 2);
-            }
-
-            // Flèche entrante si initial (longue flèche venant de l'extérieur)
-            if (state.isInitial()) {
-                gc.setStroke(Color.BLACK);
-                gc.setLineWidth(1.5);
-
-                // Point de départ de la flèche (loin à gauche)
-                double arrowStartX = x - radius - 50;
-                double arrowEndX = x - radius - 2;
-
-                // Ligne de la flèche
-                gc.strokeLine(arrowStartX, y, arrowEndX, y);
-
-                // Pointe de flèche (triangle)
-                gc.strokeLine(arrowEndX, y, arrowEndX - 8, y - 4);
-                gc.strokeLine(arrowEndX, y, arrowEndX - 8, y + 4);
-            }
-
-            // Label de l'état (centré)
-            gc.setFill(Color.BLACK);
-            gc.setFont(Font.font("Arial", 14));
-
-            // Mesurer la largeur du texte pour le centrer
-            String label = state.getLabel();
-            Text text = new Text(label);
-            text.setFont(gc.getFont());
-            double textWidth = text.getLayoutBounds().getWidth();
-            double textHeight = text.getLayoutBounds().getHeight();
-
-            gc.fillText(label, x - textWidth / 2, y + textHeight / 4);
-        }
-    }
+    private void drawState(GraphicsContext gc, State state, boolean selected) {
+        double x = state.getX();
+        double y = state.getY();
+        double radius = State.getRadius();
 
-    private void drawTransitions(GraphicsContext gc) {
-        // Regrouper les transitions par paire (from, to)
-        Map<String, List<Transition>> groupedTransitions = new HashMap<>();
+        // Cercle de l'état (fond blanc ou bleu clair si sélectionné)
+        gc.setFill(selected ? Color.rgb(220, 240, 255) : Color.WHITE);
+        gc.setStroke(Color.BLACK);
+        gc.setLineWidth(1.5);
+        gc.fillOval(x - radius, y - radius, radius * 2, radius * 2);
+        gc.strokeOval(x - radius, y - radius, radius * 2, radius * 2);
 
-        for (Transition transition : automaton.getTransitions()) {
-            String key = transition.getFrom().getId() + "->" + transition.getTo().getId();
-            groupedTransitions.computeIfAbsent(key, k -> new ArrayList<>()).add(transition);
+        // Double cercle si acceptant (style des exercices)
+        if (state.isAccepting()) {
+            double innerRadius = radius - 6;
+            gc.setLineWidth(1.5);
+            gc.strokeOval(x - innerRadius, y - innerRadius, innerRadius * 2, innerRadius * 2);
         }
 
-        // Dessiner chaque groupe de transitions
-        for (List<Transition> group : groupedTransitions.values()) {
-            if (group.isEmpty()) continue;
-
-            Transition firstTransition = group.get(0);
-            State from = firstTransition.getFrom();
-            State to = firstTransition.getTo();
+        // Flèche entrante si initial (longue flèche venant de l'extérieur)
+        if (state.isInitial()) {
+            gc.setStroke(Color.BLACK);
+            gc.setLineWidth(1.5);
 
-            // Regrouper les symboles
-            String combinedSymbol = group.stream()
-                    .map(Transition::getSymbol)
-                    .collect(Collectors.joining(","));
+            // Point de départ de la flèche (loin à gauche)
+            double arrowStartX = x - radius - 50;
+            double arrowEndX = x - radius - 2;
 
-            // Mettre en surbrillance si une des transitions est sélectionnée
-            boolean isSelected = group.contains(selectedTransition);
-            if (isSelected) {
-                gc.setStroke(Color.BLUE);
-                gc.setLineWidth(2.5);
-            } else {
-                gc.setStroke(Color.BLACK);
-                gc.setLineWidth(1.5);
-            }
+            // Ligne de la flèche
+            gc.strokeLine(arrowStartX, y, arrowEndX, y);
 
-            // Vérifier si c'est une boucle
-            if (from.equals(to)) {
-                drawSelfLoop(gc, from, combinedSymbol);
-            } else {
-                drawArrow(gc, from, to, combinedSymbol);
-            }
+            // Pointe de flèche (triangle)
+            gc.strokeLine(arrowEndX, y, arrowEndX - 8, y - 4);
+            gc.strokeLine(arrowEndX, y, arrowEndX - 8, y + 4);
         }
-    }
 
-    private void drawArrow(GraphicsContext gc, State from, State to, String symbol) {
-        double x1 = from.getX();
-        double y1 = from.getY();
-        double x2 = to.getX();
-        double y2 = to.getY();
+        // Label de l'état (centré, largeur mesurée une fois par l'index)
+        gc.setFill(Color.BLACK);
+        gc.setFont(CanvasIndex.STATE_FONT);
+        gc.fillText(state.getLabel(), x - index.labelWidth(state) / 2, y + index.stateLabelHeight() / 4);
+    }
 
-        // Calculer l'angle
-        double angle = Math.atan2(y2 - y1, x2 - x1);
+    private void drawEdge(GraphicsContext gc, CanvasIndex.Edge edge, boolean selected) {
+        // Mettre en surbrillance si une des transitions est sélectionnée
+        if (selected) {
+            gc.setStroke(Color.BLUE);
+            gc.setLineWidth(2.5);
+        } else {
+            gc.setStroke(Color.BLACK);
+            gc.setLineWidth(1.5);
+        }
 
-        // Points ajustés pour ne pas entrer dans les cercles
-        double radius = State.getRadius();
-        double startX = x1 + radius * Math.cos(angle);
-        double startY = y1 + radius * Math.sin(angle);
-        double endX = x2 - radius * Math.cos(angle);
-        double endY = y2 - radius * Math.sin(angle);
-
-        // Vérifier s'il y a déjà une transition dans l'autre sens
-        boolean hasReverse = automaton.getTransitions().stream()
-                .anyMatch(t -> t.getFrom().equals(to) && t.getTo().equals(from));
-
-        if (hasReverse) {
-            // Dessiner une courbe si transition dans les 2 sens
-            drawCurvedArrow(gc, startX, startY, endX, endY, angle, symbol, 20);
+        // Vérifier si c'est une boucle
+        if (edge.isLoop()) {
+            drawSelfLoop(gc, edge.from, edge.label);
+        } else if (edge.curved) {
+            // Courbe si transition dans les 2 sens
+            drawCurvedArrow(gc, edge);
         } else {
             // Ligne droite simple
-            gc.setLineWidth(1.5);
-            gc.strokeLine(startX, startY, endX, endY);
+            gc.strokeLine(edge.startX, edge.startY, edge.endX, edge.endY);
 
             // Pointe de flèche
-            drawArrowHead(gc, endX, endY, angle);
+            drawArrowHead(gc, edge.endX, edge.endY, edge.angle);
 
             // Label au milieu
-            double midX = (startX + endX) / 2;
-            double midY = (startY + endY) / 2;
-            drawTransitionLabel(gc, symbol, midX, midY, angle);
+            drawTransitionLabel(gc, edge.label, edge.ctrlX, edge.ctrlY, edge.angle);
         }
     }
 
-    private void drawCurvedArrow(GraphicsContext gc, double startX, double startY,
-                                  double endX, double endY, double angle, String symbol, double curve) {
-        // Point de contrôle pour la courbe de Bézier
-        double midX = (startX + endX) / 2;
-        double midY = (startY + endY) / 2;
-
-        // Décalage perpendiculaire pour la courbure
-        double perpAngle = angle + Math.PI / 2;
-        double ctrlX = midX + curve * Math.cos(perpAngle);
-        double ctrlY = midY + curve * Math.sin(perpAngle);
-
-        // Dessiner la courbe quadratique
+    private void drawCurvedArrow(GraphicsContext gc, CanvasIndex.Edge edge) {
+        // Dessiner la courbe quadratique (point de contrôle décalé perpendiculairement)
         gc.beginPath();
-        gc.moveTo(startX, startY);
-        gc.quadraticCurveTo(ctrlX, ctrlY, endX, endY);
+        gc.moveTo(edge.startX, edge.startY);
+        gc.quadraticCurveTo(edge.ctrlX, edge.ctrlY, edge.endX, edge.endY);
         gc.stroke();
 
         // Calculer l'angle à la fin pour la pointe de flèche
-        double dx = endX - ctrlX;
-        double dy = endY - ctrlY;
+        double dx = edge.endX - edge.ctrlX;
+        double dy = edge.endY - edge.ctrlY;
         double endAngle = Math.atan2(dy, dx);
 
-        drawArrowHead(gc, endX, endY, endAngle);
+        drawArrowHead(gc, edge.endX, edge.endY, endAngle);
 
         // Label au point de contrôle
-        drawTransitionLabel(gc, symbol, ctrlX, ctrlY, angle);
+        drawTransitionLabel(gc, edge.label, edge.ctrlX, edge.ctrlY, edge.angle);
     }
 
     private void drawArrowHead(GraphicsContext gc, double x, double y, double angle) {
@@ -441,7 +523,7 @@ public class AutomatonCanvas extends Pane {
 
     private void drawTransitionLabel(GraphicsContext gc, String symbol, double x, double y, double angle) {
         gc.setFill(Color.BLACK);
-        gc.setFont(Font.font("Arial", 13));
+        gc.setFont(CanvasIndex.LABEL_FONT);
 
         // Décalage pour positionner le label
         double offsetX = 8 * Math.cos(angle + Math.PI / 2);
@@ -459,8 +541,6 @@ public class AutomatonCanvas extends Pane {
         double loopRadius = radius * 0.7;
         double loopCenterY = y - radius - loopRadius;
 
-        gc.setLineWidth(1.5);
-
         // Arc pour la boucle (angle de départ, étendue de l'arc)
         // Décalage de 45° pour commencer et finir au bon endroit
         double startAngle = 75; // 30° + 45°
@@ -484,7 +564,7 @@ public class AutomatonCanvas extends Pane {
 
         // Label au-dessus de la boucle
         gc.setFill(Color.BLACK);
-        gc.setFont(Font.font("Arial", 13));
+        gc.setFont(CanvasIndex.LABEL_FONT);
         gc.fillText(symbol, x - 8, loopCenterY - loopRadius - 8);
     }
 
@@ -496,16 +576,20 @@ public class AutomatonCanvas extends Pane {
     public void setTool(Tool tool) {
         this.currentTool = tool;
         this.transitionStartState = null;
-        draw();
+        overlayDirty = true;
+        scheduleRender();
     }
 
-    public void setOnAutomatonChanged(Runnable callback) {
+    /**
+     * Appelé après chaque modification de l'automate, avec ce qui a changé.
+     */
+    public void setOnAutomatonChanged(Consumer<AutomatonChange> callback) {
         this.onAutomatonChanged = callback;
     }
 
-    private void notifyChange() {
+    private void notifyChange(AutomatonChange change) {
         if (onAutomatonChanged != null) {
-            onAutomatonChanged.run();
+            onAutomatonChanged.accept(change);
         }
     }
 }
@@ -2,7 +2,9 @@ package fr.baptgosse.automates.ui;
 
 import fr.baptgosse.automates.model.Automaton;
 import fr.baptgosse.automates.model.State;
+import fr.baptgosse.automates.model.Transition;
 import fr.baptgosse.automates.util.RegexGenerator;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.scene.control.Label;
 import javafx.scene.control.ScrollPane;
@@ -12,13 +14,25 @@ import javafx.scene.layout.VBox;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 /**
  * Panneau affichant les informations détaillées de l'automate.
+ * Les informations immédiates (nom, alphabet, compteurs) sont mises à jour tout de suite ; l'analyse
+ * (déterminisme, complétude, expression régulière) est faite en arrière-plan sur une copie.
  */
 public class AutomatonInfoPanel extends VBox {
 
+    /** Analyses d'une modification à la fois, dans l'ordre ; un seul thread suffit. */
+    private static final ExecutorService ANALYSIS = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "automaton-analysis");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private final Automaton automaton;
     private final Label nameLabel;
     private final Label typeLabel;
@@ -32,6 +46,9 @@ public class AutomatonInfoPanel extends VBox {
     private final Label isDeterministicLabel;
     private final Label isCompleteLabel;
 
+    /** Numéro de la dernière modification : les analyses plus anciennes sont abandonnées. */
+    private volatile long generation;
+
     public AutomatonInfoPanel(Automaton automaton) {
         this.automaton = automaton;
 
@@ -132,10 +149,6 @@ public class AutomatonInfoPanel extends VBox {
         // Nom
         nameLabel.setText(automaton.getName());
 
-        // Type
-        String type = isDeterministic() ? "AFD (Automate Fini Déterministe)" : "AFN (Automate Fini Non-Déterministe)";
-        typeLabel.setText(type);
-
         // Alphabet
         if (automaton.getAlphabet().isEmpty()) {
             alphabetLabel.setText("∅ (vide)");
@@ -162,28 +175,85 @@ public class AutomatonInfoPanel extends VBox {
                 .collect(Collectors.joining(", "));
         acceptingStatesLabel.setText(accepting.isEmpty() ? "Aucun" : "{" + accepting + "}");
 
+        // Analyse en arrière-plan, sur une copie : l'éditeur reste utilisable pendant le calcul
+        long current = ++generation;
+        Automaton snapshot = snapshot(automaton);
+        regexLabel.setText("Calcul en cours…");
+        regexLabel.setStyle("-fx-text-fill: #666666;");
+        ANALYSIS.execute(() -> {
+            if (current != generation) {
+                return; // Une modification plus récente est en attente
+            }
+            Analysis analysis = analyze(snapshot);
+            Platform.runLater(() -> {
+                if (current == generation) {
+                    show(analysis);
+                }
+            });
+        });
+    }
+
+    private void show(Analysis analysis) {
+        // Type
+        String type = analysis.deterministic() ? "AFD (Automate Fini Déterministe)" : "AFN (Automate Fini Non-Déterministe)";
+        typeLabel.setText(type);
+
         // Déterministe
-        isDeterministicLabel.setText(isDeterministic() ? "✓ Oui" : "✗ Non");
-        isDeterministicLabel.setStyle(isDeterministic() ? "-fx-text-fill: green;" : "-fx-text-fill: red;");
+        isDeterministicLabel.setText(analysis.deterministic() ? "✓ Oui" : "✗ Non");
+        isDeterministicLabel.setStyle(analysis.deterministic() ? "-fx-text-fill: green;" : "-fx-text-fill: red;");
 
         // Complet
-        boolean complete = isComplete();
-        isCompleteLabel.setText(complete ? "✓ Oui" : "✗ Non");
-        isCompleteLabel.setStyle(complete ? "-fx-text-fill: green;" : "-fx-text-fill: red;");
+        isCompleteLabel.setText(analysis.complete() ? "✓ Oui" : "✗ Non");
+        isCompleteLabel.setStyle(analysis.complete() ? "-fx-text-fill: green;" : "-fx-text-fill: red;");
 
         // Expression régulière
-        String regex = RegexGenerator.generateRegex(automaton);
-        regexLabel.setText(regex);
+        regexLabel.setText(analysis.regex());
         regexLabel.setStyle("");
 
         // Description du langage
-        languageDescLabel.setText(generateLanguageDescription());
+        languageDescLabel.setText(analysis.description());
+    }
+
+    /**
+     * Analyse l'automate (hors du thread JavaFX).
+     */
+    private static Analysis analyze(Automaton automaton) {
+        // Symboles sortants de chaque état
+        Map<State, List<String>> symbolsFrom = new HashMap<>();
+        for (Transition transition : automaton.getTransitions()) {
+            symbolsFrom.computeIfAbsent(transition.getFrom(), s -> new ArrayList<>()).add(transition.getSymbol());
+        }
+
+        boolean deterministic = isDeterministic(automaton, symbolsFrom);
+        return new Analysis(
+                deterministic,
+                deterministic && isComplete(automaton, symbolsFrom),
+                RegexGenerator.generateRegex(automaton),
+                generateLanguageDescription(automaton));
+    }
+
+    /**
+     * Copie l'automate, pour l'analyser pendant que l'éditeur continue de modifier l'original.
+     */
+    private static Automaton snapshot(Automaton automaton) {
+        Automaton copy = new Automaton(automaton.getName());
+        Map<State, State> states = new HashMap<>();
+        for (State state : automaton.getStates()) {
+            State s = new State(state.getLabel(), state.getX(), state.getY(), state.isInitial(), state.isAccepting());
+            states.put(state, s);
+            copy.addState(s);
+        }
+        for (Transition transition : automaton.getTransitions()) {
+            copy.addTransition(new Transition(states.get(transition.getFrom()), states.get(transition.getTo()),
+                    transition.getSymbol()));
+        }
+        return copy;
     }
 
     /**
      * Vérifie si l'automate est déterministe.
      */
-    private boolean isDeterministic() {
+    private static boolean isDeterministic(Automaton automaton, Map<State, List<String>> symbolsFrom) {
         if (automaton.getStates().isEmpty()) {
             return true;
         }
@@ -204,14 +274,8 @@ public class AutomatonInfoPanel extends VBox {
         }
 
         // Vérifier qu'il n'y a pas deux transitions avec le même symbole depuis un état
-        for (State state : automaton.getStates()) {
-            var transitionsFromState = automaton.getTransitionsFrom(state);
-            long distinctSymbols = transitionsFromState.stream()
-                    .map(t -> t.getSymbol())
-                    .distinct()
-                    .count();
-
-            if (distinctSymbols != transitionsFromState.size()) {
+        for (List<String> symbols : symbolsFrom.values()) {
+            if (new HashSet<>(symbols).size() != symbols.size()) {
                 return false;
             }
         }
@@ -220,21 +284,17 @@ public class AutomatonInfoPanel extends VBox {
     }
 
     /**
-     * Vérifie si l'automate est complet.
+     * Vérifie si l'automate (déterministe) est complet.
      */
-    private boolean isComplete() {
-        if (!isDeterministic() || automaton.getAlphabet().isEmpty()) {
+    private static boolean isComplete(Automaton automaton, Map<State, List<String>> symbolsFrom) {
+        if (automaton.getAlphabet().isEmpty()) {
             return false;
         }
 
         // Pour chaque état, vérifier qu'il y a une transition pour chaque symbole
         for (State state : automaton.getStates()) {
-            var transitionsFromState = automaton.getTransitionsFrom(state);
-            var symbolsFromState = transitionsFromState.stream()
-                    .map(t -> t.getSymbol())
-                    .collect(Collectors.toSet());
-
-            if (!symbolsFromState.containsAll(automaton.getAlphabet())) {
+            List<String> symbols = symbolsFrom.getOrDefault(state, List.of());
+            if (!new HashSet<>(symbols).containsAll(automaton.getAlphabet())) {
                 return false;
             }
         }
@@ -245,7 +305,7 @@ public class AutomatonInfoPanel extends VBox {
     /**
      * Génère une description textuelle du langage reconnu.
      */
-    private String generateLanguageDescription() {
+    private static String generateLanguageDescription(Automaton automaton) {
         if (automaton.getStates().isEmpty()) {
             return "Langage vide (∅)";
         }
@@ -271,4 +331,10 @@ public class AutomatonInfoPanel extends VBox {
 
         return desc.toString();
     }
+
+    /**
+     * Résultat de l'analyse d'une copie de l'automate.
+     */
+    private record Analysis(boolean deterministic, boolean complete, String regex, String description) {
+    }
 }
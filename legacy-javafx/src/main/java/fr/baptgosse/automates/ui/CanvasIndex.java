@@ -0,0 +1,537 @@
+package fr.baptgosse.automates.ui;
+
+import fr.baptgosse.automates.model.Automaton;
+import fr.baptgosse.automates.model.State;
+import fr.baptgosse.automates.model.Transition;
+import javafx.geometry.BoundingBox;
+import javafx.geometry.Bounds;
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Index en grille des éléments dessinés par {@link AutomatonCanvas}.
+ *
+ * Chaque état est rangé dans les cellules que couvre son rectangle englobant ; chaque flèche
+ * (toutes les transitions d'une même paire d'états), dans celles que traversent son tracé, sa
+ * pointe et son label. Le canvas s'en sert pour ne redessiner que les éléments qui coupent une
+ * zone modifiée et pour trouver l'élément sous la souris sans parcourir tout l'automate. Les mises
+ * à jour signalent les zones à redessiner (ancienne et nouvelle emprise des éléments touchés).
+ */
+class CanvasIndex {
+
+    static final Font STATE_FONT = Font.font("Arial", 14);
+    static final Font LABEL_FONT = Font.font("Arial", 13);
+
+    private static final double CELL = 128;
+    // Marge autour des tracés : épaisseur des traits (cercle de départ de transition compris) et anticrénelage
+    private static final double PADDING = 3;
+    private static final double ARROW_LENGTH = 12;
+    private static final double CURVE = 20;
+
+    /**
+     * Flèche qui représente toutes les transitions d'un état vers un autre (ou vers lui-même).
+     * La géométrie est celle du dessin : extrémités hors des cercles, point de contrôle de la
+     * courbe si la paire inverse existe, position du label.
+     */
+    static final class Edge {
+        final State from;
+        final State to;
+        final List<Transition> transitions = new ArrayList<>();
+        String label = "";
+        double labelWidth;
+        boolean curved;
+        double startX, startY, endX, endY, ctrlX, ctrlY, angle;
+        Bounds bounds;
+        // Cellules de la grille que traverse le tracé (une longue flèche n'occupe pas tout son rectangle)
+        long[] cells;
+
+        Edge(State from, State to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        boolean isLoop() {
+            return from.equals(to);
+        }
+    }
+
+    private final Grid<State> states = new Grid<>();
+    private final Grid<Edge> edges = new Grid<>();
+    private final Map<String, Edge> edgesByPair = new HashMap<>();
+    private final Map<State, Set<Edge>> incident = new HashMap<>();
+    private final Map<State, Double> labelWidths = new HashMap<>();
+    private final Text measure = new Text();
+    private final double stateLabelHeight;
+
+    CanvasIndex() {
+        measure.setText("q0");
+        measure.setFont(STATE_FONT);
+        stateLabelHeight = measure.getLayoutBounds().getHeight();
+    }
+
+    /**
+     * Réindexe tout l'automate.
+     */
+    void rebuild(Automaton automaton) {
+        clear();
+        automaton.getStates().forEach(state -> addState(state, bounds -> { }));
+        automaton.getTransitions().forEach(transition -> addTransition(transition, bounds -> { }));
+    }
+
+    void clear() {
+        states.clear();
+        edges.clear();
+        edgesByPair.clear();
+        incident.clear();
+        labelWidths.clear();
+    }
+
+    void addState(State state, Consumer<Bounds> dirty) {
+        labelWidths.put(state, textWidth(state.getLabel(), STATE_FONT));
+        Bounds bounds = stateBounds(state);
+        states.put(state, bounds, Grid.cells(bounds));
+        dirty.accept(bounds);
+    }
+
+    /**
+     * Retire un état et ses flèches (l'automate supprime ses transitions).
+     * @return les transitions des flèches retirées
+     */
+    List<Transition> removeState(State state, Consumer<Bounds> dirty) {
+        List<Transition> removed = new ArrayList<>();
+        for (Edge edge : new ArrayList<>(incident.getOrDefault(state, Set.of()))) {
+            removed.addAll(edge.transitions);
+            new ArrayList<>(edge.transitions).forEach(transition -> removeTransition(transition, dirty));
+        }
+        Bounds bounds = states.remove(state);
+        if (bounds != null) {
+            dirty.accept(bounds);
+        }
+        incident.remove(state);
+        labelWidths.remove(state);
+        return removed;
+    }
+
+    /**
+     * Recalcule l'emprise d'un état déplacé ou dont le statut (initial, acceptant) a changé,
+     * et celle de ses flèches.
+     */
+    void updateState(State state, Consumer<Bounds> dirty) {
+        if (states.bounds(state) == null) {
+            return;
+        }
+        Bounds bounds = stateBounds(state);
+        dirty.accept(states.put(state, bounds, Grid.cells(bounds)));
+        dirty.accept(bounds);
+        for (Edge edge : incident.getOrDefault(state, Set.of())) {
+            relayout(edge, dirty);
+        }
+    }
+
+    void addTransition(Transition transition, Consumer<Bounds> dirty) {
+        String key = pair(transition.getFrom(), transition.getTo());
+        Edge edge = edgesByPair.get(key);
+        if (edge == null) {
+            edge = new Edge(transition.getFrom(), transition.getTo());
+            edgesByPair.put(key, edge);
+            incident.computeIfAbsent(edge.from, s -> new HashSet<>()).add(edge);
+            incident.computeIfAbsent(edge.to, s -> new HashSet<>()).add(edge);
+            Edge reverse = reverse(edge);
+            if (reverse != null) {
+                // Les deux sens deviennent des courbes
+                reverse.curved = true;
+                relayout(reverse, dirty);
+                edge.curved = true;
+            }
+        }
+        edge.transitions.add(transition);
+        edge.label = label(edge);
+        edge.labelWidth = textWidth(edge.label, LABEL_FONT);
+        relayout(edge, dirty);
+    }
+
+    void removeTransition(Transition transition, Consumer<Bounds> dirty) {
+        String key = pair(transition.getFrom(), transition.getTo());
+        Edge edge = edgesByPair.get(key);
+        if (edge == null || !edge.transitions.remove(transition)) {
+            return;
+        }
+        if (!edge.transitions.isEmpty()) {
+            edge.label = label(edge);
+            edge.labelWidth = textWidth(edge.label, LABEL_FONT);
+            relayout(edge, dirty);
+            return;
+        }
+        edgesByPair.remove(key);
+        Bounds bounds = edges.remove(edge);
+        if (bounds != null) {
+            dirty.accept(bounds);
+        }
+        detach(edge.from, edge);
+        detach(edge.to, edge);
+        Edge reverse = reverse(edge);
+        if (reverse != null) {
+            reverse.curved = false;
+            relayout(reverse, dirty);
+        }
+    }
+
+    Bounds boundsOf(State state) {
+        return states.bounds(state);
+    }
+
+    Edge edgeOf(Transition transition) {
+        return edgesByPair.get(pair(transition.getFrom(), transition.getTo()));
+    }
+
+    double labelWidth(State state) {
+        return labelWidths.getOrDefault(state, 0.0);
+    }
+
+    double stateLabelHeight() {
+        return stateLabelHeight;
+    }
+
+    /**
+     * Parcourt les flèches puis les états dont l'emprise coupe la zone (ordre de dessin).
+     */
+    void forEachIn(Bounds area, Consumer<Edge> edgeAction, Consumer<State> stateAction) {
+        edges.query(area).forEach(edgeAction);
+        states.query(area).forEach(stateAction);
+    }
+
+    void forEach(Consumer<Edge> edgeAction, Consumer<State> stateAction) {
+        edges.items().forEach(edgeAction);
+        states.items().forEach(stateAction);
+    }
+
+    /**
+     * État dont le cercle contient le point (le plus proche du point s'il y en a plusieurs).
+     */
+    Optional<State> stateAt(double x, double y) {
+        return states.query(new BoundingBox(x, y, 0, 0)).stream()
+                .filter(state -> state.contains(x, y))
+                .min(Comparator.comparingDouble(state -> distanceSquared(x, y, state.getX(), state.getY())));
+    }
+
+    /**
+     * Flèche dont le tracé passe à moins de {@code threshold} du point (la plus proche).
+     */
+    Edge edgeAt(double x, double y, double threshold) {
+        Edge closest = null;
+        double best = threshold;
+        for (Edge edge : edges.query(new BoundingBox(x - threshold, y - threshold, 2 * threshold, 2 * threshold))) {
+            double distance = distance(edge, x, y);
+            if (distance <= best) {
+                best = distance;
+                closest = edge;
+            }
+        }
+        return closest;
+    }
+
+    private void relayout(Edge edge, Consumer<Bounds> dirty) {
+        layout(edge);
+        Bounds old = edges.put(edge, edge.bounds, edge.cells);
+        if (old != null) {
+            dirty.accept(old);
+        }
+        dirty.accept(edge.bounds);
+    }
+
+    /**
+     * Géométrie d'une flèche, identique au dessin de {@link AutomatonCanvas}.
+     */
+    private void layout(Edge edge) {
+        double radius = State.getRadius();
+        if (edge.isLoop()) {
+            double x = edge.from.getX();
+            double y = edge.from.getY();
+            double loopRadius = radius * 0.7;
+            double loopCenterY = y - radius - loopRadius;
+            edge.ctrlX = x;
+            edge.ctrlY = loopCenterY;
+            edge.bounds = union(
+                    box(x - loopRadius - ARROW_LENGTH, loopCenterY - loopRadius - ARROW_LENGTH,
+                            x + loopRadius + ARROW_LENGTH, loopCenterY + loopRadius + ARROW_LENGTH),
+                    labelBox(x - 8, loopCenterY - loopRadius - 8, edge.labelWidth));
+            edge.cells = Grid.cells(edge.bounds);
+            return;
+        }
+        double x1 = edge.from.getX();
+        double y1 = edge.from.getY();
+        double x2 = edge.to.getX();
+        double y2 = edge.to.getY();
+        edge.angle = Math.atan2(y2 - y1, x2 - x1);
+        edge.startX = x1 + radius * Math.cos(edge.angle);
+        edge.startY = y1 + radius * Math.sin(edge.angle);
+        edge.endX = x2 - radius * Math.cos(edge.angle);
+        edge.endY = y2 - radius * Math.sin(edge.angle);
+        double midX = (edge.startX + edge.endX) / 2;
+        double midY = (edge.startY + edge.endY) / 2;
+        double curve = edge.curved ? CURVE : 0;
+        edge.ctrlX = midX + curve * Math.cos(edge.angle + Math.PI / 2);
+        edge.ctrlY = midY + curve * Math.sin(edge.angle + Math.PI / 2);
+
+        double labelX = edge.ctrlX + 8 * Math.cos(edge.angle + Math.PI / 2);
+        double labelY = edge.ctrlY + 8 * Math.sin(edge.angle + Math.PI / 2);
+        // La courbe reste dans l'enveloppe de ses points de contrôle ; la pointe, à moins de sa longueur de l'extrémité
+        Bounds head = box(edge.endX - ARROW_LENGTH, edge.endY - ARROW_LENGTH, edge.endX + ARROW_LENGTH, edge.endY + ARROW_LENGTH);
+        Bounds label = labelBox(labelX, labelY, edge.labelWidth);
+        edge.bounds = union(union(
+                box(Math.min(Math.min(edge.startX, edge.ctrlX), edge.endX), Math.min(Math.min(edge.startY, edge.ctrlY), edge.endY),
+                        Math.max(Math.max(edge.startX, edge.ctrlX), edge.endX), Math.max(Math.max(edge.startY, edge.ctrlY), edge.endY)),
+                head), label);
+
+        // Cellules du tracé, découpé en segments plus courts qu'une demi-cellule
+        Set<Long> cells = new HashSet<>();
+        Grid.addCells(cells, head);
+        Grid.addCells(cells, label);
+        int steps = Math.max(1, (int) Math.ceil((Math.hypot(edge.ctrlX - edge.startX, edge.ctrlY - edge.startY)
+                + Math.hypot(edge.endX - edge.ctrlX, edge.endY - edge.ctrlY)) / (CELL / 2)));
+        double previousX = edge.startX;
+        double previousY = edge.startY;
+        for (int i = 1; i <= steps; i++) {
+            double t = (double) i / steps;
+            double u = 1 - t;
+            double px = u * u * edge.startX + 2 * u * t * edge.ctrlX + t * t * edge.endX;
+            double py = u * u * edge.startY + 2 * u * t * edge.ctrlY + t * t * edge.endY;
+            Grid.addCells(cells, box(Math.min(previousX, px), Math.min(previousY, py), Math.max(previousX, px), Math.max(previousY, py)));
+            previousX = px;
+            previousY = py;
+        }
+        edge.cells = cells.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Emprise d'un état : cercle, label, et flèche entrante s'il est initial.
+     */
+    private Bounds stateBounds(State state) {
+        double x = state.getX();
+        double y = state.getY();
+        double radius = State.getRadius();
+        double half = labelWidths.getOrDefault(state, 0.0) / 2;
+        double left = state.isInitial() ? x - radius - 50 : x - Math.max(radius, half);
+        return box(left, y - radius, x + Math.max(radius, half), y + radius);
+    }
+
+    private static Bounds labelBox(double x, double baseline, double width) {
+        return box(x, baseline - LABEL_FONT.getSize(), x + width, baseline + LABEL_FONT.getSize() / 3);
+    }
+
+    private static Bounds box(double minX, double minY, double maxX, double maxY) {
+        return new BoundingBox(minX - PADDING, minY - PADDING, maxX - minX + 2 * PADDING, maxY - minY + 2 * PADDING);
+    }
+
+    static Bounds union(Bounds a, Bounds b) {
+        double minX = Math.min(a.getMinX(), b.getMinX());
+        double minY = Math.min(a.getMinY(), b.getMinY());
+        return new BoundingBox(minX, minY,
+                Math.max(a.getMaxX(), b.getMaxX()) - minX, Math.max(a.getMaxY(), b.getMaxY()) - minY);
+    }
+
+    /**
+     * Distance d'un point au tracé d'une flèche : cercle de la boucle, segment, ou courbe échantillonnée.
+     */
+    private static double distance(Edge edge, double x, double y) {
+        if (edge.isLoop()) {
+            double loopRadius = State.getRadius() * 0.7;
+            return Math.abs(Math.sqrt(distanceSquared(x, y, edge.ctrlX, edge.ctrlY)) - loopRadius);
+        }
+        if (!edge.curved) {
+            return segmentDistance(x, y, edge.startX, edge.startY, edge.endX, edge.endY);
+        }
+        double best = Double.MAX_VALUE;
+        double previousX = edge.startX;
+        double previousY = edge.startY;
+        for (int i = 1; i <= 16; i++) {
+            double t = i / 16.0;
+            double u = 1 - t;
+            double px = u * u * edge.startX + 2 * u * t * edge.ctrlX + t * t * edge.endX;
+            double py = u * u * edge.startY + 2 * u * t * edge.ctrlY + t * t * edge.endY;
+            best = Math.min(best, segmentDistance(x, y, previousX, previousY, px, py));
+            previousX = px;
+            previousY = py;
+        }
+        return best;
+    }
+
+    private static double segmentDistance(double x, double y, double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double length = dx * dx + dy * dy;
+        double t = length == 0 ? 0 : Math.max(0, Math.min(1, ((x - ax) * dx + (y - ay) * dy) / length));
+        return Math.sqrt(distanceSquared(x, y, ax + t * dx, ay + t * dy));
+    }
+
+    private static double distanceSquared(double x1, double y1, double x2, double y2) {
+        return (x1 - x2) * (x1 - x2) + (y1 - y2) * (y1 - y2);
+    }
+
+    private Edge reverse(Edge edge) {
+        return edge.isLoop() ? null : edgesByPair.get(pair(edge.to, edge.from));
+    }
+
+    private void detach(State state, Edge edge) {
+        Set<Edge> attached = incident.get(state);
+        if (attached != null) {
+            attached.remove(edge);
+        }
+    }
+
+    private static String label(Edge edge) {
+        return edge.transitions.stream()
+                .map(Transition::getSymbol)
+                .collect(Collectors.joining(","));
+    }
+
+    private static String pair(State from, State to) {
+        return from.getId() + "->" + to.getId();
+    }
+
+    private double textWidth(String text, Font font) {
+        measure.setText(text);
+        measure.setFont(font);
+        return measure.getLayoutBounds().getWidth();
+    }
+
+    /**
+     * Grille uniforme : chaque élément est rangé dans les cellules qu'il occupe, données à l'insertion.
+     */
+    private static final class Grid<T> {
+
+        // Emprise, cellules et rang d'insertion (ordre de dessin stable entre deux dessins)
+        private record Entry(Bounds bounds, long[] cells, long order) {
+        }
+
+        private final Map<Long, Set<T>> cells = new HashMap<>();
+        private final Map<T, Entry> entries = new LinkedHashMap<>();
+        private long next;
+
+        /**
+         * Range ou déplace un élément.
+         * @return son ancienne emprise, ou null
+         */
+        Bounds put(T item, Bounds area, long[] keys) {
+            Entry old = entries.get(item);
+            if (old != null) {
+                unlink(item, old.cells());
+            }
+            entries.put(item, new Entry(area, keys, old != null ? old.order() : next++));
+            for (long key : keys) {
+                cells.computeIfAbsent(key, k -> new HashSet<>()).add(item);
+            }
+            return old != null ? old.bounds() : null;
+        }
+
+        Bounds remove(T item) {
+            Entry old = entries.remove(item);
+            if (old == null) {
+                return null;
+            }
+            unlink(item, old.cells());
+            return old.bounds();
+        }
+
+        Bounds bounds(T item) {
+            Entry entry = entries.get(item);
+            return entry != null ? entry.bounds() : null;
+        }
+
+        Collection<T> items() {
+            return entries.keySet();
+        }
+
+        /**
+         * Éléments rangés dans les cellules de la zone et dont l'emprise la coupe, dans l'ordre d'insertion.
+         */
+        List<T> query(Bounds area) {
+            Set<T> found = new HashSet<>();
+            if (cellCount(area) > cells.size()) {
+                // Zone plus grande que la partie occupée de la grille : parcourir les cellules occupées
+                long[] range = range(area);
+                cells.forEach((key, items) -> {
+                    int cx = (int) (key >> 32);
+                    int cy = key.intValue();
+                    if (cx >= range[0] && cx <= range[2] && cy >= range[1] && cy <= range[3]) {
+                        collect(items, area, found);
+                    }
+                });
+            } else {
+                long[] range = range(area);
+                for (long cx = range[0]; cx <= range[2]; cx++) {
+                    for (long cy = range[1]; cy <= range[3]; cy++) {
+                        Set<T> items = cells.get(key((int) cx, (int) cy));
+                        if (items != null) {
+                            collect(items, area, found);
+                        }
+                    }
+                }
+            }
+            List<T> ordered = new ArrayList<>(found);
+            ordered.sort(Comparator.comparingLong(item -> entries.get(item).order()));
+            return ordered;
+        }
+
+        void clear() {
+            cells.clear();
+            entries.clear();
+        }
+
+        private void collect(Set<T> items, Bounds area, Set<T> found) {
+            for (T item : items) {
+                if (entries.get(item).bounds().intersects(area)) {
+                    found.add(item);
+                }
+            }
+        }
+
+        private void unlink(T item, long[] keys) {
+            for (long key : keys) {
+                Set<T> cell = cells.get(key);
+                if (cell != null && cell.remove(item) && cell.isEmpty()) {
+                    cells.remove(key);
+                }
+            }
+        }
+
+        /**
+         * Cellules couvertes par un rectangle.
+         */
+        static long[] cells(Bounds area) {
+            long[] range = range(area);
+            long[] keys = new long[(int) ((range[2] - range[0] + 1) * (range[3] - range[1] + 1))];
+            int i = 0;
+            for (long cx = range[0]; cx <= range[2]; cx++) {
+                for (long cy = range[1]; cy <= range[3]; cy++) {
+                    keys[i++] = key((int) cx, (int) cy);
+                }
+            }
+            return keys;
+        }
+
+        static void addCells(Set<Long> keys, Bounds area) {
+            for (long key : cells(area)) {
+                keys.add(key);
+            }
+        }
+
+        private static long cellCount(Bounds area) {
+            long[] range = range(area);
+            return (range[2] - range[0] + 1) * (range[3] - range[1] + 1);
+        }
+
+        private static long[] range(Bounds area) {
+            return new long[]{(long) Math.floor(area.getMinX() / CELL), (long) Math.floor(area.getMinY() / CELL),
+                    (long) Math.floor(area.getMaxX() / CELL), (long) Math.floor(area.getMaxY() / CELL)};
+        }
+
+        private static long key(int cx, int cy) {
+            return (long) cx << 32 | (cy & 0xFFFFFFFFL);
+        }
+    }
+}
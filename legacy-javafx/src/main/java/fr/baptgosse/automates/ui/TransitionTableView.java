@@ -1,11 +1,17 @@
 package fr.baptgosse.automates.ui;
 
 import fr.baptgosse.automates.model.Automaton;
+import fr.baptgosse.automates.model.AutomatonChange;
 import fr.baptgosse.automates.model.State;
+import fr.baptgosse.automates.model.Transition;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
 import javafx.scene.control.Label;
-import javafx.scene.control.ScrollPane;
-import javafx.scene.layout.GridPane;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
@@ -15,19 +21,39 @@ import java.util.stream.Collectors;
 
 /**
  * Affichage de la table de transitions.
+ *
+ * La table est virtualisée : seules les lignes visibles ont des cellules. Chaque ligne garde le texte
+ * de ses cases, calculé à partir des transitions sortantes de son état ; une modification de l'automate
+ * ({@link #apply(AutomatonChange)}) ne recalcule que les lignes concernées.
  */
 public class TransitionTableView extends VBox {
 
+    private static final double ROW_HEIGHT = 26;
+
+    private static final Comparator<State> BY_LABEL = Comparator.comparing(State::getLabel)
+            .thenComparing(State::getId);
+
     private final Automaton automaton;
-    private final GridPane tableGrid;
+    private final TableView<Row> table;
+    private final ObservableList<Row> rows = FXCollections.observableArrayList();
+    private final Map<State, Set<Transition>> outgoing = new HashMap<>();
     private final Label titleLabel;
     private final Label summaryLabel;
+    private final Label messageLabel;
+    private List<String> symbols = List.of();
+
+    /**
+     * Ligne de la table : un état et le texte de ses cases, par symbole (absent : « - »).
+     */
+    private record Row(State state, String header, Map<String, String> cells) {
+    }
 
     public TransitionTableView(Automaton automaton) {
         this.automaton = automaton;
         this.titleLabel = new Label("Table de Transitions");
         this.summaryLabel = new Label();
-        this.tableGrid = new GridPane();
+        this.messageLabel = new Label();
+        this.table = new TableView<>(rows);
 
         titleLabel.setFont(Font.font("System", FontWeight.BOLD, 16));
         titleLabel.setPadding(new Insets(10));
@@ -36,33 +62,111 @@ public class TransitionTableView extends VBox {
         summaryLabel.setPadding(new Insets(5, 10, 10, 10));
         summaryLabel.setStyle("-fx-text-fill: #666666;");
 
-        tableGrid.setHgap(10);
-        tableGrid.setVgap(5);
-        tableGrid.setPadding(new Insets(10));
+        messageLabel.setFont(Font.font("System", 12));
+        messageLabel.setPadding(new Insets(10));
 
-        ScrollPane scrollPane = new ScrollPane(tableGrid);
-        scrollPane.setFitToWidth(true);
+        // Hauteur fixe : la table ne mesure pas chaque ligne pour savoir lesquelles sont visibles
+        table.setFixedCellSize(ROW_HEIGHT);
+        VBox.setVgrow(table, Priority.ALWAYS);
 
-        getChildren().addAll(titleLabel, summaryLabel, scrollPane);
+        getChildren().addAll(titleLabel, summaryLabel, messageLabel, table);
         setPrefWidth(400);
 
         refresh();
     }
 
+    /**
+     * Relit tout l'automate.
+     */
     public void refresh() {
-        // Mise à jour du résumé
-        updateSummary();
+        outgoing.clear();
+        for (Transition transition : automaton.getTransitions()) {
+            outgoing.computeIfAbsent(transition.getFrom(), s -> new LinkedHashSet<>()).add(transition);
+        }
 
-        tableGrid.getChildren().clear();
+        List<State> states = new ArrayList<>(automaton.getStates());
+        states.sort(BY_LABEL);
+        rows.setAll(states.stream().map(this::row).collect(Collectors.toList()));
+
+        symbols = List.of();
+        update();
+    }
 
-        if (automaton.getStates().isEmpty()) {
-            Label emptyLabel = new Label("Aucun état défini");
-            emptyLabel.setFont(Font.font("System", 12));
-            tableGrid.add(emptyLabel, 0, 0);
+    /**
+     * Met à jour les lignes touchées par une modification de l'automate.
+     */
+    public void apply(AutomatonChange change) {
+        if (change.reload()) {
+            refresh();
             return;
         }
 
-        buildTable();
+        // États dont les cases ou l'en-tête ont changé
+        Set<State> dirty = new HashSet<>(change.updatedStates());
+        for (Transition transition : change.removedTransitions()) {
+            Set<Transition> transitions = outgoing.get(transition.getFrom());
+            if (transitions != null) {
+                transitions.remove(transition);
+                if (transitions.isEmpty()) {
+                    outgoing.remove(transition.getFrom());
+                }
+            }
+            dirty.add(transition.getFrom());
+        }
+        for (Transition transition : change.addedTransitions()) {
+            outgoing.computeIfAbsent(transition.getFrom(), s -> new LinkedHashSet<>()).add(transition);
+            dirty.add(transition.getFrom());
+        }
+
+        for (State state : change.removedStates()) {
+            int i = indexOf(state);
+            if (i >= 0) {
+                rows.remove(i);
+            }
+            outgoing.remove(state);
+            dirty.remove(state);
+        }
+        for (State state : change.addedStates()) {
+            int i = indexOf(state);
+            if (i < 0) {
+                rows.add(-i - 1, row(state));
+            }
+            dirty.remove(state);
+        }
+        for (State state : dirty) {
+            int i = indexOf(state);
+            if (i >= 0) {
+                rows.set(i, row(state));
+            }
+        }
+
+        update();
+    }
+
+    /**
+     * Met à jour le résumé, les colonnes (si l'alphabet a changé) et le message affiché à la place de la table.
+     */
+    private void update() {
+        updateSummary();
+
+        List<String> alphabet = new ArrayList<>(automaton.getAlphabet());
+        Collections.sort(alphabet);
+        if (!alphabet.equals(symbols)) {
+            symbols = List.copyOf(alphabet);
+            buildColumns();
+        }
+
+        String message = null;
+        if (rows.isEmpty()) {
+            message = "Aucun état défini";
+        } else if (symbols.isEmpty()) {
+            message = "Aucune transition définie";
+        }
+        messageLabel.setText(message != null ? message : "");
+        messageLabel.setVisible(message != null);
+        messageLabel.setManaged(message != null);
+        table.setVisible(message == null);
+        table.setManaged(message == null);
     }
 
     private void updateSummary() {
@@ -94,72 +198,70 @@ public class TransitionTableView extends VBox {
         summaryLabel.setText(summary.toString());
     }
 
-    private void buildTable() {
-        // Obtenir les états triés
-        List<State> states = new ArrayList<>(automaton.getStates());
-        states.sort(Comparator.comparing(State::getLabel));
+    private void buildColumns() {
+        List<TableColumn<Row, String>> columns = new ArrayList<>();
+
+        // Colonne 0 : nom de l'état avec marqueurs
+        TableColumn<Row, String> stateColumn = new TableColumn<>("");
+        stateColumn.setCellValueFactory(data -> new ReadOnlyStringWrapper(data.getValue().header()));
+        stateColumn.setStyle("-fx-font-weight: bold;");
+        stateColumn.setSortable(false);
+        columns.add(stateColumn);
+
+        // Colonnes suivantes : symboles
+        for (String symbol : symbols) {
+            TableColumn<Row, String> column = new TableColumn<>(symbol);
+            column.setCellValueFactory(data ->
+                    new ReadOnlyStringWrapper(data.getValue().cells().getOrDefault(symbol, "-")));
+            column.setSortable(false);
+            columns.add(column);
+        }
 
-        // Obtenir l'alphabet trié
-        List<String> alphabet = new ArrayList<>(automaton.getAlphabet());
-        Collections.sort(alphabet);
+        table.getColumns().setAll(columns);
+    }
 
-        if (alphabet.isEmpty()) {
-            Label noTransLabel = new Label("Aucune transition définie");
-            tableGrid.add(noTransLabel, 0, 0);
-            return;
+    /**
+     * Position de la ligne d'un état, ou {@code -(position d'insertion) - 1} s'il n'a pas de ligne.
+     */
+    private int indexOf(State state) {
+        int low = 0;
+        int high = rows.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = BY_LABEL.compare(rows.get(mid).state(), state);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
         }
+        return -(low + 1);
+    }
 
-        // En-tête : symboles
-        Label emptyCell = new Label("");
-        emptyCell.setFont(Font.font("System", FontWeight.BOLD, 12));
-        tableGrid.add(emptyCell, 0, 0);
-
-        for (int i = 0; i < alphabet.size(); i++) {
-            Label symbolLabel = new Label(alphabet.get(i));
-            symbolLabel.setFont(Font.font("System", FontWeight.BOLD, 12));
-            symbolLabel.setPadding(new Insets(5));
-            tableGrid.add(symbolLabel, i + 1, 0);
-        }
-
-        // Obtenir la table de transitions
-        Map<State, Map<String, Set<State>>> table = automaton.getTransitionTable();
-
-        // Lignes : états
-        int row = 1;
-        for (State state : states) {
-            // Colonne 0 : nom de l'état avec marqueurs
-            String stateLabel = formatStateLabel(state);
-            Label stateLabelNode = new Label(stateLabel);
-            stateLabelNode.setFont(Font.font("System", FontWeight.BOLD, 12));
-            stateLabelNode.setPadding(new Insets(5));
-            tableGrid.add(stateLabelNode, 0, row);
-
-            // Colonnes suivantes : transitions
-            Map<String, Set<State>> transitions = table.get(state);
-            for (int col = 0; col < alphabet.size(); col++) {
-                String symbol = alphabet.get(col);
-                Set<State> targetStates = transitions.getOrDefault(symbol, Collections.emptySet());
-
-                String targetText;
-                if (targetStates.isEmpty()) {
-                    targetText = "-";
-                } else if (targetStates.size() == 1) {
-                    // Pour un AFD, afficher juste le label sans accolades
-                    targetText = targetStates.iterator().next().getLabel();
-                } else {
-                    // Pour un AFN, afficher avec accolades
-                    targetText = targetStates.stream()
-                            .map(State::getLabel)
-                            .collect(Collectors.joining(", ", "{", "}"));
-                }
+    private Row row(State state) {
+        Map<String, Set<State>> targets = new HashMap<>();
+        for (Transition transition : outgoing.getOrDefault(state, Set.of())) {
+            targets.computeIfAbsent(transition.getSymbol(), s -> new TreeSet<>(BY_LABEL)).add(transition.getTo());
+        }
 
-                Label targetLabel = new Label(targetText);
-                targetLabel.setPadding(new Insets(5));
-                tableGrid.add(targetLabel, col + 1, row);
+        Map<String, String> cells = new HashMap<>();
+        targets.forEach((symbol, targetStates) -> {
+            String targetText;
+            if (targetStates.size() == 1) {
+                // Pour un AFD, afficher juste le label sans accolades
+                targetText = targetStates.iterator().next().getLabel();
+            } else {
+                // Pour un AFN, afficher avec accolades
+                targetText = targetStates.stream()
+                        .map(State::getLabel)
+                        .collect(Collectors.joining(", ", "{", "}"));
             }
+            cells.put(symbol, targetText);
+        });
 
-            row++;
-        }
+        return new Row(state, formatStateLabel(state), cells);
     }
 
     private String formatStateLabel(State state) {
@@ -54,8 +54,8 @@ public class MainWindowController {
         VBox.setVgrow(infoPanel, javafx.scene.layout.Priority.ALWAYS);
 
         // Lier le canvas aux vues pour les mises à jour
-        canvas.setOnAutomatonChanged(() -> {
-            tableView.refresh();
+        canvas.setOnAutomatonChanged(change -> {
+            tableView.apply(change);
             infoPanel.refresh();
             updateStatus();
         });